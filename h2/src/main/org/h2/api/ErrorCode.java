@@ -2240,7 +2240,30 @@ public class ErrorCode {
      */
     public static final int GROUP_BY_NOT_IN_THE_RESULT = 90157;
 
-    // next is 90158
+    /**
+     * The error with code <code>90158</code> is thrown when trying to change
+     * data in a read-only transaction.
+     * Example:
+     * <pre>
+     * SET TRANSACTION READ ONLY;
+     * CREATE TABLE TEST(ID INT);
+     * </pre>
+     */
+    public static final int TRANSACTION_IS_READ_ONLY = 90158;
+
+    /**
+     * The error with code <code>90159</code> is thrown when trying to change
+     * the access mode of a transaction that has uncommitted changes.
+     * Example:
+     * <pre>
+     * SET AUTOCOMMIT FALSE;
+     * INSERT INTO TEST VALUES(1);
+     * SET TRANSACTION READ ONLY;
+     * </pre>
+     */
+    public static final int TRANSACTION_HAS_UNCOMMITTED_CHANGES = 90159;
+
+    // next is 90160
 
     private ErrorCode() {
         // utility class
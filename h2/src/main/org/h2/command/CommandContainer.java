@@ -162,6 +162,9 @@ public ResultWithGeneratedKeys update(Object generatedKeysRequest) {
         setProgress(DatabaseEventListener.STATE_STATEMENT_START);
         start();
         prepared.checkParameters();
+        if (prepared instanceof DataChangeStatement || prepared instanceof DefineCommand) {
+            session.checkWritingAllowed();
+        }
         ResultWithGeneratedKeys result;
         if (generatedKeysRequest != null && !Boolean.FALSE.equals(generatedKeysRequest)) {
             if (prepared instanceof DataChangeStatement && prepared.getType() != CommandInterface.DELETE) {
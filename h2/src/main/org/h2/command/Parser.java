@@ -236,6 +236,7 @@
 import org.h2.engine.IsolationLevel;
 import org.h2.engine.Mode;
 import org.h2.engine.Mode.ModeEnum;
+import org.h2.engine.PlanCache;
 import org.h2.engine.Procedure;
 import org.h2.engine.Right;
 import org.h2.engine.SessionLocal;
@@ -565,7 +566,7 @@ public Query prepareQueryExpression(String sql) {
      */
     public Command prepareCommand(String sql) {
         try {
-            Prepared p = parse(sql, null);
+            Prepared p = parse(sql, getCachedTokens(sql));
             if (currentTokenType != SEMICOLON && currentTokenType != END_OF_INPUT) {
                 addExpected(SEMICOLON);
                 throw getSyntaxError();
@@ -594,6 +595,39 @@ public Command prepareCommand(String sql) {
         }
     }
 
+    /**
+     * Get the tokens of a statement from the plan cache of the database, or
+     * tokenize it and add its tokens to the cache.
+     *
+     * @param sql the SQL statement
+     * @return a copy of the tokens, or {@code null} if the cache can't be used
+     */
+    private ArrayList<Token> getCachedTokens(String sql) {
+        PlanCache planCache = database.getPlanCache();
+        // non-keywords are session-specific
+        if (planCache == null || sql == null || nonKeywords != null) {
+            return null;
+        }
+        Mode mode = database.getMode();
+        ArrayList<Token> cached = planCache.getTokens(sql, mode);
+        if (cached != null) {
+            return copyTokens(cached);
+        }
+        ArrayList<Token> tokens = new Tokenizer(database, identifiersToUpper, identifiersToLower, null)
+                .tokenize(sql, false);
+        // the parser modifies tokens
+        planCache.putTokens(sql, mode, copyTokens(tokens));
+        return tokens;
+    }
+
+    private static ArrayList<Token> copyTokens(ArrayList<Token> tokens) {
+        ArrayList<Token> copy = new ArrayList<>(tokens.size());
+        for (Token token : tokens) {
+            copy.add(token.clone());
+        }
+        return copy;
+    }
+
     private CommandList prepareCommandList(CommandContainer command, Prepared p, String sql, String remainingSql,
             ArrayList<Token> remainingTokens) {
         try {
@@ -1404,6 +1438,11 @@ private static Prepared prepare(SessionLocal s, String sql,
                 Parameter p = params.get(i);
                 p.setValue(paramValues.get(i));
             }
+            if (prep instanceof Query) {
+                // the parameter list is replaced by the outer statement,
+                // so the results can't be identified by parameter values
+                ((Query) prep).disableCache();
+            }
         }
         return prep;
     }
@@ -1659,6 +1698,7 @@ private Insert parseInsert(int start) {
         }
         if (readIf("SORTED")) {
             requireQuery = true;
+            command.setSortedInsertMode(true);
         }
         readValues: {
             if (!requireQuery) {
@@ -8109,26 +8149,44 @@ private Prepared parseSet() {
     }
 
     private Prepared parseSetTransactionMode() {
-        IsolationLevel isolationLevel;
-        read("ISOLATION");
-        read("LEVEL");
-        if (readIf("READ")) {
-            if (readIf("UNCOMMITTED")) {
-                isolationLevel = IsolationLevel.READ_UNCOMMITTED;
+        IsolationLevel isolationLevel = null;
+        Boolean readOnly = null;
+        do {
+            if (readIf("ISOLATION")) {
+                if (isolationLevel != null) {
+                    throw getSyntaxError();
+                }
+                read("LEVEL");
+                if (readIf("READ")) {
+                    if (readIf("UNCOMMITTED")) {
+                        isolationLevel = IsolationLevel.READ_UNCOMMITTED;
+                    } else {
+                        read("COMMITTED");
+                        isolationLevel = IsolationLevel.READ_COMMITTED;
+                    }
+                } else if (readIf("REPEATABLE")) {
+                    read("READ");
+                    isolationLevel = IsolationLevel.REPEATABLE_READ;
+                } else if (readIf("SNAPSHOT")) {
+                    isolationLevel = IsolationLevel.SNAPSHOT;
+                } else {
+                    read("SERIALIZABLE");
+                    isolationLevel = IsolationLevel.SERIALIZABLE;
+                }
             } else {
-                read("COMMITTED");
-                isolationLevel = IsolationLevel.READ_COMMITTED;
-            }
-        } else if (readIf("REPEATABLE")) {
-            read("READ");
-            isolationLevel = IsolationLevel.REPEATABLE_READ;
-        } else if (readIf("SNAPSHOT")) {
-            isolationLevel = IsolationLevel.SNAPSHOT;
-        } else {
-            read("SERIALIZABLE");
-            isolationLevel = IsolationLevel.SERIALIZABLE;
-        }
-        return new SetSessionCharacteristics(session, isolationLevel);
+                if (readOnly != null) {
+                    throw getSyntaxError();
+                }
+                read("READ");
+                if (readIf("ONLY")) {
+                    readOnly = Boolean.TRUE;
+                } else {
+                    read("WRITE");
+                    readOnly = Boolean.FALSE;
+                }
+            }
+        } while (readIf(COMMA));
+        return new SetSessionCharacteristics(session, isolationLevel, readOnly);
     }
 
     private Expression readExpressionOrIdentifier() {
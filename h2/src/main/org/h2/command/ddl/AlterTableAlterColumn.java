@@ -25,6 +25,7 @@
 import org.h2.index.Index;
 import org.h2.index.IndexType;
 import org.h2.message.DbException;
+import org.h2.mvstore.db.MVTable;
 import org.h2.result.ResultInterface;
 import org.h2.result.SearchRow;
 import org.h2.schema.Schema;
@@ -450,6 +451,10 @@ private Table cloneTableStructure(Table table, Column[] columns, Database db,
         data.persistData = table.isPersistData();
         data.persistIndexes = table.isPersistIndexes();
         data.isHidden = table.isHidden();
+        if (table instanceof MVTable) {
+            // preserve storage options of the built-in engine
+            data.tableEngineParams = new ArrayList<>(((MVTable) table).getTableEngineParams());
+        }
         data.session = session;
         Table newTable = getSchema().createTable(data);
         newTable.setComment(table.getComment());
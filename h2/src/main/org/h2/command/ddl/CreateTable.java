@@ -168,6 +168,8 @@ public long update() {
                     insert.setQuery(asQuery);
                     insert.setTable(table);
                     insert.setInsertFromSelect(true);
+                    // the new table is empty and is dropped on failure
+                    insert.setSortedInsertMode(!transactional);
                     insert.prepare();
                     insert.update();
                 } finally {
@@ -27,6 +27,7 @@
 import org.h2.index.Index;
 import org.h2.message.DbException;
 import org.h2.mvstore.db.MVPrimaryIndex;
+import org.h2.mvstore.db.MVTable;
 import org.h2.result.ResultInterface;
 import org.h2.result.ResultTarget;
 import org.h2.result.Row;
@@ -48,6 +49,8 @@ public final class Insert extends CommandWithValues implements ResultTarget {
     private Query query;
     private long rowNumber;
     private boolean insertFromSelect;
+    private boolean sortedInsertMode;
+    private MVPrimaryIndex.RowLoader rowLoader;
 
     private Boolean overridingSystem;
 
@@ -194,7 +197,26 @@ private long insertRows() {
         } else {
             table.lock(session, Table.WRITE_LOCK);
             if (insertFromSelect) {
-                query.query(0, this);
+                if (sortedInsertMode && session.getAutoCommit() && table instanceof MVTable) {
+                    rowLoader = ((MVTable) table).createRowLoader(session);
+                }
+                try {
+                    query.query(0, this);
+                    if (rowLoader != null) {
+                        rowLoader.finish();
+                    }
+                } catch (Throwable e) {
+                    if (rowLoader != null) {
+                        try {
+                            rowLoader.abort();
+                        } catch (Throwable nested) {
+                            e.addSuppressed(nested);
+                        }
+                    }
+                    throw e;
+                } finally {
+                    rowLoader = null;
+                }
             } else {
                 ResultInterface rows = query.query(0);
                 while (rows.next()) {
@@ -231,7 +253,9 @@ public void addRow(Value... values) {
             deltaChangeCollector.addRow(newRow.getValueList().clone());
         }
         if (!table.fireBeforeRow(session, null, newRow)) {
-            table.addRow(session, newRow);
+            if (rowLoader == null || !rowLoader.add(newRow)) {
+                table.addRow(session, newRow);
+            }
             DataChangeDeltaTable.collectInsertedFinalRow(session, table, deltaChangeCollector,
                     deltaChangeCollectionMode, newRow);
             table.fireAfterRow(session, null, newRow, false);
@@ -261,6 +285,9 @@ public String getPlanSQL(int sqlFlags) {
         if (insertFromSelect) {
             builder.append("DIRECT ");
         }
+        if (sortedInsertMode) {
+            builder.append("SORTED ");
+        }
         if (!valuesExpressionList.isEmpty()) {
             builder.append("VALUES ");
             int row = 0;
@@ -328,6 +355,18 @@ public void setInsertFromSelect(boolean value) {
         this.insertFromSelect = value;
     }
 
+    /**
+     * Sets the sorted insert mode. In this mode, rows inserted with
+     * {@link #setInsertFromSelect(boolean)} into an empty table without
+     * secondary indexes are loaded directly into the pages of its primary
+     * index, if the session is in auto-commit mode.
+     *
+     * @param sortedInsertMode the new value
+     */
+    public void setSortedInsertMode(boolean sortedInsertMode) {
+        this.sortedInsertMode = sortedInsertMode;
+    }
+
     @Override
     public boolean isCacheable() {
         return duplicateKeyAssignmentMap == null;
@@ -18,19 +18,29 @@ public class SetSessionCharacteristics extends Prepared {
 
     private final IsolationLevel isolationLevel;
 
-    public SetSessionCharacteristics(SessionLocal session, IsolationLevel isolationLevel) {
+    private final Boolean readOnly;
+
+    public SetSessionCharacteristics(SessionLocal session, IsolationLevel isolationLevel, Boolean readOnly) {
         super(session);
         this.isolationLevel = isolationLevel;
+        this.readOnly = readOnly;
     }
 
     @Override
     public boolean isTransactional() {
-        return false;
+        // the access mode can't be changed when the transaction has changes,
+        // they must not be committed if this command fails
+        return readOnly != null;
     }
 
     @Override
     public long update() {
-        session.setIsolationLevel(isolationLevel);
+        if (readOnly != null) {
+            session.setReadOnly(readOnly);
+        }
+        if (isolationLevel != null) {
+            session.setIsolationLevel(isolationLevel);
+        }
         return 0;
     }
 
@@ -7,11 +7,14 @@
 
 import java.util.BitSet;
 import java.util.Random;
+import org.h2.engine.PlanCache;
 import org.h2.engine.SessionLocal;
 import org.h2.expression.Expression;
 import org.h2.table.Plan;
 import org.h2.table.PlanItem;
+import org.h2.table.Table;
 import org.h2.table.TableFilter;
+import org.h2.table.TableType;
 import org.h2.util.Permutations;
 
 /**
@@ -41,6 +44,7 @@ class Optimizer {
     private final TableFilter[] filters;
     private final Expression condition;
     private final SessionLocal session;
+    private final String sql;
 
     private Plan bestPlan;
     private TableFilter topFilter;
@@ -48,10 +52,20 @@ class Optimizer {
     private Random random;
     private final AllColumnsForPlan allColumnsSet;
 
-    Optimizer(TableFilter[] filters, Expression condition, SessionLocal session) {
+    /**
+     * Creates a new optimizer.
+     *
+     * @param filters the top table filters
+     * @param condition the condition in the WHERE clause, or {@code null}
+     * @param session the session
+     * @param sql the SQL text of the query used to share the join order with
+     *            other sessions, or {@code null}
+     */
+    Optimizer(TableFilter[] filters, Expression condition, SessionLocal session, String sql) {
         this.filters = filters;
         this.condition = condition;
         this.session = session;
+        this.sql = sql;
         allColumnsSet = new AllColumnsForPlan(filters);
     }
 
@@ -80,6 +94,36 @@ private void calculateBestPlan() {
         if (filters.length == 1) {
             testPlan(filters);
         } else {
+            PlanCache planCache = sql != null ? session.getDatabase().getPlanCache() : null;
+            Table[] tables = null;
+            long[] rowCounts = null;
+            if (planCache != null) {
+                int length = filters.length;
+                tables = new Table[length];
+                rowCounts = new long[length];
+                for (int i = 0; i < length; i++) {
+                    Table table = filters[i].getTable();
+                    if (table.getTableType() != TableType.TABLE
+                            || table.isTemporary() && !table.isGlobalTemporary()) {
+                        // views and tables of this session
+                        planCache = null;
+                        break;
+                    }
+                    tables[i] = table;
+                    rowCounts[i] = table.getRowCountApproximation(session);
+                }
+                if (planCache != null) {
+                    int[] order = planCache.get(sql, tables, rowCounts);
+                    if (order != null) {
+                        TableFilter[] list = new TableFilter[length];
+                        for (int i = 0; i < length; i++) {
+                            list[i] = filters[order[i]];
+                        }
+                        testPlan(list);
+                        return;
+                    }
+                }
+            }
             startNs = System.nanoTime();
             if (filters.length <= MAX_BRUTE_FORCE_FILTERS) {
                 calculateBruteForceAll();
@@ -88,7 +132,25 @@ private void calculateBestPlan() {
                 random = new Random(0);
                 calculateGenetic();
             }
+            if (planCache != null) {
+                planCache.put(sql, tables, rowCounts, getOrder());
+            }
+        }
+    }
+
+    private int[] getOrder() {
+        TableFilter[] list = bestPlan.getFilters();
+        int length = list.length;
+        int[] order = new int[length];
+        for (int i = 0; i < length; i++) {
+            for (int j = 0; j < length; j++) {
+                if (filters[j] == list[i]) {
+                    order[i] = j;
+                    break;
+                }
+            }
         }
+        return order;
     }
 
     private void calculateFakePlan() {
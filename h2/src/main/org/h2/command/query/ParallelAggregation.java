@@ -0,0 +1,999 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.command.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinTask;
+
+import org.h2.engine.Database;
+import org.h2.engine.SessionLocal;
+import org.h2.expression.Expression;
+import org.h2.expression.ExpressionColumn;
+import org.h2.expression.ExpressionVisitor;
+import org.h2.expression.Parameter;
+import org.h2.expression.ValueExpression;
+import org.h2.expression.aggregate.Aggregate;
+import org.h2.expression.aggregate.AggregateType;
+import org.h2.expression.analysis.DataAnalysisOperation;
+import org.h2.expression.condition.BetweenPredicate;
+import org.h2.expression.condition.Comparison;
+import org.h2.expression.condition.ConditionAndOr;
+import org.h2.expression.condition.ConditionAndOrN;
+import org.h2.index.Cursor;
+import org.h2.index.Index;
+import org.h2.index.IndexCursor;
+import org.h2.message.DbException;
+import org.h2.mvstore.db.MVPrimaryIndex;
+import org.h2.mvstore.db.MVTable;
+import org.h2.mvstore.db.MVZoneMapIndex;
+import org.h2.result.Row;
+import org.h2.table.Column;
+import org.h2.table.TableFilter;
+import org.h2.value.Value;
+import org.h2.value.ValueBigint;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueRow;
+
+/**
+ * Computes a grouped query over a single table with multiple threads. The
+ * primary index of the table is split into ranges of keys, and each range is
+ * read by a separate task of the common fork-join pool. Each task evaluates
+ * the WHERE condition and computes partial results of aggregates for the
+ * groups of its rows. The partial results of all tasks are merged into the
+ * group data of the query afterwards. Small tables are read by one task on the
+ * thread of the session.
+ * <p>
+ * Rows are processed in batches. Conditions narrow down a selection vector of
+ * rows of the current batch, and comparisons of integer columns with constants
+ * as well as SUM, MIN, and MAX aggregates of integer columns without GROUP BY
+ * are evaluated over primitive vectors of column values.
+ * </p>
+ * <p>
+ * Expressions are bound to the current row of their table filter and cannot
+ * be evaluated by other threads, so only conditions and aggregates with
+ * simple arguments are supported: the WHERE condition may contain only
+ * comparisons and BETWEEN predicates with columns and constant expressions
+ * combined with AND and OR, arguments of aggregates and GROUP BY expressions
+ * must be columns.
+ * </p>
+ */
+final class ParallelAggregation {
+
+    /**
+     * The minimum number of rows to read by each task.
+     */
+    static final long MIN_ROWS_PER_TASK = 10_000;
+
+    /**
+     * The number of rows in one batch.
+     */
+    static final int BATCH_SIZE = 1_024;
+
+    /**
+     * Operand that cannot be evaluated by a task.
+     */
+    private static final int NO_OPERAND = Integer.MIN_VALUE;
+
+    private final TableFilter filter;
+
+    private final MVPrimaryIndex index;
+
+    private final RowCondition condition;
+
+    /**
+     * Expressions that are evaluated once before the tasks are started.
+     * Operands with negative numbers refer to their values.
+     */
+    private final Expression[] constants;
+
+    /**
+     * Ids of columns of GROUP BY expressions, or {@code null}.
+     */
+    private final int[] groupColumns;
+
+    private final Aggregate[] aggregates;
+
+    /**
+     * Ids of argument columns of aggregates, -1 for COUNT(*).
+     */
+    private final int[] aggregateColumns;
+
+    /**
+     * Columns in the select list outside of aggregates.
+     */
+    private final ExpressionColumn[] columns;
+
+    /**
+     * Whether columns of the table have an integer data type.
+     */
+    private final boolean[] integerColumns;
+
+    private ParallelAggregation(TableFilter filter, MVPrimaryIndex index, RowCondition condition,
+            Expression[] constants, int[] groupColumns, Aggregate[] aggregates, int[] aggregateColumns,
+            ExpressionColumn[] columns) {
+        this.filter = filter;
+        this.index = index;
+        this.condition = condition;
+        this.constants = constants;
+        this.groupColumns = groupColumns;
+        this.aggregates = aggregates;
+        this.aggregateColumns = aggregateColumns;
+        this.columns = columns;
+        Column[] tableColumns = filter.getTable().getColumns();
+        int length = tableColumns.length;
+        integerColumns = new boolean[length];
+        for (int i = 0; i < length; i++) {
+            integerColumns[i] = isInteger(tableColumns[i].getType().getValueType());
+        }
+    }
+
+    private static boolean isInteger(int valueType) {
+        switch (valueType) {
+        case Value.TINYINT:
+        case Value.SMALLINT:
+        case Value.INTEGER:
+        case Value.BIGINT:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Check whether the specified grouped query can be computed in parallel
+     * or in batches.
+     *
+     * @param select the prepared grouped query
+     * @param groupByCopies the indexes of GROUP BY expressions for copies of
+     *            them in the select list, or {@code null}
+     * @return the parallel aggregation, or {@code null} if the query is not
+     *         supported
+     */
+    static ParallelAggregation get(Select select, int[] groupByCopies) {
+        TableFilter filter = select.topTableFilter;
+        if (filter.getJoin() != null || filter.getNestedJoin() != null || filter.getJoinCondition() != null
+                || filter.getFilterCondition() != null || !(filter.getTable() instanceof MVTable)) {
+            return null;
+        }
+        Index filterIndex = filter.getIndex();
+        if (filterIndex instanceof MVPrimaryIndex ? !filter.getIndexConditions().isEmpty()
+                : !(filterIndex instanceof MVZoneMapIndex)) {
+            return null;
+        }
+        ArrayList<Expression> expressions = select.getExpressions();
+        int[] groupIndex = select.groupIndex;
+        int[] groupColumns = null;
+        if (groupIndex != null) {
+            int length = groupIndex.length;
+            groupColumns = new int[length];
+            for (int i = 0; i < length; i++) {
+                int columnId = getColumnId(filter, expressions.get(groupIndex[i]).getNonAliasExpression());
+                if (columnId < 0) {
+                    return null;
+                }
+                groupColumns[i] = columnId;
+            }
+        }
+        ArrayList<Aggregate> aggregates = new ArrayList<>();
+        ArrayList<ExpressionColumn> columns = new ArrayList<>();
+        boolean[] groupByExpression = select.groupByExpression;
+        for (int i = 0, l = expressions.size(); i < l; i++) {
+            if (groupByExpression != null && groupByExpression[i]
+                    || groupByCopies != null && groupByCopies[i] >= 0) {
+                continue;
+            }
+            if (!collect(filter, expressions.get(i), groupColumns, aggregates, columns)) {
+                return null;
+            }
+        }
+        RowCondition condition = null;
+        ArrayList<Expression> constants = new ArrayList<>();
+        Expression where = select.getCondition();
+        if (where != null) {
+            condition = compile(filter, where, constants);
+            if (condition == null) {
+                return null;
+            }
+        }
+        int count = aggregates.size();
+        int[] aggregateColumns = new int[count];
+        for (int i = 0; i < count; i++) {
+            Aggregate aggregate = aggregates.get(i);
+            aggregateColumns[i] = aggregate.getSubexpressionCount() == 0 ? -1
+                    : getColumnId(filter, aggregate.getSubexpression(0));
+        }
+        return new ParallelAggregation(filter, (MVPrimaryIndex) filter.getTable().getScanIndex(null), condition,
+                constants.toArray(new Expression[0]), groupColumns, aggregates.toArray(new Aggregate[0]),
+                aggregateColumns, columns.toArray(new ExpressionColumn[0]));
+    }
+
+    /**
+     * Collect aggregates and columns of an expression from the select list.
+     *
+     * @return whether the expression is supported
+     */
+    private static boolean collect(TableFilter filter, Expression e, int[] groupColumns,
+            ArrayList<Aggregate> aggregates, ArrayList<ExpressionColumn> columns) {
+        e = e.getNonAliasExpression();
+        if (e instanceof Aggregate) {
+            Aggregate aggregate = (Aggregate) e;
+            if (!aggregate.isMergeable()) {
+                return false;
+            }
+            int count = aggregate.getSubexpressionCount();
+            if (count > 1 || count == 1 && getColumnId(filter, aggregate.getSubexpression(0)) < 0) {
+                return false;
+            }
+            for (Aggregate a : aggregates) {
+                if (a == aggregate) {
+                    return true;
+                }
+            }
+            aggregates.add(aggregate);
+            return true;
+        } else if (e instanceof DataAnalysisOperation) {
+            return false;
+        } else if (e instanceof ExpressionColumn) {
+            ExpressionColumn column = (ExpressionColumn) e;
+            TableFilter f = column.getTableFilter();
+            if (f == null) {
+                return false;
+            } else if (f == filter) {
+                int columnId = getColumnId(filter, column);
+                if (columnId < 0 || groupColumns == null) {
+                    return false;
+                }
+                for (int id : groupColumns) {
+                    if (id == columnId) {
+                        columns.add(column);
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return true;
+        }
+        int count = e.getSubexpressionCount();
+        if (count == 0) {
+            // other expressions without subexpressions may hide them
+            return e instanceof ValueExpression || e instanceof Parameter;
+        }
+        for (int i = 0; i < count; i++) {
+            if (!collect(filter, e.getSubexpression(i), groupColumns, aggregates, columns)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int getColumnId(TableFilter filter, Expression e) {
+        if (e instanceof ExpressionColumn) {
+            ExpressionColumn expressionColumn = (ExpressionColumn) e;
+            Column column = expressionColumn.getColumn();
+            if (expressionColumn.getTableFilter() == filter && column != null) {
+                return column.getColumnId();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compile a condition into a condition that can be evaluated by tasks.
+     *
+     * @return the compiled condition, or {@code null} if the condition is not
+     *         supported
+     */
+    private static RowCondition compile(TableFilter filter, Expression e, ArrayList<Expression> constants) {
+        int andOrType;
+        if (e instanceof ConditionAndOr) {
+            andOrType = ((ConditionAndOr) e).getAndOrType();
+        } else if (e instanceof ConditionAndOrN) {
+            andOrType = ((ConditionAndOrN) e).getAndOrType();
+        } else if (e instanceof Comparison) {
+            Comparison comparison = (Comparison) e;
+            if (comparison.isWhenConditionOperand()) {
+                return null;
+            }
+            int left = getOperand(filter, comparison.getSubexpression(0), constants);
+            int right = getOperand(filter, comparison.getSubexpression(1), constants);
+            return left != NO_OPERAND && right != NO_OPERAND
+                    ? new ComparisonCondition(comparison.getCompareType(), left, right)
+                    : null;
+        } else if (e instanceof BetweenPredicate) {
+            BetweenPredicate between = (BetweenPredicate) e;
+            if (between.isWhenConditionOperand()) {
+                return null;
+            }
+            int value = getOperand(filter, between.getSubexpression(0), constants);
+            int a = getOperand(filter, between.getSubexpression(1), constants);
+            int b = getOperand(filter, between.getSubexpression(2), constants);
+            return value != NO_OPERAND && a != NO_OPERAND && b != NO_OPERAND
+                    ? new BetweenCondition(between, value, a, b)
+                    : null;
+        } else {
+            return null;
+        }
+        int count = e.getSubexpressionCount();
+        RowCondition[] conditions = new RowCondition[count];
+        for (int i = 0; i < count; i++) {
+            RowCondition c = compile(filter, e.getSubexpression(i), constants);
+            if (c == null) {
+                return null;
+            }
+            conditions[i] = c;
+        }
+        return new AndOrCondition(andOrType == ConditionAndOr.AND, conditions);
+    }
+
+    private static int getOperand(TableFilter filter, Expression e, ArrayList<Expression> constants) {
+        int columnId = getColumnId(filter, e);
+        if (columnId >= 0) {
+            return columnId;
+        }
+        if (e.isEverything(ExpressionVisitor.getNotFromResolverVisitor(filter))
+                && e.isEverything(ExpressionVisitor.DETERMINISTIC_VISITOR)) {
+            constants.add(e);
+            return -constants.size();
+        }
+        return NO_OPERAND;
+    }
+
+    /**
+     * Read the table and put the merged groups into the group data of the
+     * query.
+     *
+     * @param session the session
+     * @param groupData the group data, initialized for a new execution
+     * @return {@code false} if the table is too small for parallel execution
+     *         and batch execution is disabled, nothing was done in that case
+     */
+    boolean gatherGroup(SessionLocal session, SelectGroups groupData) {
+        int taskCount = (int) Math.min(session.getMaxParallelWorkers(),
+                index.getRowCountApproximation(session) / MIN_ROWS_PER_TASK);
+        if (taskCount <= 1) {
+            if (!session.getDatabase().getSettings().optimizeBatchExecution) {
+                return false;
+            }
+            taskCount = 1;
+        }
+        Value[] values = new Value[constants.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = constants[i].getValue(session);
+        }
+        Cursor[] cursors;
+        if (filter.getIndex() == index) {
+            cursors = index.findParts(session, taskCount);
+        } else {
+            // blocks of rows selected by a zone map are read by one task
+            IndexCursor cursor = new IndexCursor();
+            cursor.setIndex(filter.getIndex());
+            cursor.find(session, filter.getIndexConditions());
+            cursors = new Cursor[] { cursor };
+        }
+        TreeMap<ValueRow, Group> groups = cursors.length == 1 ? scan(session, cursors[0], values, null, groupData)
+                : scanInParallel(session, cursors, values);
+        addGroups(session, groupData, groups);
+        groupData.done();
+        return true;
+    }
+
+    /**
+     * Add partial results of groups to the group data of the query. The same
+     * group may be added several times.
+     */
+    private void addGroups(SessionLocal session, SelectGroups groupData, TreeMap<ValueRow, Group> groups) {
+        for (Group group : groups.values()) {
+            filter.set(group.row);
+            groupData.nextSource();
+            for (ExpressionColumn column : columns) {
+                column.updateAggregate(session, DataAnalysisOperation.STAGE_GROUP);
+            }
+            for (int i = 0, l = aggregates.length; i < l; i++) {
+                groupData.mergeCurrentGroupExprData(aggregates[i], group.results[i]);
+            }
+        }
+        filter.set(null);
+    }
+
+    private TreeMap<ValueRow, Group> scanInParallel(SessionLocal session, Cursor[] cursors, Value[] values) {
+        int count = cursors.length;
+        ArrayList<ForkJoinTask<TreeMap<ValueRow, Group>>> tasks = new ArrayList<>(count);
+        Execution execution = new Execution();
+        for (Cursor cursor : cursors) {
+            tasks.add(ForkJoinTask.adapt(() -> scan(session, cursor, values, execution, null)));
+        }
+        for (int i = 1; i < count; i++) {
+            tasks.get(i).fork();
+        }
+        TreeMap<ValueRow, Group> groups = null;
+        Throwable exception = null;
+        for (int i = 0; i < count; i++) {
+            ForkJoinTask<TreeMap<ValueRow, Group>> task = tasks.get(i);
+            try {
+                TreeMap<ValueRow, Group> result = i == 0 ? task.invoke() : task.join();
+                if (exception == null) {
+                    groups = groups == null ? result : merge(session, groups, result);
+                }
+            } catch (Throwable e) {
+                // wait for completion of other tasks
+                execution.stopped = true;
+                if (exception == null) {
+                    exception = e;
+                }
+            }
+        }
+        if (exception != null) {
+            throw DbException.convert(exception);
+        }
+        return groups;
+    }
+
+    /**
+     * Compute partial results of groups of rows of a cursor.
+     *
+     * @param session the session
+     * @param cursor the cursor
+     * @param values the values of constants
+     * @param execution the state of parallel execution, or {@code null}
+     * @param groupData the group data of the query to pass groups to when
+     *            there are too many of them, or {@code null} to keep all
+     *            groups
+     * @return the remaining groups
+     */
+    private TreeMap<ValueRow, Group> scan(SessionLocal session, Cursor cursor, Value[] values,
+            Execution execution, SelectGroups groupData) {
+        Database db = session.getDatabase();
+        TreeMap<ValueRow, Group> groups = new TreeMap<>(db.getCompareMode());
+        int maxGroups = groupData != null && groupColumns != null && db.isPersistent() && !db.isReadOnly()
+                ? Math.max(1, db.getMaxMemoryRows()) : Integer.MAX_VALUE;
+        Batch batch = new Batch(integerColumns);
+        int[] selection = new int[BATCH_SIZE];
+        while (batch.fill(cursor)) {
+            if (execution != null && execution.stopped) {
+                break;
+            }
+            session.checkCanceled();
+            int size = batch.size;
+            for (int i = 0; i < size; i++) {
+                selection[i] = i;
+            }
+            if (condition != null) {
+                size = condition.filter(session, batch, selection, size, values);
+            }
+            if (size > 0) {
+                if (groupColumns == null) {
+                    aggregate(session, groups, batch, selection, size);
+                } else {
+                    aggregateGroups(session, groups, batch, selection, size);
+                    if (groups.size() >= maxGroups) {
+                        addGroups(session, groupData, groups);
+                        groups.clear();
+                    }
+                }
+            }
+        }
+        return groups;
+    }
+
+    private void aggregate(SessionLocal session, TreeMap<ValueRow, Group> groups, Batch batch, int[] selection,
+            int size) {
+        Row[] rows = batch.rows;
+        Group group = groups.get(ValueRow.EMPTY);
+        if (group == null) {
+            group = createGroup(rows[selection[0]]);
+            groups.put(ValueRow.EMPTY, group);
+        }
+        for (int i = 0, l = aggregates.length; i < l; i++) {
+            Aggregate aggregate = aggregates[i];
+            Object result = group.results[i];
+            int columnId = aggregateColumns[i];
+            if (columnId >= 0 && integerColumns[columnId]
+                    && aggregateIntegers(session, aggregate, result, batch, columnId, selection, size)) {
+                continue;
+            }
+            for (int j = 0; j < size; j++) {
+                aggregate.updatePartialResult(session, result,
+                        columnId >= 0 ? rows[selection[j]].getValue(columnId) : null);
+            }
+        }
+    }
+
+    /**
+     * Update a partial result of an aggregate of an integer column with
+     * selected rows of a batch using a vector of column values.
+     *
+     * @return {@code false} if this aggregate or its intermediate result is
+     *         not supported, nothing was done in that case
+     */
+    private static boolean aggregateIntegers(SessionLocal session, Aggregate aggregate, Object result, Batch batch,
+            int columnId, int[] selection, int size) {
+        AggregateType type = aggregate.getAggregateType();
+        if (type != AggregateType.SUM && type != AggregateType.MIN && type != AggregateType.MAX) {
+            return false;
+        }
+        long[] longs = batch.getLongs(columnId);
+        boolean[] nulls = batch.getNulls(columnId);
+        if (type == AggregateType.SUM) {
+            long sum = 0;
+            boolean found = false;
+            try {
+                for (int i = 0; i < size; i++) {
+                    int r = selection[i];
+                    if (!nulls[r]) {
+                        sum = Math.addExact(sum, longs[r]);
+                        found = true;
+                    }
+                }
+            } catch (ArithmeticException e) {
+                return false;
+            }
+            if (found) {
+                aggregate.updatePartialResult(session, result, ValueBigint.get(sum));
+            }
+        } else {
+            boolean min = type == AggregateType.MIN;
+            int best = -1;
+            for (int i = 0; i < size; i++) {
+                int r = selection[i];
+                if (!nulls[r] && (best < 0 || (min ? longs[r] < longs[best] : longs[r] > longs[best]))) {
+                    best = r;
+                }
+            }
+            if (best >= 0) {
+                aggregate.updatePartialResult(session, result, batch.rows[best].getValue(columnId));
+            }
+        }
+        return true;
+    }
+
+    private void aggregateGroups(SessionLocal session, TreeMap<ValueRow, Group> groups, Batch batch,
+            int[] selection, int size) {
+        int groupLength = groupColumns.length;
+        int aggregateCount = aggregates.length;
+        for (int j = 0; j < size; j++) {
+            Row row = batch.rows[selection[j]];
+            Value[] keyValues = new Value[groupLength];
+            for (int i = 0; i < groupLength; i++) {
+                keyValues[i] = row.getValue(groupColumns[i]);
+            }
+            ValueRow key = ValueRow.get(keyValues);
+            Group group = groups.get(key);
+            if (group == null) {
+                group = createGroup(row);
+                groups.put(key, group);
+            }
+            for (int i = 0; i < aggregateCount; i++) {
+                int columnId = aggregateColumns[i];
+                aggregates[i].updatePartialResult(session, group.results[i],
+                        columnId >= 0 ? row.getValue(columnId) : null);
+            }
+        }
+    }
+
+    private Group createGroup(Row row) {
+        int aggregateCount = aggregates.length;
+        Object[] results = new Object[aggregateCount];
+        for (int i = 0; i < aggregateCount; i++) {
+            results[i] = aggregates[i].createPartialResult();
+        }
+        return new Group(row, results);
+    }
+
+    private TreeMap<ValueRow, Group> merge(SessionLocal session, TreeMap<ValueRow, Group> groups,
+            TreeMap<ValueRow, Group> other) {
+        for (Entry<ValueRow, Group> entry : other.entrySet()) {
+            Group otherGroup = entry.getValue();
+            Group group = groups.putIfAbsent(entry.getKey(), otherGroup);
+            if (group != null) {
+                for (int i = 0, l = aggregates.length; i < l; i++) {
+                    aggregates[i].mergePartialResult(session, group.results[i], otherGroup.results[i]);
+                }
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * The state of one execution shared by its tasks.
+     */
+    private static final class Execution {
+
+        /**
+         * Whether remaining tasks should stop reading rows.
+         */
+        volatile boolean stopped;
+
+    }
+
+    /**
+     * Partial results for one group.
+     */
+    private static final class Group {
+
+        /**
+         * A row of the group, used to evaluate GROUP BY columns.
+         */
+        final Row row;
+
+        /**
+         * Partial results of aggregates.
+         */
+        final Object[] results;
+
+        Group(Row row, Object[] results) {
+            this.row = row;
+            this.results = results;
+        }
+
+    }
+
+    /**
+     * A batch of rows with lazily extracted vectors of integer column values.
+     */
+    private static final class Batch {
+
+        /**
+         * The rows, only the first {@link #size} rows are valid.
+         */
+        final Row[] rows = new Row[BATCH_SIZE];
+
+        /**
+         * The number of rows in the batch.
+         */
+        int size;
+
+        private final boolean[] integerColumns;
+
+        private final long[][] longs;
+
+        private final boolean[][] nulls;
+
+        private final boolean[] loaded;
+
+        Batch(boolean[] integerColumns) {
+            this.integerColumns = integerColumns;
+            int length = integerColumns.length;
+            longs = new long[length][];
+            nulls = new boolean[length][];
+            loaded = new boolean[length];
+        }
+
+        /**
+         * Read the next rows from the cursor.
+         *
+         * @param cursor the cursor
+         * @return whether at least one row was read
+         */
+        boolean fill(Cursor cursor) {
+            int n = 0;
+            while (n < BATCH_SIZE && cursor.next()) {
+                rows[n++] = cursor.get();
+            }
+            Arrays.fill(rows, n, size > n ? size : n, null);
+            size = n;
+            Arrays.fill(loaded, false);
+            return n > 0;
+        }
+
+        /**
+         * Returns whether the specified column has an integer data type.
+         *
+         * @param columnId the column id
+         * @return whether the column has an integer data type
+         */
+        boolean isInteger(int columnId) {
+            return integerColumns[columnId];
+        }
+
+        /**
+         * Get the values of an integer column, the values of NULL are
+         * undefined.
+         *
+         * @param columnId the column id
+         * @return the values
+         */
+        long[] getLongs(int columnId) {
+            load(columnId);
+            return longs[columnId];
+        }
+
+        /**
+         * Get the flags of NULL values of an integer column.
+         *
+         * @param columnId the column id
+         * @return the flags
+         */
+        boolean[] getNulls(int columnId) {
+            load(columnId);
+            return nulls[columnId];
+        }
+
+        private void load(int columnId) {
+            if (!loaded[columnId]) {
+                long[] l = longs[columnId];
+                boolean[] n = nulls[columnId];
+                if (l == null) {
+                    longs[columnId] = l = new long[BATCH_SIZE];
+                    nulls[columnId] = n = new boolean[BATCH_SIZE];
+                }
+                for (int i = 0; i < size; i++) {
+                    Value v = rows[i].getValue(columnId);
+                    if (v == ValueNull.INSTANCE) {
+                        n[i] = true;
+                    } else {
+                        n[i] = false;
+                        l[i] = v.getLong();
+                    }
+                }
+                loaded[columnId] = true;
+            }
+        }
+
+    }
+
+    /**
+     * A condition that can be evaluated by tasks.
+     */
+    private abstract static class RowCondition {
+
+        /**
+         * Test whether the condition is true for the specified row.
+         *
+         * @param session the session
+         * @param row the row
+         * @param values the values of constant expressions
+         * @return {@code true} if the condition is true, {@code false} if it
+         *         is false or unknown
+         */
+        abstract boolean test(SessionLocal session, Row row, Value[] values);
+
+        /**
+         * Remove rows from the selection vector for which the condition is
+         * false or unknown.
+         *
+         * @param session the session
+         * @param batch the batch
+         * @param selection the indexes of selected rows of the batch in
+         *            ascending order
+         * @param size the number of selected rows
+         * @param values the values of constant expressions
+         * @return the new number of selected rows
+         */
+        int filter(SessionLocal session, Batch batch, int[] selection, int size, Value[] values) {
+            Row[] rows = batch.rows;
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                int r = selection[i];
+                if (test(session, rows[r], values)) {
+                    selection[count++] = r;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Get the value of an operand.
+         *
+         * @param row the row
+         * @param values the values of constant expressions
+         * @param operand the id of a column, or a negative number of a
+         *            constant expression
+         * @return the value
+         */
+        static Value getValue(Row row, Value[] values, int operand) {
+            return operand >= 0 ? row.getValue(operand) : values[-1 - operand];
+        }
+
+        /**
+         * Get the value of a constant operand as a long.
+         *
+         * @param values the values of constant expressions
+         * @param operand the operand
+         * @return the value of an integer constant, or {@code null}
+         */
+        static Long getLong(Value[] values, int operand) {
+            if (operand < 0) {
+                Value v = values[-1 - operand];
+                if (isInteger(v.getValueType())) {
+                    return v.getLong();
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Remove rows from the selection vector with NULL values in the
+         * specified integer column or with values inside or outside of the
+         * specified range.
+         *
+         * @param batch the batch
+         * @param columnId the column id
+         * @param selection the selection vector
+         * @param size the number of selected rows
+         * @param low the lowest value of the range
+         * @param high the highest value of the range
+         * @param outside {@code false} to select values inside of the range,
+         *            {@code true} to select values outside of it
+         * @return the new number of selected rows
+         */
+        static int filterRange(Batch batch, int columnId, int[] selection, int size, long low, long high,
+                boolean outside) {
+            long[] longs = batch.getLongs(columnId);
+            boolean[] nulls = batch.getNulls(columnId);
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                int r = selection[i];
+                if (!nulls[r]) {
+                    long v = longs[r];
+                    if ((v >= low && v <= high) != outside) {
+                        selection[count++] = r;
+                    }
+                }
+            }
+            return count;
+        }
+
+    }
+
+    private static final class AndOrCondition extends RowCondition {
+
+        private final boolean and;
+
+        private final RowCondition[] conditions;
+
+        AndOrCondition(boolean and, RowCondition[] conditions) {
+            this.and = and;
+            this.conditions = conditions;
+        }
+
+        @Override
+        boolean test(SessionLocal session, Row row, Value[] values) {
+            for (RowCondition condition : conditions) {
+                if (condition.test(session, row, values) != and) {
+                    return !and;
+                }
+            }
+            return and;
+        }
+
+        @Override
+        int filter(SessionLocal session, Batch batch, int[] selection, int size, Value[] values) {
+            if (and) {
+                for (RowCondition condition : conditions) {
+                    if (size == 0) {
+                        break;
+                    }
+                    size = condition.filter(session, batch, selection, size, values);
+                }
+                return size;
+            }
+            // each operand is evaluated only for rows not selected by
+            // previous operands
+            boolean[] matched = new boolean[batch.size];
+            int[] remaining = Arrays.copyOf(selection, size);
+            int remainingSize = size;
+            int[] candidates = new int[size];
+            for (RowCondition condition : conditions) {
+                System.arraycopy(remaining, 0, candidates, 0, remainingSize);
+                int count = condition.filter(session, batch, candidates, remainingSize, values);
+                if (count == 0) {
+                    continue;
+                }
+                for (int i = 0; i < count; i++) {
+                    matched[candidates[i]] = true;
+                }
+                int n = 0;
+                for (int i = 0; i < remainingSize; i++) {
+                    int r = remaining[i];
+                    if (!matched[r]) {
+                        remaining[n++] = r;
+                    }
+                }
+                remainingSize = n;
+                if (n == 0) {
+                    break;
+                }
+            }
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                int r = selection[i];
+                if (matched[r]) {
+                    selection[count++] = r;
+                }
+            }
+            return count;
+        }
+
+    }
+
+    private static final class ComparisonCondition extends RowCondition {
+
+        private final int compareType;
+
+        private final int left, right;
+
+        ComparisonCondition(int compareType, int left, int right) {
+            this.compareType = compareType;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean test(SessionLocal session, Row row, Value[] values) {
+            return Comparison.compare(session, getValue(row, values, left), getValue(row, values, right),
+                    compareType).isTrue();
+        }
+
+        @Override
+        int filter(SessionLocal session, Batch batch, int[] selection, int size, Value[] values) {
+            if (left >= 0 && batch.isInteger(left)) {
+                Long r = getLong(values, right);
+                if (r != null) {
+                    long v = r;
+                    switch (compareType) {
+                    case Comparison.EQUAL:
+                        return filterRange(batch, left, selection, size, v, v, false);
+                    case Comparison.NOT_EQUAL:
+                        return filterRange(batch, left, selection, size, v, v, true);
+                    case Comparison.SMALLER:
+                        return filterRange(batch, left, selection, size, v, Long.MAX_VALUE, true);
+                    case Comparison.SMALLER_EQUAL:
+                        return filterRange(batch, left, selection, size, Long.MIN_VALUE, v, false);
+                    case Comparison.BIGGER:
+                        return filterRange(batch, left, selection, size, Long.MIN_VALUE, v, true);
+                    case Comparison.BIGGER_EQUAL:
+                        return filterRange(batch, left, selection, size, v, Long.MAX_VALUE, false);
+                    }
+                }
+            }
+            return super.filter(session, batch, selection, size, values);
+        }
+
+    }
+
+    private static final class BetweenCondition extends RowCondition {
+
+        private final BetweenPredicate predicate;
+
+        private final int value, a, b;
+
+        BetweenCondition(BetweenPredicate predicate, int value, int a, int b) {
+            this.predicate = predicate;
+            this.value = value;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        boolean test(SessionLocal session, Row row, Value[] values) {
+            Value v = getValue(row, values, value);
+            return v != ValueNull.INSTANCE
+                    && predicate.getValue(session, v, getValue(row, values, a), getValue(row, values, b)).isTrue();
+        }
+
+        @Override
+        int filter(SessionLocal session, Batch batch, int[] selection, int size, Value[] values) {
+            if (value >= 0 && batch.isInteger(value)) {
+                Long low = getLong(values, a), high = getLong(values, b);
+                if (low != null && high != null) {
+                    long l = low, h = high;
+                    if (l > h && predicate.isSymmetric()) {
+                        long t = l;
+                        l = h;
+                        h = t;
+                    }
+                    return filterRange(batch, value, selection, size, l, h, predicate.isNot());
+                }
+            }
+            return super.filter(session, batch, selection, size, values);
+        }
+
+    }
+
+}
@@ -17,6 +17,8 @@
 import org.h2.command.Prepared;
 import org.h2.engine.Database;
 import org.h2.engine.DbObject;
+import org.h2.engine.IsolationLevel;
+import org.h2.engine.QueryResultCache;
 import org.h2.engine.SessionLocal;
 import org.h2.expression.Alias;
 import org.h2.expression.Expression;
@@ -145,6 +147,8 @@ static final class OffsetFetch {
     private Boolean lastExists;
     private Value[] lastParameters;
     private boolean cacheableChecked;
+    private boolean sharedCacheable;
+    private String sharedCacheSQL;
     private boolean neverLazy;
 
     boolean checkInit;
@@ -432,7 +436,7 @@ public void disableCache() {
         this.noCache = true;
     }
 
-    private boolean sameResultAsLast(Value[] params, Value[] lastParams, long lastEval) {
+    private void checkCacheable() {
         if (!cacheableChecked) {
             long max = getMaxDataModificationId();
             noCache = max == Long.MAX_VALUE;
@@ -440,8 +444,52 @@ private boolean sameResultAsLast(Value[] params, Value[] lastParams, long lastEv
                     !isEverything(ExpressionVisitor.INDEPENDENT_VISITOR)) {
                 noCache = true;
             }
+            sharedCacheable = !noCache && isCacheable() && isReadOnly() && !usesLocalTemporaryTables();
             cacheableChecked = true;
         }
+    }
+
+    private boolean usesLocalTemporaryTables() {
+        HashSet<DbObject> dependencies = new HashSet<>();
+        isEverything(ExpressionVisitor.getDependenciesVisitor(dependencies));
+        for (DbObject o : dependencies) {
+            if (o instanceof Table) {
+                Table t = (Table) o;
+                if (t.isTemporary() && !t.isGlobalTemporary()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the shared query result cache of the database if the result of
+     * this query may be shared with other sessions.
+     *
+     * @return the query result cache, or {@code null}
+     */
+    private QueryResultCache getSharedResultCache() {
+        QueryResultCache cache = session.getDatabase().getQueryResultCache();
+        if (cache == null) {
+            return null;
+        }
+        checkCacheable();
+        // other isolation levels may need to see other versions of rows,
+        // uncommitted changes may not be visible to other sessions, and
+        // queries prepared while a view is parsed don't return rows
+        if (!sharedCacheable || session.getIsolationLevel() != IsolationLevel.READ_COMMITTED
+                || session.containsUncommitted() || session.isParsingCreateView()) {
+            return null;
+        }
+        if (sharedCacheSQL == null) {
+            sharedCacheSQL = getPlanSQL(DEFAULT_SQL_FLAGS);
+        }
+        return cache;
+    }
+
+    private boolean sameResultAsLast(Value[] params, Value[] lastParams, long lastEval) {
+        checkCacheable();
         if (noCache) {
             return false;
         }
@@ -507,6 +555,26 @@ public final ResultInterface query(long limit, ResultTarget target) {
                 }
             }
         }
+        QueryResultCache sharedCache = target == null ? getSharedResultCache() : null;
+        if (sharedCache != null) {
+            Value[][] rows = sharedCache.get(sharedCacheSQL, params, limit, session.currentTimeZone(),
+                    getMaxDataModificationId());
+            if (rows != null) {
+                LocalResult r = new LocalResult(session, expressionArray, visibleColumnCount, resultColumnCount);
+                for (Value[] row : rows) {
+                    r.addRow(row);
+                }
+                r.done();
+                lastParameters = params;
+                closeLastResult();
+                lastResult = r;
+                lastExists = null;
+                lastEvaluated = now;
+                lastLimit = limit;
+                return r;
+            }
+        }
+        long nowMeta = session.getDatabase().getModificationMetaId();
         lastParameters = params;
         closeLastResult();
         ResultInterface r = queryWithoutCacheLazyCheck(limit, target);
@@ -514,6 +582,19 @@ public final ResultInterface query(long limit, ResultTarget target) {
         lastExists = null;
         lastEvaluated = now;
         lastLimit = limit;
+        if (sharedCache != null && r instanceof LocalResult && r.getRowCount() <= sharedCache.getMaxRows()) {
+            ResultInterface copy = r.createShallowCopy(session);
+            // results with LOBs can't be copied
+            if (copy != null) {
+                Value[][] rows = new Value[(int) copy.getRowCount()][];
+                copy.reset();
+                for (int i = 0; copy.next(); i++) {
+                    rows[i] = copy.currentRow();
+                }
+                copy.close();
+                sharedCache.put(sharedCacheSQL, params, limit, session.currentTimeZone(), rows, now, nowMeta);
+            }
+        }
         return r;
     }
 
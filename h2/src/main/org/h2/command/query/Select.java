@@ -154,6 +154,8 @@ public class Select extends Query {
 
     private boolean isGroupWindowStage2;
 
+    private ParallelAggregation parallelAggregation;
+
     private HashMap<String, Window> windows;
 
     public Select(SessionLocal session, Select parentSelect) {
@@ -485,7 +487,9 @@ private void queryGroupWindow(int columnCount, LocalResult result, long offset,
     private void queryGroup(int columnCount, LocalResult result, long offset, boolean quickOffset) {
         initGroupData(columnCount);
         try {
-            gatherGroup(columnCount, DataAnalysisOperation.STAGE_GROUP);
+            if (parallelAggregation == null || !parallelAggregation.gatherGroup(session, groupData)) {
+                gatherGroup(columnCount, DataAnalysisOperation.STAGE_GROUP);
+            }
             processGroupResult(columnCount, result, offset, quickOffset, true);
         } finally {
             groupData.reset();
@@ -494,7 +498,7 @@ private void queryGroup(int columnCount, LocalResult result, long offset, boolea
 
     private void initGroupData(int columnCount) {
         if (groupData == null) {
-            setGroupData(SelectGroups.getInstance(session, expressions, isGroupQuery, groupIndex));
+            setGroupData(SelectGroups.getInstance(session, expressions, isGroupQuery, groupIndex, !isWindowQuery));
         } else {
             updateAgg(columnCount, DataAnalysisOperation.STAGE_RESET);
         }
@@ -804,6 +808,10 @@ protected ResultInterface queryWithoutCache(long maxRows, ResultTarget target) {
         if (!lazy && (fetch >= 0 || offset > 0)) {
             result = createLocalResult(result);
         }
+        if (sort != null && !sortUsingIndex && fetch > 0 && !fetchPercent && offset < Long.MAX_VALUE - fetch) {
+            // only the first rows in the sort order are needed
+            result.setTopRows(offset + fetch, withTies);
+        }
         topTableFilter.startQuery(session);
         topTableFilter.reset();
         topTableFilter.lock(session);
@@ -1268,6 +1276,8 @@ public void preparePlan() {
                 }
             }
         }
+        parallelAggregation = isGroupQuery && !isQuickAggregateQuery && !isGroupSortedQuery && !isWindowQuery
+                && !isForUpdate ? ParallelAggregation.get(this, groupByCopies) : null;
         isPrepared = true;
     }
 
@@ -1311,7 +1321,7 @@ private double preparePlan(boolean parse) {
             t.setFullCondition(condition);
         }
 
-        Optimizer optimizer = new Optimizer(topArray, condition, session);
+        Optimizer optimizer = new Optimizer(topArray, condition, session, getSQL());
         optimizer.optimize(parse);
         topTableFilter = optimizer.getTopFilter();
         double planCost = optimizer.getCost();
@@ -1861,7 +1871,7 @@ private final class LazyResultGroupSorted extends LazyResultSelect {
             super(expressions, columnCount);
             if (groupData == null) {
                 setGroupData(SelectGroups.getInstance(getSession(), Select.this.expressions, isGroupQuery,
-                        groupIndex));
+                        groupIndex, false));
             } else {
                 updateAgg(columnCount, DataAnalysisOperation.STAGE_RESET);
                 groupData.resetLazy();
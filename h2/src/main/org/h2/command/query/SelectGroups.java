@@ -13,11 +13,20 @@
 import java.util.Map.Entry;
 import java.util.TreeMap;
 
+import org.h2.engine.Database;
 import org.h2.engine.SessionLocal;
 import org.h2.expression.Expression;
+import org.h2.expression.ExpressionColumn;
+import org.h2.expression.TypedValueExpression;
+import org.h2.expression.aggregate.Aggregate;
 import org.h2.expression.analysis.DataAnalysisOperation;
 import org.h2.expression.analysis.PartitionData;
+import org.h2.mvstore.db.MVTempResult;
+import org.h2.result.ResultExternal;
+import org.h2.result.SortOrder;
+import org.h2.value.CompareMode;
 import org.h2.value.Value;
+import org.h2.value.ValueNull;
 import org.h2.value.ValueRow;
 
 /**
@@ -48,6 +57,11 @@ private static final class Grouped extends SelectGroups {
 
         private final int[] groupIndex;
 
+        /**
+         * Whether groups may be written to disk.
+         */
+        private final boolean canSpill;
+
         /**
          * Map of group-by key to group-by expression data e.g. AggregateData
          */
@@ -64,9 +78,34 @@ private static final class Grouped extends SelectGroups {
          */
         private Iterator<Entry<ValueRow, Object[]>> cursor;
 
-        Grouped(SessionLocal session, ArrayList<Expression> expressions, int[] groupIndex) {
+        /**
+         * The maximum number of groups in memory, or 0 if groups are not
+         * written to disk.
+         */
+        private int maxMemoryGroups;
+
+        /**
+         * Expressions of group-by expression data in written groups, or
+         * {@code null} if no groups were written yet.
+         */
+        private Expression[] spillExpressions;
+
+        /**
+         * Groups written to disk, sorted by their keys. Each row contains
+         * values of the key followed by values of group-by expression data.
+         * The same key may be written several times.
+         */
+        private ResultExternal spilled;
+
+        /**
+         * The next row read from {@link #spilled} by {@link #next()}.
+         */
+        private Value[] nextSpilledRow;
+
+        Grouped(SessionLocal session, ArrayList<Expression> expressions, int[] groupIndex, boolean canSpill) {
             super(session, expressions);
             this.groupIndex = groupIndex;
+            this.canSpill = canSpill && groupIndex != null;
         }
 
         @Override
@@ -75,6 +114,19 @@ public void reset() {
             groupByData = new TreeMap<>(session.getDatabase().getCompareMode());
             currentGroupsKey = null;
             cursor = null;
+            maxMemoryGroups = 0;
+            if (canSpill) {
+                Database db = session.getDatabase();
+                if (db.isPersistent() && !db.isReadOnly()) {
+                    maxMemoryGroups = Math.max(1, db.getMaxMemoryRows());
+                }
+            }
+            spillExpressions = null;
+            if (spilled != null) {
+                spilled.close();
+                spilled = null;
+            }
+            nextSpilledRow = null;
         }
 
         @Override
@@ -93,6 +145,9 @@ public void nextSource() {
             }
             Object[] values = groupByData.get(currentGroupsKey);
             if (values == null) {
+                if (maxMemoryGroups > 0 && groupByData.size() >= maxMemoryGroups) {
+                    spill();
+                }
                 values = createRow();
                 groupByData.put(currentGroupsKey, values);
             }
@@ -100,6 +155,107 @@ public void nextSource() {
             currentGroupRowId++;
         }
 
+        /**
+         * Write the groups in memory to disk, if all their data can be
+         * written. Groups with the same keys are merged when they are read.
+         */
+        private void spill() {
+            if (spillExpressions == null) {
+                spillExpressions = getSpillExpressions();
+                if (spillExpressions == null) {
+                    // some data can't be written, keep all groups in memory
+                    maxMemoryGroups = 0;
+                    return;
+                }
+                int keyLength = groupIndex.length, length = keyLength + spillExpressions.length;
+                Expression[] columns = new Expression[length];
+                int[] keyIndexes = new int[keyLength];
+                for (int i = 0; i < keyLength; i++) {
+                    columns[i] = expressions.get(groupIndex[i]);
+                    keyIndexes[i] = i;
+                }
+                for (int i = keyLength; i < length; i++) {
+                    Expression expr = spillExpressions[i - keyLength];
+                    columns[i] = expr instanceof Aggregate
+                            ? TypedValueExpression.get(ValueNull.INSTANCE, ((Aggregate) expr).getPartialResultType())
+                            : expr;
+                }
+                spilled = MVTempResult.of(session.getDatabase(), columns, false, null, length, length,
+                        new SortOrder(session, keyIndexes), session.getMaxParallelWorkers() > 1);
+            } else if (getIndexCount() != spillExpressions.length) {
+                // new expressions were added, they aren't written
+                maxMemoryGroups = 0;
+                return;
+            }
+            ArrayList<Value[]> rows = new ArrayList<>(groupByData.size());
+            for (Entry<ValueRow, Object[]> entry : groupByData.entrySet()) {
+                rows.add(toSpilledRow(entry.getKey().getList(), entry.getValue()));
+            }
+            spilled.addRows(rows);
+            groupByData.clear();
+        }
+
+        /**
+         * Returns expressions of all group-by expression data in order of
+         * their indexes, if the data of all of them can be written to disk.
+         *
+         * @return the expressions, or {@code null}
+         */
+        private Expression[] getSpillExpressions() {
+            Expression[] array = getIndexExpressions();
+            for (Expression expr : array) {
+                if (expr instanceof Aggregate ? !((Aggregate) expr).isMergeable()
+                        : !(expr instanceof ExpressionColumn)) {
+                    return null;
+                }
+            }
+            return array;
+        }
+
+        private Value[] toSpilledRow(Value[] key, Object[] data) {
+            int keyLength = key.length, length = spillExpressions.length;
+            Value[] row = Arrays.copyOf(key, keyLength + length);
+            for (int i = 0; i < length; i++) {
+                Expression expr = spillExpressions[i];
+                Object o = data[i];
+                Value v;
+                if (expr instanceof Aggregate) {
+                    Aggregate aggregate = (Aggregate) expr;
+                    v = aggregate.getPartialResultValue(o != null ? o : aggregate.createPartialResult());
+                } else {
+                    v = o != null ? (Value) o : ValueNull.INSTANCE;
+                }
+                row[keyLength + i] = v;
+            }
+            return row;
+        }
+
+        /**
+         * Merge the group-by expression data of a written group into the
+         * data of the same group.
+         *
+         * @param data the data to update
+         * @param row the written group
+         */
+        private void mergeSpilledRow(Object[] data, Value[] row) {
+            int keyLength = groupIndex.length;
+            for (int i = 0, length = spillExpressions.length; i < length; i++) {
+                Expression expr = spillExpressions[i];
+                Value v = row[keyLength + i];
+                if (expr instanceof Aggregate) {
+                    Aggregate aggregate = (Aggregate) expr;
+                    Object partialResult = aggregate.createPartialResult(v);
+                    if (data[i] == null) {
+                        data[i] = partialResult;
+                    } else {
+                        aggregate.mergePartialResult(session, data[i], partialResult);
+                    }
+                } else if (data[i] == null) {
+                    data[i] = v;
+                }
+            }
+        }
+
         @Override
         void updateCurrentGroupExprData() {
             // this can be null in lazy mode
@@ -116,11 +272,36 @@ public void done() {
             if (groupIndex == null && groupByData.size() == 0) {
                 groupByData.put(ValueRow.EMPTY, createRow());
             }
+            if (spilled != null) {
+                spill();
+                if (groupByData.isEmpty()) {
+                    currentGroupsKey = null;
+                    cursor = null;
+                    spilled.reset();
+                    nextSpilledRow = spilled.next();
+                    return;
+                }
+                // groups which can't be written are merged in memory
+                for (Value[] row; (row = spilled.next()) != null;) {
+                    ValueRow key = ValueRow.get(Arrays.copyOf(row, groupIndex.length));
+                    Object[] data = groupByData.get(key);
+                    if (data == null) {
+                        data = createRow();
+                        groupByData.put(key, data);
+                    }
+                    mergeSpilledRow(data, row);
+                }
+                spilled.close();
+                spilled = null;
+            }
             cursor = groupByData.entrySet().iterator();
         }
 
         @Override
         public ValueRow next() {
+            if (cursor == null) {
+                return nextSpilled();
+            }
             if (cursor.hasNext()) {
                 Map.Entry<ValueRow, Object[]> entry = cursor.next();
                 currentGroupByExprData = entry.getValue();
@@ -130,6 +311,28 @@ public ValueRow next() {
             return null;
         }
 
+        private ValueRow nextSpilled() {
+            Value[] row = nextSpilledRow;
+            if (row == null) {
+                return null;
+            }
+            int keyLength = groupIndex.length;
+            ValueRow key = ValueRow.get(Arrays.copyOf(row, keyLength));
+            Object[] data = createRow();
+            mergeSpilledRow(data, row);
+            CompareMode compareMode = session.getDatabase().getCompareMode();
+            while ((row = spilled.next()) != null) {
+                if (compareMode.compare(key, ValueRow.get(Arrays.copyOf(row, keyLength))) != 0) {
+                    break;
+                }
+                mergeSpilledRow(data, row);
+            }
+            nextSpilledRow = row;
+            currentGroupByExprData = data;
+            currentGroupRowId++;
+            return key;
+        }
+
         @Override
         public void remove() {
             cursor.remove();
@@ -241,11 +444,15 @@ public ValueRow next() {
      *            is this query is a group query
      * @param groupIndex
      *            the indexes of group expressions, or null
+     * @param canSpill
+     *            whether groups may be written to disk if there are too many
+     *            of them, groups are iterated only once in that case
      * @return new instance of the grouped data.
      */
     public static SelectGroups getInstance(SessionLocal session, ArrayList<Expression> expressions,
-            boolean isGroupQuery, int[] groupIndex) {
-        return isGroupQuery ? new Grouped(session, expressions, groupIndex) : new Plain(session, expressions);
+            boolean isGroupQuery, int[] groupIndex, boolean canSpill) {
+        return isGroupQuery ? new Grouped(session, expressions, groupIndex, canSpill)
+                : new Plain(session, expressions);
     }
 
     SelectGroups(SessionLocal session, ArrayList<Expression> expressions) {
@@ -302,6 +509,46 @@ public final void setCurrentGroupExprData(Expression expr, Object obj) {
         currentGroupByExprData[index] = obj;
     }
 
+    /**
+     * Merge a partial result of a mergeable aggregate into the group-by data
+     * for the current group.
+     *
+     * @param aggregate
+     *            the aggregate
+     * @param partialResult
+     *            the partial result
+     */
+    public final void mergeCurrentGroupExprData(Aggregate aggregate, Object partialResult) {
+        Object data = getCurrentGroupExprData(aggregate);
+        if (data == null) {
+            setCurrentGroupExprData(aggregate, partialResult);
+        } else {
+            aggregate.mergePartialResult(session, data, partialResult);
+        }
+    }
+
+    /**
+     * Returns the number of expressions with group-by data.
+     *
+     * @return the number of expressions
+     */
+    final int getIndexCount() {
+        return exprToIndexInGroupByData.size();
+    }
+
+    /**
+     * Returns expressions with group-by data in order of their indexes.
+     *
+     * @return the expressions
+     */
+    final Expression[] getIndexExpressions() {
+        Expression[] array = new Expression[exprToIndexInGroupByData.size()];
+        for (Map.Entry<Expression, Integer> entry : exprToIndexInGroupByData.entrySet()) {
+            array[entry.getValue()] = entry.getKey();
+        }
+        return array;
+    }
+
     /**
      * Creates new object arrays to holds group-by data.
      *
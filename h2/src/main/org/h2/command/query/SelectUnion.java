@@ -168,6 +168,10 @@ protected ResultInterface queryWithoutCache(long maxRows, ResultTarget target) {
         default:
             throw DbException.getInternalError("type=" + unionType);
         }
+        if (sort != null && fetch > 0 && !fetchPercent && offset < Long.MAX_VALUE - fetch) {
+            // only the first rows in the sort order are needed
+            result.setTopRows(offset + fetch, withTies);
+        }
         ResultInterface l = left.query(0);
         ResultInterface r = right.query(0);
         l.reset();
@@ -211,6 +211,8 @@ public final class Database implements DataHandler, CastDataProvider {
     private volatile boolean queryStatistics;
     private int queryStatisticsMaxEntries = Constants.QUERY_STATISTICS_MAX_ENTRIES;
     private QueryStatisticsData queryStatisticsData;
+    private final QueryResultCache queryResultCache;
+    private final PlanCache planCache;
     private RowFactory rowFactory = RowFactory.getRowFactory();
     private boolean ignoreCatalogs;
 
@@ -232,6 +234,12 @@ public Database(ConnectionInfo ci, String cipher) {
         this.databaseShortName = parseDatabaseShortName();
         this.maxLengthInplaceLob = Constants.DEFAULT_MAX_LENGTH_INPLACE_LOB;
         this.cipher = cipher;
+        int queryResultCacheSize = dbSettings.queryResultCacheSize;
+        queryResultCache = queryResultCacheSize > 0
+                ? new QueryResultCache(this, queryResultCacheSize, dbSettings.queryResultCacheMaxRows)
+                : null;
+        int planCacheSize = dbSettings.planCacheSize;
+        planCache = planCacheSize > 0 ? new PlanCache(this, planCacheSize) : null;
         this.autoServerMode = ci.getProperty("AUTO_SERVER", false);
         this.autoServerPort = ci.getProperty("AUTO_SERVER_PORT", 0);
         pageSize = ci.getProperty("PAGE_SIZE", Constants.DEFAULT_PAGE_SIZE);
@@ -2049,6 +2057,24 @@ public QueryStatisticsData getQueryStatisticsData() {
         return queryStatisticsData;
     }
 
+    /**
+     * Returns the query result cache shared by all sessions.
+     *
+     * @return the query result cache, or {@code null} if it is disabled
+     */
+    public QueryResultCache getQueryResultCache() {
+        return queryResultCache;
+    }
+
+    /**
+     * Returns the cache of join orders shared by all sessions.
+     *
+     * @return the plan cache, or {@code null} if it is disabled
+     */
+    public PlanCache getPlanCache() {
+        return planCache;
+    }
+
     /**
      * Check if the database is currently opening. This is true until all stored
      * SQL statements have been executed.
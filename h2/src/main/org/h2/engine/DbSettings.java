@@ -65,6 +65,15 @@ public class DbSettings extends SettingsBase {
      */
     public final int autoCompactFillRate = get("AUTO_COMPACT_FILL_RATE", 90);
 
+    /**
+     * Database setting <code>AUTO_COMPACT_RATE</code>
+     * (default: 0, which means no limit).
+     * The maximum rate at which auto-compacting writes, in MB per second.
+     * Data written by commits is taken from this budget first.
+     * This setting only affects MVStore engine.
+     */
+    public final int autoCompactRate = get("AUTO_COMPACT_RATE", 0);
+
     /**
      * Database setting <code>DATABASE_TO_LOWER</code> (default: false).
      * When set to true unquoted identifiers and short name of database are
@@ -159,6 +168,30 @@ public class DbSettings extends SettingsBase {
      */
     public final int maxQueryTimeout = get("MAX_QUERY_TIMEOUT", 0);
 
+    /**
+     * Database setting <code>MEMORY_MAPPED_READS</code> (default: false).
+     * Read the chunks of the database file using memory mapping. Pages are
+     * read from the mapped memory without file read operations. This setting
+     * is ignored for encrypted databases.
+     */
+    public final boolean memoryMappedReads = get("MEMORY_MAPPED_READS", false);
+
+    /**
+     * Database setting <code>OFF_HEAP_CACHE_SIZE</code> (default: 0).
+     * The size of the off-heap page cache in MB, independent of the cache
+     * size. Pages that are evicted from the cache are then read from native
+     * memory instead of the file. The default is 0, meaning it is disabled.
+     */
+    public final int offHeapCacheSize = get("OFF_HEAP_CACHE_SIZE", 0);
+
+    /**
+     * Database setting <code>OPTIMIZE_BATCH_EXECUTION</code> (default: true).
+     * Evaluate simple aggregate queries over a single table on blocks of rows
+     * with compiled conditions instead of row by row, even if the query is not
+     * executed in parallel.
+     */
+    public final boolean optimizeBatchExecution = get("OPTIMIZE_BATCH_EXECUTION", true);
+
     /**
      * Database setting <code>OPTIMIZE_DISTINCT</code> (default: true).
      * Improve the performance of simple DISTINCT queries if an index is
@@ -190,6 +223,13 @@ public class DbSettings extends SettingsBase {
     public final boolean optimizeInsertFromSelect = get(
             "OPTIMIZE_INSERT_FROM_SELECT", true);
 
+    /**
+     * Database setting <code>OPTIMIZE_HASH_JOIN</code> (default: true).
+     * Join tables on equality conditions using an in-memory hash lookup built
+     * on the first access if no index can be used for these conditions.
+     */
+    public final boolean optimizeHashJoin = get("OPTIMIZE_HASH_JOIN", true);
+
     /**
      * Database setting <code>OPTIMIZE_IN_LIST</code> (default: true).
      * Optimize IN(...) and IN(SELECT ...) comparisons. This includes
@@ -204,6 +244,14 @@ public class DbSettings extends SettingsBase {
      */
     public final boolean optimizeInSelect = get("OPTIMIZE_IN_SELECT", true);
 
+    /**
+     * Database setting <code>OPTIMIZE_MERGE_JOIN</code> (default: true).
+     * Join a table on an equality condition with a column of a previous table
+     * that is read in ascending order of this column by advancing one cursor
+     * of a sorted index instead of searching it for each row.
+     */
+    public final boolean optimizeMergeJoin = get("OPTIMIZE_MERGE_JOIN", true);
+
     /**
      * Database setting <code>OPTIMIZE_OR</code> (default: true).
      * Convert (C=? OR C=?) to (C IN(?, ?)).
@@ -217,12 +265,41 @@ public class DbSettings extends SettingsBase {
      */
     public final boolean optimizeTwoEquals = get("OPTIMIZE_TWO_EQUALS", true);
 
+    /**
+     * Database setting <code>OPTIMIZE_ZONE_MAPS</code> (default: true).
+     * Keep minimum and maximum values of columns for blocks of rows of large
+     * tables and skip blocks that can't contain matching rows if a range
+     * condition on a column without an index is used.
+     */
+    public final boolean optimizeZoneMaps = get("OPTIMIZE_ZONE_MAPS", true);
+
     /**
      * Database setting <code>OPTIMIZE_SIMPLE_SINGLE_ROW_SUBQUERIES</code> (default: true).
      * Optimize expressions of the form (SELECT A) to A.
      */
     public final boolean optimizeSimpleSingleRowSubqueries = get("OPTIMIZE_SIMPLE_SINGLE_ROW_SUBQUERIES", true);
 
+    /**
+     * Database setting <code>PLAN_CACHE_SIZE</code> (default: 0).
+     * The number of tokenized statements and of join orders chosen by the
+     * optimizer that are shared by all sessions. If another session prepares
+     * the same statement, it is parsed from the cached tokens, and if the
+     * tables have a similar number of rows, the cached join order is used
+     * instead of searching for the best join order again. 0 means the cache
+     * is disabled.
+     */
+    public final int planCacheSize = get("PLAN_CACHE_SIZE", 0);
+
+    /**
+     * Database setting <code>PREFETCH_THREADS</code> (default: 0).
+     * The number of threads that read pages ahead of range scans, so that
+     * several reads are in flight at the same time. This helps with scans
+     * over data which is not cached, on devices that handle parallel reads
+     * well. 0 means pages are only read when they are needed.
+     * This setting only affects MVStore engine.
+     */
+    public final int prefetchThreads = get("PREFETCH_THREADS", 0);
+
     /**
      * Database setting <code>QUERY_CACHE_SIZE</code> (default: 8).
      * The size of the query cache, in number of cached statements. Each session
@@ -236,6 +313,26 @@ public class DbSettings extends SettingsBase {
      */
     public final int queryCacheSize = get("QUERY_CACHE_SIZE", 8);
 
+    /**
+     * Database setting <code>QUERY_RESULT_CACHE_MAX_ROWS</code> (default:
+     * 100).
+     * The maximum number of rows of a result in the shared query result cache.
+     * Larger results are not cached.
+     */
+    public final int queryResultCacheMaxRows = get("QUERY_RESULT_CACHE_MAX_ROWS", 100);
+
+    /**
+     * Database setting <code>QUERY_RESULT_CACHE_SIZE</code> (default: 0).
+     * The size of the query result cache that is shared by all sessions, in
+     * number of cached results. The least recently used results are removed
+     * first. A cached result is used by other sessions if the query is
+     * deterministic, the SQL statement, all parameters, and the time zone
+     * match, and the tables used by the query were not modified since. The
+     * cache is only used by sessions with the READ COMMITTED isolation level
+     * that have no uncommitted changes. 0 means the cache is disabled.
+     */
+    public final int queryResultCacheSize = get("QUERY_RESULT_CACHE_SIZE", 0);
+
     /**
      * Database setting <code>RECOMPILE_ALWAYS</code> (default: false).
      * Always recompile prepared statements.
@@ -281,6 +378,16 @@ public class DbSettings extends SettingsBase {
      */
     public final boolean compressData = get("COMPRESS", false);
 
+    /**
+     * Database setting <code>COMPRESS_KEYS</code>
+     * (default: false).
+     * Store keys of index pages relative to the previous key of the page: the
+     * leading columns that are equal to the ones of the previous key are not
+     * stored, and row ids are stored as differences. Database files with such
+     * pages can not be opened by older versions.
+     */
+    public final boolean compressKeys = get("COMPRESS_KEYS", false);
+
     /**
      * Database setting <code>IGNORE_CATALOGS</code>
      * (default: false).
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.engine;
+
+import java.util.ArrayList;
+
+import org.h2.command.Token;
+import org.h2.table.Table;
+import org.h2.util.SmallLRUCache;
+
+/**
+ * A cache of tokenized statements and of join orders chosen by the query
+ * optimizer that is shared by all sessions of a database. Prepared statements
+ * belong to a session, so they are parsed and prepared in each session, but
+ * tokenizing the SQL text and finding the best order of the tables of a join
+ * give the same result in all sessions.
+ *
+ * <p>
+ * Tokens and join orders are identified by the SQL text. Tokens are only used
+ * with the same compatibility mode. A join order is only used if the query
+ * uses the same tables, and if the approximate number of rows of the tables
+ * did not change a lot. All join orders are removed if the metadata of the
+ * database was changed.
+ * </p>
+ */
+public final class PlanCache {
+
+    /**
+     * A cached join order.
+     */
+    private static final class Entry {
+
+        final Table[] tables;
+
+        final long[] rowCounts;
+
+        final int[] order;
+
+        Entry(Table[] tables, long[] rowCounts, int[] order) {
+            this.tables = tables;
+            this.rowCounts = rowCounts;
+            this.order = order;
+        }
+
+    }
+
+    /**
+     * Cached tokens of a statement.
+     */
+    private static final class TokensEntry {
+
+        final Mode mode;
+
+        final ArrayList<Token> tokens;
+
+        TokensEntry(Mode mode, ArrayList<Token> tokens) {
+            this.mode = mode;
+            this.tokens = tokens;
+        }
+
+    }
+
+    private final Database database;
+
+    private final SmallLRUCache<String, Entry> map;
+
+    private final SmallLRUCache<String, TokensEntry> tokensMap;
+
+    private long modificationMetaId;
+
+    private long hits, misses;
+
+    private long tokensHits, tokensMisses;
+
+    /**
+     * Creates a new plan cache.
+     *
+     * @param database the database
+     * @param size the maximum number of cached join orders and of cached
+     *            tokenized statements
+     */
+    public PlanCache(Database database, int size) {
+        this.database = database;
+        map = SmallLRUCache.newInstance(size);
+        tokensMap = SmallLRUCache.newInstance(size);
+        modificationMetaId = database.getModificationMetaId();
+    }
+
+    /**
+     * Get the join order of a query.
+     *
+     * @param sql the SQL text of the query
+     * @param tables the tables of the query, in the order of the query
+     * @param rowCounts the approximate number of rows of the tables
+     * @return the indexes of the tables in join order, or {@code null} if
+     *         there is no usable join order
+     */
+    public synchronized int[] get(String sql, Table[] tables, long[] rowCounts) {
+        checkMetaData();
+        Entry entry = map.get(sql);
+        if (entry == null || !isSimilar(entry, tables, rowCounts)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.order;
+    }
+
+    /**
+     * Add the join order of a query.
+     *
+     * @param sql the SQL text of the query
+     * @param tables the tables of the query, in the order of the query
+     * @param rowCounts the approximate number of rows of the tables
+     * @param order the indexes of the tables in join order
+     */
+    public synchronized void put(String sql, Table[] tables, long[] rowCounts, int[] order) {
+        checkMetaData();
+        map.put(sql, new Entry(tables, rowCounts, order));
+    }
+
+    /**
+     * Get the tokens of a statement. The returned list and its tokens must not
+     * be modified.
+     *
+     * @param sql the SQL text of the statement
+     * @param mode the compatibility mode
+     * @return the tokens, or {@code null} if they aren't cached
+     */
+    public synchronized ArrayList<Token> getTokens(String sql, Mode mode) {
+        TokensEntry entry = tokensMap.get(sql);
+        if (entry == null || entry.mode != mode) {
+            tokensMisses++;
+            return null;
+        }
+        tokensHits++;
+        return entry.tokens;
+    }
+
+    /**
+     * Add the tokens of a statement. The list and its tokens must not be
+     * modified after this call.
+     *
+     * @param sql the SQL text of the statement
+     * @param mode the compatibility mode
+     * @param tokens the tokens
+     */
+    public synchronized void putTokens(String sql, Mode mode, ArrayList<Token> tokens) {
+        tokensMap.put(sql, new TokensEntry(mode, tokens));
+    }
+
+    /**
+     * Returns the number of cached join orders.
+     *
+     * @return the number of cached join orders
+     */
+    public synchronized int getSize() {
+        checkMetaData();
+        return map.size();
+    }
+
+    /**
+     * Get the percentage of lookups that found a usable join order.
+     *
+     * @return the hit ratio in percent
+     */
+    public synchronized int getHitRatio() {
+        return (int) (100 * hits / (hits + misses + 1));
+    }
+
+    /**
+     * Get the percentage of prepared statements that used cached tokens.
+     *
+     * @return the hit ratio in percent
+     */
+    public synchronized int getTokensHitRatio() {
+        return (int) (100 * tokensHits / (tokensHits + tokensMisses + 1));
+    }
+
+    private static boolean isSimilar(Entry entry, Table[] tables, long[] rowCounts) {
+        int length = tables.length;
+        if (entry.tables.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (entry.tables[i] != tables[i]) {
+                return false;
+            }
+            long old = entry.rowCounts[i], now = rowCounts[i];
+            // the best join order may change with the number of rows
+            if (now > old * 2 + 1_000 || old > now * 2 + 1_000) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkMetaData() {
+        long newModificationMetaId = database.getModificationMetaId();
+        if (newModificationMetaId != modificationMetaId) {
+            map.clear();
+            modificationMetaId = newModificationMetaId;
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.engine;
+
+import java.util.Arrays;
+
+import org.h2.util.SmallLRUCache;
+import org.h2.util.TimeZoneProvider;
+import org.h2.value.Value;
+
+/**
+ * A cache of small query results that is shared by all sessions of a
+ * database. Results are identified by the plan SQL of the query, the
+ * parameter values, the row limit, and the time zone of the session. A result
+ * is only returned if none of the tables used by the query was modified after
+ * the result was evaluated. All results are removed if the metadata of the
+ * database was changed.
+ */
+public final class QueryResultCache {
+
+    /**
+     * The identity of a cached result.
+     */
+    private static final class Key {
+
+        private final String sql;
+
+        private final Value[] params;
+
+        private final long limit;
+
+        private final TimeZoneProvider timeZone;
+
+        private final int hash;
+
+        Key(String sql, Value[] params, long limit, TimeZoneProvider timeZone) {
+            this.sql = sql;
+            this.params = params;
+            this.limit = limit;
+            this.timeZone = timeZone;
+            hash = ((sql.hashCode() * 31 + Arrays.hashCode(params)) * 31 + Long.hashCode(limit)) * 31
+                    + timeZone.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && limit == other.limit && sql.equals(other.sql)
+                    && Arrays.equals(params, other.params) && timeZone.equals(other.timeZone);
+        }
+
+    }
+
+    /**
+     * A cached result.
+     */
+    private static final class Entry {
+
+        final Value[][] rows;
+
+        final long evaluatedModificationId;
+
+        Entry(Value[][] rows, long evaluatedModificationId) {
+            this.rows = rows;
+            this.evaluatedModificationId = evaluatedModificationId;
+        }
+
+    }
+
+    private final Database database;
+
+    private final SmallLRUCache<Key, Entry> map;
+
+    private final int maxRows;
+
+    private long modificationMetaId;
+
+    /**
+     * Creates a new query result cache.
+     *
+     * @param database the database
+     * @param size the maximum number of cached results
+     * @param maxRows the maximum number of rows in a cached result
+     */
+    public QueryResultCache(Database database, int size, int maxRows) {
+        this.database = database;
+        map = SmallLRUCache.newInstance(size);
+        this.maxRows = maxRows;
+        modificationMetaId = database.getModificationMetaId();
+    }
+
+    /**
+     * Returns the maximum number of rows in a cached result.
+     *
+     * @return the maximum number of rows
+     */
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    /**
+     * Get the rows of a cached result.
+     *
+     * @param sql the plan SQL of the query
+     * @param params the parameter values
+     * @param limit the row limit
+     * @param timeZone the time zone of the session
+     * @param maxDataModificationId the current data modification id of the
+     *            query, the result must be evaluated at this or a later time
+     * @return the rows, or {@code null} if there is no valid result
+     */
+    public synchronized Value[][] get(String sql, Value[] params, long limit, TimeZoneProvider timeZone,
+            long maxDataModificationId) {
+        if (checkMetaData()) {
+            return null;
+        }
+        Key key = new Key(sql, params, limit, timeZone);
+        Entry entry = map.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (maxDataModificationId > entry.evaluatedModificationId) {
+            map.remove(key);
+            return null;
+        }
+        return entry.rows;
+    }
+
+    /**
+     * Add a result to the cache.
+     *
+     * @param sql the plan SQL of the query
+     * @param params the parameter values
+     * @param limit the row limit
+     * @param timeZone the time zone of the session
+     * @param rows the rows of the result, they may not be modified later
+     * @param evaluatedModificationId the data modification id of the database
+     *            before the query was evaluated
+     * @param evaluatedModificationMetaId the metadata modification id of the
+     *            database before the query was evaluated
+     */
+    public synchronized void put(String sql, Value[] params, long limit, TimeZoneProvider timeZone,
+            Value[][] rows, long evaluatedModificationId, long evaluatedModificationMetaId) {
+        checkMetaData();
+        if (evaluatedModificationMetaId != modificationMetaId) {
+            // the query may use tables which don't exist any more
+            return;
+        }
+        Key key = new Key(sql, params, limit, timeZone);
+        Entry old = map.get(key);
+        if (old == null || old.evaluatedModificationId < evaluatedModificationId) {
+            map.put(key, new Entry(rows, evaluatedModificationId));
+        }
+    }
+
+    /**
+     * Remove all results if the metadata of the database was changed.
+     *
+     * @return whether the results were removed
+     */
+    private boolean checkMetaData() {
+        long newModificationMetaId = database.getModificationMetaId();
+        if (newModificationMetaId != modificationMetaId) {
+            map.clear();
+            modificationMetaId = newModificationMetaId;
+            return true;
+        }
+        return false;
+    }
+
+}
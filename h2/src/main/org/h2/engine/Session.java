@@ -222,6 +222,21 @@ public DynamicSettings(Mode mode, TimeZoneProvider timeZone) {
      */
     public abstract void setIsolationLevel(IsolationLevel isolationLevel);
 
+    /**
+     * Returns whether transactions of this session are read-only.
+     *
+     * @return whether transactions are read-only
+     */
+    public abstract boolean isReadOnly();
+
+    /**
+     * Sets whether transactions of this session are read-only. Data can't be
+     * changed in read-only transactions.
+     *
+     * @param readOnly whether transactions are read-only
+     */
+    public abstract void setReadOnly(boolean readOnly);
+
     /**
      * Returns static settings. These settings cannot be changed during
      * lifecycle of session.
@@ -187,6 +187,7 @@ static Session getThreadLocalSession() {
     private volatile SmallLRUCache<Object, QueryExpressionIndex> viewIndexCache;
     private HashMap<Object, QueryExpressionIndex> derivedTableIndexCache;
     private boolean lazyQueryExecution;
+    private int maxParallelWorkers = 1;
 
     private BitSet nonKeywords;
 
@@ -222,6 +223,11 @@ static Session getThreadLocalSession() {
      */
     private IsolationLevel isolationLevel = IsolationLevel.READ_COMMITTED;
 
+    /**
+     * Whether transactions of this session are read-only.
+     */
+    private boolean readOnly;
+
     /**
      * The snapshot data modification id. If isolation level doesn't allow
      * non-repeatable reads the session uses a snapshot versions of data. After
@@ -278,6 +284,20 @@ public boolean isLazyQueryExecution() {
         return lazyQueryExecution;
     }
 
+    /**
+     * Set the maximum number of threads used to execute a single query.
+     *
+     * @param maxParallelWorkers the maximum number of threads, 1 disables
+     *            parallel execution
+     */
+    public void setMaxParallelWorkers(int maxParallelWorkers) {
+        this.maxParallelWorkers = maxParallelWorkers;
+    }
+
+    public int getMaxParallelWorkers() {
+        return maxParallelWorkers;
+    }
+
     /**
      * This method is called before and after parsing of view definition and may
      * be called recursively.
@@ -668,8 +688,10 @@ public void commit(boolean ddl) {
         beforeCommitOrRollback();
         if (hasTransaction()) {
             try {
-                markUsedTablesAsUpdated();
                 transaction.commit();
+                // after the commit, so that results evaluated by other
+                // sessions before the changes were visible are not reused
+                markUsedTablesAsUpdated();
                 removeTemporaryLobs(true);
                 endTransaction();
             } finally {
@@ -1596,6 +1618,7 @@ public Transaction getTransaction() {
                 throw DbException.get(ErrorCode.DATABASE_IS_CLOSED, backgroundException);
             }
             transaction = store.getTransactionStore().begin(this, this.lockTimeout, id, isolationLevel);
+            transaction.setReadOnly(readOnly);
             startStatement = -1;
         }
         return transaction;
@@ -1866,6 +1889,35 @@ public void setIsolationLevel(IsolationLevel isolationLevel) {
         this.isolationLevel = isolationLevel;
     }
 
+    @Override
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) {
+        if (readOnly != this.readOnly) {
+            if (hasPendingTransaction()) {
+                throw DbException.get(ErrorCode.TRANSACTION_HAS_UNCOMMITTED_CHANGES);
+            }
+            // end the transaction without changes, the new mode is used from
+            // the next transaction
+            commit(false);
+            this.readOnly = readOnly;
+        }
+    }
+
+    /**
+     * Check that data may be changed in this session.
+     *
+     * @throws DbException if the transactions of this session are read-only
+     */
+    public void checkWritingAllowed() {
+        if (readOnly) {
+            throw DbException.get(ErrorCode.TRANSACTION_IS_READ_ONLY);
+        }
+    }
+
     /**
      * Gets bit set of non-keywords.
      *
@@ -107,6 +107,8 @@ public final class SessionRemote extends Session implements DataHandler {
 
     private String currentSchemaName;
 
+    private boolean readOnly;
+
     private volatile DynamicSettings dynamicSettings;
 
     public SessionRemote(ConnectionInfo ci) {
@@ -859,6 +861,29 @@ public void setIsolationLevel(IsolationLevel isolationLevel) {
         }
     }
 
+    @Override
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) {
+        if (clientVersion >= Constants.TCP_PROTOCOL_VERSION_20) {
+            try (CommandInterface command = prepareCommand("SET SESSION CHARACTERISTICS AS TRANSACTION "
+                    + (readOnly ? "READ ONLY" : "READ WRITE"), 0)) {
+                command.executeUpdate(null);
+            } catch (DbException e) {
+                int errorCode = e.getErrorCode();
+                if (errorCode != ErrorCode.SYNTAX_ERROR_1 && errorCode != ErrorCode.SYNTAX_ERROR_2) {
+                    throw e;
+                }
+                // the server does not support read-only transactions
+                return;
+            }
+            this.readOnly = readOnly;
+        }
+    }
+
     @Override
     public StaticSettings getStaticSettings() {
         StaticSettings settings = staticSettings;
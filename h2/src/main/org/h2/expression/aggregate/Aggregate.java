@@ -232,6 +232,115 @@ public Object getExtraArguments() {
         return extraArguments;
     }
 
+    /**
+     * Returns whether this aggregate can be computed by merging partial
+     * results of aggregation over disjoint sets of rows.
+     *
+     * @return whether partial results of this aggregate can be merged
+     */
+    public boolean isMergeable() {
+        if (distinct || filterCondition != null || over != null || orderByList != null) {
+            return false;
+        }
+        switch (aggregateType) {
+        case COUNT_ALL:
+        case COUNT:
+        case SUM:
+        case MIN:
+        case MAX:
+        case AVG:
+        case EVERY:
+        case ANY:
+        case BIT_AND_AGG:
+        case BIT_OR_AGG:
+        case BIT_XOR_AGG:
+        case BIT_NAND_AGG:
+        case BIT_NOR_AGG:
+        case BIT_XNOR_AGG:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Creates a new aggregate data object for a partial result of a mergeable
+     * aggregate.
+     *
+     * @return the aggregate data object
+     * @see #isMergeable()
+     */
+    public Object createPartialResult() {
+        return createAggregateData();
+    }
+
+    /**
+     * Adds the value of the argument to a partial result of a mergeable
+     * aggregate.
+     *
+     * @param session the session
+     * @param partialResult the partial result
+     * @param v the value of the argument, or {@code null} for COUNT(*)
+     */
+    public void updatePartialResult(SessionLocal session, Object partialResult, Value v) {
+        ((AggregateData) partialResult).add(session, v);
+    }
+
+    /**
+     * Merges a partial result of a mergeable aggregate into another one.
+     *
+     * @param session the session
+     * @param partialResult the partial result to update
+     * @param other the partial result over a different set of rows
+     */
+    public void mergePartialResult(SessionLocal session, Object partialResult, Object other) {
+        ((AggregateData) partialResult).merge(session, (AggregateData) other);
+    }
+
+    /**
+     * Returns the data type of values with partial results of a mergeable
+     * aggregate.
+     *
+     * @return the data type of partial results
+     * @see #getPartialResultValue(Object)
+     */
+    public TypeInfo getPartialResultType() {
+        switch (aggregateType) {
+        case COUNT_ALL:
+        case COUNT:
+            return TypeInfo.TYPE_BIGINT;
+        case AVG:
+            return AggregateDataAvg.PARTIAL_STATE_TYPE;
+        default:
+            return type;
+        }
+    }
+
+    /**
+     * Converts a partial result of a mergeable aggregate to a value, so it can
+     * be written to a temporary storage.
+     *
+     * @param partialResult the partial result
+     * @return the value of the partial result
+     * @see #createPartialResult(Value)
+     */
+    public Value getPartialResultValue(Object partialResult) {
+        return ((AggregateData) partialResult).getPartialState();
+    }
+
+    /**
+     * Creates a partial result of a mergeable aggregate from its value.
+     *
+     * @param value the value of the partial result
+     * @return the partial result
+     * @see #getPartialResultValue(Object)
+     */
+    public Object createPartialResult(Value value) {
+        AggregateData data = (AggregateData) createAggregateData();
+        data.setPartialState(value);
+        return data;
+    }
+
     @Override
     public void setFlags(int flags) {
         this.flags = flags;
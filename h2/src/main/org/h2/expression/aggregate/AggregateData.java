@@ -6,6 +6,7 @@
 package org.h2.expression.aggregate;
 
 import org.h2.engine.SessionLocal;
+import org.h2.message.DbException;
 import org.h2.value.Value;
 
 /**
@@ -29,4 +30,34 @@ abstract class AggregateData {
      */
     abstract Value getValue(SessionLocal session);
 
+    /**
+     * Merge the data of the same aggregate computed over a different set of
+     * rows into this aggregate.
+     *
+     * @param session the session
+     * @param other the data to merge
+     */
+    void merge(SessionLocal session, AggregateData other) {
+        throw DbException.getInternalError(getClass().getName());
+    }
+
+    /**
+     * Get the partial state of this aggregate as a value, so it can be stored
+     * and restored with {@link #setPartialState(Value)} later.
+     *
+     * @return the partial state
+     */
+    Value getPartialState() {
+        throw DbException.getInternalError(getClass().getName());
+    }
+
+    /**
+     * Restore the partial state of this aggregate.
+     *
+     * @param state the partial state returned by {@link #getPartialState()}
+     */
+    void setPartialState(Value state) {
+        throw DbException.getInternalError(getClass().getName());
+    }
+
 }
@@ -12,19 +12,33 @@
 import org.h2.api.IntervalQualifier;
 import org.h2.engine.SessionLocal;
 import org.h2.util.IntervalUtils;
+import org.h2.value.ExtTypeInfoRow;
 import org.h2.value.TypeInfo;
+import org.h2.value.Typed;
 import org.h2.value.Value;
+import org.h2.value.ValueBigint;
 import org.h2.value.ValueDecfloat;
 import org.h2.value.ValueDouble;
 import org.h2.value.ValueInterval;
 import org.h2.value.ValueNull;
 import org.h2.value.ValueNumeric;
+import org.h2.value.ValueRow;
 
 /**
  * Data stored while calculating an AVG aggregate.
  */
 final class AggregateDataAvg extends AggregateData {
 
+    /**
+     * The data type of the partial state: the number of values and their sum
+     * as DOUBLE, DECFLOAT, or the absolute value of intervals. Sums of NUMERIC
+     * and DECFLOAT values are stored as DECFLOAT, because they may have a
+     * negative scale.
+     */
+    static final TypeInfo PARTIAL_STATE_TYPE = TypeInfo.getTypeInfo(Value.ROW, -1L, -1,
+            new ExtTypeInfoRow(new Typed[] { TypeInfo.TYPE_BIGINT, TypeInfo.TYPE_DOUBLE,
+                    TypeInfo.TYPE_DECFLOAT, TypeInfo.TYPE_NUMERIC_SCALE_0 }));
+
     private final TypeInfo dataType;
     private long count;
     private double doubleValue;
@@ -62,6 +76,37 @@ void add(SessionLocal session, Value v) {
         }
     }
 
+    @Override
+    void merge(SessionLocal session, AggregateData other) {
+        AggregateDataAvg o = (AggregateDataAvg) other;
+        count += o.count;
+        doubleValue += o.doubleValue;
+        if (o.decimalValue != null) {
+            decimalValue = decimalValue == null ? o.decimalValue : decimalValue.add(o.decimalValue);
+        }
+        if (o.integerValue != null) {
+            integerValue = integerValue == null ? o.integerValue : integerValue.add(o.integerValue);
+        }
+    }
+
+    @Override
+    Value getPartialState() {
+        return ValueRow.get(PARTIAL_STATE_TYPE, new Value[] { ValueBigint.get(count), ValueDouble.get(doubleValue),
+                decimalValue != null ? ValueDecfloat.get(decimalValue) : ValueNull.INSTANCE,
+                integerValue != null ? ValueNumeric.get(integerValue) : ValueNull.INSTANCE });
+    }
+
+    @Override
+    void setPartialState(Value state) {
+        Value[] values = ((ValueRow) state).getList();
+        count = values[0].getLong();
+        doubleValue = values[1].getDouble();
+        Value v = values[2];
+        decimalValue = v != ValueNull.INSTANCE ? v.getBigDecimal() : null;
+        v = values[3];
+        integerValue = v != ValueNull.INSTANCE ? v.getBigDecimal().toBigInteger() : null;
+    }
+
     @Override
     Value getValue(SessionLocal session) {
         if (count == 0) {
@@ -30,6 +30,21 @@ void add(SessionLocal session, Value v) {
         }
     }
 
+    @Override
+    void merge(SessionLocal session, AggregateData other) {
+        count += ((AggregateDataCount) other).count;
+    }
+
+    @Override
+    Value getPartialState() {
+        return ValueBigint.get(count);
+    }
+
+    @Override
+    void setPartialState(Value state) {
+        count = state.getLong();
+    }
+
     @Override
     Value getValue(SessionLocal session) {
         return ValueBigint.get(count);
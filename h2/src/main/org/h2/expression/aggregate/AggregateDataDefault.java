@@ -100,6 +100,24 @@ void add(SessionLocal session, Value v) {
         }
     }
 
+    @Override
+    void merge(SessionLocal session, AggregateData other) {
+        Value v = ((AggregateDataDefault) other).value;
+        if (v != null) {
+            add(session, v);
+        }
+    }
+
+    @Override
+    Value getPartialState() {
+        return value != null ? value : ValueNull.INSTANCE;
+    }
+
+    @Override
+    void setPartialState(Value state) {
+        value = state != ValueNull.INSTANCE ? state : null;
+    }
+
     @SuppressWarnings("incomplete-switch")
     @Override
     Value getValue(SessionLocal session) {
@@ -120,7 +120,16 @@ public boolean getWhenValue(SessionLocal session, Value left) {
         return getValue(session, left, a.getValue(session), b.getValue(session)).isTrue();
     }
 
-    private Value getValue(SessionLocal session, Value value, Value aValue, Value bValue) {
+    /**
+     * Evaluate this predicate for the specified values.
+     *
+     * @param session the session
+     * @param value the value of the tested expression
+     * @param aValue the value of the first bound
+     * @param bValue the value of the second bound
+     * @return result of this predicate, either TRUE, FALSE, or NULL
+     */
+    public Value getValue(SessionLocal session, Value value, Value aValue, Value bValue) {
         int cmp1 = session.compareWithNull(aValue, value, false);
         int cmp2 = session.compareWithNull(value, bValue, false);
         if (cmp1 == Integer.MIN_VALUE) {
@@ -138,6 +147,24 @@ public boolean isWhenConditionOperand() {
         return whenOperand;
     }
 
+    /**
+     * Returns whether this is a NOT BETWEEN predicate.
+     *
+     * @return whether this is a NOT BETWEEN predicate
+     */
+    public boolean isNot() {
+        return not;
+    }
+
+    /**
+     * Returns whether this is a BETWEEN SYMMETRIC predicate.
+     *
+     * @return whether this is a BETWEEN SYMMETRIC predicate
+     */
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+
     @Override
     public Expression getNotIfPossible(SessionLocal session) {
         if (whenOperand) {
@@ -243,7 +243,7 @@ public boolean getWhenValue(SessionLocal session, Value left) {
      * @param compareType the compare type
      * @return result of comparison, either TRUE, FALSE, or NULL
      */
-    static Value compare(SessionLocal session, Value l, Value r, int compareType) {
+    public static Value compare(SessionLocal session, Value l, Value r, int compareType) {
         Value result;
         switch (compareType) {
         case EQUAL: {
@@ -579,6 +579,10 @@ private static ConditionIn getConditionIn(Expression left, Expression value1,
         return new ConditionIn(left, false, false, right);
     }
 
+    public int getCompareType() {
+        return compareType;
+    }
+
     @Override
     public int getSubexpressionCount() {
         return 2;
@@ -51,7 +51,7 @@ public ConditionAndOrN(int andOrType, List<Expression> expressions) {
         this.expressions = expressions;
     }
 
-    int getAndOrType() {
+    public int getAndOrType() {
         return andOrType;
     }
 
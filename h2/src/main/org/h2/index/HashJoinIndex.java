@@ -0,0 +1,349 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.h2.command.query.AllColumnsForPlan;
+import org.h2.engine.SessionLocal;
+import org.h2.mvstore.db.MVTempHashTable;
+import org.h2.result.Row;
+import org.h2.result.SearchRow;
+import org.h2.result.SortOrder;
+import org.h2.table.Column;
+import org.h2.table.IndexColumn;
+import org.h2.table.Table;
+import org.h2.table.TableFilter;
+import org.h2.util.DateTimeUtils;
+import org.h2.value.CompareMode;
+import org.h2.value.TypeInfo;
+import org.h2.value.Typed;
+import org.h2.value.Value;
+import org.h2.value.ValueBigint;
+import org.h2.value.ValueDecfloat;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueRow;
+import org.h2.value.ValueTimeTimeZone;
+import org.h2.value.ValueTimestampTimeZone;
+import org.h2.value.ValueVarchar;
+
+/**
+ * A transient index used to join a table on equality conditions when no
+ * regular index can be used for them. On the first lookup all rows of the
+ * table are read once (build phase) and grouped by the values of the join
+ * columns in a hash map, all further lookups (probe phase) only access this
+ * map.
+ *
+ * <p>
+ * The values of the join columns are normalized, so values that are equal
+ * according to the comparison rules of the database are also equal Java
+ * objects with the same hash code. If the table contains more rows than
+ * allowed by the MAX_MEMORY_ROWS setting, the rows are moved to a temporary
+ * file partitioned by the hash code of their key, and each lookup reads only
+ * the partition of its key. Keys of other data types or with a database
+ * collation can't be hashed; they are grouped in a sorted map, and if the
+ * table is too large each lookup performs a table scan, as a nested loop join
+ * would do. In-memory databases don't use temporary files either.
+ * </p>
+ */
+public final class HashJoinIndex extends JoinIndex {
+
+    private final Index scanIndex;
+
+    /**
+     * Whether values of the join columns can be normalized for hashing.
+     */
+    private final boolean hashable;
+
+    private Map<Value, ArrayList<Row>> map;
+
+    private MVTempHashTable spilled;
+
+    private boolean tooLarge;
+
+    /**
+     * Create a new hash join index.
+     *
+     * @param table the table
+     * @param scanIndex the index used to read all rows of the table
+     * @param columns the join columns
+     */
+    public HashJoinIndex(Table table, Index scanIndex, IndexColumn[] columns) {
+        super(table, columns);
+        this.scanIndex = scanIndex;
+        boolean defaultCollation = CompareMode.OFF.equals(database.getCompareMode().getName());
+        boolean hashable = true;
+        for (IndexColumn column : columns) {
+            if (!isHashable(column.column.getType().getValueType(), defaultCollation)) {
+                hashable = false;
+                break;
+            }
+        }
+        this.hashable = hashable;
+    }
+
+    private static boolean isHashable(int valueType, boolean defaultCollation) {
+        switch (valueType) {
+        case Value.VARCHAR:
+        case Value.VARCHAR_IGNORECASE:
+            return defaultCollation;
+        case Value.BOOLEAN:
+        case Value.TINYINT:
+        case Value.SMALLINT:
+        case Value.INTEGER:
+        case Value.BIGINT:
+        case Value.NUMERIC:
+        case Value.REAL:
+        case Value.DOUBLE:
+        case Value.DECFLOAT:
+        case Value.DATE:
+        case Value.TIME:
+        case Value.TIME_TZ:
+        case Value.TIMESTAMP:
+        case Value.TIMESTAMP_TZ:
+        case Value.BINARY:
+        case Value.VARBINARY:
+        case Value.UUID:
+        case Value.ENUM:
+            return true;
+        default:
+            return valueType >= Value.INTERVAL_YEAR && valueType <= Value.INTERVAL_MINUTE_TO_SECOND;
+        }
+    }
+
+    /**
+     * Get a value that is equal to values of the same data type with the same
+     * hash code if the specified value is equal to them according to the
+     * comparison rules.
+     *
+     * @param v the value of a hashable data type
+     * @return the normalized value
+     */
+    private static Value normalize(Value v) {
+        switch (v.getValueType()) {
+        case Value.VARCHAR_IGNORECASE: {
+            // the same conversion as in String.compareToIgnoreCase()
+            char[] chars = v.getString().toCharArray();
+            for (int i = 0, l = chars.length; i < l; i++) {
+                chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+            }
+            return ValueVarchar.get(new String(chars));
+        }
+        case Value.NUMERIC:
+            // 1.0 and 1.00 are equal, but they have different scale
+            return ValueDecfloat.get(v.getBigDecimal().stripTrailingZeros());
+        case Value.DECFLOAT:
+            // special values are constants
+            return ((ValueDecfloat) v).isFinite() ? ValueDecfloat.get(v.getBigDecimal().stripTrailingZeros()) : v;
+        case Value.TIME_TZ: {
+            // compared in UTC
+            ValueTimeTimeZone t = (ValueTimeTimeZone) v;
+            return ValueBigint.get(t.getNanos() - t.getTimeZoneOffsetSeconds() * DateTimeUtils.NANOS_PER_SECOND);
+        }
+        case Value.TIMESTAMP_TZ: {
+            ValueTimestampTimeZone t = (ValueTimestampTimeZone) v;
+            long dateValue = t.getDateValue();
+            long timeNanos = t.getTimeNanos() - t.getTimeZoneOffsetSeconds() * DateTimeUtils.NANOS_PER_SECOND;
+            if (timeNanos < 0) {
+                timeNanos += DateTimeUtils.NANOS_PER_DAY;
+                dateValue = DateTimeUtils.decrementDateValue(dateValue);
+            } else if (timeNanos >= DateTimeUtils.NANOS_PER_DAY) {
+                timeNanos -= DateTimeUtils.NANOS_PER_DAY;
+                dateValue = DateTimeUtils.incrementDateValue(dateValue);
+            }
+            return ValueTimestampTimeZone.fromDateValueAndNanos(dateValue, timeNanos, 0);
+        }
+        default:
+            return v;
+        }
+    }
+
+    @Override
+    public void reset() {
+        map = null;
+        if (spilled != null) {
+            spilled.close();
+            spilled = null;
+        }
+        tooLarge = false;
+    }
+
+    @Override
+    public Cursor find(SessionLocal session, SearchRow first, SearchRow last) {
+        if (!tooLarge) {
+            Value key = getKey(session, first, last);
+            if (key == ValueNull.INSTANCE) {
+                return new MetaCursor(new ArrayList<>(0));
+            } else if (key != null) {
+                if (map == null && spilled == null) {
+                    build(session);
+                }
+                if (map != null) {
+                    ArrayList<Row> rows = map.get(key);
+                    return new MetaCursor(rows != null ? rows : new ArrayList<>(0));
+                } else if (spilled != null) {
+                    return new MetaCursor(getSpilledRows(key));
+                }
+            }
+        }
+        // ranges, IS NULL conditions, and too large tables
+        return scanIndex.find(session, null, null);
+    }
+
+    /**
+     * Get the lookup key for the specified search rows.
+     *
+     * @param session the session
+     * @param first the first row
+     * @param last the last row
+     * @return the key, {@link ValueNull#INSTANCE} if the range is empty, or
+     *         {@code null} if a lookup with a single key is not possible
+     */
+    private Value getKey(SessionLocal session, SearchRow first, SearchRow last) {
+        if (first == null || last == null) {
+            return null;
+        }
+        int len = columns.length;
+        Value[] values = new Value[len];
+        for (int i = 0; i < len; i++) {
+            int id = columnIds[i];
+            Value v = first.getValue(id);
+            if (v == null || v == ValueNull.INSTANCE || v.getValueType() != columns[i].getType().getValueType()) {
+                return null;
+            }
+            Value v2 = last.getValue(id);
+            if (v2 == null || v2 == ValueNull.INSTANCE) {
+                return null;
+            }
+            int comp = session.compareWithNull(v, v2, false);
+            if (comp > 0) {
+                // additional range conditions exclude the searched value
+                return ValueNull.INSTANCE;
+            } else if (comp != 0) {
+                return null;
+            }
+            values[i] = hashable ? normalize(v) : v;
+        }
+        return len == 1 ? values[0] : ValueRow.get(values);
+    }
+
+    /**
+     * Get the key of a row of the table.
+     *
+     * @param values the values of the row
+     * @return the key, or {@code null} if the key contains a NULL value
+     */
+    private Value getRowKey(Value[] values) {
+        int len = columns.length;
+        if (len == 1) {
+            Value v = values[columnIds[0]];
+            return v == ValueNull.INSTANCE ? null : hashable ? normalize(v) : v;
+        }
+        Value[] keyValues = new Value[len];
+        for (int i = 0; i < len; i++) {
+            Value v = values[columnIds[i]];
+            if (v == ValueNull.INSTANCE) {
+                return null;
+            }
+            keyValues[i] = hashable ? normalize(v) : v;
+        }
+        return ValueRow.get(keyValues);
+    }
+
+    private void build(SessionLocal session) {
+        int maxRows = database.getMaxMemoryRows();
+        boolean canSpill = hashable && database.isPersistent() && !database.isReadOnly();
+        Map<Value, ArrayList<Row>> m = hashable ? new HashMap<>() : new TreeMap<>(database.getCompareMode());
+        Cursor cursor = scanIndex.find(session, null, null);
+        long count = 0;
+        while (cursor.next()) {
+            if ((++count & 4095) == 0) {
+                session.checkCanceled();
+            }
+            Row row = cursor.get();
+            Value key = getRowKey(row.getValueList());
+            if (key == null) {
+                continue;
+            }
+            if (spilled != null) {
+                addSpilled(key, row);
+                continue;
+            }
+            m.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+            if (count > maxRows) {
+                if (!canSpill) {
+                    tooLarge = true;
+                    return;
+                }
+                Column[] tableColumns = table.getColumns();
+                int columnCount = tableColumns.length;
+                Typed[] types = new Typed[columnCount + 1];
+                System.arraycopy(tableColumns, 0, types, 0, columnCount);
+                types[columnCount] = TypeInfo.TYPE_BIGINT;
+                spilled = new MVTempHashTable(database, types);
+                for (Map.Entry<Value, ArrayList<Row>> entry : m.entrySet()) {
+                    for (Row r : entry.getValue()) {
+                        addSpilled(entry.getKey(), r);
+                    }
+                }
+                m = null;
+            }
+        }
+        map = m;
+    }
+
+    private void addSpilled(Value key, Row row) {
+        Value[] values = row.getValueList();
+        int columnCount = values.length;
+        Value[] data = new Value[columnCount + 1];
+        System.arraycopy(values, 0, data, 0, columnCount);
+        data[columnCount] = ValueBigint.get(row.getKey());
+        spilled.add(key.hashCode(), data);
+    }
+
+    private ArrayList<Row> getSpilledRows(Value key) {
+        ArrayList<Value[]> list = spilled.get(key.hashCode());
+        ArrayList<Row> rows = new ArrayList<>(list.size());
+        for (Value[] data : list) {
+            int columnCount = data.length - 1;
+            Value[] values = new Value[columnCount];
+            System.arraycopy(data, 0, values, 0, columnCount);
+            // different keys may have the same hash code
+            if (key.equals(getRowKey(values))) {
+                Row row = table.createRow(values, SearchRow.MEMORY_CALCULATE);
+                row.setKey(data[columnCount].getLong());
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public double getCost(SessionLocal session, int[] masks, TableFilter[] filters, int filter,
+            SortOrder sortOrder, AllColumnsForPlan allColumnsSet) {
+        if (masks == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+        for (int id : columnIds) {
+            if ((masks[id] & IndexCondition.EQUALITY) != IndexCondition.EQUALITY) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        // use the same scale as MVStore indexes, rows are returned in
+        // unspecified order, so cost it as a scan index
+        return 10 * getCostRangeIndex(masks, table.getRowCountApproximation(session), filters, filter, sortOrder,
+                true, allColumnsSet);
+    }
+
+    @Override
+    public String getPlanSQL() {
+        return table.getSQL(new StringBuilder(), TRACE_SQL_FLAGS).append(".hashJoin").toString();
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.index;
+
+import org.h2.engine.SessionLocal;
+import org.h2.message.DbException;
+import org.h2.result.Row;
+import org.h2.table.IndexColumn;
+import org.h2.table.Table;
+
+/**
+ * A base class for transient indexes created by the optimizer for a joined
+ * table. Such indexes keep state between lookups performed during one
+ * execution of a query.
+ */
+public abstract class JoinIndex extends Index {
+
+    /**
+     * The minimum number of rows in a table with known row count to consider
+     * a join index, smaller tables are cheap enough to search directly.
+     */
+    public static final long MIN_ROW_COUNT = 1_000;
+
+    protected JoinIndex(Table table, IndexColumn[] columns) {
+        super(table, 0, null, columns, 0, IndexType.createNonUnique(false));
+    }
+
+    /**
+     * Discard the state collected by the previous execution of the query.
+     */
+    public abstract void reset();
+
+    @Override
+    public void close(SessionLocal session) {
+        reset();
+    }
+
+    @Override
+    public void add(SessionLocal session, Row row) {
+        throw DbException.getUnsupportedException(getClass().getSimpleName() + ".add");
+    }
+
+    @Override
+    public void remove(SessionLocal session, Row row) {
+        throw DbException.getUnsupportedException(getClass().getSimpleName() + ".remove");
+    }
+
+    @Override
+    public void remove(SessionLocal session) {
+        throw DbException.getUnsupportedException(getClass().getSimpleName() + ".remove");
+    }
+
+    @Override
+    public void truncate(SessionLocal session) {
+        throw DbException.getUnsupportedException(getClass().getSimpleName() + ".truncate");
+    }
+
+    @Override
+    public boolean needRebuild() {
+        return false;
+    }
+
+    @Override
+    public void checkRename() {
+        throw DbException.getUnsupportedException(getClass().getSimpleName() + ".checkRename");
+    }
+
+    @Override
+    public boolean canGetFirstOrLast() {
+        return false;
+    }
+
+    @Override
+    public boolean canScan() {
+        return false;
+    }
+
+    @Override
+    public long getRowCount(SessionLocal session) {
+        return table.getRowCount(session);
+    }
+
+    @Override
+    public long getRowCountApproximation(SessionLocal session) {
+        return table.getRowCountApproximation(session);
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.index;
+
+import java.util.ArrayList;
+
+import org.h2.command.query.AllColumnsForPlan;
+import org.h2.engine.SessionLocal;
+import org.h2.result.Row;
+import org.h2.result.SearchRow;
+import org.h2.result.SortOrder;
+import org.h2.table.Column;
+import org.h2.table.TableFilter;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+
+/**
+ * A transient index used to join a table on an equality condition with a
+ * column of a previous table that returns its rows in ascending order of this
+ * column. Instead of searching the underlying sorted index for each outer row,
+ * one cursor of that index is advanced in lockstep with the outer rows, and
+ * the rows with the current key are kept for outer rows with the same key. A
+ * lookup with a smaller key than the previous one or with a key far ahead
+ * repositions the cursor with a regular search.
+ */
+public final class MergeJoinIndex extends JoinIndex {
+
+    /**
+     * The maximum number of index entries to skip before the cursor is
+     * repositioned with a search.
+     */
+    private static final int MAX_SKIP = 64;
+
+    private final Index base;
+
+    private final int columnId;
+
+    private Cursor cursor;
+
+    private SearchRow next;
+
+    private Value groupKey;
+
+    private final ArrayList<Row> group = new ArrayList<>();
+
+    /**
+     * Create a new merge join index.
+     *
+     * @param base the sorted index, the first column of this index is used
+     *            for the join
+     */
+    public MergeJoinIndex(Index base) {
+        super(base.getTable(), base.getIndexColumns());
+        this.base = base;
+        columnId = columns[0].getColumnId();
+    }
+
+    @Override
+    public void reset() {
+        cursor = null;
+        next = null;
+        groupKey = null;
+        group.clear();
+    }
+
+    @Override
+    public Cursor find(SessionLocal session, SearchRow first, SearchRow last) {
+        Value key = getKey(session, first, last);
+        if (key == null) {
+            return base.find(session, first, last);
+        }
+        if (groupKey != null) {
+            int comp = session.compare(key, groupKey);
+            if (comp == 0) {
+                return new MetaCursor(group);
+            } else if (comp < 0) {
+                cursor = null;
+            }
+        }
+        if (cursor != null) {
+            for (int skipped = 0; next != null && session.compareWithNull(next.getValue(columnId), key, false) < 0;) {
+                if (++skipped > MAX_SKIP) {
+                    cursor = null;
+                    break;
+                }
+                next = cursor.next() ? cursor.getSearchRow() : null;
+            }
+        }
+        if (cursor == null) {
+            SearchRow start = table.getTemplateRow();
+            start.setValue(columnId, key);
+            cursor = base.find(session, start, null);
+            next = cursor.next() ? cursor.getSearchRow() : null;
+        }
+        group.clear();
+        groupKey = key;
+        int maxRows = database.getMaxMemoryRows();
+        while (next != null && session.compareWithNull(next.getValue(columnId), key, false) == 0) {
+            if (group.size() >= maxRows) {
+                // too many rows with the same key
+                reset();
+                return base.find(session, first, last);
+            }
+            group.add(cursor.get());
+            next = cursor.next() ? cursor.getSearchRow() : null;
+        }
+        return new MetaCursor(group);
+    }
+
+    /**
+     * Get the lookup key for the specified search rows.
+     *
+     * @param session the session
+     * @param first the first row
+     * @param last the last row
+     * @return the key, or {@code null} if a lookup of a single key is not
+     *         possible
+     */
+    private Value getKey(SessionLocal session, SearchRow first, SearchRow last) {
+        if (first == null || last == null) {
+            return null;
+        }
+        Value v = first.getValue(columnId);
+        if (v == null || v == ValueNull.INSTANCE || v.getValueType() != columns[0].getType().getValueType()) {
+            return null;
+        }
+        for (int i = 1, len = columns.length; i < len; i++) {
+            int id = columnIds[i];
+            if (first.getValue(id) != null || last.getValue(id) != null) {
+                return null;
+            }
+        }
+        Value v2 = last.getValue(columnId);
+        if (v2 == null || session.compareWithNull(v, v2, false) != 0) {
+            return null;
+        }
+        return v;
+    }
+
+    @Override
+    public double getCost(SessionLocal session, int[] masks, TableFilter[] filters, int filter,
+            SortOrder sortOrder, AllColumnsForPlan allColumnsSet) {
+        // MVStore indexes cost the search of a lookup as 2 rows with a scale
+        // of 10, see getCostRangeIndex(), advancing the cursor instead costs
+        // about 1 row
+        return base.getCost(session, masks, filters, filter, sortOrder, allColumnsSet) - 10;
+    }
+
+    @Override
+    public int getColumnIndex(Column col) {
+        return base.getColumnIndex(col);
+    }
+
+    @Override
+    public boolean isFirstColumn(Column column) {
+        return base.isFirstColumn(column);
+    }
+
+    @Override
+    public String getPlanSQL() {
+        return base.getPlanSQL() + ".mergeJoin";
+    }
+
+}
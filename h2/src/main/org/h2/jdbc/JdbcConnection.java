@@ -505,11 +505,15 @@ public String nativeSQL(String sql) throws SQLException {
     }
 
     /**
-     * According to the JDBC specs, this setting is only a hint to the database
-     * to enable optimizations - it does not cause writes to be prohibited.
+     * Puts this connection in read-only mode or takes it out of read-only
+     * mode. Transactions of a read-only connection can't change data, and
+     * they read data with less overhead. The mode can't be changed when the
+     * current transaction has uncommitted changes, a transaction without
+     * changes is ended. Servers of older versions ignore this setting.
      *
-     * @param readOnly ignored
-     * @throws SQLException if the connection is closed
+     * @param readOnly whether the connection is read-only
+     * @throws SQLException if the connection is closed or the current
+     *             transaction has uncommitted changes
      */
     @Override
     public void setReadOnly(boolean readOnly) throws SQLException {
@@ -518,15 +522,16 @@ public void setReadOnly(boolean readOnly) throws SQLException {
                 debugCode("setReadOnly(" + readOnly + ')');
             }
             checkClosed();
+            session.setReadOnly(readOnly);
         } catch (Exception e) {
             throw logAndConvert(e);
         }
     }
 
     /**
-     * Returns true if the database is read-only.
+     * Returns true if the connection or the database is read-only.
      *
-     * @return if the database is read-only
+     * @return if the connection or the database is read-only
      * @throws SQLException if the connection is closed
      */
     @Override
@@ -534,6 +539,9 @@ public boolean isReadOnly() throws SQLException {
         try {
             debugCodeCall("isReadOnly");
             checkClosed();
+            if (session.isReadOnly()) {
+                return true;
+            }
             getReadOnly = prepareCommand("CALL READONLY()", getReadOnly);
             ResultInterface result = getReadOnly.executeQuery(0, false);
             result.next();
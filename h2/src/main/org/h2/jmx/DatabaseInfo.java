@@ -18,6 +18,7 @@
 import org.h2.engine.Constants;
 import org.h2.engine.Database;
 import org.h2.engine.SessionLocal;
+import org.h2.mvstore.cache.CacheLongKey;
 import org.h2.table.Table;
 import org.h2.util.NetworkConnectionInfo;
 
@@ -167,6 +168,28 @@ public int getCacheSize() {
         return 0;
     }
 
+    @Override
+    public long getCacheHits() {
+        CacheLongKey<?> cache = getCache();
+        return cache != null ? cache.getHits() : 0;
+    }
+
+    @Override
+    public long getCacheMisses() {
+        CacheLongKey<?> cache = getCache();
+        return cache != null ? cache.getMisses() : 0;
+    }
+
+    @Override
+    public long getCacheEvictions() {
+        CacheLongKey<?> cache = getCache();
+        return cache != null ? cache.getEvictions() : 0;
+    }
+
+    private CacheLongKey<?> getCache() {
+        return database.isPersistent() ? database.getStore().getMvStore().getCache() : null;
+    }
+
     @Override
     public String getVersion() {
         return Constants.FULL_VERSION;
@@ -77,6 +77,28 @@ public interface DatabaseInfoMBean {
      */
     int getCacheSize();
 
+    /**
+     * The number of page cache hits since the database was opened.
+     *
+     * @return the number of hits
+     */
+    long getCacheHits();
+
+    /**
+     * The number of page cache misses since the database was opened.
+     *
+     * @return the number of misses
+     */
+    long getCacheMisses();
+
+    /**
+     * The number of pages evicted from the cache since the database was
+     * opened.
+     *
+     * @return the number of evictions
+     */
+    long getCacheEvictions();
+
     /**
      * The database version.
      *
@@ -555,6 +555,8 @@ public static SQLException getJdbcSQLException(String message, String sql, Strin
         case SAVEPOINT_IS_NAMED:
         case NOT_ENOUGH_RIGHTS_FOR_1:
         case DATABASE_IS_READ_ONLY:
+        case TRANSACTION_IS_READ_ONLY:
+        case TRANSACTION_HAS_UNCOMMITTED_CHANGES:
         case WRONG_XID_FORMAT_1:
         case UNSUPPORTED_COMPRESSION_OPTIONS_1:
         case UNSUPPORTED_COMPRESSION_ALGORITHM_1:
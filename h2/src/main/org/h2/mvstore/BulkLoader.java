@@ -0,0 +1,282 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.h2.mvstore.Page.PageReference;
+import org.h2.mvstore.type.DataType;
+
+/**
+ * Builds the pages of an empty map bottom-up from entries added in ascending
+ * order of keys. Leaf pages are filled completely and node pages are created
+ * as soon as all their children are known, so no page is copied or split.
+ * <p>
+ * Entries become visible when the loader publishes a new root page of the
+ * map. This happens whenever the store needs to write unsaved pages, and in
+ * {@link #finish()}. The map must not be modified by anyone else until the
+ * loader is finished. If loading fails, the map contains a prefix of the
+ * entries that were added.
+ *
+ * @param <K> the key class
+ * @param <V> the value class
+ */
+public final class BulkLoader<K,V> {
+
+    private final MVMap<K,V> map;
+
+    private final MVStore store;
+
+    private final DataType<K> keyType;
+
+    private final int keysPerPage;
+
+    private final long maxPageSize;
+
+    /**
+     * The unfinished node pages, one per level above the leaves.
+     */
+    private final ArrayList<Level<K,V>> levels = new ArrayList<>();
+
+    /**
+     * The pages that were created only for the published root, and are
+     * replaced by the next published root.
+     */
+    private ArrayList<Page<K,V>> temporaryPages = new ArrayList<>();
+
+    /**
+     * The last published root page.
+     */
+    private Page<K,V> root;
+
+    private K[] keys;
+
+    private V[] values;
+
+    private int keyCount;
+
+    private int memory;
+
+    private K lastKey;
+
+    private long count;
+
+    private boolean finished;
+
+    /**
+     * Create a new loader.
+     *
+     * @param map the map, which must be empty
+     */
+    public BulkLoader(MVMap<K,V> map) {
+        this.map = map;
+        store = map.store;
+        keyType = map.getKeyType();
+        keysPerPage = store.getKeysPerPage();
+        maxPageSize = store.getMaxPageSize();
+        map.beforeWrite();
+        RootReference<K,V> rootReference = map.flushAndGetRoot();
+        DataUtils.checkArgument(rootReference.getTotalCount() == 0,
+                "Map {0} is not empty", map.getName());
+        root = rootReference.root;
+        newLeaf();
+    }
+
+    /**
+     * Add an entry. The key must be larger than all keys added before.
+     *
+     * @param key the key
+     * @param value the value
+     */
+    public void add(K key, V value) {
+        DataUtils.checkArgument(value != null, "The value may not be null");
+        if (finished) {
+            throw DataUtils.newUnsupportedOperationException("The loader is finished");
+        }
+        if (count > 0 && keyType.compare(lastKey, key) >= 0) {
+            throw DataUtils.newIllegalArgumentException(
+                    "Keys must be added in ascending order, got {0} after {1}", key, lastKey);
+        }
+        keys[keyCount] = key;
+        values[keyCount++] = value;
+        memory += map.evaluateMemoryForKey(key) + map.evaluateMemoryForValue(value);
+        lastKey = key;
+        count++;
+        if (keyCount == keysPerPage || memory > maxPageSize) {
+            Page<K,V> leaf = keyCount == keysPerPage ? Page.createLeaf(map, keys, values, 0)
+                    : Page.createLeaf(map, Arrays.copyOf(keys, keyCount), Arrays.copyOf(values, keyCount), 0);
+            newLeaf();
+            registerUnsavedMemory(leaf.getMemory());
+            addChild(0, leaf.getKey(0), new PageReference<>(leaf));
+            if (store.isSaveNeeded()) {
+                // let the store write what was loaded so far
+                publish();
+                map.beforeWrite();
+            }
+        }
+    }
+
+    /**
+     * Make all added entries visible in the map.
+     *
+     * @return the number of added entries
+     */
+    public long finish() {
+        if (!finished) {
+            finished = true;
+            if (count > 0) {
+                publish();
+            }
+        }
+        return count;
+    }
+
+    private void newLeaf() {
+        keys = keyType.createStorage(keysPerPage);
+        values = map.getValueType().createStorage(keysPerPage);
+        keyCount = 0;
+        memory = 0;
+    }
+
+    private void addChild(int level, K minKey, PageReference<K,V> child) {
+        if (level == levels.size()) {
+            levels.add(new Level<>(keyType.createStorage(keysPerPage + 1), Page.createRefStorage(keysPerPage + 1)));
+        }
+        Level<K,V> l = levels.get(level);
+        l.minKeys[l.count] = minKey;
+        l.children[l.count++] = child;
+        l.totalCount += child.count;
+        l.memory += map.evaluateMemoryForKey(minKey);
+        if (l.count == keysPerPage + 1 || l.memory > maxPageSize && l.count > 2) {
+            Page<K,V> node = l.createNode(map, null, null);
+            K nodeMinKey = l.minKeys[0];
+            l.clear();
+            registerUnsavedMemory(node.getMemory());
+            addChild(level + 1, nodeMinKey, new PageReference<>(node));
+        }
+    }
+
+    /**
+     * Build a root page from the full pages created so far and the
+     * unfinished pages, and make it the root of the map.
+     */
+    private void publish() {
+        ArrayList<Page<K,V>> pages = new ArrayList<>();
+        K carryKey = null;
+        PageReference<K,V> carry = null;
+        if (keyCount > 0) {
+            Page<K,V> leaf = Page.createLeaf(map, Arrays.copyOf(keys, keyCount), Arrays.copyOf(values, keyCount), 0);
+            pages.add(leaf);
+            carryKey = keys[0];
+            carry = new PageReference<>(leaf);
+        }
+        for (Level<K,V> l : levels) {
+            int n = l.count + (carry == null ? 0 : 1);
+            if (n == 1) {
+                if (carry == null) {
+                    carryKey = l.minKeys[0];
+                    carry = l.children[0];
+                }
+            } else if (n > 1) {
+                Page<K,V> node = l.createNode(map, carryKey, carry);
+                pages.add(node);
+                carryKey = l.minKeys[0];
+                carry = new PageReference<>(node);
+            }
+        }
+        Page<K,V> newRoot = carry.getPage();
+        if (newRoot == null) {
+            newRoot = map.readPage(carry.getPos());
+        }
+        int unsavedMemory = 0;
+        for (Page<K,V> page : pages) {
+            unsavedMemory += page.getMemory();
+        }
+        RootReference<K,V> rootReference;
+        for (int attempt = 1;; attempt++) {
+            rootReference = map.flushAndGetRoot();
+            if (rootReference.root != root) {
+                throw DataUtils.newMVStoreException(DataUtils.ERROR_INTERNAL,
+                        "Map {0} was modified during the bulk load", map.getName());
+            }
+            if (rootReference.updateRootPage(newRoot, attempt) != null) {
+                break;
+            }
+            Thread.yield();
+        }
+        for (Page<K,V> page : temporaryPages) {
+            unsavedMemory += page.removePage(rootReference.version);
+        }
+        registerUnsavedMemory(unsavedMemory);
+        temporaryPages = pages;
+        root = newRoot;
+    }
+
+    private void registerUnsavedMemory(int memory) {
+        if (map.isPersistent()) {
+            store.registerUnsavedMemory(memory);
+        }
+    }
+
+    /**
+     * The children of an unfinished node page.
+     */
+    private static final class Level<K,V> {
+
+        /**
+         * The smallest key of each child.
+         */
+        final K[] minKeys;
+
+        final PageReference<K,V>[] children;
+
+        int count;
+
+        long totalCount;
+
+        int memory;
+
+        Level(K[] minKeys, PageReference<K,V>[] children) {
+            this.minKeys = minKeys;
+            this.children = children;
+        }
+
+        /**
+         * Create a node page with the children of this level.
+         *
+         * @param map the map
+         * @param lastKey the smallest key of the additional last child
+         * @param last the additional last child, or null
+         * @return the new page
+         */
+        Page<K,V> createNode(MVMap<K,V> map, K lastKey, PageReference<K,V> last) {
+            int childCount = last == null ? count : count + 1;
+            K[] keys = map.getKeyType().createStorage(childCount - 1);
+            System.arraycopy(minKeys, 1, keys, 0, count - 1);
+            PageReference<K,V>[] refs = Page.createRefStorage(childCount);
+            System.arraycopy(children, 0, refs, 0, count);
+            long total = totalCount;
+            if (last != null) {
+                keys[count - 1] = lastKey;
+                refs[count] = last;
+                total += last.count;
+            }
+            return Page.createNode(map, keys, refs, total, 0);
+        }
+
+        /**
+         * Remove all children.
+         */
+        void clear() {
+            Arrays.fill(minKeys, 0, count, null);
+            Arrays.fill(children, 0, count, null);
+            count = 0;
+            totalCount = 0;
+            memory = 0;
+        }
+    }
+}
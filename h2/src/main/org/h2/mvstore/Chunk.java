@@ -396,9 +396,10 @@ ByteBuffer readBufferForPage(FileStore fileStore, int offset, long pos) {
         while (true) {
             long originalBlock = block;
             try {
-                long filePos = originalBlock * MVStore.BLOCK_SIZE;
-                long maxPos = filePos + (long) len * MVStore.BLOCK_SIZE;
-                filePos += offset;
+                long chunkPos = originalBlock * MVStore.BLOCK_SIZE;
+                int chunkLength = len * MVStore.BLOCK_SIZE;
+                long maxPos = chunkPos + chunkLength;
+                long filePos = chunkPos + offset;
                 if (filePos < 0) {
                     throw DataUtils.newMVStoreException(
                             DataUtils.ERROR_FILE_CORRUPT,
@@ -408,7 +409,7 @@ ByteBuffer readBufferForPage(FileStore fileStore, int offset, long pos) {
                 int length = DataUtils.getPageMaxLength(pos);
                 if (length == DataUtils.PAGE_LARGE) {
                     // read the first bytes to figure out actual length
-                    length = fileStore.readFully(filePos, 128).getInt();
+                    length = fileStore.readFully(chunkPos, chunkLength, filePos, 128).getInt();
                     // pageNo is deliberately not included into length to preserve compatibility
                     // TODO: remove this adjustment when page on disk format is re-organized
                     length += 4;
@@ -419,7 +420,43 @@ ByteBuffer readBufferForPage(FileStore fileStore, int offset, long pos) {
                             "Illegal page length {0} reading at {1}; max pos {2} ", length, filePos, maxPos);
                 }
 
-                ByteBuffer buff = fileStore.readFully(filePos, length);
+                ByteBuffer buff = fileStore.readFully(chunkPos, chunkLength, filePos, length);
+
+                if (originalBlock == block) {
+                    return buff;
+                }
+            } catch (MVStoreException ex) {
+                if (originalBlock == block) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the bytes of several pages stored next to each other with a single
+     * read.
+     *
+     * @param fileStore to use
+     * @param offset the offset of the first page within the chunk
+     * @param length the number of bytes to read, limited to the end of the
+     *            chunk
+     * @return the buffer, starting with the first page
+     */
+    ByteBuffer readBufferForPages(FileStore fileStore, int offset, int length) {
+        assert isSaved() : this;
+        while (true) {
+            long originalBlock = block;
+            try {
+                long chunkPos = originalBlock * MVStore.BLOCK_SIZE;
+                int chunkLength = len * MVStore.BLOCK_SIZE;
+                length = Math.min(chunkLength - offset, length);
+                if (offset < 0 || length < 0) {
+                    throw DataUtils.newMVStoreException(DataUtils.ERROR_FILE_CORRUPT,
+                            "Illegal range of length {0} at offset {1}; c={2}", length, offset, toString());
+                }
+
+                ByteBuffer buff = fileStore.readFully(chunkPos, chunkLength, chunkPos + offset, length);
 
                 if (originalBlock == block) {
                     return buff;
@@ -438,10 +475,11 @@ long[] readToC(FileStore fileStore) {
         while (true) {
             long originalBlock = block;
             try {
-                long filePos = originalBlock * MVStore.BLOCK_SIZE + tocPos;
+                long chunkPos = originalBlock * MVStore.BLOCK_SIZE;
                 int length = pageCount * 8;
                 long[] toc = new long[pageCount];
-                fileStore.readFully(filePos, length).asLongBuffer().get(toc);
+                fileStore.readFully(chunkPos, len * MVStore.BLOCK_SIZE, chunkPos + tocPos, length)
+                        .asLongBuffer().get(toc);
                 if (originalBlock == block) {
                     return toc;
                 }
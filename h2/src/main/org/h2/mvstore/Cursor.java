@@ -15,6 +15,12 @@
  * @param <V> the value type
  */
 public final class Cursor<K,V> implements Iterator<K> {
+    /**
+     * The number of leaf pages a cursor iterates over before it starts
+     * reading the following leaf pages ahead.
+     */
+    private static final int READ_AHEAD_AFTER_LEAVES = 2;
+
     private final boolean reverse;
     private final K to;
     private CursorPos<K,V> cursorPos;
@@ -23,7 +29,9 @@
     private K last;
     private V lastValue;
     private Page<K,V> lastPage;
-
+    private final int prefetchPageCount;
+    private final int readAheadPageCount;
+    private int leafCount;
 
     public Cursor(RootReference<K,V> rootReference, K from, K to) {
         this(rootReference, from, to, false);
@@ -40,6 +48,8 @@ public Cursor(RootReference<K,V> rootReference, K from, K to, boolean reverse) {
         this.cursorPos = traverseDown(lastPage, from, reverse);
         this.to = to;
         this.reverse = reverse;
+        this.prefetchPageCount = lastPage.map.store.getPrefetchPageCount();
+        this.readAheadPageCount = lastPage.map.store.getReadAheadPageCount();
     }
 
     @Override
@@ -61,7 +71,16 @@ public boolean hasNext() {
                 } else {
                     // traverse down to the leaf taking the leftmost path
                     while (!page.isLeaf()) {
+                        if (prefetchPageCount > 0) {
+                            prefetch(page, index);
+                        } else if (readAheadPageCount > 0 && leafCount >= READ_AHEAD_AFTER_LEAVES) {
+                            page.map.store.readAhead(page, index,
+                                    lastChildInRange(page, index, readAheadPageCount - 1));
+                        }
                         page = page.getChildPage(index);
+                        if (page.isLeaf()) {
+                            leafCount++;
+                        }
                         index = reverse ? upperBound(page) - 1 : 0;
                         if (keeper == null) {
                             cursorPos = new CursorPos<>(page, index, cursorPos);
@@ -179,6 +198,55 @@ static <K,V> CursorPos<K,V> traverseDown(Page<K,V> page, K key, boolean reverse)
         return cursorPos;
     }
 
+    /**
+     * Read the next child pages of a node page ahead, unless the last of them
+     * is cached or being read already. Only the pages which may contain keys
+     * within the range are read.
+     *
+     * @param page the node page
+     * @param index the index of the child page visited now
+     */
+    private void prefetch(Page<K,V> page, int index) {
+        MVStore store = page.map.store;
+        int last = lastChildInRange(page, index, prefetchPageCount);
+        if (last != index && store.needsPrefetch(page.getChildPagePos(last))) {
+            for (int i = index; i != last;) {
+                i += reverse ? -1 : 1;
+                store.prefetchPage(page.map, page.getChildPagePos(i));
+            }
+        }
+    }
+
+    /**
+     * Get the index of the last of the next child pages of a node page which
+     * may contain keys within the range.
+     *
+     * @param page the node page
+     * @param index the index of the child page visited now
+     * @param count the maximum number of next child pages
+     * @return the index, which is the given index if there are none
+     */
+    private int lastChildInRange(Page<K,V> page, int index, int count) {
+        int increment = reverse ? -1 : 1;
+        int upperBound = upperBound(page);
+        int last = index;
+        for (int i = 0; i < count; i++) {
+            int next = last + increment;
+            if (next < 0 || next >= upperBound || to != null && !mayContainKeysInRange(page, next)) {
+                break;
+            }
+            last = next;
+        }
+        return last;
+    }
+
+    private boolean mayContainKeysInRange(Page<K,V> page, int childIndex) {
+        // the keys of a child page are between the keys of the node page
+        // before and after it
+        int c = page.map.getKeyType().compare(page.getKey(reverse ? childIndex : childIndex - 1), to);
+        return reverse ? c > 0 : c <= 0;
+    }
+
     private static <K,V> int upperBound(Page<K,V> page) {
         return page.isLeaf() ? page.getKeyCount() : page.map.getChildPageCount(page);
     }
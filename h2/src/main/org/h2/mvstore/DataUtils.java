@@ -139,6 +139,12 @@ public final class DataUtils {
      */
     public static final int PAGE_HAS_PAGE_NO = 8;
 
+    /**
+     * The bit mask for pages with keys that are encoded relative to the
+     * previous key of the page.
+     */
+    public static final int PAGE_DELTA_KEYS = 16;
+
     /**
      * The maximum length of a variable size int.
      */
@@ -8,13 +8,18 @@
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
+import org.h2.engine.SysProperties;
 import org.h2.mvstore.cache.FilePathCache;
 import org.h2.store.fs.FilePath;
 import org.h2.store.fs.encrypt.FileEncrypt;
 import org.h2.store.fs.encrypt.FilePathEncrypt;
+import org.h2.util.MemoryUnmapper;
 
 /**
  * The default storage mechanism of the MVStore. This implementation persists
@@ -23,6 +28,13 @@
  */
 public class FileStore {
 
+    /**
+     * The maximum number of mapped regions. Operating systems limit the number
+     * of mappings per process, regions are read with regular file operations
+     * once this number is reached.
+     */
+    private static final int MAX_MAPPED_REGIONS = 16 * 1024;
+
     /**
      * The number of read operations.
      */
@@ -80,6 +92,16 @@ public class FileStore {
      */
     private FileLock fileLock;
 
+    /**
+     * Whether regions of the file should be memory mapped.
+     */
+    private volatile boolean memoryMapped;
+
+    /**
+     * The mapped regions by their position.
+     */
+    private final ConcurrentSkipListMap<Long, ByteBuffer> mappedRegions = new ConcurrentSkipListMap<>();
+
     @Override
     public String toString() {
         return fileName;
@@ -100,6 +122,53 @@ public ByteBuffer readFully(long pos, int len) {
         return dst;
     }
 
+    /**
+     * Read from a region of the file that is not changed while it is in use,
+     * such as a chunk. If memory mapping is enabled, the whole region is
+     * mapped read-only on first access, and a read-only view of the mapped
+     * memory is returned instead of a copy. Otherwise, or if the requested
+     * bytes are not within the region, this method is the same as
+     * {@link #readFully(long, int)}.
+     *
+     * @param regionPos the position of the region
+     * @param regionLength the length of the region
+     * @param pos the read position
+     * @param len the number of bytes to read
+     * @return the byte buffer
+     */
+    public ByteBuffer readFully(long regionPos, int regionLength, long pos, int len) {
+        if (memoryMapped && pos >= regionPos && pos + len <= regionPos + regionLength) {
+            ByteBuffer region = getMappedRegion(regionPos, regionLength);
+            if (region != null) {
+                ByteBuffer buff = region.duplicate();
+                int offset = (int) (pos - regionPos);
+                buff.limit(offset + len);
+                buff.position(offset);
+                return buff.slice();
+            }
+        }
+        return readFully(pos, len);
+    }
+
+    private ByteBuffer getMappedRegion(long regionPos, int regionLength) {
+        ByteBuffer region = mappedRegions.get(regionPos);
+        if (region != null && region.capacity() == regionLength) {
+            return region;
+        }
+        if (regionPos + regionLength > fileSize || mappedRegions.size() >= MAX_MAPPED_REGIONS) {
+            return null;
+        }
+        try {
+            region = file.map(MapMode.READ_ONLY, regionPos, regionLength);
+        } catch (IOException | UnsupportedOperationException e) {
+            // this file system does not support mapping, read the file instead
+            memoryMapped = false;
+            return null;
+        }
+        mappedRegions.put(regionPos, region);
+        return region;
+    }
+
     /**
      * Write to the file.
      *
@@ -124,6 +193,21 @@ public void writeFully(long pos, ByteBuffer src) {
      *            used
      */
     public void open(String fileName, boolean readOnly, char[] encryptionKey) {
+        open(fileName, readOnly, encryptionKey, false);
+    }
+
+    /**
+     * Try to open the file.
+     *
+     * @param fileName the file name
+     * @param readOnly whether the file should only be opened in read-only mode,
+     *            even if the file is writable
+     * @param encryptionKey the encryption key, or null if encryption is not
+     *            used
+     * @param memoryMapped whether chunks should be read using memory mapped
+     *            regions of the file; ignored if encryption is used
+     */
+    public void open(String fileName, boolean readOnly, char[] encryptionKey, boolean memoryMapped) {
         if (file != null) {
             return;
         }
@@ -140,6 +224,7 @@ public void open(String fileName, boolean readOnly, char[] encryptionKey) {
             readOnly = true;
         }
         this.readOnly = readOnly;
+        this.memoryMapped = memoryMapped && encryptionKey == null;
         try {
             file = f.open(readOnly ? "r" : "rw");
             if (encryptionKey != null) {
@@ -191,6 +276,26 @@ public void close() {
         } finally {
             fileLock = null;
             file = null;
+            releaseMappedRegions(0L, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Remove the mapped regions that start within the given range. The memory
+     * is unmapped when the buffers are garbage collected, or immediately if
+     * the cleaner hack is enabled and the file is closed.
+     *
+     * @param pos the start position in bytes, inclusive
+     * @param end the end position in bytes, exclusive
+     */
+    private void releaseMappedRegions(long pos, long end) {
+        if (mappedRegions.isEmpty()) {
+            return;
+        }
+        for (Entry<Long, ByteBuffer> e : mappedRegions.subMap(pos, end).entrySet()) {
+            if (mappedRegions.remove(e.getKey(), e.getValue()) && file == null && SysProperties.NIO_CLEANER_HACK) {
+                MemoryUnmapper.unmap(e.getValue());
+            }
         }
     }
 
@@ -228,6 +333,7 @@ public void truncate(long size) {
         while (true) {
             try {
                 writeCount.incrementAndGet();
+                releaseMappedRegions(size, Long.MAX_VALUE);
                 file.truncate(size);
                 fileSize = Math.min(fileSize, size);
                 return;
@@ -310,6 +416,15 @@ public boolean isReadOnly() {
         return readOnly;
     }
 
+    /**
+     * Whether chunks are read using memory mapped regions of the file.
+     *
+     * @return true if they are
+     */
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
     /**
      * Get the default retention time for this store in milliseconds.
      *
@@ -367,6 +482,7 @@ boolean isFragmented() {
      */
     public void free(long pos, int length) {
         freeSpace.free(pos, length);
+        releaseMappedRegions(pos, pos + length);
     }
 
     public int getFillRate() {
@@ -413,6 +529,7 @@ long getAfterLastBlock() {
      */
     public void clear() {
         freeSpace.clear();
+        releaseMappedRegions(0L, Long.MAX_VALUE);
     }
 
     /**
@@ -1177,6 +1177,23 @@ protected Page<K,V> createEmptyNode() {
         return Page.createEmptyNode(this);
     }
 
+    /**
+     * Add entries to this map, which must be empty, by building its pages
+     * bottom-up instead of inserting the entries one by one.
+     *
+     * @param entries the entries, in ascending order of keys
+     * @return the number of added entries
+     * @see BulkLoader
+     */
+    public final long bulkLoad(Iterator<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        BulkLoader<K,V> loader = new BulkLoader<>(this);
+        while (entries.hasNext()) {
+            Map.Entry<? extends K, ? extends V> entry = entries.next();
+            loader.add(entry.getKey(), entry.getValue());
+        }
+        return loader.finish();
+    }
+
     /**
      * Copy a map. All pages are copied.
      *
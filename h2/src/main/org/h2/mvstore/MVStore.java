@@ -18,6 +18,7 @@
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -28,7 +29,9 @@
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
@@ -44,7 +47,10 @@
 import org.h2.compress.CompressDeflate;
 import org.h2.compress.CompressLZF;
 import org.h2.compress.Compressor;
+import org.h2.mvstore.cache.CacheLongKey;
 import org.h2.mvstore.cache.CacheLongKeyLIRS;
+import org.h2.mvstore.cache.CacheLongKeyOffHeap;
+import org.h2.mvstore.cache.CacheLongKeyTinyLFU;
 import org.h2.mvstore.type.StringDataType;
 import org.h2.util.MathUtils;
 import org.h2.util.Utils;
@@ -159,16 +165,51 @@ public class MVStore implements AutoCloseable {
      */
     public static final String META_ID_KEY = "meta.id";
 
+    /**
+     * The type of the segmented LIRS read cache, the default.
+     */
+    public static final String CACHE_TYPE_LIRS = "LIRS";
+
+    /**
+     * The type of the read cache with lock-free lookups and W-TinyLFU
+     * replacement policy.
+     */
+    public static final String CACHE_TYPE_TINY_LFU = "TINY_LFU";
+
     /**
      * The block size (physical sector size) of the disk. The store header is
      * written twice, one copy in each block, to ensure it survives a crash.
      */
     static final int BLOCK_SIZE = 4 * 1024;
 
+    /**
+     * The minimum number of pages serialized by one task if pages are
+     * serialized in parallel.
+     */
+    private static final int MIN_PAGES_PER_TASK = 64;
+
+    /**
+     * The maximum number of bytes read at once when reading pages ahead.
+     */
+    private static final int READ_AHEAD_MAX_LENGTH = 1024 * 1024;
+
+    /**
+     * The maximum number of bytes of other pages between two pages read
+     * ahead together.
+     */
+    private static final int READ_AHEAD_MAX_GAP = BLOCK_SIZE;
+
     private static final int FORMAT_WRITE_MIN = 2;
-    private static final int FORMAT_WRITE_MAX = 2;
+    private static final int FORMAT_WRITE_MAX = 3;
     private static final int FORMAT_READ_MIN = 2;
-    private static final int FORMAT_READ_MAX = 2;
+    private static final int FORMAT_READ_MAX = 3;
+
+    /**
+     * The format of stores that may contain pages with delta encoded keys.
+     * Older versions can't read them, so stores only use this format if keys
+     * are compressed.
+     */
+    private static final int FORMAT_DELTA_KEYS = 3;
 
     /**
      * Store is open.
@@ -231,19 +272,60 @@ public class MVStore implements AutoCloseable {
 
     private final int keysPerPage;
 
+    /**
+     * The maximum number of threads used to serialize the pages of a chunk.
+     */
+    private final int serializationThreads;
+
+    /**
+     * The serialized content of pages of the chunk that is being written,
+     * prepared in parallel, or null. Only used by the serialization thread.
+     */
+    private IdentityHashMap<Page<?,?>, byte[]> preparedPages;
+
     /**
      * The page cache. The default size is 16 MB, and the average size is 2 KB.
-     * It is split in 16 segments. The stack move distance is 2% of the expected
-     * number of entries.
+     * By default it is a LIRS cache split in 16 segments, the stack move
+     * distance is 2% of the expected number of entries.
      */
-    private final CacheLongKeyLIRS<Page<?,?>> cache;
+    private final CacheLongKey<Page<?,?>> cache;
 
     /**
      * Cache for chunks "Table of Content" used to translate page's
      * sequential number within containing chunk into byte position
      * within chunk's image. Cache keyed by chunk id.
      */
-    private final CacheLongKeyLIRS<long[]> chunksToC;
+    private final CacheLongKey<long[]> chunksToC;
+
+    /**
+     * The second-tier cache for serialized pages, outside of the Java heap,
+     * or null if disabled. Keyed by page position.
+     */
+    private final CacheLongKeyOffHeap offHeapCache;
+
+    /**
+     * The executor which reads pages ahead of range cursors, or null if
+     * disabled.
+     */
+    private final ThreadPoolExecutor prefetchExecutor;
+
+    /**
+     * The pages read by the prefetch executor, by position. A reader who
+     * needs such a page waits for it (or reads it itself if the read did not
+     * start yet) instead of reading it again.
+     */
+    private final ConcurrentHashMap<Long, FutureTask<Page<?,?>>> pagesInFlight;
+
+    /**
+     * The maximum number of pages read ahead, 0 if disabled.
+     */
+    private final int prefetchPageCount;
+
+    /**
+     * The maximum number of pages read together by a scanning cursor, 0 if
+     * disabled.
+     */
+    private final int readAheadPageCount;
 
     /**
      * The newest chunk. If nothing was stored yet, this field is not set.
@@ -292,6 +374,12 @@ public class MVStore implements AutoCloseable {
      */
     private final int compressionLevel;
 
+    /**
+     * Whether keys of new pages are encoded relative to the previous key of
+     * the page, if the key type supports it.
+     */
+    private final boolean compressKeys;
+
     private Compressor compressorFast;
 
     private Compressor compressorHigh;
@@ -347,6 +435,12 @@ public class MVStore implements AutoCloseable {
      */
     private volatile long currentStoreVersion = INITIAL_VERSION;
 
+    /**
+     * The action to run before the changed pages are collected for storing,
+     * or null.
+     */
+    private volatile Runnable beforeStoreAction;
+
     private volatile boolean metaChanged;
 
     /**
@@ -357,6 +451,29 @@ public class MVStore implements AutoCloseable {
     private final int autoCompactFillRate;
     private long autoCompactLastFileOpCount;
 
+    /**
+     * The maximum number of bytes per second background compaction may
+     * write, or 0 if there is no limit.
+     */
+    private final long autoCompactRate;
+
+    /**
+     * The number of bytes background compaction may still write. Negative if
+     * compaction wrote more than allowed, so it has to pause.
+     */
+    private long autoCompactBudget;
+
+    /**
+     * The time the compaction budget was last updated.
+     */
+    private long autoCompactBudgetTime;
+
+    /**
+     * The number of bytes written to the file, excluding the bytes written by
+     * background compaction since the last update of the budget.
+     */
+    private long autoCompactLastWriteBytes;
+
     private volatile MVStoreException panicException;
 
     private long lastTimeAbsolute;
@@ -381,6 +498,7 @@ public class MVStore implements AutoCloseable {
     MVStore(Map<String, Object> config) {
         recoveryMode = config.containsKey("recoveryMode");
         compressionLevel = DataUtils.getConfigParam(config, "compress", 0);
+        compressKeys = config.containsKey("compressKeys");
         String fileName = (String) config.get("fileName");
         FileStore fileStore = (FileStore) config.get("fileStore");
         if (fileStore == null) {
@@ -399,6 +517,7 @@ public class MVStore implements AutoCloseable {
         int pgSplitSize = 48; // for "mem:" case it is # of keys
         CacheLongKeyLIRS.Config cc = null;
         CacheLongKeyLIRS.Config cc2 = null;
+        int offHeapMb = 0;
         if (this.fileStore != null) {
             int mb = DataUtils.getConfigParam(config, "cacheSize", 16);
             if (mb > 0) {
@@ -411,14 +530,21 @@ public class MVStore implements AutoCloseable {
             }
             cc2 = new CacheLongKeyLIRS.Config();
             cc2.maxMemory = 1024L * 1024L;
+            offHeapMb = DataUtils.getConfigParam(config, "offHeapCacheSize", 0);
             pgSplitSize = 16 * 1024;
         }
-        if (cc != null) {
-            cache = new CacheLongKeyLIRS<>(cc);
+        boolean tinyLFU;
+        Object cacheType = config.get("cacheType");
+        if (cacheType == null || CACHE_TYPE_LIRS.equals(cacheType)) {
+            tinyLFU = false;
+        } else if (CACHE_TYPE_TINY_LFU.equals(cacheType)) {
+            tinyLFU = true;
         } else {
-            cache = null;
+            throw DataUtils.newIllegalArgumentException("Unsupported cache type {0}", cacheType);
         }
-        chunksToC = cc2 == null ? null : new CacheLongKeyLIRS<>(cc2);
+        cache = cc == null ? null : createCache(cc, tinyLFU);
+        chunksToC = cc2 == null ? null : createCache(cc2, tinyLFU);
+        offHeapCache = offHeapMb > 0 ? new CacheLongKeyOffHeap(offHeapMb * 1024L * 1024L) : null;
 
         pgSplitSize = DataUtils.getConfigParam(config, "pageSplitSize", pgSplitSize);
         // Make sure pages will fit into cache
@@ -427,6 +553,25 @@ public class MVStore implements AutoCloseable {
         }
         pageSplitSize = pgSplitSize;
         keysPerPage = DataUtils.getConfigParam(config, "keysPerPage", 48);
+        serializationThreads = Math.max(1, DataUtils.getConfigParam(config, "serializationThreads", 1));
+        int prefetchThreads = DataUtils.getConfigParam(config, "prefetchThreads", 0);
+        if (prefetchThreads > 0 && this.fileStore != null && cache != null) {
+            // threads are only started on the first read
+            prefetchExecutor = new ThreadPoolExecutor(prefetchThreads, prefetchThreads, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread thread = new Thread(r, "H2-prefetch");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pagesInFlight = new ConcurrentHashMap<>();
+            prefetchPageCount = prefetchThreads * 4;
+        } else {
+            prefetchExecutor = null;
+            pagesInFlight = null;
+            prefetchPageCount = 0;
+        }
+        readAheadPageCount = this.fileStore != null && cache != null
+                ? Math.max(0, DataUtils.getConfigParam(config, "readAheadPages", 16)) : 0;
         backgroundExceptionHandler =
                 (UncaughtExceptionHandler)config.get("backgroundExceptionHandler");
         layout = new MVMap<>(this, 0, StringDataType.INSTANCE, StringDataType.INSTANCE);
@@ -437,6 +582,7 @@ public class MVStore implements AutoCloseable {
             kb = DataUtils.getConfigParam(config, "autoCommitBufferSize", kb);
             autoCommitMemory = kb * 1024;
             autoCompactFillRate = DataUtils.getConfigParam(config, "autoCompactFillRate", 90);
+            autoCompactRate = Math.max(0, DataUtils.getConfigParam(config, "autoCompactRate", 0)) * 1024L * 1024;
             char[] encryptionKey = (char[]) config.get("encryptionKey");
             // there is no need to lock store here, since it is not opened (or even created) yet,
             // just to make some assertions happy, when they ensure single-threaded access
@@ -446,18 +592,26 @@ public class MVStore implements AutoCloseable {
                 try {
                     if (!fileStoreIsProvided) {
                         boolean readOnly = config.containsKey("readOnly");
-                        this.fileStore.open(fileName, readOnly, encryptionKey);
+                        this.fileStore.open(fileName, readOnly, encryptionKey,
+                                config.containsKey("memoryMapped"));
                     }
                     if (this.fileStore.size() == 0) {
                         creationTime = getTimeAbsolute();
                         storeHeader.put(HDR_H, 2);
                         storeHeader.put(HDR_BLOCK_SIZE, BLOCK_SIZE);
-                        storeHeader.put(HDR_FORMAT, FORMAT_WRITE_MAX);
+                        storeHeader.put(HDR_FORMAT, compressKeys ? FORMAT_DELTA_KEYS : FORMAT_WRITE_MIN);
                         storeHeader.put(HDR_CREATED, creationTime);
                         setLastChunk(null);
                         writeStoreHeader();
                     } else {
                         readStoreHeader();
+                        if (compressKeys && !this.fileStore.isReadOnly()
+                                && DataUtils.readHexInt(storeHeader, HDR_FORMAT, 1) < FORMAT_DELTA_KEYS) {
+                            // older versions must not open the store once it
+                            // may contain delta encoded keys
+                            storeHeader.put(HDR_FORMAT, FORMAT_DELTA_KEYS);
+                            writeStoreHeader();
+                        }
                     }
                 } finally {
                     saveChunkLock.unlock();
@@ -483,6 +637,7 @@ public class MVStore implements AutoCloseable {
         } else {
             autoCommitMemory = 0;
             autoCompactFillRate = 0;
+            autoCompactRate = 0;
             meta = openMetaMap();
         }
         onVersionChange(currentVersion);
@@ -1344,6 +1499,7 @@ private void closeStore(boolean normalShutdown, int allowedCompactionTime) {
                             }
 
                             state = STATE_CLOSING;
+                            shutdownExecutor(prefetchExecutor);
 
                             // release memory early - this is important when called
                             // because of out of memory
@@ -1470,6 +1626,39 @@ public long commit() {
         return commit(x -> true);
     }
 
+    /**
+     * Commit the changes that were made in the given version or before,
+     * together with the changes of other threads (group commit).
+     * <p>
+     * If a commit of another thread has stored these changes in the meantime,
+     * for example while this thread waited for the store lock, nothing is
+     * written. Concurrent committers therefore share chunk writes: while one
+     * of them is writing, the others wait, and then at most one of them writes
+     * the changes of all of them.
+     *
+     * @param version the current version after the changes were made, as
+     *            returned by {@link #getCurrentVersion()}
+     * @return the new version
+     */
+    public long commit(long version) {
+        if (isVersionStored(version)) {
+            return currentVersion;
+        }
+        return commit(s -> !s.isVersionStored(version));
+    }
+
+    /**
+     * Check whether the changes made in the given version or before were
+     * written to the file.
+     *
+     * @param version the version
+     * @return true if a chunk of a later version was written
+     */
+    private boolean isVersionStored(long version) {
+        Chunk c = lastChunk;
+        return c != null && c.version > version;
+    }
+
     private long commit(Predicate<MVStore> check) {
         // we need to prevent re-entrance, which may be possible,
         // because meta map is modified within storeNow() and that
@@ -1518,6 +1707,10 @@ private void store(boolean syncWrite) {
 
     private void storeNow(boolean syncWrite, long reservedLow, Supplier<Long> reservedHighSupplier) {
         try {
+            Runnable action = beforeStoreAction;
+            if (action != null) {
+                action.run();
+            }
             lastCommitTime = getTimeSinceCreation();
             int currentUnsavedPageCount = unsavedMemory;
             // it is ok, since that path suppose to be single-threaded under storeLock
@@ -1673,15 +1866,22 @@ private void serializeToBuffer(WriteBuffer buff, ArrayList<Page<?, ?>> changed,
 
         long version = c.version;
         List<Long> toc = new ArrayList<>();
-        for (Page<?,?> p : changed) {
-            String key = MVMap.getMapRootKey(p.getMapId());
-            if (p.getTotalCount() == 0) {
-                layout.remove(key);
-            } else {
-                p.writeUnsavedRecursive(c, buff, toc);
-                long root = p.getPos();
-                layout.put(key, Long.toHexString(root));
+        if (serializationThreads > 1) {
+            preparedPages = prepareInParallel(changed);
+        }
+        try {
+            for (Page<?,?> p : changed) {
+                String key = MVMap.getMapRootKey(p.getMapId());
+                if (p.getTotalCount() == 0) {
+                    layout.remove(key);
+                } else {
+                    p.writeUnsavedRecursive(c, buff, toc);
+                    long root = p.getPos();
+                    layout.put(key, Long.toHexString(root));
+                }
             }
+        } finally {
+            preparedPages = null;
         }
 
         acceptChunkOccupancyChanges(c.time, version);
@@ -1717,7 +1917,7 @@ private void serializeToBuffer(WriteBuffer buff, ArrayList<Page<?, ?>> changed,
                 ++nonLeafCount;
             }
         }
-        chunksToC.put(c.id, tocArray);
+        chunksToC.put(c.id, tocArray, tocArray.length * 8);
         int chunkLength = buff.position();
 
         // add the store header and round to the next block
@@ -1754,6 +1954,77 @@ private void serializeToBuffer(WriteBuffer buff, ArrayList<Page<?, ?>> changed,
         }
     }
 
+    /**
+     * Serialize the keys and values of the unsaved pages of the changed maps
+     * with multiple threads. The pages are written into the chunk later, in
+     * the usual order, so the layout of the chunk does not depend on the
+     * number of threads.
+     *
+     * @param changed the roots of the changed maps
+     * @return the prepared content by page, or null if there are too few pages
+     */
+    private IdentityHashMap<Page<?,?>, byte[]> prepareInParallel(ArrayList<Page<?,?>> changed) {
+        ArrayList<Page<?,?>> pages = new ArrayList<>();
+        for (Page<?,?> p : changed) {
+            if (p.getTotalCount() != 0) {
+                p.collectUnsaved(pages);
+            }
+        }
+        int count = pages.size();
+        int taskCount = Math.min(serializationThreads, count / MIN_PAGES_PER_TASK);
+        if (taskCount <= 1) {
+            return null;
+        }
+        byte[][] contents = new byte[count][];
+        ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            int from = (int) ((long) count * i / taskCount), to = (int) ((long) count * (i + 1) / taskCount);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                WriteBuffer buff = new WriteBuffer();
+                Compressor compressorFast = new CompressLZF(), compressorHigh = new CompressDeflate();
+                for (int j = from; j < to; j++) {
+                    contents[j] = pages.get(j).prepareContent(buff, compressorFast, compressorHigh);
+                }
+            }));
+        }
+        for (int i = 1; i < taskCount; i++) {
+            tasks.get(i).fork();
+        }
+        Throwable exception = null;
+        for (int i = 0; i < taskCount; i++) {
+            try {
+                if (i == 0) {
+                    tasks.get(i).invoke();
+                } else {
+                    tasks.get(i).join();
+                }
+            } catch (Throwable e) {
+                if (exception == null) {
+                    exception = e;
+                }
+            }
+        }
+        if (exception != null) {
+            throw DataUtils.newMVStoreException(DataUtils.ERROR_INTERNAL, "{0}", exception.toString(), exception);
+        }
+        IdentityHashMap<Page<?,?>, byte[]> result = new IdentityHashMap<>(count);
+        for (int i = 0; i < count; i++) {
+            result.put(pages.get(i), contents[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Remove and return the content of the page prepared by another thread.
+     *
+     * @param page the page
+     * @return the type, keys and values of the page, or null
+     */
+    byte[] removePreparedContent(Page<?,?> page) {
+        IdentityHashMap<Page<?,?>, byte[]> preparedPages = this.preparedPages;
+        return preparedPages == null ? null : preparedPages.remove(page);
+    }
+
     private void storeBuffer(Chunk c, WriteBuffer buff, ArrayList<Page<?,?>> changed) {
         saveChunkLock.lock();
         try {
@@ -2575,19 +2846,12 @@ <K,V> Page<K,V> readPage(MVMap<K,V> map, long pos) {
             }
             Page<K,V> p = readPageFromCache(pos);
             if (p == null) {
-                Chunk chunk = getChunk(pos);
-                int pageOffset = DataUtils.getPageOffset(pos);
-                try {
-                    ByteBuffer buff = chunk.readBufferForPage(fileStore, pageOffset, pos);
-                    p = Page.read(buff, pos, map);
-                } catch (MVStoreException e) {
-                    throw e;
-                } catch (Exception e) {
-                    throw DataUtils.newMVStoreException(DataUtils.ERROR_FILE_CORRUPT,
-                            "Unable to read the page at position {0}, chunk {1}, offset {2}",
-                            pos, chunk.id, pageOffset, e);
+                if (pagesInFlight != null) {
+                    p = readPrefetchedPage(pos);
+                }
+                if (p == null) {
+                    p = readPageFromFile(map, pos);
                 }
-                cachePage(p);
             }
             return p;
         } catch (MVStoreException e) {
@@ -2598,6 +2862,201 @@ <K,V> Page<K,V> readPage(MVMap<K,V> map, long pos) {
         }
     }
 
+    private <K,V> Page<K,V> readPageFromFile(MVMap<K,V> map, long pos) {
+        Chunk chunk = getChunk(pos);
+        int pageOffset = DataUtils.getPageOffset(pos);
+        Page<K,V> p;
+        try {
+            ByteBuffer buff = offHeapCache == null ? null : offHeapCache.get(pos);
+            if (buff == null) {
+                buff = chunk.readBufferForPage(fileStore, pageOffset, pos);
+                if (offHeapCache != null) {
+                    offHeapCache.put(pos, buff);
+                }
+            }
+            p = Page.read(buff, pos, map);
+        } catch (MVStoreException e) {
+            throw e;
+        } catch (Exception e) {
+            throw DataUtils.newMVStoreException(DataUtils.ERROR_FILE_CORRUPT,
+                    "Unable to read the page at position {0}, chunk {1}, offset {2}",
+                    pos, chunk.id, pageOffset, e);
+        }
+        cachePage(p);
+        return p;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <K,V> Page<K,V> readPrefetchedPage(long pos) {
+        FutureTask<Page<?,?>> task = pagesInFlight.get(pos);
+        if (task == null) {
+            // the read may have completed in the meantime
+            return readPageFromCache(pos);
+        }
+        // read it in this thread if the read did not start yet
+        task.run();
+        try {
+            return (Page<K,V>) task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // read it again to get the exception
+        }
+        return null;
+    }
+
+    /**
+     * Get the maximum number of pages a cursor should read ahead.
+     *
+     * @return the number of pages, 0 if reading ahead is disabled
+     */
+    int getPrefetchPageCount() {
+        return prefetchPageCount;
+    }
+
+    /**
+     * Get the maximum number of pages a scanning cursor should read with a
+     * single read.
+     *
+     * @return the number of pages, 0 if reading ahead is disabled
+     */
+    int getReadAheadPageCount() {
+        return readAheadPageCount;
+    }
+
+    /**
+     * Read the given child pages of a node page with a single read, and add
+     * them to the cache. Only pages which are not cached, and are stored
+     * close to each other in the same chunk as the first such page, are
+     * read; the other ones are read one by one when they are needed. Errors
+     * are ignored here; they are thrown when the page is actually used.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param node the node page
+     * @param from the index of the first child page, which is needed now;
+     *            if it is cached, nothing is read
+     * @param to the index of the last child page, which is smaller than
+     *            the first one when reading in descending order
+     */
+    <K,V> void readAhead(Page<K,V> node, int from, int to) {
+        long first = node.getChildPagePos(from);
+        if (from == to || !DataUtils.isPageSaved(first) || cache.containsKey(first)) {
+            return;
+        }
+        long[] positions = new long[Math.abs(to - from) + 1];
+        int count = 0;
+        int chunkId = -1;
+        for (int i = from, increment = from <= to ? 1 : -1;; i += increment) {
+            long pos = node.getChildPagePos(i);
+            if (DataUtils.isPageSaved(pos) && DataUtils.getPageMaxLength(pos) != DataUtils.PAGE_LARGE
+                    && !cache.containsKey(pos)) {
+                int id = DataUtils.getPageChunkId(pos);
+                if (chunkId < 0) {
+                    chunkId = id;
+                }
+                if (id == chunkId) {
+                    positions[count++] = pos;
+                }
+            }
+            if (i == to) {
+                break;
+            }
+        }
+        // within a chunk, the order of positions is the order of offsets
+        Arrays.sort(positions, 0, count);
+        int start = count == 0 ? 0 : DataUtils.getPageOffset(positions[0]);
+        int end = start;
+        int pageCount = 0;
+        for (; pageCount < count; pageCount++) {
+            long pos = positions[pageCount];
+            int offset = DataUtils.getPageOffset(pos);
+            int pageEnd = offset + DataUtils.getPageMaxLength(pos);
+            if (offset > end + READ_AHEAD_MAX_GAP || pageEnd - start > READ_AHEAD_MAX_LENGTH) {
+                break;
+            }
+            end = Math.max(end, pageEnd);
+        }
+        if (pageCount < 2) {
+            // nothing to gain
+            return;
+        }
+        if (!isChunkSaved(positions[0])) {
+            return;
+        }
+        try {
+            ByteBuffer buff = getChunk(positions[0]).readBufferForPages(fileStore, start, end - start);
+            for (int i = 0; i < pageCount; i++) {
+                long pos = positions[i];
+                int offset = DataUtils.getPageOffset(pos) - start;
+                if (offset >= buff.limit()) {
+                    break;
+                }
+                ByteBuffer pageBuff = buff.duplicate();
+                pageBuff.limit(Math.min(buff.limit(), offset + DataUtils.getPageMaxLength(pos)));
+                pageBuff.position(offset);
+                pageBuff = pageBuff.slice();
+                if (offHeapCache != null) {
+                    offHeapCache.put(pos, pageBuff);
+                }
+                cachePage(Page.read(pageBuff, pos, node.map));
+            }
+        } catch (MVStoreException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * Check whether a page needs to be read ahead. This is the case if it is
+     * neither cached nor being read already.
+     *
+     * @param pos the position of the page
+     * @return true if the page needs to be read
+     */
+    boolean needsPrefetch(long pos) {
+        return DataUtils.isPageSaved(pos) && !cache.containsKey(pos) && !pagesInFlight.containsKey(pos)
+                && isChunkSaved(pos);
+    }
+
+    /**
+     * Check whether the chunk of a page is written to the file already. Pages
+     * of a chunk which is being written are still in memory.
+     *
+     * @param pos the position of the page
+     * @return true if the chunk is written
+     */
+    private boolean isChunkSaved(long pos) {
+        Chunk c = chunks.get(DataUtils.getPageChunkId(pos));
+        return c == null || c.isSaved();
+    }
+
+    /**
+     * Read a page in the background and add it to the cache, if it needs to
+     * be read and not too many reads are queued already. Errors are ignored
+     * here; they are thrown when the page is actually used.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @param map the map of the page
+     * @param pos the position of the page
+     */
+    <K,V> void prefetchPage(MVMap<K,V> map, long pos) {
+        if (needsPrefetch(pos) && prefetchExecutor.getQueue().size() < prefetchPageCount) {
+            FutureTask<Page<?,?>> task = new FutureTask<>(() -> readPageFromFile(map, pos));
+            if (pagesInFlight.putIfAbsent(pos, task) == null) {
+                try {
+                    prefetchExecutor.execute(() -> {
+                        task.run();
+                        pagesInFlight.remove(pos, task);
+                    });
+                } catch (RejectedExecutionException e) {
+                    // the store is being closed
+                    pagesInFlight.remove(pos, task);
+                }
+            }
+        }
+    }
+
     private long[] getToC(Chunk chunk) {
         if (chunk.tocPos == 0) {
             // legacy chunk without table of content
@@ -2612,6 +3071,10 @@ private long[] getToC(Chunk chunk) {
         return toc;
     }
 
+    private static <V> CacheLongKey<V> createCache(CacheLongKeyLIRS.Config config, boolean tinyLFU) {
+        return tinyLFU ? new CacheLongKeyTinyLFU<>(config.maxMemory) : new CacheLongKeyLIRS<>(config);
+    }
+
     @SuppressWarnings("unchecked")
     private <K, V> Page<K, V> readPageFromCache(long pos) {
         return cache == null ? null : (Page<K,V>)cache.get(pos);
@@ -2675,6 +3138,10 @@ int getCompressionLevel() {
         return compressionLevel;
     }
 
+    boolean isCompressKeys() {
+        return compressKeys;
+    }
+
     public int getPageSplitSize() {
         return pageSplitSize;
     }
@@ -3076,6 +3543,9 @@ private void clearCaches() {
         if (chunksToC != null) {
             chunksToC.clear();
         }
+        if (offHeapCache != null) {
+            offHeapCache.clear();
+        }
     }
 
     private long getRootPos(int mapId) {
@@ -3248,19 +3718,23 @@ void writeInBackground() {
                 }
             }
             int fillRate = getFillRate();
-            if (fileStore.isFragmented() && fillRate < autoCompactFillRate) {
+            // the number of bytes compaction may write now
+            int allowance = getAutoCompactAllowance(time);
+            if (allowance > 0 && fileStore.isFragmented() && fillRate < autoCompactFillRate) {
                 if (storeLock.tryLock(10, TimeUnit.MILLISECONDS)) {
                     try {
                         int moveSize = autoCommitMemory;
                         if (isIdle()) {
                             moveSize *= 4;
                         }
-                        compactMoveChunks(101, moveSize);
+                        long writeBytes = fileStore.getWriteBytes();
+                        compactMoveChunks(101, Math.min(moveSize, allowance));
+                        chargeAutoCompact(fileStore.getWriteBytes() - writeBytes);
                     } finally {
                         unlockAndCheckPanicCondition();
                     }
                 }
-            } else if (fillRate >= autoCompactFillRate && lastChunk != null) {
+            } else if (allowance > 0 && fillRate >= autoCompactFillRate && lastChunk != null) {
                 int chunksFillRate = getRewritableChunksFillRate();
                 chunksFillRate = isIdle() ? 100 - (100 - chunksFillRate) / 2 : chunksFillRate;
                 if (chunksFillRate < getTargetFillRate()) {
@@ -3270,11 +3744,20 @@ void writeInBackground() {
                             if (!isIdle()) {
                                 writeLimit /= 4;
                             }
-                            if (rewriteChunks(writeLimit, chunksFillRate)) {
+                            // store the pending changes first, and the
+                            // re-written pages right away, so that pages
+                            // which are still live after a long time end up in
+                            // chunks of their own, apart from frequently
+                            // changed pages
+                            store(true);
+                            long writeBytes = fileStore.getWriteBytes();
+                            if (rewriteChunks(Math.min(writeLimit, allowance), chunksFillRate)) {
+                                store(true);
                                 dropUnusedChunks();
                             }
+                            chargeAutoCompact(fileStore.getWriteBytes() - writeBytes);
                         } finally {
-                            storeLock.unlock();
+                            unlockAndCheckPanicCondition();
                         }
                     }
                 }
@@ -3339,6 +3822,42 @@ private int getTargetFillRate() {
         return targetRate;
     }
 
+    /**
+     * Get the number of bytes background compaction may write now. The budget
+     * grows at the configured rate, but the bytes written by other operations
+     * since the last call are taken from it first, so that compaction slows
+     * down while the application writes a lot. At least a tenth of the rate
+     * is left to compaction, so that it still makes progress.
+     *
+     * @param time the time since the store was created, in milliseconds
+     * @return the number of bytes, or 0 if compaction has to pause
+     */
+    private int getAutoCompactAllowance(long time) {
+        if (autoCompactRate <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        long added = autoCompactRate * Math.max(0, time - autoCompactBudgetTime) / 1000;
+        long writeBytes = fileStore.getWriteBytes();
+        added = Math.max(added / 10, added - (writeBytes - autoCompactLastWriteBytes));
+        autoCompactBudgetTime = time;
+        autoCompactLastWriteBytes = writeBytes;
+        // do not save up for more than one second
+        autoCompactBudget = Math.min(autoCompactBudget + added, autoCompactRate);
+        return (int) Math.max(0, Math.min(autoCompactBudget, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Take the bytes written by background compaction from its budget.
+     *
+     * @param bytes the number of bytes written
+     */
+    private void chargeAutoCompact(long bytes) {
+        if (autoCompactRate > 0) {
+            autoCompactBudget -= bytes;
+            autoCompactLastWriteBytes += bytes;
+        }
+    }
+
     private boolean isIdle() {
         return autoCompactLastFileOpCount == fileStore.getWriteCount() + fileStore.getReadCount();
     }
@@ -3456,6 +3975,17 @@ public void setAutoCommitDelay(int millis) {
         }
     }
 
+    /**
+     * Set the action to run each time before the changes are written to the
+     * file. The action may still change maps, and these changes are stored
+     * as well.
+     *
+     * @param action the action, or null
+     */
+    public void setBeforeStoreAction(Runnable action) {
+        beforeStoreAction = action;
+    }
+
     private static ThreadPoolExecutor createSingleThreadExecutor(String threadName) {
         return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
                                         new LinkedBlockingQueue<>(),
@@ -3544,7 +4074,7 @@ public int getCacheSize() {
      *
      * @return the cache
      */
-    public CacheLongKeyLIRS<Page<?,?>> getCache() {
+    public CacheLongKey<Page<?,?>> getCache() {
         return cache;
     }
 
@@ -3565,7 +4095,24 @@ public int getTocCacheHitRatio() {
         return getCacheHitRatio(chunksToC);
     }
 
-    private static int getCacheHitRatio(CacheLongKeyLIRS<?> cache) {
+    /**
+     * Get the off-heap page cache.
+     *
+     * @return the off-heap cache, or null if disabled
+     */
+    public CacheLongKeyOffHeap getOffHeapCache() {
+        return offHeapCache;
+    }
+
+    public int getOffHeapCacheHitRatio() {
+        if (offHeapCache == null) {
+            return 0;
+        }
+        long hits = offHeapCache.getHits();
+        return (int) (100 * hits / (hits + offHeapCache.getMisses() + 1));
+    }
+
+    private static int getCacheHitRatio(CacheLongKey<?> cache) {
         if (cache == null) {
             return 0;
         }
@@ -3696,6 +4243,10 @@ private int dropUnusedChunks() {
                                 cache.remove(pagePos);
                             }
                         }
+                        if (offHeapCache != null) {
+                            offHeapCache.removeRange(DataUtils.getPagePos(chunk.id, 0L),
+                                    DataUtils.getPagePos(chunk.id + 1, 0L));
+                        }
 
                         if (layout.remove(Chunk.getMetaKey(chunk.id)) != null) {
                             markMetaChanged();
@@ -3954,6 +4505,22 @@ public Builder autoCompactFillRate(int percent) {
             return set("autoCompactFillRate", percent);
         }
 
+        /**
+         * Limit the rate at which the background thread writes when compacting
+         * the store, in MB per second. Data written by commits is taken from
+         * this budget first, so compaction slows down while the application
+         * writes a lot.
+         * <p>
+         * The default value is 0, which means there is no limit.
+         * </p>
+         *
+         * @param mb the maximum compaction rate, in MB per second
+         * @return this
+         */
+        public Builder autoCompactRate(int mb) {
+            return set("autoCompactRate", mb);
+        }
+
         /**
          * Use the following file name. If the file does not exist, it is
          * automatically created. The parent directory already must exist.
@@ -4025,6 +4592,89 @@ public Builder cacheSize(int mb) {
             return set("cacheSize", mb);
         }
 
+        /**
+         * Set the size of the off-heap page cache in MB. The default is 0,
+         * meaning it is disabled. This cache keeps serialized pages outside
+         * of the Java heap, so that pages that are not in the read cache
+         * don't need to be read from the file again. Its size is independent
+         * of the read cache size.
+         *
+         * @param mb the off-heap cache size in megabytes
+         * @return this
+         */
+        public Builder offHeapCacheSize(int mb) {
+            return set("offHeapCacheSize", mb);
+        }
+
+        /**
+         * Read chunks using memory mapped regions of the file. Each chunk is
+         * mapped read-only when it is first read, and pages are read directly
+         * from the mapped memory, without file read operations and without
+         * copying. This is not used for encrypted files. The file system must
+         * support memory mapping, otherwise regular reads are used.
+         *
+         * @return this
+         */
+        public Builder memoryMapped() {
+            return set("memoryMapped", 1);
+        }
+
+        /**
+         * Encode the keys of new pages relative to the previous key of the
+         * page, if the key type of the map supports it. For example, the
+         * prefix of a string key that is equal to the previous key is not
+         * stored, and long keys are stored as differences. Stores with such
+         * pages can not be opened by older versions.
+         *
+         * @return this
+         */
+        public Builder compressKeys() {
+            return set("compressKeys", 1);
+        }
+
+        /**
+         * Set the maximum number of threads used to serialize the pages of a
+         * large chunk. The default is 1. If larger, keys and values of pages
+         * are serialized and compressed by tasks in the common fork-join pool,
+         * and then copied into the chunk in the usual order. The key and value
+         * types of all maps must support concurrent writes in this case.
+         *
+         * @param threads the number of threads
+         * @return this
+         */
+        public Builder serializationThreads(int threads) {
+            return set("serializationThreads", threads);
+        }
+
+        /**
+         * Set the number of threads that read pages ahead of cursors. The
+         * default is 0, meaning pages are only read when they are needed.
+         * If larger, a cursor which moves to the next page submits the reads
+         * of the following pages within its range, so that several reads are
+         * in flight at the same time. The pages are added to the page cache,
+         * which needs to be enabled.
+         *
+         * @param threads the number of threads
+         * @return this
+         */
+        public Builder prefetchThreads(int threads) {
+            return set("prefetchThreads", threads);
+        }
+
+        /**
+         * Set the maximum number of pages a scanning cursor reads with a
+         * single read. The default is 16. A cursor which has iterated over
+         * a few leaf pages reads the following leaf pages within its range
+         * together, if they are not cached and are stored next to each other
+         * in the file. 0 disables reading ahead.
+         *
+         * @param pages the number of pages
+         * @return this
+         */
+        public Builder readAheadPages(int pages) {
+            return set("readAheadPages", pages);
+        }
+
         /**
          * Set the read cache concurrency. The default is 16, meaning 16
          * segments are used.
@@ -4036,6 +4686,20 @@ public Builder cacheConcurrency(int concurrency) {
             return set("cacheConcurrency", concurrency);
         }
 
+        /**
+         * Set the type of the read cache. The default is
+         * {@link MVStore#CACHE_TYPE_LIRS}, a segmented LIRS cache. With
+         * {@link MVStore#CACHE_TYPE_TINY_LFU} reads from the cache don't take
+         * any locks, this type scales better with many concurrent readers.
+         * The cache concurrency setting is ignored for this type.
+         *
+         * @param type the cache type
+         * @return this
+         */
+        public Builder cacheType(String type) {
+            return set("cacheType", type);
+        }
+
         /**
          * Compress data before writing using the LZF algorithm. This will save
          * about 50% of the disk space, but will slow down read and write
@@ -245,9 +245,13 @@ public static void dump(String fileName, Writer writer, boolean details) {
                         } else {
                             data = chunk;
                         }
-                        for (int i = 0; i < entries; i++) {
-                            String k = StringDataType.INSTANCE.read(data);
-                            keys[i] = k;
+                        if ((type & DataUtils.PAGE_DELTA_KEYS) != 0) {
+                            StringDataType.INSTANCE.readDelta(data, keys, entries);
+                        } else {
+                            for (int i = 0; i < entries; i++) {
+                                String k = StringDataType.INSTANCE.read(data);
+                                keys[i] = k;
+                            }
                         }
                         if (node) {
                             // meta map node
@@ -495,6 +499,10 @@ public static void compact(String sourceFileName, String targetFileName, boolean
             if (compress) {
                 b.compress();
             }
+            if (DataUtils.readHexInt(source.getStoreHeader(), "format", 1) >= 3) {
+                // the source may contain pages with delta encoded keys
+                b.compressKeys();
+            }
             try (MVStore target = b.open()) {
                 compact(source, target);
             }
@@ -691,18 +699,19 @@ public static long rollback(String fileName, long targetVersion, Writer writer)
         return newestVersion;
     }
 
-    @SuppressWarnings({"rawtypes","unchecked"})
     static MVMap.Builder<Object,Object> getGenericMapBuilder() {
-        return (MVMap.Builder)new MVMap.Builder<byte[],byte[]>().
+        return new MVMap.Builder<>().
                 keyType(GenericDataType.INSTANCE).
                 valueType(GenericDataType.INSTANCE);
     }
 
     /**
      * A data type that can read any data that is persisted, and converts it to
-     * a byte array.
+     * a byte array. Keys that were encoded relative to the previous key are
+     * kept in this encoding, they can only be written to a store that
+     * compresses keys.
      */
-    private static class GenericDataType extends BasicDataType<byte[]> {
+    private static class GenericDataType extends BasicDataType<Object> {
         static GenericDataType INSTANCE = new GenericDataType();
 
         private GenericDataType() {}
@@ -713,19 +722,25 @@ public boolean isMemoryEstimationAllowed() {
         }
 
         @Override
-        public int getMemory(byte[] obj) {
-            return obj == null ? 0 : obj.length * 8;
+        public int getMemory(Object obj) {
+            if (obj instanceof DeltaKeys) {
+                obj = ((DeltaKeys) obj).data;
+            }
+            return obj == null ? 0 : ((byte[]) obj).length * 8;
         }
 
         @Override
-        public byte[][] createStorage(int size) {
-            return new byte[size][];
+        public Object[] createStorage(int size) {
+            return new Object[size];
         }
 
         @Override
-        public void write(WriteBuffer buff, byte[] obj) {
-            if (obj != null) {
-                buff.put(obj);
+        public void write(WriteBuffer buff, Object obj) {
+            if (obj instanceof DeltaKeys) {
+                throw DataUtils.newMVStoreException(DataUtils.ERROR_UNSUPPORTED_FORMAT,
+                        "Delta encoded keys can only be copied to a store that compresses keys");
+            } else if (obj != null) {
+                buff.put((byte[]) obj);
             }
         }
 
@@ -739,5 +754,36 @@ public byte[] read(ByteBuffer buff) {
             buff.get(data);
             return data;
         }
+
+        @Override
+        public boolean writeDelta(WriteBuffer buff, Object storage, int len) {
+            Object[] keys = (Object[]) storage;
+            if (len == 0 || !(keys[0] instanceof DeltaKeys)) {
+                return false;
+            }
+            buff.put(((DeltaKeys) keys[0]).data);
+            return true;
+        }
+
+        @Override
+        public void readDelta(ByteBuffer buff, Object storage, int len) {
+            Object[] keys = (Object[]) storage;
+            for (int i = 0; i < len; i++) {
+                byte[] data = read(buff);
+                keys[i] = data == null ? null : new DeltaKeys(data);
+            }
+        }
+    }
+
+    /**
+     * The remainder of a page with delta encoded keys.
+     */
+    private static final class DeltaKeys {
+
+        final byte[] data;
+
+        DeltaKeys(byte[] data) {
+            this.data = data;
+        }
     }
 }
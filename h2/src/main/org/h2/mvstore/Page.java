@@ -649,7 +649,11 @@ private void read(ByteBuffer buff) {
             compressor.expand(comp, pos, compLen, buff.array(),
                     buff.arrayOffset(), l);
         }
-        map.getKeyType().read(buff, keys, keyCount);
+        if ((type & DataUtils.PAGE_DELTA_KEYS) != 0) {
+            map.getKeyType().readDelta(buff, keys, keyCount);
+        } else {
+            map.getKeyType().read(buff, keys, keyCount);
+        }
         if (isLeaf()) {
             readPayLoad(buff);
         }
@@ -713,13 +717,91 @@ protected final int write(Chunk chunk, WriteBuffer buff, List<Long> toc) {
             .putVarInt(keyCount);
         int typePos = buff.position();
         int type = isLeaf() ? PAGE_TYPE_LEAF : DataUtils.PAGE_TYPE_NODE;
-        buff.put((byte)type);
+        MVStore store = map.getStore();
+        byte[] content = store.removePreparedContent(this);
+        buff.put(content != null ? content[0] : (byte) type);
         int childrenPos = buff.position();
         writeChildren(buff, true);
+        if (content != null) {
+            buff.put(content, 1, content.length - 1);
+        } else {
+            writeContent(buff, typePos, type, null, null);
+        }
+        int pageLength = buff.position() - start;
+        long tocElement = DataUtils.getTocElement(getMapId(), start, buff.position() - start, type);
+        toc.add(tocElement);
+        int chunkId = chunk.id;
+        int check = DataUtils.getCheckValue(chunkId)
+                ^ DataUtils.getCheckValue(start)
+                ^ DataUtils.getCheckValue(pageLength);
+        buff.putInt(start, pageLength).
+            putShort(start + 4, (short) check);
+        if (isSaved()) {
+            throw DataUtils.newMVStoreException(
+                    DataUtils.ERROR_INTERNAL, "Page already stored");
+        }
+        long pagePos = DataUtils.getPagePos(chunkId, tocElement);
+        boolean isDeleted = isRemoved();
+        while (!posUpdater.compareAndSet(this, isDeleted ? 1L : 0L, pagePos)) {
+            isDeleted = isRemoved();
+        }
+        store.cachePage(this);
+        if (type == DataUtils.PAGE_TYPE_NODE) {
+            // cache again - this will make sure nodes stays in the cache
+            // for a longer time
+            store.cachePage(this);
+        }
+        int pageLengthEncoded = DataUtils.getPageMaxLength(pos);
+        boolean singleWriter = map.isSingleWriter();
+        chunk.accountForWrittenPage(pageLengthEncoded, singleWriter);
+        if (isDeleted) {
+            store.accountForRemovedPage(pagePos, chunk.version + 1, singleWriter, pageNo);
+        }
+        diskSpaceUsed = pageLengthEncoded != DataUtils.PAGE_LARGE ? pageLengthEncoded : pageLength;
+        return childrenPos;
+    }
+
+    /**
+     * Serialize the type, keys and values of this page in advance, so that
+     * {@link #write(Chunk, WriteBuffer, List)} only needs to copy them. This
+     * method may be invoked concurrently for different pages.
+     *
+     * @param buff the buffer to use, it is cleared first
+     * @param compressorFast the fast compressor, not shared with other threads
+     * @param compressorHigh the high compressor, not shared with other threads
+     * @return the type followed by the keys and values
+     */
+    final byte[] prepareContent(WriteBuffer buff, Compressor compressorFast, Compressor compressorHigh) {
+        buff.clear();
+        int type = isLeaf() ? PAGE_TYPE_LEAF : DataUtils.PAGE_TYPE_NODE;
+        buff.put((byte) type);
+        writeContent(buff, 0, type, compressorFast, compressorHigh);
+        byte[] content = new byte[buff.position()];
+        buff.position(0).get(content);
+        return content;
+    }
+
+    /**
+     * Write the keys and values, and compress them if enabled.
+     *
+     * @param buff the target buffer
+     * @param typePos the position of the type in the buffer
+     * @param type the type of the page
+     * @param compressorFast the fast compressor, or null to use the one of the store
+     * @param compressorHigh the high compressor, or null to use the one of the store
+     */
+    private void writeContent(WriteBuffer buff, int typePos, int type, Compressor compressorFast,
+            Compressor compressorHigh) {
         int compressStart = buff.position();
-        map.getKeyType().write(buff, keys, keyCount);
-        writeValues(buff);
         MVStore store = map.getStore();
+        if (store.isCompressKeys() && map.getKeyType().writeDelta(buff, keys, getKeyCount())) {
+            type |= DataUtils.PAGE_DELTA_KEYS;
+            int end = buff.position();
+            buff.position(typePos).put((byte) type).position(end);
+        } else {
+            map.getKeyType().write(buff, keys, getKeyCount());
+        }
+        writeValues(buff);
         int expLen = buff.position() - compressStart;
         if (expLen > 16) {
             int compressionLevel = store.getCompressionLevel();
@@ -727,10 +809,10 @@ protected final int write(Chunk chunk, WriteBuffer buff, List<Long> toc) {
                 Compressor compressor;
                 int compressType;
                 if (compressionLevel == 1) {
-                    compressor = store.getCompressorFast();
+                    compressor = compressorFast != null ? compressorFast : store.getCompressorFast();
                     compressType = DataUtils.PAGE_COMPRESSED;
                 } else {
-                    compressor = store.getCompressorHigh();
+                    compressor = compressorHigh != null ? compressorHigh : store.getCompressorHigh();
                     compressType = DataUtils.PAGE_COMPRESSED_HIGH;
                 }
                 byte[] comp = new byte[expLen * 2];
@@ -755,40 +837,16 @@ protected final int write(Chunk chunk, WriteBuffer buff, List<Long> toc) {
                 }
             }
         }
-        int pageLength = buff.position() - start;
-        long tocElement = DataUtils.getTocElement(getMapId(), start, buff.position() - start, type);
-        toc.add(tocElement);
-        int chunkId = chunk.id;
-        int check = DataUtils.getCheckValue(chunkId)
-                ^ DataUtils.getCheckValue(start)
-                ^ DataUtils.getCheckValue(pageLength);
-        buff.putInt(start, pageLength).
-            putShort(start + 4, (short) check);
-        if (isSaved()) {
-            throw DataUtils.newMVStoreException(
-                    DataUtils.ERROR_INTERNAL, "Page already stored");
-        }
-        long pagePos = DataUtils.getPagePos(chunkId, tocElement);
-        boolean isDeleted = isRemoved();
-        while (!posUpdater.compareAndSet(this, isDeleted ? 1L : 0L, pagePos)) {
-            isDeleted = isRemoved();
-        }
-        store.cachePage(this);
-        if (type == DataUtils.PAGE_TYPE_NODE) {
-            // cache again - this will make sure nodes stays in the cache
-            // for a longer time
-            store.cachePage(this);
-        }
-        int pageLengthEncoded = DataUtils.getPageMaxLength(pos);
-        boolean singleWriter = map.isSingleWriter();
-        chunk.accountForWrittenPage(pageLengthEncoded, singleWriter);
-        if (isDeleted) {
-            store.accountForRemovedPage(pagePos, chunk.version + 1, singleWriter, pageNo);
-        }
-        diskSpaceUsed = pageLengthEncoded != DataUtils.PAGE_LARGE ? pageLengthEncoded : pageLength;
-        return childrenPos;
     }
 
+    /**
+     * Add this page and its unsaved descendants that are written by
+     * {@link #writeUnsavedRecursive(Chunk, WriteBuffer, List)} to the list.
+     *
+     * @param list the target list
+     */
+    abstract void collectUnsaved(List<Page<?,?>> list);
+
     /**
      * Write values that the buffer contains to the buff.
      *
@@ -1335,6 +1393,24 @@ void writeUnsavedRecursive(Chunk chunk, WriteBuffer buff, List<Long> toc) {
             }
         }
 
+        @Override
+        void collectUnsaved(List<Page<?,?>> list) {
+            if (!isSaved()) {
+                list.add(this);
+                collectUnsavedChildren(list);
+            }
+        }
+
+        void collectUnsavedChildren(List<Page<?,?>> list) {
+            int len = getRawChildPageCount();
+            for (int i = 0; i < len; i++) {
+                Page<K,V> p = children[i].getPage();
+                if (p != null) {
+                    p.collectUnsaved(list);
+                }
+            }
+        }
+
         void writeChildrenRecursive(Chunk chunk, WriteBuffer buff, List<Long> toc) {
             int len = getRawChildPageCount();
             for (int i = 0; i < len; i++) {
@@ -1407,6 +1483,15 @@ void writeUnsavedRecursive(Chunk chunk, WriteBuffer buff, List<Long> toc) {
             }
         }
 
+        @Override
+        void collectUnsaved(List<Page<?,?>> list) {
+            if (complete) {
+                super.collectUnsaved(list);
+            } else if (!isSaved()) {
+                collectUnsavedChildren(list);
+            }
+        }
+
         @Override
         public boolean isComplete() {
             return complete;
@@ -1619,6 +1704,13 @@ void writeUnsavedRecursive(Chunk chunk, WriteBuffer buff, List<Long> toc) {
             }
         }
 
+        @Override
+        void collectUnsaved(List<Page<?,?>> list) {
+            if (!isSaved()) {
+                list.add(this);
+            }
+        }
+
         @Override
         void releaseSavedPages() {}
 
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.cache;
+
+/**
+ * A cache that uses keys of type long. Each entry is assigned a distinct
+ * memory size, and the cache will try to use at most the specified amount of
+ * memory. Implementations are multi-threading safe.
+ *
+ * @param <V> the value type
+ */
+public interface CacheLongKey<V> {
+
+    /**
+     * Get the value for the given key if the entry is cached. This method may
+     * adjust the internal state of the cache, to ensure commonly used entries
+     * stay in the cache.
+     *
+     * @param key the key
+     * @return the value, or null if there is no resident entry
+     */
+    V get(long key);
+
+    /**
+     * Check whether there is a resident entry for the given key. This method
+     * does not adjust the internal state of the cache.
+     *
+     * @param key the key
+     * @return true if there is a resident entry
+     */
+    boolean containsKey(long key);
+
+    /**
+     * Add an entry to the cache. The entry may or may not exist in the cache
+     * yet. This method will usually mark unknown entries as cold and known
+     * entries as hot.
+     *
+     * @param key the key
+     * @param value the value (may not be null)
+     * @param memory the memory used for the given entry
+     * @return the old value, or null if there was no resident entry
+     */
+    V put(long key, V value, int memory);
+
+    /**
+     * Remove an entry.
+     *
+     * @param key the key
+     * @return the old value, or null if there was no resident entry
+     */
+    V remove(long key);
+
+    /**
+     * Remove all entries.
+     */
+    void clear();
+
+    /**
+     * Get the number of resident entries.
+     *
+     * @return the number of entries
+     */
+    int size();
+
+    /**
+     * Determines max size of the data item size to fit into cache.
+     *
+     * @return data items size limit
+     */
+    long getMaxItemSize();
+
+    /**
+     * Get the currently used memory.
+     *
+     * @return the used memory
+     */
+    long getUsedMemory();
+
+    /**
+     * Set the maximum memory this cache should use. This will not
+     * immediately cause entries to get removed however; it will only change
+     * the limit. To resize the internal array, call the clear method.
+     *
+     * @param maxMemory the maximum size (1 or larger) in bytes
+     */
+    void setMaxMemory(long maxMemory);
+
+    /**
+     * Get the maximum memory to use.
+     *
+     * @return the maximum memory
+     */
+    long getMaxMemory();
+
+    /**
+     * Get the number of cache hits.
+     *
+     * @return the cache hits
+     */
+    long getHits();
+
+    /**
+     * Get the number of cache misses.
+     *
+     * @return the cache misses
+     */
+    long getMisses();
+
+    /**
+     * Get the number of entries removed from the cache to free memory.
+     *
+     * @return the number of evicted entries
+     */
+    long getEvictions();
+
+}
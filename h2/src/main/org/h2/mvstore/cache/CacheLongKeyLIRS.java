@@ -43,7 +43,7 @@
  * @author Thomas Mueller
  * @param <V> the value type
  */
-public class CacheLongKeyLIRS<V> {
+public class CacheLongKeyLIRS<V> implements CacheLongKey<V> {
 
     /**
      * The maximum memory this cache should use.
@@ -82,13 +82,21 @@ public CacheLongKeyLIRS(Config config) {
     }
 
     /**
-     * Remove all entries.
+     * Remove all entries. The statistics of the cache are preserved.
      */
+    @Override
     public void clear() {
         long max = getMaxItemSize();
         for (int i = 0; i < segmentCount; i++) {
-            segments[i] = new Segment<>(max, stackMoveDistance, 8, nonResidentQueueSize,
+            Segment<V> old = segments[i];
+            Segment<V> s = new Segment<>(max, stackMoveDistance, 8, nonResidentQueueSize,
                                         nonResidentQueueSizeHigh);
+            if (old != null) {
+                s.hits = old.hits;
+                s.misses = old.misses;
+                s.evictions = old.evictions;
+            }
+            segments[i] = s;
         }
     }
 
@@ -96,6 +104,7 @@ public void clear() {
      * Determines max size of the data item size to fit into cache
      * @return data items size limit
      */
+    @Override
     public long getMaxItemSize() {
         return Math.max(1, maxMemory / segmentCount);
     }
@@ -112,6 +121,7 @@ private Entry<V> find(long key) {
      * @param key the key (may not be null)
      * @return true if there is a resident entry
      */
+    @Override
     public boolean containsKey(long key) {
         Entry<V> e = find(key);
         return e != null && e.value != null;
@@ -150,6 +160,7 @@ public V put(long key, V value) {
      * @param memory the memory used for the given entry
      * @return the old value, or null if there was no resident entry
      */
+    @Override
     public V put(long key, V value, int memory) {
         if (value == null) {
             throw DataUtils.newIllegalArgumentException(
@@ -201,6 +212,7 @@ protected int sizeOf(V value) {
      * @param key the key (may not be null)
      * @return the old value, or null if there was no resident entry
      */
+    @Override
     public V remove(long key) {
         int hash = getHash(key);
         int segmentIndex = getSegmentIndex(hash);
@@ -233,6 +245,7 @@ public int getMemory(long key) {
      * @param key the key (may not be null)
      * @return the value, or null if there is no resident entry
      */
+    @Override
     public V get(long key) {
         int hash = getHash(key);
         Segment<V> s = getSegment(hash);
@@ -270,6 +283,7 @@ static int getHash(long key) {
      *
      * @return the used memory
      */
+    @Override
     public long getUsedMemory() {
         long x = 0;
         for (Segment<V> s : segments) {
@@ -285,6 +299,7 @@ public long getUsedMemory() {
      *
      * @param maxMemory the maximum size (1 or larger) in bytes
      */
+    @Override
     public void setMaxMemory(long maxMemory) {
         DataUtils.checkArgument(
                 maxMemory > 0,
@@ -303,6 +318,7 @@ public void setMaxMemory(long maxMemory) {
      *
      * @return the maximum memory
      */
+    @Override
     public long getMaxMemory() {
         return maxMemory;
     }
@@ -373,6 +389,7 @@ public int sizeHot() {
      *
      * @return the cache hits
      */
+    @Override
     public long getHits() {
         long x = 0;
         for (Segment<V> s : segments) {
@@ -386,6 +403,7 @@ public long getHits() {
      *
      * @return the cache misses
      */
+    @Override
     public long getMisses() {
         int x = 0;
         for (Segment<V> s : segments) {
@@ -394,11 +412,21 @@ public long getMisses() {
         return x;
     }
 
+    @Override
+    public long getEvictions() {
+        long x = 0;
+        for (Segment<V> s : segments) {
+            x += s.evictions;
+        }
+        return x;
+    }
+
     /**
      * Get the number of resident entries.
      *
      * @return the number of entries
      */
+    @Override
     public int size() {
         int x = 0;
         for (Segment<V> s : segments) {
@@ -529,6 +557,11 @@ public void trimNonResidentQueue() {
          */
         long misses;
 
+        /**
+         * The number of resident entries that became non-resident.
+         */
+        long evictions;
+
         /**
          * The map array. The size is always a power of 2.
          */
@@ -647,6 +680,7 @@ public void trimNonResidentQueue() {
                     old.nonResidentQueueSize, old.nonResidentQueueSizeHigh);
             hits = old.hits;
             misses = old.misses;
+            evictions = old.evictions;
             Entry<V> s = old.stack.stackPrev;
             while (s != old.stack) {
                 Entry<V> e = new Entry<>(s);
@@ -899,6 +933,7 @@ private void evictBlock() {
                 removeFromQueue(e);
                 e.reference = new WeakReference<>(e.value);
                 e.value = null;
+                evictions++;
                 addToQueue(queue2, e);
                 // the size of the non-resident-cold entries needs to be limited
                 trimNonResidentQueue();
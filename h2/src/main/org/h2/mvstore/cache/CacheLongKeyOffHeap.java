@@ -0,0 +1,358 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+import org.h2.mvstore.DataUtils;
+
+/**
+ * A cache for byte arrays with keys of type long that keeps the data outside
+ * of the Java heap, in direct byte buffers.
+ * <p>
+ * The memory is split into slabs of equal size that are allocated when they
+ * are needed. New entries are appended to the current slab; if it is full,
+ * the next slab is used, and all entries of that slab are evicted first. The
+ * replacement policy is therefore first-in, first-out, but there is no
+ * fragmentation and no per-entry allocation of native memory.
+ * <p>
+ * Lookups don't take any locks. A slab is protected by a stamped lock that is
+ * only locked for writing when the slab is reused; readers copy the data and
+ * discard the copy if the slab was reused in the meantime.
+ */
+public final class CacheLongKeyOffHeap {
+
+    /**
+     * The maximum size of a slab.
+     */
+    private static final int MAX_SLAB_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * The minimum number of slabs, if the size of the cache allows it.
+     */
+    private static final int MIN_SLAB_COUNT = 16;
+
+    private final ConcurrentHashMap<Long, Entry> map = new ConcurrentHashMap<>();
+
+    private final long maxMemory;
+
+    private final int slabSize;
+
+    /**
+     * The slabs, allocated on first use.
+     */
+    private final Slab[] slabs;
+
+    /**
+     * The lock for writers.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * The index of the slab new entries are appended to.
+     */
+    private int currentSlab;
+
+    /**
+     * The position in the current slab.
+     */
+    private int writePos;
+
+    private final AtomicLong usedMemory = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Create a new cache with the given memory size.
+     *
+     * @param maxMemory the maximum memory to use (1 or larger) in bytes
+     */
+    public CacheLongKeyOffHeap(long maxMemory) {
+        if (maxMemory <= 0) {
+            throw DataUtils.newIllegalArgumentException("Max memory must be larger than 0");
+        }
+        int size = (int) Math.min(MAX_SLAB_SIZE, Math.max(maxMemory / MIN_SLAB_COUNT, 1));
+        int count = (int) Math.min(Integer.MAX_VALUE, Math.max(maxMemory / size, 1));
+        this.maxMemory = maxMemory;
+        this.slabSize = size;
+        this.slabs = new Slab[count];
+    }
+
+    /**
+     * Get a copy of the data for the given key if the entry is cached.
+     *
+     * @param key the key
+     * @return a heap buffer with the data, positioned at the start, or null
+     *         if there is no resident entry
+     */
+    public ByteBuffer get(long key) {
+        Entry e = map.get(key);
+        if (e != null) {
+            Slab slab = e.slab;
+            long stamp = slab.lock.tryOptimisticRead();
+            if (stamp != 0 && slab.epoch == e.epoch) {
+                ByteBuffer src = slab.buffer.duplicate();
+                src.limit(e.offset + e.length);
+                src.position(e.offset);
+                ByteBuffer buff = ByteBuffer.allocate(e.length);
+                buff.put(src);
+                if (slab.lock.validate(stamp)) {
+                    buff.flip();
+                    hits.increment();
+                    return buff;
+                }
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Add an entry to the cache if there is no entry with this key yet. The
+     * remaining bytes of the buffer are copied, the position of the buffer is
+     * not changed. Entries that are larger than the maximum item size are not
+     * cached.
+     *
+     * @param key the key
+     * @param buff the data
+     */
+    public void put(long key, ByteBuffer buff) {
+        int length = buff.remaining();
+        if (length == 0 || length > slabSize) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (map.containsKey(key)) {
+                return;
+            }
+            Slab slab = slabs[currentSlab];
+            if (slab == null || writePos + length > slabSize) {
+                if (slab != null) {
+                    currentSlab = (currentSlab + 1) % slabs.length;
+                }
+                slab = slabs[currentSlab];
+                if (slab == null) {
+                    slabs[currentSlab] = slab = new Slab(slabSize);
+                } else {
+                    evict(slab);
+                }
+                writePos = 0;
+            }
+            ByteBuffer dst = slab.buffer.duplicate();
+            dst.position(writePos);
+            dst.put(buff.duplicate());
+            Entry e = new Entry(key, slab, writePos, length);
+            slab.entries.add(e);
+            writePos += length;
+            usedMemory.addAndGet(length);
+            map.put(key, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evict(Slab slab) {
+        long stamp = slab.lock.writeLock();
+        try {
+            slab.epoch++;
+            for (Entry e : slab.entries) {
+                if (map.remove(e.key, e)) {
+                    usedMemory.addAndGet(-e.length);
+                    evictions.increment();
+                }
+            }
+            slab.entries.clear();
+        } finally {
+            slab.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove an entry.
+     *
+     * @param key the key
+     * @return true if the entry was resident
+     */
+    public boolean remove(long key) {
+        Entry e = map.remove(key);
+        if (e == null) {
+            return false;
+        }
+        usedMemory.addAndGet(-e.length);
+        return true;
+    }
+
+    /**
+     * Remove all entries with keys in the given range. This operation needs
+     * to iterate over all entries.
+     *
+     * @param fromKey the lowest key to remove, inclusive
+     * @param toKey the highest key to remove, exclusive
+     */
+    public void removeRange(long fromKey, long toKey) {
+        for (Map.Entry<Long, Entry> entry : map.entrySet()) {
+            long key = entry.getKey();
+            if (key >= fromKey && key < toKey) {
+                Entry e = entry.getValue();
+                if (map.remove(key, e)) {
+                    usedMemory.addAndGet(-e.length);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove all entries and release the memory. Statistics are preserved.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            for (int i = 0; i < slabs.length; i++) {
+                Slab slab = slabs[i];
+                if (slab != null) {
+                    long stamp = slab.lock.writeLock();
+                    slab.epoch++;
+                    slab.entries.clear();
+                    slab.lock.unlockWrite(stamp);
+                    slabs[i] = null;
+                }
+            }
+            map.clear();
+            usedMemory.set(0);
+            currentSlab = 0;
+            writePos = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of resident entries.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * Get the size of the largest entry that can be cached.
+     *
+     * @return the maximum item size in bytes
+     */
+    public int getMaxItemSize() {
+        return slabSize;
+    }
+
+    /**
+     * Get the memory used by resident entries.
+     *
+     * @return the used memory in bytes
+     */
+    public long getUsedMemory() {
+        return usedMemory.get();
+    }
+
+    /**
+     * Get the maximum memory to use.
+     *
+     * @return the maximum memory in bytes
+     */
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * Get the number of cache hits.
+     *
+     * @return the cache hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of cache misses.
+     *
+     * @return the cache misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of entries removed from the cache because their slab was
+     * reused.
+     *
+     * @return the number of evicted entries
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * A region of off-heap memory.
+     */
+    private static final class Slab {
+
+        final ByteBuffer buffer;
+
+        final StampedLock lock = new StampedLock();
+
+        /**
+         * Incremented each time the slab is reused.
+         */
+        int epoch;
+
+        /**
+         * The entries stored in this slab, guarded by the writer lock.
+         */
+        final ArrayList<Entry> entries = new ArrayList<>();
+
+        Slab(int size) {
+            buffer = ByteBuffer.allocateDirect(size);
+        }
+
+    }
+
+    /**
+     * A cache entry.
+     */
+    private static final class Entry {
+
+        final long key;
+
+        final Slab slab;
+
+        final int epoch;
+
+        final int offset;
+
+        final int length;
+
+        Entry(long key, Slab slab, int offset, int length) {
+            this.key = key;
+            this.slab = slab;
+            this.epoch = slab.epoch;
+            this.offset = offset;
+            this.length = length;
+        }
+
+    }
+
+}
@@ -0,0 +1,505 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.h2.mvstore.DataUtils;
+
+/**
+ * A cache that uses keys of type long, where lookups don't take any locks.
+ * <p>
+ * Entries are kept in a concurrent hash map. Reads only record the accessed
+ * entry in one of several lossy ring buffers, selected by the current thread,
+ * and writes append the entry to a queue. The replacement policy is applied
+ * later, by the thread that gets the eviction lock when a read buffer is full
+ * or after a write. Other threads never wait for this lock.
+ * <p>
+ * The policy is an approximation of W-TinyLFU, as described in "TinyLFU: A
+ * Highly Efficient Cache Admission Policy" by Gil Einziger, Roy Friedman and
+ * Ben Manes: new entries are placed in a small LRU window, entries that leave
+ * the window compete with the least recently used entry of the probation
+ * segment of the main area, and the one with the lower estimated access
+ * frequency is evicted. Entries accessed again in the probation segment are
+ * moved to the protected segment. Frequencies are estimated with a count-min
+ * sketch with 4-bit counters that are halved periodically.
+ * <p>
+ * Each entry is assigned a distinct memory size, and the cache will try to use
+ * at most the specified amount of memory. Null values are not allowed.
+ *
+ * @param <V> the value type
+ */
+public final class CacheLongKeyTinyLFU<V> implements CacheLongKey<V> {
+
+    /**
+     * The number of entries in a read buffer, must be a power of 2.
+     */
+    private static final int READ_BUFFER_SIZE = 32;
+
+    /**
+     * The number of pending writes that triggers maintenance even if the
+     * cache is not full.
+     */
+    private static final int WRITE_BUFFER_THRESHOLD = 64;
+
+    private static final int QUEUE_NONE = 0, QUEUE_WINDOW = 1, QUEUE_PROBATION = 2, QUEUE_PROTECTED = 3;
+
+    private final ConcurrentHashMap<Long, Node<V>> map = new ConcurrentHashMap<>();
+
+    private final ReadBuffer<V>[] readBuffers;
+
+    private final ConcurrentLinkedQueue<Node<V>> writeBuffer = new ConcurrentLinkedQueue<>();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final AtomicLong usedMemory = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+    private volatile long maxMemory;
+
+    /**
+     * The following fields are guarded by the eviction lock.
+     */
+    private final Node<V> window = new Node<>(), probation = new Node<>(), protectedQueue = new Node<>();
+
+    private long windowMemory, protectedMemory;
+
+    private FrequencySketch sketch;
+
+    /**
+     * Create a new cache with the given memory size.
+     *
+     * @param maxMemory the maximum memory to use (1 or larger)
+     */
+    @SuppressWarnings("unchecked")
+    public CacheLongKeyTinyLFU(long maxMemory) {
+        setMaxMemory(maxMemory);
+        int stripes = Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), 64) * 2 - 1);
+        readBuffers = new ReadBuffer[stripes];
+        for (int i = 0; i < stripes; i++) {
+            readBuffers[i] = new ReadBuffer<>();
+        }
+        sketch = new FrequencySketch(maxMemory);
+    }
+
+    @Override
+    public V get(long key) {
+        Node<V> n = map.get(key);
+        if (n == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        ReadBuffer<V> buffer = readBuffers[(int) Thread.currentThread().getId() & (readBuffers.length - 1)];
+        if (buffer.offer(n)) {
+            tryMaintenance();
+        }
+        return n.value;
+    }
+
+    @Override
+    public boolean containsKey(long key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public V put(long key, V value, int memory) {
+        if (value == null) {
+            throw DataUtils.newIllegalArgumentException("The value may not be null");
+        }
+        if (memory > getMaxItemSize()) {
+            // the new entry is too big to fit
+            return remove(key);
+        }
+        Node<V> n = new Node<>(key, value, memory);
+        Node<V> old = map.put(key, n);
+        usedMemory.addAndGet(memory);
+        writeBuffer.add(n);
+        if (old != null) {
+            removed(old);
+        }
+        if (usedMemory.get() > maxMemory || writeBuffer.size() > WRITE_BUFFER_THRESHOLD) {
+            tryMaintenance();
+        }
+        return old != null ? old.value : null;
+    }
+
+    @Override
+    public V remove(long key) {
+        Node<V> n = map.remove(key);
+        if (n == null) {
+            return null;
+        }
+        removed(n);
+        return n.value;
+    }
+
+    /**
+     * Account an entry removed from the map and schedule its removal from the
+     * policy queues.
+     *
+     * @param n the removed entry
+     */
+    private void removed(Node<V> n) {
+        n.removed = true;
+        usedMemory.addAndGet(-n.memory);
+        writeBuffer.add(n);
+    }
+
+    @Override
+    public void clear() {
+        for (Node<V> n : map.values()) {
+            if (map.remove(n.key, n)) {
+                removed(n);
+            }
+        }
+        evictionLock.lock();
+        try {
+            drainBuffers();
+            sketch = new FrequencySketch(maxMemory);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public long getMaxItemSize() {
+        return Math.max(1, maxMemory / 16);
+    }
+
+    @Override
+    public long getUsedMemory() {
+        return usedMemory.get();
+    }
+
+    @Override
+    public void setMaxMemory(long maxMemory) {
+        DataUtils.checkArgument(maxMemory > 0, "Max memory must be larger than 0, is {0}", maxMemory);
+        this.maxMemory = maxMemory;
+    }
+
+    @Override
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Apply pending reads and writes to the policy and evict entries if the
+     * cache is full, unless another thread is already doing that.
+     */
+    private void tryMaintenance() {
+        do {
+            if (!evictionLock.tryLock()) {
+                return;
+            }
+            try {
+                drainBuffers();
+                evictEntries();
+            } finally {
+                evictionLock.unlock();
+            }
+            // writes added after the last drain, but before the lock was
+            // released, would stay unprocessed otherwise
+        } while (usedMemory.get() > maxMemory && !writeBuffer.isEmpty());
+    }
+
+    private void drainBuffers() {
+        for (ReadBuffer<V> buffer : readBuffers) {
+            for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+                Node<V> n = buffer.nodes.getAndSet(i, null);
+                if (n != null) {
+                    onAccess(n);
+                }
+            }
+        }
+        for (Node<V> n; (n = writeBuffer.poll()) != null;) {
+            if (n.removed) {
+                if (n.queue != QUEUE_NONE) {
+                    unlink(n);
+                }
+            } else if (n.queue == QUEUE_NONE) {
+                sketch.increment(n.key);
+                n.queue = QUEUE_WINDOW;
+                windowMemory += n.memory;
+                link(window, n);
+            }
+        }
+    }
+
+    private void onAccess(Node<V> n) {
+        sketch.increment(n.key);
+        if (n.removed) {
+            return;
+        }
+        switch (n.queue) {
+        case QUEUE_WINDOW:
+        case QUEUE_PROTECTED:
+            unlinkFromList(n);
+            link(n.queue == QUEUE_WINDOW ? window : protectedQueue, n);
+            break;
+        case QUEUE_PROBATION:
+            unlinkFromList(n);
+            n.queue = QUEUE_PROTECTED;
+            protectedMemory += n.memory;
+            link(protectedQueue, n);
+            long protectedMaxMemory = (maxMemory - getWindowMaxMemory()) * 4 / 5;
+            while (protectedMemory > protectedMaxMemory) {
+                Node<V> first = protectedQueue.next;
+                unlinkFromList(first);
+                protectedMemory -= first.memory;
+                first.queue = QUEUE_PROBATION;
+                link(probation, first);
+            }
+            break;
+        default:
+            // not yet added
+        }
+    }
+
+    private void evictEntries() {
+        // entries that leave the window are candidates for the main area
+        Node<V> candidate = null;
+        for (long max = getWindowMaxMemory(); windowMemory > max;) {
+            Node<V> n = window.next;
+            unlink(n);
+            n.queue = QUEUE_PROBATION;
+            link(probation, n);
+            if (candidate == null) {
+                candidate = n;
+            }
+        }
+        while (usedMemory.get() > maxMemory) {
+            Node<V> victim = probation.next;
+            if (victim == probation) {
+                victim = protectedQueue.next;
+                if (victim == protectedQueue) {
+                    victim = window.next;
+                    if (victim == window) {
+                        // pending writes of other threads
+                        break;
+                    }
+                }
+            }
+            if (candidate == null || candidate == probation || victim.queue != QUEUE_PROBATION) {
+                evict(victim);
+            } else if (candidate == victim) {
+                candidate = candidate.next;
+                evict(victim);
+            } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evict(victim);
+            } else {
+                Node<V> next = candidate.next;
+                evict(candidate);
+                candidate = next;
+            }
+        }
+    }
+
+    private long getWindowMaxMemory() {
+        return Math.max(1, maxMemory / 100);
+    }
+
+    private void evict(Node<V> n) {
+        unlink(n);
+        if (map.remove(n.key, n)) {
+            n.removed = true;
+            usedMemory.addAndGet(-n.memory);
+            evictions.increment();
+        }
+    }
+
+    private static <V> void link(Node<V> head, Node<V> n) {
+        Node<V> last = head.prev;
+        n.prev = last;
+        n.next = head;
+        last.next = n;
+        head.prev = n;
+    }
+
+    private void unlink(Node<V> n) {
+        switch (n.queue) {
+        case QUEUE_WINDOW:
+            windowMemory -= n.memory;
+            break;
+        case QUEUE_PROTECTED:
+            protectedMemory -= n.memory;
+            break;
+        default:
+        }
+        unlinkFromList(n);
+        n.queue = QUEUE_NONE;
+    }
+
+    private static <V> void unlinkFromList(Node<V> n) {
+        n.prev.next = n.next;
+        n.next.prev = n.prev;
+        n.prev = n.next = null;
+    }
+
+    /**
+     * A cache entry, or the head of a circular access order list.
+     */
+    private static final class Node<V> {
+
+        final long key;
+
+        final V value;
+
+        final int memory;
+
+        /**
+         * Whether the entry was removed from the map.
+         */
+        volatile boolean removed;
+
+        /**
+         * The following fields are guarded by the eviction lock.
+         */
+        int queue;
+
+        Node<V> prev, next;
+
+        Node() {
+            key = 0;
+            value = null;
+            memory = 0;
+            prev = next = this;
+        }
+
+        Node(long key, V value, int memory) {
+            this.key = key;
+            this.value = value;
+            this.memory = memory;
+        }
+
+    }
+
+    /**
+     * A lossy buffer of accessed entries. Entries may be overwritten by other
+     * reads before they are drained.
+     */
+    private static final class ReadBuffer<V> {
+
+        final AtomicReferenceArray<Node<V>> nodes = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+
+        private final AtomicLong count = new AtomicLong();
+
+        ReadBuffer() {
+        }
+
+        /**
+         * Record an access.
+         *
+         * @param n the accessed entry
+         * @return whether the buffer is full and should be drained
+         */
+        boolean offer(Node<V> n) {
+            long c = count.getAndIncrement();
+            int index = (int) c & (READ_BUFFER_SIZE - 1);
+            nodes.lazySet(index, n);
+            return index == READ_BUFFER_SIZE - 1;
+        }
+
+    }
+
+    /**
+     * A count-min sketch with four 4-bit counters per key, sixteen counters
+     * are packed into each long.
+     */
+    private static final class FrequencySketch {
+
+        private final long[] table;
+
+        private final int mask;
+
+        private final int sampleSize;
+
+        private int additions;
+
+        FrequencySketch(long maxMemory) {
+            // assume entries of 1 KB at least, the average page size is
+            // larger
+            int length = (int) Math.min(1 << 20, Math.max(16, Long.highestOneBit(maxMemory >>> 10 << 1)));
+            table = new long[length];
+            mask = length - 1;
+            sampleSize = length * 10;
+        }
+
+        /**
+         * Increment the estimated frequency of the given key.
+         *
+         * @param key the key
+         */
+        void increment(long key) {
+            int hash = CacheLongKeyLIRS.getHash(key);
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int h = rehash(hash, i);
+                int index = h & mask;
+                int shift = (h >>> 28) << 2;
+                if ((table[index] >>> shift & 0xf) != 0xf) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = table[i] >>> 1 & 0x7777_7777_7777_7777L;
+                }
+                additions >>>= 1;
+            }
+        }
+
+        /**
+         * Get the estimated frequency of the given key.
+         *
+         * @param key the key
+         * @return the estimated frequency, from 0 to 15
+         */
+        int frequency(long key) {
+            int hash = CacheLongKeyLIRS.getHash(key);
+            int frequency = 0xf;
+            for (int i = 0; i < 4; i++) {
+                int h = rehash(hash, i);
+                frequency = Math.min(frequency, (int) (table[h & mask] >>> ((h >>> 28) << 2)) & 0xf);
+            }
+            return frequency;
+        }
+
+        private static int rehash(int hash, int i) {
+            int h = (hash + i) * (0x9e3779b9 + (i << 1));
+            return h ^ h >>> 15;
+        }
+
+    }
+
+}
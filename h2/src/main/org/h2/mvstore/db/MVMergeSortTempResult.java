@@ -0,0 +1,340 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.h2.engine.Database;
+import org.h2.expression.Expression;
+import org.h2.message.DbException;
+import org.h2.mvstore.BulkLoader;
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVMap.Builder;
+import org.h2.mvstore.type.LongDataType;
+import org.h2.result.ResultExternal;
+import org.h2.result.RowFactory.DefaultRowFactory;
+import org.h2.result.SortOrder;
+import org.h2.value.Value;
+import org.h2.value.ValueRow;
+
+/**
+ * Sorted temporary result that is not distinct.
+ *
+ * <p>
+ * Rows are collected in memory, sorted, and written to the store as a run of
+ * rows in sort order. The runs are merged while the rows are read. Runs are
+ * built bottom-up in the order of rows, so writing them is much cheaper than
+ * inserting every row into a sorted map. If there are too many runs, they are
+ * merged into a larger run first, so that only a limited number of runs needs
+ * to be read at the same time.
+ * </p>
+ */
+class MVMergeSortTempResult extends MVTempResult {
+
+    /**
+     * The number of runs of the same size which are merged into one larger
+     * run.
+     */
+    private static final int MERGE_RUNS = 64;
+
+    /**
+     * The minimum number of rows in a run to sort them in parallel.
+     */
+    private static final int MIN_PARALLEL_SORT_ROWS = 10_000;
+
+    /**
+     * A run of rows in sort order.
+     */
+    private static final class Run {
+
+        /**
+         * Map with positions within the run as keys and rows as values.
+         */
+        final MVMap<Long, ValueRow> map;
+
+        /**
+         * The number of merges this run is built from.
+         */
+        final int level;
+
+        Run(MVMap<Long, ValueRow> map, int level) {
+            this.map = map;
+            this.level = level;
+        }
+
+    }
+
+    /**
+     * The current row of a run while the runs are merged.
+     */
+    private static final class Source {
+
+        private final Cursor<Long, ValueRow> cursor;
+
+        /**
+         * The position of the run, rows of earlier runs are returned first
+         * if they are equal in the sort order.
+         */
+        final int index;
+
+        Value[] current;
+
+        Source(Cursor<Long, ValueRow> cursor, int index) {
+            this.cursor = cursor;
+            this.index = index;
+        }
+
+        /**
+         * Read the next row of the run.
+         *
+         * @return whether there was a next row
+         */
+        boolean next() {
+            if (!cursor.hasNext()) {
+                current = null;
+                return false;
+            }
+            cursor.next();
+            current = cursor.getValue().getList();
+            return true;
+        }
+
+    }
+
+    private final SortOrder sort;
+
+    /**
+     * Whether runs are sorted using multiple threads.
+     */
+    private final boolean parallelSort;
+
+    /**
+     * The number of rows collected in memory before they are written.
+     */
+    private final int runRows;
+
+    private final Builder<Long, ValueRow> runBuilder;
+
+    /**
+     * The runs, in order of rows. Copies of this result share the runs.
+     */
+    private final ArrayList<Run> runs;
+
+    /**
+     * Rows which are not written yet. Only the root result has rows.
+     */
+    private ArrayList<Value[]> buffer;
+
+    private int runCounter;
+
+    /**
+     * The runs merged by {@link #next()}, or {@code null}.
+     */
+    private PriorityQueue<Source> queue;
+
+    /**
+     * Creates a shallow copy of the result.
+     *
+     * @param parent
+     *                   parent result
+     */
+    private MVMergeSortTempResult(MVMergeSortTempResult parent) {
+        super(parent);
+        this.sort = parent.sort;
+        this.parallelSort = false;
+        this.runRows = 0;
+        this.runBuilder = null;
+        this.runs = parent.runs;
+        this.rowCount = parent.rowCount;
+    }
+
+    /**
+     * Creates a new sorted temporary result.
+     *
+     * @param database
+     *            database
+     * @param expressions
+     *            column expressions
+     * @param visibleColumnCount
+     *            count of visible columns
+     * @param resultColumnCount
+     *            the number of columns including visible columns and additional
+     *            virtual columns for ORDER BY clause
+     * @param sort
+     *            sort order
+     * @param parallelSort
+     *            whether rows may be sorted using multiple threads
+     */
+    MVMergeSortTempResult(Database database, Expression[] expressions, int visibleColumnCount,
+            int resultColumnCount, SortOrder sort, boolean parallelSort) {
+        super(database, expressions, visibleColumnCount, resultColumnCount);
+        this.sort = sort;
+        this.parallelSort = parallelSort;
+        runRows = Math.max(1, database.getMaxMemoryRows());
+        ValueDataType valueType = new ValueDataType(database, new int[resultColumnCount]);
+        valueType.setRowFactory(DefaultRowFactory.INSTANCE.createRowFactory(database, database.getCompareMode(),
+                database, expressions, null, false));
+        runBuilder = new MVMap.Builder<Long, ValueRow>().keyType(LongDataType.INSTANCE).valueType(valueType)
+                .singleWriter();
+        runs = new ArrayList<>();
+        buffer = new ArrayList<>();
+    }
+
+    @Override
+    public int addRow(Value[] values) {
+        assert parent == null;
+        buffer.add(values);
+        if (buffer.size() >= runRows) {
+            writeRun();
+        }
+        return ++rowCount;
+    }
+
+    @Override
+    public int addRows(Collection<Value[]> rows) {
+        assert parent == null;
+        buffer.addAll(rows);
+        rowCount += rows.size();
+        if (buffer.size() >= runRows) {
+            writeRun();
+        }
+        return rowCount;
+    }
+
+    /**
+     * Sort the buffered rows and write them as a new run. Merge the last runs
+     * if there are enough runs of the same size.
+     */
+    private void writeRun() {
+        Value[][] rows = buffer.toArray(new Value[0][]);
+        buffer.clear();
+        if (parallelSort && rows.length >= MIN_PARALLEL_SORT_ROWS) {
+            Arrays.parallelSort(rows, sort);
+        } else {
+            Arrays.sort(rows, sort);
+        }
+        MVMap<Long, ValueRow> map = openRunMap();
+        BulkLoader<Long, ValueRow> loader = new BulkLoader<>(map);
+        for (int i = 0; i < rows.length; i++) {
+            loader.add((long) i, ValueRow.get(rows[i]));
+        }
+        loader.finish();
+        runs.add(new Run(map, 0));
+        for (int size; (size = runs.size()) >= MERGE_RUNS;) {
+            int level = runs.get(size - 1).level;
+            if (runs.get(size - MERGE_RUNS).level != level) {
+                break;
+            }
+            List<Run> merged = runs.subList(size - MERGE_RUNS, size);
+            Run run = mergeRuns(merged, level + 1);
+            for (Run r : merged) {
+                store.removeMap(r.map);
+            }
+            merged.clear();
+            runs.add(run);
+        }
+    }
+
+    private Run mergeRuns(List<Run> list, int level) {
+        MVMap<Long, ValueRow> map = openRunMap();
+        BulkLoader<Long, ValueRow> loader = new BulkLoader<>(map);
+        PriorityQueue<Source> queue = createQueue(list);
+        long i = 0;
+        for (Source s; (s = queue.poll()) != null;) {
+            loader.add(i++, ValueRow.get(s.current));
+            if (s.next()) {
+                queue.offer(s);
+            }
+        }
+        loader.finish();
+        return new Run(map, level);
+    }
+
+    private MVMap<Long, ValueRow> openRunMap() {
+        return store.openMap("run." + runCounter++, runBuilder);
+    }
+
+    private PriorityQueue<Source> createQueue(List<Run> list) {
+        int count = list.size();
+        PriorityQueue<Source> queue = new PriorityQueue<>(Math.max(count, 1), (a, b) -> {
+            int comp = sort.compare(a.current, b.current);
+            return comp != 0 ? comp : Integer.compare(a.index, b.index);
+        });
+        for (int i = 0; i < count; i++) {
+            Source s = new Source(list.get(i).map.cursor(null), i);
+            if (s.next()) {
+                queue.offer(s);
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * Write the remaining rows, if any. No rows may be added after this
+     * method is called.
+     */
+    private void finishRuns() {
+        if (buffer != null) {
+            if (!buffer.isEmpty()) {
+                writeRun();
+            }
+            buffer = null;
+        }
+    }
+
+    @Override
+    public boolean contains(Value[] values) {
+        throw DbException.getUnsupportedException("contains()");
+    }
+
+    @Override
+    public synchronized ResultExternal createShallowCopy() {
+        if (parent != null) {
+            return parent.createShallowCopy();
+        }
+        if (closed) {
+            return null;
+        }
+        finishRuns();
+        childCount++;
+        return new MVMergeSortTempResult(this);
+    }
+
+    @Override
+    public Value[] next() {
+        if (queue == null) {
+            if (parent == null) {
+                finishRuns();
+            }
+            queue = createQueue(runs);
+        }
+        Source s = queue.poll();
+        if (s == null) {
+            return null;
+        }
+        Value[] row = s.current;
+        if (s.next()) {
+            queue.offer(s);
+        }
+        return row;
+    }
+
+    @Override
+    public int removeRow(Value[] values) {
+        throw DbException.getUnsupportedException("removeRow()");
+    }
+
+    @Override
+    public void reset() {
+        queue = null;
+    }
+
+}
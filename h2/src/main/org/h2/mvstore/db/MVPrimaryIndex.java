@@ -5,6 +5,7 @@
  */
 package org.h2.mvstore.db;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicLong;
@@ -48,6 +49,9 @@ public MVPrimaryIndex(Database db, MVTable table, int id, IndexColumn[] columns,
         super(table, id, table.getName() + "_DATA", columns, 0, indexType);
         this.mvTable = table;
         RowDataType valueType = table.getRowFactory().getRowDataType();
+        if (table.isColumnar()) {
+            valueType = valueType.getColumnarType();
+        }
         mapName = "table." + getId();
         Transaction t = mvTable.getTransactionBegin();
         dataMap = t.openMap(mapName, LongDataType.INSTANCE, valueType);
@@ -94,18 +98,7 @@ public void add(SessionLocal session, Row row) {
             row.setKey(c);
         }
 
-        if (mvTable.getContainsLargeObject()) {
-            for (int i = 0, len = row.getColumnCount(); i < len; i++) {
-                Value v = row.getValue(i);
-                if (v instanceof ValueLob) {
-                    ValueLob lob = ((ValueLob) v).copy(database, getId());
-                    session.removeAtCommitStop(lob);
-                    if (v != lob) {
-                        row.setValue(i, lob);
-                    }
-                }
-            }
-        }
+        copyLobs(session, row);
 
         TransactionMap<Long,SearchRow> map = getMap(session);
         long rowKey = row.getKey();
@@ -125,14 +118,45 @@ public void add(SessionLocal session, Row row) {
         } catch (MVStoreException e) {
             throw mvTable.convertException(e);
         }
+        mvTable.updateZoneMaps(row);
         // because it's possible to directly update the key using the _rowid_
         // syntax
+        updateLastKey(rowKey);
+    }
+
+    private void copyLobs(SessionLocal session, Row row) {
+        if (mvTable.getContainsLargeObject()) {
+            for (int i = 0, len = row.getColumnCount(); i < len; i++) {
+                Value v = row.getValue(i);
+                if (v instanceof ValueLob) {
+                    ValueLob lob = ((ValueLob) v).copy(database, getId());
+                    session.removeAtCommitStop(lob);
+                    if (v != lob) {
+                        row.setValue(i, lob);
+                    }
+                }
+            }
+        }
+    }
+
+    private void updateLastKey(long rowKey) {
         long last;
         while (rowKey > (last = lastKey.get())) {
             if(lastKey.compareAndSet(last, rowKey)) break;
         }
     }
 
+    /**
+     * Create a loader that adds rows to this index, which must be empty, by
+     * building the pages of its map directly.
+     *
+     * @param session the session
+     * @return the loader
+     */
+    RowLoader createRowLoader(SessionLocal session) {
+        return new RowLoader(session);
+    }
+
     @Override
     public void remove(SessionLocal session, Row row) {
         if (mvTable.getContainsLargeObject()) {
@@ -195,7 +219,7 @@ public void update(SessionLocal session, Row oldRow, Row newRow) {
         } catch (MVStoreException e) {
             throw mvTable.convertException(e);
         }
-
+        mvTable.updateZoneMaps(newRow);
 
         // because it's possible to directly update the key using the _rowid_
         // syntax
@@ -362,7 +386,15 @@ public void addBufferedRows(List<String> bufferNames) {
         throw new UnsupportedOperationException();
     }
 
-    private Cursor find(SessionLocal session, Long first, Long last) {
+    /**
+     * Search for rows with keys in the specified range.
+     *
+     * @param session the session
+     * @param first the lowest key, or {@code null}
+     * @param last the highest key, or {@code null}
+     * @return the cursor
+     */
+    Cursor find(SessionLocal session, Long first, Long last) {
         TransactionMap<Long,SearchRow> map = getMap(session);
         if (first != null && last != null && first.longValue() == last.longValue()) {
             return new SingleRowCursor(setRowKey((Row) map.getFromSnapshot(first), first));
@@ -370,6 +402,33 @@ private Cursor find(SessionLocal session, Long first, Long last) {
         return new MVStoreCursor(map.entryIterator(first, last));
     }
 
+    /**
+     * Split the rows of this index into the specified number of ranges of keys
+     * with approximately the same number of rows and open a cursor for each
+     * range. The returned cursors may be used by different threads.
+     *
+     * @param session the session
+     * @param count the number of ranges
+     * @return the cursors, one per range, fewer cursors may be returned for
+     *         small indexes
+     */
+    public Cursor[] findParts(SessionLocal session, int count) {
+        MVMap<Long, VersionedValue<SearchRow>> map = dataMap.map;
+        TransactionMap<Long,SearchRow> transactionMap = getMap(session);
+        long size = map.sizeAsLong();
+        ArrayList<Cursor> cursors = new ArrayList<>(count);
+        Long first = null;
+        for (int i = 1; i < count; i++) {
+            Long key = map.getKey(size * i / count);
+            if (key != null && (first == null ? key != Long.MIN_VALUE : key > first)) {
+                cursors.add(new MVStoreCursor(transactionMap.entryIterator(first, key - 1)));
+                first = key;
+            }
+        }
+        cursors.add(new MVStoreCursor(transactionMap.entryIterator(first, null)));
+        return cursors.toArray(new Cursor[0]);
+    }
+
     @Override
     public boolean isRowIdIndex() {
         return true;
@@ -401,6 +460,89 @@ private static Row setRowKey(Row row, long key) {
         return row;
     }
 
+    /**
+     * Adds rows to an empty primary index in ascending order of their keys.
+     * The rows are committed as they are added, without undo log entries.
+     */
+    public final class RowLoader {
+
+        private final SessionLocal session;
+
+        private final TransactionMap.CommittedLoader<Long,SearchRow> loader;
+
+        private long lastRowKey = Long.MIN_VALUE;
+
+        private boolean finished;
+
+        RowLoader(SessionLocal session) {
+            this.session = session;
+            loader = dataMap.committedLoader();
+        }
+
+        /**
+         * Add a row if its key is larger than the keys of all rows added
+         * before. Otherwise, or if the loader is finished, the row is not
+         * added, the loader is finished, and the row needs to be added to the
+         * table as usual.
+         *
+         * @param row the row
+         * @return whether the row was added
+         */
+        public boolean add(Row row) {
+            if (finished) {
+                return false;
+            }
+            long rowKey;
+            if (mainIndexColumn == SearchRow.ROWID_INDEX) {
+                rowKey = row.getKey();
+                if (rowKey == 0) {
+                    rowKey = lastKey.get() + 1;
+                }
+            } else {
+                rowKey = row.getValue(mainIndexColumn).getLong();
+            }
+            if (rowKey <= lastRowKey) {
+                finish();
+                return false;
+            }
+            row.setKey(rowKey);
+            copyLobs(session, row);
+            try {
+                loader.add(rowKey, row);
+            } catch (MVStoreException e) {
+                throw mvTable.convertException(e);
+            }
+            lastRowKey = rowKey;
+            mvTable.updateZoneMaps(row);
+            updateLastKey(rowKey);
+            return true;
+        }
+
+        /**
+         * Make all added rows visible.
+         */
+        public void finish() {
+            if (!finished) {
+                finished = true;
+                long count;
+                try {
+                    count = loader.finish();
+                } catch (MVStoreException e) {
+                    throw mvTable.convertException(e);
+                }
+                mvTable.rowsLoaded(session, count);
+            }
+        }
+
+        /**
+         * Remove all rows from the table after a failure.
+         */
+        public void abort() {
+            finished = true;
+            mvTable.truncate(session);
+        }
+    }
+
     /**
      * A cursor.
      */
@@ -18,6 +18,7 @@
 import org.h2.index.IndexType;
 import org.h2.index.SingleRowCursor;
 import org.h2.message.DbException;
+import org.h2.mvstore.BulkLoader;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
 import org.h2.mvstore.MVStoreException;
@@ -72,11 +73,13 @@ public MVSecondaryIndex(Database db, MVTable table, int id, String indexName,
     @Override
     public void addRowsToBuffer(List<Row> rows, String bufferName) {
         MVMap<SearchRow,Value> map = openMap(bufferName);
+        BulkLoader<SearchRow,Value> loader = new BulkLoader<>(map);
         for (Row row : rows) {
             SearchRow r = getRowFactory().createRow();
             r.copyFrom(row);
-            map.append(r, ValueNull.INSTANCE);
+            loader.add(r, ValueNull.INSTANCE);
         }
+        loader.finish();
     }
 
     private static final class Source {
@@ -131,18 +134,22 @@ public void addBufferedRows(List<String> bufferNames) {
         }
 
         try {
-            while (!queue.isEmpty()) {
-                Source s = queue.poll();
-                SearchRow row = s.next();
-
-                if (uniqueColumnColumn > 0 && !mayHaveNullDuplicates(row)) {
-                    checkUnique(false, dataMap, row, Long.MIN_VALUE);
-                }
-
-                dataMap.putCommitted(row, ValueNull.INSTANCE);
-
-                if (s.hasNext()) {
-                    queue.offer(s);
+            if (dataMap.sizeAsLongMax() == 0) {
+                loadBufferedRows(queue);
+            } else {
+                while (!queue.isEmpty()) {
+                    Source s = queue.poll();
+                    SearchRow row = s.next();
+
+                    if (uniqueColumnColumn > 0 && !mayHaveNullDuplicates(row)) {
+                        checkUnique(false, dataMap, row, Long.MIN_VALUE);
+                    }
+
+                    dataMap.putCommitted(row, ValueNull.INSTANCE);
+
+                    if (s.hasNext()) {
+                        queue.offer(s);
+                    }
                 }
             }
         } finally {
@@ -153,6 +160,41 @@ public void addBufferedRows(List<String> bufferNames) {
         }
     }
 
+    /**
+     * Build the pages of the empty index map directly from the merged, sorted
+     * buffers.
+     *
+     * @param queue the buffers
+     */
+    private void loadBufferedRows(Queue<Source> queue) {
+        TransactionMap.CommittedLoader<SearchRow,Value> loader = dataMap.committedLoader();
+        RowFactory uniqueRowFactory = getUniqueRowFactory();
+        DataType<SearchRow> uniqueType = uniqueColumnColumn > 0 ? uniqueRowFactory.getRowDataType() : null;
+        SearchRow previous = null;
+        while (!queue.isEmpty()) {
+            Source s = queue.poll();
+            SearchRow row = s.next();
+
+            if (uniqueType != null && !mayHaveNullDuplicates(row)) {
+                // rows with the same values in the unique columns are adjacent
+                SearchRow unique = uniqueRowFactory.createRow();
+                unique.copyFrom(row);
+                unique.setKey(SearchRow.MATCH_ALL_ROW_KEY);
+                if (previous != null && uniqueType.compare(previous, unique) == 0) {
+                    throw getDuplicateKeyException(row.toString());
+                }
+                previous = unique;
+            }
+
+            loader.add(row, ValueNull.INSTANCE);
+
+            if (s.hasNext()) {
+                queue.offer(s);
+            }
+        }
+        loader.finish();
+    }
+
     private MVMap<SearchRow,Value> openMap(String mapName) {
         RowDataType keyType = getRowFactory().getRowDataType();
         MVMap.Builder<SearchRow,Value> builder = new MVMap.Builder<SearchRow,Value>()
@@ -28,7 +28,7 @@
  * Sorted temporary result.
  *
  * <p>
- * This result is used for distinct and/or sorted results.
+ * This result is used for distinct results, which may be sorted as well.
  * </p>
  */
 class MVSortedTempResult extends MVTempResult {
@@ -10,24 +10,31 @@
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import org.h2.api.DatabaseEventListener;
 import org.h2.api.ErrorCode;
 import org.h2.command.ddl.CreateTableData;
+import org.h2.command.query.AllColumnsForPlan;
 import org.h2.constraint.Constraint;
 import org.h2.constraint.ConstraintReferential;
 import org.h2.engine.Constants;
 import org.h2.engine.Database;
 import org.h2.engine.SessionLocal;
 import org.h2.engine.SysProperties;
+import org.h2.expression.condition.Comparison;
 import org.h2.index.Cursor;
 import org.h2.index.Index;
+import org.h2.index.IndexCondition;
 import org.h2.index.IndexType;
 import org.h2.message.DbException;
 import org.h2.message.Trace;
 import org.h2.mode.DefaultNullOrdering;
 import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.MVStore;
 import org.h2.mvstore.MVStoreException;
 import org.h2.mvstore.tx.Transaction;
 import org.h2.mvstore.tx.TransactionStore;
@@ -36,8 +43,10 @@
 import org.h2.result.SortOrder;
 import org.h2.table.Column;
 import org.h2.table.IndexColumn;
+import org.h2.table.PlanItem;
 import org.h2.table.Table;
 import org.h2.table.TableBase;
+import org.h2.table.TableFilter;
 import org.h2.table.TableType;
 import org.h2.util.DebuggingThreadLocal;
 import org.h2.util.Utils;
@@ -100,11 +109,38 @@ public String getEventText() {
         }
     }
 
+    /**
+     * The table engine parameter to store pages of the table data in columnar
+     * mode.
+     */
+    public static final String COLUMNAR = "COLUMNAR";
+
+    /**
+     * The minimum number of rows to read by each task when an index is
+     * rebuilt with multiple threads.
+     */
+    private static final long MIN_ROWS_PER_REBUILD_TASK = 10_000;
+
     /**
      * Whether the table contains a CLOB or BLOB.
      */
     private final boolean containsLargeObject;
 
+    /**
+     * Whether pages of the table data are stored in columnar mode.
+     */
+    private final boolean columnar;
+
+    /**
+     * Zone maps of columns, built on demand.
+     */
+    private final AtomicReferenceArray<ZoneMap> zoneMaps;
+
+    /**
+     * Whether at least one zone map was requested.
+     */
+    private volatile boolean hasZoneMaps;
+
     /**
      * The session (if any) that has exclusively locked this table.
      */
@@ -146,6 +182,17 @@ public MVTable(CreateTableData data, Store store) {
             }
         }
         containsLargeObject = b;
+        b = false;
+        if (data.tableEngineParams != null) {
+            for (String param : data.tableEngineParams) {
+                if (COLUMNAR.equalsIgnoreCase(param)) {
+                    b = true;
+                    break;
+                }
+            }
+        }
+        columnar = b;
+        zoneMaps = new AtomicReferenceArray<>(getColumns().length);
         nextAnalyze = database.getSettings().analyzeAuto;
         changesUntilAnalyze = nextAnalyze <= 0 ? null : new AtomicInteger(nextAnalyze);
         this.store = store;
@@ -157,6 +204,15 @@ public MVTable(CreateTableData data, Store store) {
         indexes.add(primaryIndex);
     }
 
+    /**
+     * Returns whether pages of the table data are stored in columnar mode.
+     *
+     * @return whether the table was created with the COLUMNAR parameter
+     */
+    public boolean isColumnar() {
+        return columnar;
+    }
+
     public String getMapName() {
         return primaryIndex.getMapName();
     }
@@ -414,6 +470,11 @@ private void rebuildIndexBlockMerge(SessionLocal session, MVIndex<?,?> index) {
         Index scan = getScanIndex(session);
         long remaining = scan.getRowCount(session);
         long total = remaining;
+        int taskCount = (int) Math.min(session.getMaxParallelWorkers(), total / MIN_ROWS_PER_REBUILD_TASK);
+        if (taskCount > 1 && index instanceof MVSecondaryIndex) {
+            rebuildIndexInParallel(session, index, total, taskCount);
+            return;
+        }
         Cursor cursor = scan.find(session, null, null);
         long i = 0;
         Store store = session.getDatabase().getStore();
@@ -450,6 +511,83 @@ private void rebuildIndexBlockMerge(SessionLocal session, MVIndex<?,?> index) {
         }
     }
 
+    /**
+     * Rebuild an index with multiple threads. The primary index is split into
+     * ranges of keys, and each range is read by a separate task of the common
+     * fork-join pool, which sorts its rows into its own temporary maps. The
+     * sorted maps of all tasks are then merged into the index.
+     *
+     * @param session the session
+     * @param index the index
+     * @param total the number of rows
+     * @param taskCount the number of tasks
+     */
+    private void rebuildIndexInParallel(SessionLocal session, MVIndex<?,?> index, long total, int taskCount) {
+        Cursor[] cursors = primaryIndex.findParts(session, taskCount);
+        int count = cursors.length;
+        // use the same amount of memory as a single task
+        int bufferSize = Math.max(database.getMaxMemoryRows() / 2 / count, 1);
+        String n = getName() + ':' + index.getName();
+        Store store = database.getStore();
+        ArrayList<String> bufferNames = new ArrayList<>();
+        AtomicLong rowCount = new AtomicLong();
+        AtomicBoolean stopped = new AtomicBoolean();
+        ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>(count);
+        for (Cursor cursor : cursors) {
+            tasks.add(ForkJoinTask.adapt(() -> {
+                ArrayList<Row> buffer = new ArrayList<>(bufferSize);
+                for (boolean hasNext = cursor.next(); hasNext && !stopped.get();) {
+                    buffer.add(cursor.get());
+                    hasNext = cursor.next();
+                    if (buffer.size() >= bufferSize || !hasNext) {
+                        session.checkCanceled();
+                        sortRows(buffer, index);
+                        String mapName = store.nextTemporaryMapName();
+                        index.addRowsToBuffer(buffer, mapName);
+                        synchronized (bufferNames) {
+                            bufferNames.add(mapName);
+                            database.setProgress(DatabaseEventListener.STATE_CREATE_INDEX, n,
+                                    rowCount.addAndGet(buffer.size()), total);
+                        }
+                        buffer.clear();
+                    }
+                }
+            }));
+        }
+        for (int i = 1; i < count; i++) {
+            tasks.get(i).fork();
+        }
+        Throwable exception = null;
+        for (int i = 0; i < count; i++) {
+            ForkJoinTask<?> task = tasks.get(i);
+            try {
+                if (i == 0) {
+                    task.invoke();
+                } else {
+                    task.join();
+                }
+            } catch (Throwable e) {
+                // wait for completion of other tasks
+                stopped.set(true);
+                if (exception == null) {
+                    exception = e;
+                }
+            }
+        }
+        if (exception != null) {
+            MVStore mvStore = store.getMvStore();
+            for (String mapName : bufferNames) {
+                mvStore.removeMap(mapName);
+            }
+            throw DbException.convert(exception);
+        }
+        long remaining = total - rowCount.get();
+        if (remaining != 0) {
+            throw DbException.getInternalError("rowcount remaining=" + remaining + ' ' + getName());
+        }
+        index.addBufferedRows(bufferNames);
+    }
+
     private void rebuildIndexBuffered(SessionLocal session, Index index) {
         Index scan = getScanIndex(session);
         long remaining = scan.getRowCount(session);
@@ -503,6 +641,11 @@ public long truncate(SessionLocal session) {
             Index index = indexes.get(i);
             index.truncate(session);
         }
+        if (hasZoneMaps) {
+            for (int i = 0, l = zoneMaps.length(); i < l; i++) {
+                zoneMaps.set(i, null);
+            }
+        }
         if (changesUntilAnalyze != null) {
             changesUntilAnalyze.set(nextAnalyze);
         }
@@ -560,8 +703,13 @@ public Row lockRow(SessionLocal session, Row row) {
     }
 
     private void analyzeIfRequired(SessionLocal session) {
+        analyzeIfRequired(session, 1);
+    }
+
+    private void analyzeIfRequired(SessionLocal session, int changes) {
         if (changesUntilAnalyze != null) {
-            if (changesUntilAnalyze.decrementAndGet() == 0) {
+            int remaining = changesUntilAnalyze.addAndGet(-changes);
+            if (remaining <= 0 && remaining + changes > 0) {
                 if (nextAnalyze <= Integer.MAX_VALUE / 2) {
                     nextAnalyze *= 2;
                 }
@@ -571,11 +719,139 @@ private void analyzeIfRequired(SessionLocal session) {
         }
     }
 
+    /**
+     * Create a loader that adds rows directly to the pages of the primary
+     * index, if this table is empty and has no other indexes. Loaded rows are
+     * committed immediately, so the table is locked exclusively and the loader
+     * needs to be aborted if the statement fails.
+     *
+     * @param session the session
+     * @return the loader, or null if rows need to be added as usual
+     */
+    public MVPrimaryIndex.RowLoader createRowLoader(SessionLocal session) {
+        for (Index index : indexes) {
+            if (index != primaryIndex && !(index instanceof MVDelegateIndex)) {
+                return null;
+            }
+        }
+        for (SessionLocal s : lockSharedSessions.keySet()) {
+            if (s != session) {
+                // don't wait for other sessions
+                return null;
+            }
+        }
+        lock(session, Table.EXCLUSIVE_LOCK);
+        // include uncommitted rows
+        if (primaryIndex.getMVMap().sizeAsLong() != 0) {
+            return null;
+        }
+        syncLastModificationIdWithDatabase();
+        return primaryIndex.createRowLoader(session);
+    }
+
+    /**
+     * Account for rows added by a loader.
+     *
+     * @param session the session
+     * @param count the number of added rows
+     */
+    void rowsLoaded(SessionLocal session, long count) {
+        syncLastModificationIdWithDatabase();
+        if (count > 0) {
+            analyzeIfRequired(session, (int) Math.min(count, Integer.MAX_VALUE));
+        }
+    }
+
     @Override
     public Index getScanIndex(SessionLocal session) {
         return primaryIndex;
     }
 
+    @Override
+    public PlanItem getBestPlanItem(SessionLocal session, int[] masks, TableFilter[] filters, int filter,
+            SortOrder sortOrder, AllColumnsForPlan allColumnsSet) {
+        PlanItem item = super.getBestPlanItem(session, masks, filters, filter, sortOrder, allColumnsSet);
+        if (masks == null || filters == null || item.getIndex() != primaryIndex
+                || !database.getSettings().optimizeZoneMaps || filters[filter].getIndexHints() != null
+                || primaryIndex.getRowCountApproximation(session) < ZoneMap.MIN_ROW_COUNT) {
+            return item;
+        }
+        ArrayList<IndexCondition> indexConditions = filters[filter].getIndexConditions();
+        Column[] columns = getColumns();
+        int mainIndexColumn = primaryIndex.getMainIndexColumn();
+        loop: for (int i = 0, l = columns.length; i < l; i++) {
+            if ((masks[i] & (IndexCondition.EQUALITY | IndexCondition.RANGE)) == 0 || i == mainIndexColumn) {
+                continue;
+            }
+            Column column = columns[i];
+            if (!DataType.isIndexable(column.getType())) {
+                continue;
+            }
+            for (IndexCondition condition : indexConditions) {
+                int compareType = condition.getCompareType();
+                if (condition.getColumn() == column
+                        && (compareType == Comparison.IN_LIST || compareType == Comparison.IN_QUERY)) {
+                    // each value of IN would read overlapping blocks
+                    continue loop;
+                }
+            }
+            ZoneMap zoneMap = zoneMaps.get(i);
+            if (zoneMap != null && zoneMap.isUnsuitable()) {
+                continue;
+            }
+            MVZoneMapIndex index = new MVZoneMapIndex(this, primaryIndex, column);
+            double cost = index.getCost(session, masks, filters, filter, null, allColumnsSet);
+            if (cost < item.getCost()) {
+                item.setIndex(index, cost);
+            }
+        }
+        return item;
+    }
+
+    /**
+     * Get the zone map of the specified column, build it if it wasn't
+     * requested before.
+     *
+     * @param session the session
+     * @param columnId the column id
+     * @return the zone map, or {@code null} if the zone map is not available
+     */
+    ZoneMap getZoneMap(SessionLocal session, int columnId) {
+        ZoneMap zoneMap = zoneMaps.get(columnId);
+        if (zoneMap == null) {
+            hasZoneMaps = true;
+            zoneMap = new ZoneMap(database, columnId);
+            if (zoneMaps.compareAndSet(columnId, null, zoneMap)) {
+                try {
+                    zoneMap.build(session, primaryIndex.getMVMap());
+                } catch (Throwable e) {
+                    zoneMaps.compareAndSet(columnId, zoneMap, null);
+                    throw e;
+                }
+            } else {
+                zoneMap = zoneMaps.get(columnId);
+            }
+        }
+        return zoneMap != null && zoneMap.isReady() ? zoneMap : null;
+    }
+
+    /**
+     * Widen zone maps of this table to cover the values of the specified row.
+     *
+     * @param row the inserted or updated row
+     */
+    void updateZoneMaps(Row row) {
+        if (hasZoneMaps) {
+            long key = row.getKey();
+            for (int i = 0, l = zoneMaps.length(); i < l; i++) {
+                ZoneMap zoneMap = zoneMaps.get(i);
+                if (zoneMap != null) {
+                    zoneMap.add(key, row.getValue(i));
+                }
+            }
+        }
+    }
+
     @Override
     public ArrayList<Index> getIndexes() {
         return indexes;
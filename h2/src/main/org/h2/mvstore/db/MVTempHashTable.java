@@ -0,0 +1,134 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+
+import org.h2.engine.Constants;
+import org.h2.engine.Database;
+import org.h2.message.DbException;
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.MVStore.Builder;
+import org.h2.mvstore.db.MVTempResult.CloseImpl;
+import org.h2.mvstore.type.LongDataType;
+import org.h2.result.RowFactory.DefaultRowFactory;
+import org.h2.store.fs.FileUtils;
+import org.h2.util.TempFileDeleter;
+import org.h2.value.Typed;
+import org.h2.value.Value;
+import org.h2.value.ValueRow;
+
+/**
+ * A temporary hash table of rows stored in a temporary file, used when the
+ * rows don't fit in memory.
+ *
+ * <p>
+ * Rows are partitioned by the hash code of their key. The hash code is stored
+ * in the upper half of the key of the map, so rows with the same hash code are
+ * stored next to each other and a lookup reads only the pages of its own
+ * partition. The caller needs to check whether the returned rows have the
+ * searched key, because different keys may have the same hash code.
+ * </p>
+ */
+public final class MVTempHashTable {
+
+    private final MVStore store;
+
+    /**
+     * Map with the hash codes and identities of rows as keys and rows as
+     * values.
+     */
+    private final MVMap<Long, ValueRow> map;
+
+    private final TempFileDeleter tempFileDeleter;
+
+    private final CloseImpl closeable;
+
+    private final Reference<?> fileRef;
+
+    /**
+     * Counter for the identities of rows.
+     */
+    private int counter;
+
+    /**
+     * Creates a new temporary hash table.
+     *
+     * @param database
+     *            database
+     * @param columns
+     *            the types of the columns of rows
+     */
+    public MVTempHashTable(Database database, Typed[] columns) {
+        try {
+            String fileName = FileUtils.createTempFile("h2tmp", Constants.SUFFIX_TEMP_FILE, true);
+            // unlike temporary results this table is read with random access,
+            // so the default cache is used
+            Builder builder = new MVStore.Builder().fileName(fileName).autoCommitDisabled();
+            byte[] key = database.getFileEncryptionKey();
+            if (key != null) {
+                builder.encryptionKey(Store.decodePassword(key));
+            }
+            store = builder.open();
+            tempFileDeleter = database.getTempFileDeleter();
+            closeable = new CloseImpl(store, fileName);
+            fileRef = tempFileDeleter.addFile(closeable, this);
+        } catch (IOException e) {
+            throw DbException.convert(e);
+        }
+        ValueDataType valueType = new ValueDataType(database, new int[columns.length]);
+        valueType.setRowFactory(DefaultRowFactory.INSTANCE.createRowFactory(database, database.getCompareMode(),
+                database, columns, null, false));
+        MVMap.Builder<Long, ValueRow> builder = new MVMap.Builder<Long, ValueRow>().keyType(LongDataType.INSTANCE)
+                .valueType(valueType).singleWriter();
+        map = store.openMap("tmp", builder);
+    }
+
+    /**
+     * Add a row.
+     *
+     * @param hash
+     *            the hash code of the key of the row
+     * @param values
+     *            the values of the row
+     */
+    public void add(int hash, Value[] values) {
+        map.put(getKey(hash, counter++), ValueRow.get(values));
+    }
+
+    /**
+     * Get all rows with the specified hash code.
+     *
+     * @param hash
+     *            the hash code
+     * @return the values of the rows
+     */
+    public ArrayList<Value[]> get(int hash) {
+        ArrayList<Value[]> list = new ArrayList<>();
+        Cursor<Long, ValueRow> cursor = map.cursor(getKey(hash, 0), getKey(hash, -1), false);
+        while (cursor.hasNext()) {
+            cursor.next();
+            list.add(cursor.getValue().getList());
+        }
+        return list;
+    }
+
+    private static long getKey(int hash, int id) {
+        return (long) hash << 32 | id & 0xffff_ffffL;
+    }
+
+    /**
+     * Close this table and delete its file.
+     */
+    public void close() {
+        tempFileDeleter.deleteFile(fileRef, closeable);
+    }
+
+}
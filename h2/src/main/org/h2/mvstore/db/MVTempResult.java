@@ -33,7 +33,7 @@
  */
 public abstract class MVTempResult implements ResultExternal {
 
-    private static final class CloseImpl implements AutoCloseable {
+    static final class CloseImpl implements AutoCloseable {
         /**
          * MVStore.
          */
@@ -75,14 +75,21 @@ public void close() throws Exception {
      *            virtual columns for ORDER BY and DISTINCT ON clauses
      * @param sort
      *            sort order, or {@code null}
+     * @param parallelSort
+     *            whether rows may be sorted using multiple threads
      * @return temporary result
      */
     public static ResultExternal of(Database database, Expression[] expressions, boolean distinct,
-            int[] distinctIndexes, int visibleColumnCount, int resultColumnCount, SortOrder sort) {
-        return distinct || distinctIndexes != null || sort != null
-                ? new MVSortedTempResult(database, expressions, distinct, distinctIndexes, visibleColumnCount,
-                        resultColumnCount, sort)
-                : new MVPlainTempResult(database, expressions, visibleColumnCount, resultColumnCount);
+            int[] distinctIndexes, int visibleColumnCount, int resultColumnCount, SortOrder sort,
+            boolean parallelSort) {
+        if (distinct || distinctIndexes != null) {
+            return new MVSortedTempResult(database, expressions, distinct, distinctIndexes, visibleColumnCount,
+                    resultColumnCount, sort);
+        } else if (sort != null) {
+            return new MVMergeSortTempResult(database, expressions, visibleColumnCount, resultColumnCount, sort,
+                    parallelSort);
+        }
+        return new MVPlainTempResult(database, expressions, visibleColumnCount, resultColumnCount);
     }
 
     private final Database database;
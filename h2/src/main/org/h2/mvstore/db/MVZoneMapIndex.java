@@ -0,0 +1,203 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import org.h2.command.query.AllColumnsForPlan;
+import org.h2.engine.SessionLocal;
+import org.h2.index.Cursor;
+import org.h2.index.Index;
+import org.h2.index.IndexType;
+import org.h2.message.DbException;
+import org.h2.result.Row;
+import org.h2.result.SearchRow;
+import org.h2.result.SortOrder;
+import org.h2.table.Column;
+import org.h2.table.IndexColumn;
+import org.h2.table.TableFilter;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+
+/**
+ * An index created by the optimizer for a range condition on a column without
+ * a regular index. It reads rows of the table in order of their keys, but
+ * skips blocks of rows where the zone map of the column shows that values in
+ * the searched range can't be present.
+ */
+public final class MVZoneMapIndex extends Index {
+
+    private final MVTable mvTable;
+
+    private final MVPrimaryIndex primaryIndex;
+
+    private final int columnId;
+
+    MVZoneMapIndex(MVTable table, MVPrimaryIndex primaryIndex, Column column) {
+        super(table, 0, null, IndexColumn.wrap(new Column[] { column }), 0, IndexType.createNonUnique(false));
+        this.mvTable = table;
+        this.primaryIndex = primaryIndex;
+        this.columnId = column.getColumnId();
+    }
+
+    @Override
+    public Cursor find(SessionLocal session, SearchRow first, SearchRow last) {
+        Value low = first != null ? first.getValue(columnId) : null;
+        Value high = last != null ? last.getValue(columnId) : null;
+        if (low != null || high != null) {
+            if (low != ValueNull.INSTANCE && high != ValueNull.INSTANCE) {
+                ZoneMap zoneMap = mvTable.getZoneMap(session, columnId);
+                if (zoneMap != null) {
+                    return new ZoneMapCursor(session, zoneMap.iterator(), low, high);
+                }
+            }
+        }
+        return primaryIndex.find(session, (Long) null, (Long) null);
+    }
+
+    @Override
+    public double getCost(SessionLocal session, int[] masks, TableFilter[] filters, int filter,
+            SortOrder sortOrder, AllColumnsForPlan allColumnsSet) {
+        return 10 * getCostRangeIndex(masks, primaryIndex.getRowCountApproximation(session), filters, filter,
+                sortOrder, true, allColumnsSet);
+    }
+
+    @Override
+    public String getPlanSQL() {
+        return table.getSQL(new StringBuilder(), TRACE_SQL_FLAGS).append(".zoneMap").toString();
+    }
+
+    @Override
+    public void close(SessionLocal session) {
+        // nothing to do
+    }
+
+    @Override
+    public void add(SessionLocal session, Row row) {
+        throw DbException.getUnsupportedException("MVZoneMapIndex.add");
+    }
+
+    @Override
+    public void remove(SessionLocal session, Row row) {
+        throw DbException.getUnsupportedException("MVZoneMapIndex.remove");
+    }
+
+    @Override
+    public void remove(SessionLocal session) {
+        throw DbException.getUnsupportedException("MVZoneMapIndex.remove");
+    }
+
+    @Override
+    public void truncate(SessionLocal session) {
+        throw DbException.getUnsupportedException("MVZoneMapIndex.truncate");
+    }
+
+    @Override
+    public void checkRename() {
+        throw DbException.getUnsupportedException("MVZoneMapIndex.checkRename");
+    }
+
+    @Override
+    public boolean needRebuild() {
+        return false;
+    }
+
+    @Override
+    public long getRowCount(SessionLocal session) {
+        return primaryIndex.getRowCount(session);
+    }
+
+    @Override
+    public long getRowCountApproximation(SessionLocal session) {
+        return primaryIndex.getRowCountApproximation(session);
+    }
+
+    /**
+     * A cursor over ranges of row keys of consecutive blocks that may contain
+     * values in the searched range.
+     */
+    private final class ZoneMapCursor implements Cursor {
+
+        private final SessionLocal session;
+
+        private final Iterator<Entry<Long, ZoneMap.Block>> blocks;
+
+        private final Value low, high;
+
+        /**
+         * The number of the first block of the next range, or {@code null}.
+         */
+        private Long pending;
+
+        private Cursor cursor;
+
+        ZoneMapCursor(SessionLocal session, Iterator<Entry<Long, ZoneMap.Block>> blocks, Value low, Value high) {
+            this.session = session;
+            this.blocks = blocks;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        public Row get() {
+            return cursor.get();
+        }
+
+        @Override
+        public SearchRow getSearchRow() {
+            return cursor.getSearchRow();
+        }
+
+        @Override
+        public boolean next() {
+            while (cursor == null || !cursor.next()) {
+                if (!nextRange()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean nextRange() {
+            Long start = pending;
+            pending = null;
+            long end = start != null ? start : 0L;
+            while (blocks.hasNext()) {
+                Entry<Long, ZoneMap.Block> entry = blocks.next();
+                if (!entry.getValue().intersects(session, low, high)) {
+                    if (start != null) {
+                        break;
+                    }
+                    continue;
+                }
+                long block = entry.getKey();
+                if (start == null) {
+                    start = end = block;
+                } else if (block == end + 1) {
+                    end = block;
+                } else {
+                    pending = block;
+                    break;
+                }
+            }
+            if (start == null) {
+                cursor = null;
+                return false;
+            }
+            cursor = primaryIndex.find(session, start << ZoneMap.BLOCK_SHIFT,
+                    ((end + 1) << ZoneMap.BLOCK_SHIFT) - 1);
+            return true;
+        }
+
+        @Override
+        public boolean previous() {
+            throw DbException.getInternalError(toString());
+        }
+
+    }
+
+}
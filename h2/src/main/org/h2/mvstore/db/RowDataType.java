@@ -7,6 +7,8 @@
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.HashMap;
+
 import org.h2.engine.CastDataProvider;
 import org.h2.engine.Database;
 import org.h2.mvstore.DataUtils;
@@ -20,9 +22,21 @@
 import org.h2.value.CompareMode;
 import org.h2.value.TypeInfo;
 import org.h2.value.Value;
+import org.h2.value.ValueBigint;
+import org.h2.value.ValueCollectionBase;
+import org.h2.value.ValueInteger;
+import org.h2.value.ValueSmallint;
+import org.h2.value.ValueTinyint;
 
 /**
  * The data type for rows.
+ * <p>
+ * Rows of a page are written one after another by default. In columnar mode
+ * values of each column of all rows of a page are written together with an
+ * encoding chosen for this column in this page: run-length encoding for
+ * repeating values, dictionary encoding for values with low cardinality, or
+ * delta encoding for integer values.
+ * </p>
  *
  * @author <a href='mailto:andrei.tokar@gmail.com'>Andrei Tokar</a>
  */
@@ -33,6 +47,28 @@ public final class RowDataType extends BasicDataType<SearchRow> implements State
     private final int[]         indexes;
     private final int           columnCount;
     private final boolean       storeKeys;
+    private final boolean       columnar;
+
+    /**
+     * Values of a column are written one by one.
+     */
+    private static final int PLAIN = 0;
+
+    /**
+     * Values of a column are written as runs of equal values.
+     */
+    private static final int RUN_LENGTH = 1;
+
+    /**
+     * Distinct values of a column are written once, rows refer to them.
+     */
+    private static final int DICTIONARY = 2;
+
+    /**
+     * Integer values of a column of the same data type are written as
+     * differences with the previous value.
+     */
+    private static final int DELTA = 3;
 
     public RowDataType(CastDataProvider provider, CompareMode compareMode, DataHandler handler, int[] sortTypes,
             int[] indexes, int columnCount, boolean storeKeys) {
@@ -41,9 +77,33 @@ public RowDataType(CastDataProvider provider, CompareMode compareMode, DataHandl
         this.indexes = indexes;
         this.columnCount = columnCount;
         this.storeKeys = storeKeys;
+        this.columnar = false;
         assert indexes == null || sortTypes.length == indexes.length;
     }
 
+    private RowDataType(RowDataType base) {
+        this.valueDataType = base.valueDataType;
+        this.sortTypes = base.sortTypes;
+        this.indexes = base.indexes;
+        this.columnCount = base.columnCount;
+        this.storeKeys = base.storeKeys;
+        this.columnar = true;
+    }
+
+    /**
+     * Returns a data type that uses the same row factory, but stores pages in
+     * columnar mode.
+     *
+     * @return the data type with columnar storage of pages
+     */
+    public RowDataType getColumnarType() {
+        return columnar ? this : new RowDataType(this);
+    }
+
+    public boolean isColumnar() {
+        return columnar;
+    }
+
     public int[] getIndexes() {
         return indexes;
     }
@@ -181,6 +241,338 @@ public void write(WriteBuffer buff, SearchRow row) {
         }
     }
 
+    @Override
+    public void write(WriteBuffer buff, Object storage, int len) {
+        if (!columnar) {
+            super.write(buff, storage, len);
+            return;
+        }
+        SearchRow[] rows = (SearchRow[]) storage;
+        if (storeKeys) {
+            for (int i = 0; i < len; i++) {
+                buff.putVarLong(rows[i].getKey());
+            }
+        }
+        if (len == 0) {
+            return;
+        }
+        Value[] values = new Value[len];
+        if (indexes == null) {
+            for (int i = 0, l = rows[0].getColumnCount(); i < l; i++) {
+                writeColumn(buff, rows, values, len, i);
+            }
+        } else {
+            for (int i : indexes) {
+                writeColumn(buff, rows, values, len, i);
+            }
+        }
+    }
+
+    private void writeColumn(WriteBuffer buff, SearchRow[] rows, Value[] values, int len, int columnId) {
+        int runs = 1, integerType = Value.UNKNOWN;
+        boolean integers = true, lobs = false, hashable = true;
+        for (int i = 0; i < len; i++) {
+            Value v = rows[i].getValue(columnId);
+            values[i] = v;
+            if (i > 0 && !isSame(v, values[i - 1])) {
+                runs++;
+            }
+            int type = v.getValueType();
+            if (hashable && !hasExactEquals(type)) {
+                hashable = false;
+            }
+            if (integers) {
+                if (isInteger(type) && (integerType == Value.UNKNOWN || integerType == type)) {
+                    integerType = type;
+                } else {
+                    integers = false;
+                }
+            }
+            if (type == Value.BLOB || type == Value.CLOB) {
+                lobs = true;
+            }
+        }
+        if (len > 1 && !lobs) {
+            if (runs * 2 <= len) {
+                writeRuns(buff, values, len);
+                return;
+            }
+            if (integers && writeDeltas(buff, values, len, integerType)) {
+                return;
+            }
+            if (hashable && writeDictionary(buff, values, len)) {
+                return;
+            }
+        }
+        buff.put((byte) PLAIN);
+        for (int i = 0; i < len; i++) {
+            valueDataType.write(buff, values[i]);
+        }
+    }
+
+    /**
+     * Returns whether two values are identical. Unlike
+     * {@link Value#equals(Object)} this method doesn't ignore the case of
+     * VARCHAR_IGNORECASE values, also within arrays and rows.
+     *
+     * @param v1 the first value
+     * @param v2 the second value
+     * @return whether the values are identical
+     */
+    private static boolean isSame(Value v1, Value v2) {
+        int type = v1.getValueType();
+        if (type != v2.getValueType() || !v1.equals(v2)) {
+            return false;
+        }
+        switch (type) {
+        case Value.VARCHAR_IGNORECASE:
+            return v1.getString().equals(v2.getString());
+        case Value.ARRAY:
+        case Value.ROW: {
+            Value[] list1 = ((ValueCollectionBase) v1).getList(), list2 = ((ValueCollectionBase) v2).getList();
+            for (int i = 0, l = list1.length; i < l; i++) {
+                if (!isSame(list1[i], list2[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        default:
+            return true;
+        }
+    }
+
+    /**
+     * Returns whether {@link Value#equals(Object)} and
+     * {@link Value#hashCode()} distinguish all values of the specified data
+     * type that are stored differently.
+     *
+     * @param type the data type
+     * @return whether values of this data type can be grouped by equality
+     */
+    private static boolean hasExactEquals(int type) {
+        return type != Value.VARCHAR_IGNORECASE && type != Value.ARRAY && type != Value.ROW;
+    }
+
+    private static boolean isInteger(int type) {
+        return type == Value.TINYINT || type == Value.SMALLINT || type == Value.INTEGER || type == Value.BIGINT;
+    }
+
+    private void writeRuns(WriteBuffer buff, Value[] values, int len) {
+        buff.put((byte) RUN_LENGTH);
+        for (int i = 0; i < len;) {
+            Value v = values[i];
+            int start = i;
+            while (++i < len && isSame(v, values[i])) {
+                // skip equal values
+            }
+            buff.putVarInt(i - start);
+            valueDataType.write(buff, v);
+        }
+    }
+
+    private static boolean writeDeltas(WriteBuffer buff, Value[] values, int len, int integerType) {
+        long[] deltas = new long[len];
+        long previous = 0;
+        int deltaLength = 0, plainLength = 0;
+        try {
+            for (int i = 0; i < len; i++) {
+                long v = values[i].getLong();
+                long d = Math.subtractExact(v, previous);
+                previous = v;
+                // zigzag encoding of signed differences
+                d = d << 1 ^ d >> 63;
+                deltas[i] = d;
+                deltaLength += DataUtils.getVarLongLen(d);
+                plainLength += 1 + DataUtils.getVarLongLen(Math.abs(v));
+            }
+        } catch (ArithmeticException e) {
+            return false;
+        }
+        if (deltaLength >= plainLength) {
+            return false;
+        }
+        buff.put((byte) DELTA).putVarInt(integerType);
+        for (int i = 0; i < len; i++) {
+            buff.putVarLong(deltas[i]);
+        }
+        return true;
+    }
+
+    private boolean writeDictionary(WriteBuffer buff, Value[] values, int len) {
+        int maxSize = len / 2;
+        HashMap<Value, Integer> dictionary = new HashMap<>();
+        int[] ids = new int[len];
+        for (int i = 0; i < len; i++) {
+            Value v = values[i];
+            Integer id = dictionary.get(v);
+            if (id == null) {
+                int size = dictionary.size();
+                if (size >= maxSize) {
+                    return false;
+                }
+                id = size;
+                dictionary.put(v, id);
+            }
+            ids[i] = id;
+        }
+        Value[] entries = new Value[dictionary.size()];
+        for (Value v : dictionary.keySet()) {
+            entries[dictionary.get(v)] = v;
+        }
+        buff.put((byte) DICTIONARY).putVarInt(entries.length);
+        for (Value v : entries) {
+            valueDataType.write(buff, v);
+        }
+        for (int i = 0; i < len; i++) {
+            buff.putVarInt(ids[i]);
+        }
+        return true;
+    }
+
+    @Override
+    public void read(ByteBuffer buff, Object storage, int len) {
+        if (!columnar) {
+            super.read(buff, storage, len);
+            return;
+        }
+        SearchRow[] rows = (SearchRow[]) storage;
+        RowFactory rowFactory = valueDataType.getRowFactory();
+        for (int i = 0; i < len; i++) {
+            SearchRow row = rowFactory.createRow();
+            if (storeKeys) {
+                row.setKey(DataUtils.readVarLong(buff));
+            }
+            rows[i] = row;
+        }
+        if (len == 0) {
+            return;
+        }
+        TypeInfo[] columnTypes = rowFactory.getColumnTypes();
+        if (indexes == null) {
+            for (int i = 0, l = rows[0].getColumnCount(); i < l; i++) {
+                readColumn(buff, rows, len, i, columnTypes != null ? columnTypes[i] : null);
+            }
+        } else {
+            for (int i : indexes) {
+                readColumn(buff, rows, len, i, columnTypes != null ? columnTypes[i] : null);
+            }
+        }
+    }
+
+    private void readColumn(ByteBuffer buff, SearchRow[] rows, int len, int columnId, TypeInfo columnType) {
+        int encoding = buff.get();
+        switch (encoding) {
+        case PLAIN:
+            for (int i = 0; i < len; i++) {
+                rows[i].setValue(columnId, valueDataType.readValue(buff, columnType));
+            }
+            break;
+        case RUN_LENGTH:
+            for (int i = 0; i < len;) {
+                int count = DataUtils.readVarInt(buff);
+                Value v = valueDataType.readValue(buff, columnType);
+                for (int end = i + count; i < end; i++) {
+                    rows[i].setValue(columnId, v);
+                }
+            }
+            break;
+        case DICTIONARY: {
+            Value[] entries = new Value[DataUtils.readVarInt(buff)];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = valueDataType.readValue(buff, columnType);
+            }
+            for (int i = 0; i < len; i++) {
+                rows[i].setValue(columnId, entries[DataUtils.readVarInt(buff)]);
+            }
+            break;
+        }
+        case DELTA: {
+            int integerType = DataUtils.readVarInt(buff);
+            long v = 0;
+            for (int i = 0; i < len; i++) {
+                long d = DataUtils.readVarLong(buff);
+                v += d >>> 1 ^ -(d & 1);
+                rows[i].setValue(columnId, getInteger(integerType, v));
+            }
+            break;
+        }
+        default:
+            throw DataUtils.newMVStoreException(DataUtils.ERROR_FILE_CORRUPT, "Unknown column encoding {0}",
+                    encoding);
+        }
+    }
+
+    @Override
+    public boolean writeDelta(WriteBuffer buff, Object storage, int len) {
+        if (columnar) {
+            return false;
+        }
+        SearchRow[] rows = (SearchRow[]) storage;
+        SearchRow previous = null;
+        for (int i = 0; i < len; i++) {
+            SearchRow row = rows[i];
+            if (storeKeys) {
+                buff.putVarLong(row.getKey());
+            }
+            int count = indexes == null ? row.getColumnCount() : indexes.length, shared = 0;
+            if (previous != null) {
+                while (shared < count) {
+                    int columnId = indexes == null ? shared : indexes[shared];
+                    Value v = row.getValue(columnId);
+                    int type = v.getValueType();
+                    if (type == Value.BLOB || type == Value.CLOB || !isSame(v, previous.getValue(columnId))) {
+                        break;
+                    }
+                    shared++;
+                }
+            }
+            // leading columns that are equal to the ones of the previous row
+            // are not written
+            buff.putVarInt(shared);
+            for (int j = shared; j < count; j++) {
+                valueDataType.write(buff, row.getValue(indexes == null ? j : indexes[j]));
+            }
+            previous = row;
+        }
+        return true;
+    }
+
+    @Override
+    public void readDelta(ByteBuffer buff, Object storage, int len) {
+        SearchRow[] rows = (SearchRow[]) storage;
+        RowFactory rowFactory = valueDataType.getRowFactory();
+        TypeInfo[] columnTypes = rowFactory.getColumnTypes();
+        SearchRow previous = null;
+        for (int i = 0; i < len; i++) {
+            SearchRow row = rowFactory.createRow();
+            if (storeKeys) {
+                row.setKey(DataUtils.readVarLong(buff));
+            }
+            int count = indexes == null ? row.getColumnCount() : indexes.length;
+            int shared = DataUtils.readVarInt(buff);
+            for (int j = 0; j < count; j++) {
+                int columnId = indexes == null ? j : indexes[j];
+                row.setValue(columnId, j < shared ? previous.getValue(columnId)
+                        : valueDataType.readValue(buff, columnTypes != null ? columnTypes[columnId] : null));
+            }
+            rows[i] = previous = row;
+        }
+    }
+
+    private static Value getInteger(int integerType, long v) {
+        switch (integerType) {
+        case Value.TINYINT:
+            return ValueTinyint.get((byte) v);
+        case Value.SMALLINT:
+            return ValueSmallint.get((short) v);
+        case Value.INTEGER:
+            return ValueInteger.get((int) v);
+        default:
+            return ValueBigint.get(v);
+        }
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == this) {
@@ -190,6 +582,7 @@ public boolean equals(Object obj) {
         }
         RowDataType other = (RowDataType) obj;
         return columnCount == other.columnCount
+            && columnar == other.columnar
             && Arrays.equals(indexes, other.indexes)
             && Arrays.equals(sortTypes, other.sortTypes)
             && valueDataType.equals(other.valueDataType);
@@ -199,6 +592,7 @@ public boolean equals(Object obj) {
     public int hashCode() {
         int res = super.hashCode();
         res = res * 31 + columnCount;
+        res = res * 31 + (columnar ? 1 : 0);
         res = res * 31 + Arrays.hashCode(indexes);
         res = res * 31 + Arrays.hashCode(sortTypes);
         res = res * 31 + valueDataType.hashCode();
@@ -210,7 +604,7 @@ public void save(WriteBuffer buff, MetaType<Database> metaType) {
         buff.putVarInt(columnCount);
         writeIntArray(buff, sortTypes);
         writeIntArray(buff, indexes);
-        buff.put(storeKeys ? (byte) 1 : (byte) 0);
+        buff.put((byte) ((storeKeys ? 1 : 0) | (columnar ? 2 : 0)));
     }
 
     private static void writeIntArray(WriteBuffer buff, int[] array) {
@@ -240,11 +634,13 @@ public RowDataType create(ByteBuffer buff, MetaType<Database> metaDataType, Data
             int columnCount = DataUtils.readVarInt(buff);
             int[] sortTypes = readIntArray(buff);
             int[] indexes = readIntArray(buff);
-            boolean storeKeys = buff.get() != 0;
+            int flags = buff.get();
+            boolean storeKeys = (flags & 1) != 0;
             CompareMode compareMode = database == null ? CompareMode.getInstance(null, 0) : database.getCompareMode();
             RowFactory rowFactory = RowFactory.getDefaultRowFactory().createRowFactory(database, compareMode, database,
                     sortTypes, indexes, null, columnCount, storeKeys);
-            return rowFactory.getRowDataType();
+            RowDataType rowDataType = rowFactory.getRowDataType();
+            return (flags & 2) != 0 ? rowDataType.getColumnarType() : rowDataType;
         }
 
         private static int[] readIntArray(ByteBuffer buff) {
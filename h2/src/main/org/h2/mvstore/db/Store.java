@@ -107,6 +107,10 @@ public Store(Database db) {
                 if (autoCompactFillRate <= 100) {
                     builder.autoCompactFillRate(autoCompactFillRate);
                 }
+                int autoCompactRate = db.getSettings().autoCompactRate;
+                if (autoCompactRate > 0) {
+                    builder.autoCompactRate(autoCompactRate);
+                }
             }
             if (key != null) {
                 encrypted = true;
@@ -117,6 +121,25 @@ public Store(Database db) {
                 // use a larger page split size to improve the compression ratio
                 builder.pageSplitSize(64 * 1024);
             }
+            if (db.getSettings().compressKeys) {
+                builder.compressKeys();
+            }
+            if (MVStore.CACHE_TYPE_TINY_LFU.equals(db.getCacheType())) {
+                builder.cacheType(MVStore.CACHE_TYPE_TINY_LFU);
+            }
+            // pages of large commits are serialized in parallel
+            builder.serializationThreads(Math.min(Runtime.getRuntime().availableProcessors(), 8));
+            if (db.getSettings().memoryMappedReads) {
+                builder.memoryMapped();
+            }
+            int offHeapCacheSize = db.getSettings().offHeapCacheSize;
+            if (offHeapCacheSize > 0) {
+                builder.offHeapCacheSize(offHeapCacheSize);
+            }
+            int prefetchThreads = db.getSettings().prefetchThreads;
+            if (prefetchThreads > 0) {
+                builder.prefetchThreads(prefetchThreads);
+            }
             builder.backgroundExceptionHandler((t, e) -> db.setBackgroundException(DbException.convert(e)));
             // always start without background thread first, and if necessary,
             // it will be set up later, after db has been fully started,
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.db;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.h2.engine.Database;
+import org.h2.engine.SessionLocal;
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.value.VersionedValue;
+import org.h2.result.SearchRow;
+import org.h2.value.Value;
+import org.h2.value.ValueNull;
+
+/**
+ * The minimum and maximum values of a column in blocks of consecutive row keys
+ * of a table. Blocks are only widened when rows are inserted or updated, rows
+ * that were deleted or rolled back may still be covered by a block, so the
+ * zone map may only be used to exclude blocks that surely don't contain rows
+ * with values in a searched range.
+ * <p>
+ * A zone map is built on the first use with a scan of all versions of rows in
+ * the primary index of the table and is maintained by this index afterwards.
+ * It is not persisted.
+ * </p>
+ */
+final class ZoneMap {
+
+    /**
+     * The number of bits of a row key within a block.
+     */
+    static final int BLOCK_SHIFT = 10;
+
+    /**
+     * The number of row keys in a block.
+     */
+    static final long BLOCK_SIZE = 1L << BLOCK_SHIFT;
+
+    /**
+     * The minimum number of rows in a table to consider a zone map.
+     */
+    static final long MIN_ROW_COUNT = 16 * BLOCK_SIZE;
+
+    /**
+     * The minimum average number of rows per block, zone maps of tables with
+     * sparse row keys are discarded.
+     */
+    private static final int MIN_ROWS_PER_BLOCK = 64;
+
+    private final Database database;
+
+    private final int columnId;
+
+    private final ConcurrentSkipListMap<Long, Block> blocks = new ConcurrentSkipListMap<>();
+
+    private volatile boolean ready;
+
+    private volatile boolean unsuitable;
+
+    ZoneMap(Database database, int columnId) {
+        this.database = database;
+        this.columnId = columnId;
+    }
+
+    /**
+     * Returns whether the zone map is built and may be used.
+     *
+     * @return whether the zone map is ready
+     */
+    boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Returns whether row keys of the table are too sparse for a zone map.
+     *
+     * @return whether the zone map was discarded
+     */
+    boolean isUnsuitable() {
+        return unsuitable;
+    }
+
+    /**
+     * Add all rows of the specified map to the zone map, including
+     * uncommitted and previous committed versions of rows.
+     *
+     * @param session the session
+     * @param map the map of the primary index
+     */
+    void build(SessionLocal session, MVMap<Long, VersionedValue<SearchRow>> map) {
+        long rows = 0;
+        for (Cursor<Long, VersionedValue<SearchRow>> cursor = map.cursor(null); cursor.hasNext();) {
+            long key = cursor.next();
+            VersionedValue<SearchRow> value = cursor.getValue();
+            SearchRow row = value.getCurrentValue();
+            if (row != null) {
+                add(key, row.getValue(columnId));
+            }
+            row = value.getCommittedValue();
+            if (row != null) {
+                add(key, row.getValue(columnId));
+            }
+            if ((++rows & 4095) == 0) {
+                session.checkCanceled();
+            }
+        }
+        int size = blocks.size();
+        if (size > 16 && (long) size * MIN_ROWS_PER_BLOCK > rows) {
+            unsuitable = true;
+            blocks.clear();
+        } else {
+            ready = true;
+        }
+    }
+
+    /**
+     * Widen the block of the specified row key to include the specified value.
+     *
+     * @param key the row key
+     * @param v the value of the column
+     */
+    void add(long key, Value v) {
+        if (v == ValueNull.INSTANCE || unsuitable) {
+            // rows with NULL never satisfy range conditions
+            return;
+        }
+        Block block = blocks.computeIfAbsent(key >> BLOCK_SHIFT, k -> new Block());
+        synchronized (block) {
+            Value min = block.min;
+            if (min == null || v.compareTo(min, database, database.getCompareMode()) < 0) {
+                block.min = v;
+            }
+            Value max = block.max;
+            if (max == null || v.compareTo(max, database, database.getCompareMode()) > 0) {
+                block.max = v;
+            }
+        }
+    }
+
+    /**
+     * Returns an iterator over blocks in ascending order of row keys.
+     *
+     * @return the iterator over block numbers and blocks
+     */
+    Iterator<Entry<Long, Block>> iterator() {
+        return blocks.entrySet().iterator();
+    }
+
+    /**
+     * The range of values of a block.
+     */
+    static final class Block {
+
+        /**
+         * The minimum value.
+         */
+        volatile Value min;
+
+        /**
+         * The maximum value.
+         */
+        volatile Value max;
+
+        /**
+         * Check whether this block may contain values in the specified range.
+         *
+         * @param session the session
+         * @param low the lowest value of the range, or {@code null}
+         * @param high the highest value of the range, or {@code null}
+         * @return whether the ranges may intersect
+         */
+        boolean intersects(SessionLocal session, Value low, Value high) {
+            Value min = this.min, max = this.max;
+            return min != null && max != null && (low == null || session.compare(max, low) >= 0)
+                    && (high == null || session.compare(min, high) <= 0);
+        }
+
+    }
+
+}
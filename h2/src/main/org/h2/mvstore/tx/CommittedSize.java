@@ -0,0 +1,69 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.tx;
+
+/**
+ * The number of committed entries of a map as of some commit. Instances form
+ * a chain from the latest commit to older ones, so readers with an older
+ * snapshot can find the size they should see. Only the most recent sizes are
+ * kept; readers with even older snapshots have to count the entries.
+ */
+final class CommittedSize {
+
+    /**
+     * The maximum number of sizes kept for a map.
+     */
+    private static final int MAX_CHAIN_LENGTH = 64;
+
+    /**
+     * The version of committing transactions (see also
+     * TransactionStore.committingTransactions) since which this size is
+     * valid.
+     */
+    final long version;
+
+    /**
+     * The number of committed entries.
+     */
+    final long size;
+
+    /**
+     * The size before this version, or null if unknown.
+     */
+    private CommittedSize older;
+
+    CommittedSize(long version, long size, CommittedSize older) {
+        this.version = version;
+        this.size = size;
+        this.older = older;
+        CommittedSize s = this;
+        for (int i = 1; i < MAX_CHAIN_LENGTH && s != null; i++) {
+            s = s.older;
+        }
+        if (s != null) {
+            s.older = null;
+        }
+    }
+
+    /**
+     * Get the size seen by a snapshot with the given version of committing
+     * transactions.
+     *
+     * @param version the version of committing transactions
+     * @return the size, or -1 if it is not known any more
+     */
+    long getSize(long version) {
+        CommittedSize s = this;
+        while (s.version > version) {
+            s = s.older;
+            if (s == null) {
+                return -1L;
+            }
+        }
+        return s.size;
+    }
+
+}
@@ -15,15 +15,17 @@
  */
 final class RollbackDecisionMaker extends MVMap.DecisionMaker<Record<?,?>> {
     private final TransactionStore store;
+    private final Transaction transaction;
     private final long transactionId;
     private final long toLogId;
     private final TransactionStore.RollbackListener listener;
     private MVMap.Decision decision;
 
-    RollbackDecisionMaker(TransactionStore store, long transactionId, long toLogId,
+    RollbackDecisionMaker(TransactionStore store, Transaction transaction, long toLogId,
                             TransactionStore.RollbackListener listener) {
         this.store = store;
-        this.transactionId = transactionId;
+        this.transaction = transaction;
+        this.transactionId = transaction.transactionId;
         this.toLogId = toLogId;
         this.listener = listener;
     }
@@ -49,6 +51,11 @@ public MVMap.Decision decide(Record existingValue, Record providedValue) {
                     Object key = existingValue.key;
                     VersionedValue<Object> previousValue = map.operate(key, valueToRestore,
                             MVMap.DecisionMaker.DEFAULT);
+                    long sizeChange = (valueToRestore == null || valueToRestore.getCurrentValue() == null ? 0 : 1)
+                            - (previousValue == null || previousValue.getCurrentValue() == null ? 0 : 1);
+                    if (sizeChange != 0) {
+                        transaction.getSizeChangeCounter(mapId).addAndGet(sizeChange);
+                    }
                     listener.onRollback(map, key, previousValue, valueToRestore);
                 }
             }
@@ -5,8 +5,6 @@
  */
 package org.h2.mvstore.tx;
 
-import java.util.BitSet;
-
 import org.h2.mvstore.RootReference;
 
 /**
@@ -22,11 +20,22 @@
     /**
      * The committing transactions (see also TransactionStore.committingTransactions).
      */
-    final BitSet committingTransactions;
+    final VersionedBitSet committingTransactions;
+
+    /**
+     * Whether it is known that the root has no uncommitted entries, so that
+     * the current values of all entries are visible.
+     */
+    final boolean committed;
+
+    Snapshot(RootReference<K,V> root, VersionedBitSet committingTransactions) {
+        this(root, committingTransactions, false);
+    }
 
-    Snapshot(RootReference<K,V> root, BitSet committingTransactions) {
+    Snapshot(RootReference<K,V> root, VersionedBitSet committingTransactions, boolean committed) {
         this.root = root;
         this.committingTransactions = committingTransactions;
+        this.committed = committed;
     }
 
     @Override
@@ -10,6 +10,8 @@
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import org.h2.engine.IsolationLevel;
 import org.h2.mvstore.DataUtils;
@@ -170,11 +172,34 @@ public final class Transaction {
      */
     private final Map<Integer, TransactionMap<?,?>> transactionMaps = new HashMap<>();
 
+    /**
+     * The number of entries this transaction added to maps minus the number
+     * of entries it removed, by map id.
+     */
+    final ConcurrentHashMap<Integer, AtomicLong> sizeChanges = new ConcurrentHashMap<>();
+
+    /**
+     * Whether sizeChanges contains all changes of this transaction. This is
+     * not the case for transactions that were started before the store was
+     * opened.
+     */
+    final boolean sizeChangesKnown;
+
+    /**
+     * The ids of maps where this transaction may have uncommitted entries.
+     */
+    final Set<Integer> writtenMaps = ConcurrentHashMap.newKeySet();
+
     /**
      * The current isolation level.
      */
     final IsolationLevel isolationLevel;
 
+    /**
+     * Whether this transaction was declared not to change data.
+     */
+    private volatile boolean readOnly;
+
 
     Transaction(TransactionStore store, int transactionId, long sequenceNum, int status,
                 String name, long logId, int timeoutMillis, int ownerId,
@@ -188,6 +213,7 @@ public final class Transaction {
         this.ownerId = ownerId;
         this.isolationLevel = isolationLevel;
         this.listener = listener;
+        sizeChangesKnown = logId == 0;
     }
 
     public int getId() {
@@ -206,6 +232,37 @@ RootReference<Long,Record<?,?>>[] getUndoLogRootReferences() {
         return undoLogRootReferences;
     }
 
+    /**
+     * Get the counter of entries this transaction added to a map minus
+     * entries it removed.
+     *
+     * @param mapId the map id
+     * @return the counter
+     */
+    AtomicLong getSizeChangeCounter(int mapId) {
+        return sizeChanges.computeIfAbsent(mapId, k -> new AtomicLong());
+    }
+
+    /**
+     * Get the number of entries this transaction added to a map minus the
+     * number of entries it removed.
+     *
+     * @param mapId the map id
+     * @return the change of the size of the map
+     */
+    long getSizeChange(int mapId) {
+        AtomicLong counter = sizeChanges.get(mapId);
+        return counter == null ? 0L : counter.get();
+    }
+
+    /**
+     * Forget the changes of sizes of maps, because they are included in the
+     * committed sizes.
+     */
+    void clearSizeChanges() {
+        sizeChanges.clear();
+    }
+
     /**
      * Changes transaction status to a specified value
      * @param status to be set
@@ -309,6 +366,28 @@ public IsolationLevel getIsolationLevel() {
         return isolationLevel;
     }
 
+    /**
+     * Declare whether this transaction changes data. This does not prevent
+     * changes, but snapshots of a read-only transaction are checked for
+     * uncommitted entries of other transactions. If a map has none, its
+     * entries are read without checking which transaction wrote them. This
+     * should be set before the transaction reads data.
+     *
+     * @param readOnly whether the transaction is read-only
+     */
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Returns whether this transaction was declared read-only.
+     *
+     * @return whether this transaction is read-only
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
     boolean isReadCommitted() {
         return isolationLevel == IsolationLevel.READ_COMMITTED;
     }
@@ -338,12 +417,12 @@ public void markStatementStart(HashSet<MVMap<Object,VersionedValue<Object>>> map
             // The purpose of the following loop is to get a coherent picture
             // In order to get such a "snapshot", we wait for a moment of silence,
             // when no new transaction were committed / closed.
-            BitSet committingTransactions;
+            VersionedBitSet committingTransactions;
             do {
                 committingTransactions = store.committingTransactions.get();
                 for (MVMap<Object,VersionedValue<Object>> map : maps) {
-                    TransactionMap<?,?> txMap = openMapX(map);
-                    txMap.setStatementSnapshot(new Snapshot(map.flushAndGetRoot(), committingTransactions));
+                    TransactionMap txMap = openMapX(map);
+                    txMap.setStatementSnapshot(txMap.createSnapshot(committingTransactions));
                 }
                 if (isReadCommitted()) {
                     undoLogRootReferences = store.collectUndoLogRootReferences();
@@ -407,6 +486,12 @@ long log(Record<?,?> logRecord) {
         }
         int currentStatus = getStatus(currentState);
         checkOpen(currentStatus);
+        int mapId = logRecord.mapId;
+        // the entry is added to the map after this, so readers which find no
+        // writers of the map can be sure it has no uncommitted entries
+        if (!writtenMaps.contains(mapId) && writtenMaps.add(mapId)) {
+            store.addMapWriter(mapId);
+        }
         long undoKey = store.addUndoLogRecord(transactionId, logId, logRecord);
         return undoKey;
     }
@@ -12,10 +12,12 @@
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 
 import org.h2.engine.IsolationLevel;
+import org.h2.mvstore.BulkLoader;
 import org.h2.mvstore.Cursor;
 import org.h2.mvstore.DataUtils;
 import org.h2.mvstore.MVMap;
@@ -69,6 +71,22 @@
      */
     private boolean hasChanges;
 
+    /**
+     * The counter of entries the transaction added to the map minus entries
+     * it removed, or null if not initialized yet.
+     */
+    private AtomicLong sizeChange;
+
+    /**
+     * The value of the size change counter at the beginning of the statement.
+     */
+    private long statementSizeChange;
+
+    /**
+     * The state of the writers of the map, or null if not initialized yet.
+     */
+    private AtomicLong writers;
+
     private final TxDecisionMaker<K,V> txDecisionMaker;
     private final TxDecisionMaker<K,V> ifAbsentDecisionMaker;
     private final TxDecisionMaker<K,V> lockDecisionMaker;
@@ -126,6 +144,84 @@ public long sizeAsLongMax() {
      * @return the size
      */
     public long sizeAsLong() {
+        if (transaction.isReadOnly()) {
+            Snapshot<K,VersionedValue<V>> snapshot = getSnapshot();
+            if (snapshot.committed) {
+                return snapshot.root.getTotalCount();
+            }
+        }
+        long size = getTrackedSize();
+        if (size < 0) {
+            TransactionStore store = transaction.store;
+            if (store.hasCommittedSize(map.getId())) {
+                // the snapshot is older than the tracked sizes
+                return sizeAsLongFromSnapshot();
+            }
+            initCommittedSize();
+            size = getTrackedSize();
+            if (size < 0) {
+                return sizeAsLongFromSnapshot();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Get the size of the map as seen by this transaction from the number of
+     * committed entries and the changes of transactions.
+     *
+     * @return the size, or -1 if the number of committed entries is not known
+     */
+    private long getTrackedSize() {
+        IsolationLevel isolationLevel = transaction.getIsolationLevel();
+        TransactionStore store = transaction.store;
+        if (isolationLevel == IsolationLevel.READ_UNCOMMITTED) {
+            return store.getUncommittedSize(map.getId());
+        }
+        long size = store.getCommittedSize(map.getId(), getSnapshot().committingTransactions);
+        if (size >= 0) {
+            if (!transaction.sizeChangesKnown) {
+                return -1L;
+            }
+            // changes made by the current statement are not visible to it
+            size += statementSnapshot != null ? statementSizeChange : getSizeChange().get();
+        }
+        return size;
+    }
+
+    /**
+     * Count the committed entries of the map in a new snapshot and start
+     * tracking their number.
+     */
+    private void initCommittedSize() {
+        TransactionStore store = transaction.store;
+        long stamp = store.getCommittedSizesStamp();
+        Snapshot<K,VersionedValue<V>> snapshot;
+        RootReference<Long,Record<?,?>>[] undoLogRootReferences;
+        do {
+            snapshot = createSnapshot();
+            undoLogRootReferences = store.collectUndoLogRootReferences();
+        } while (!snapshot.equals(createSnapshot()));
+        long size = snapshot.root.getTotalCount();
+        long undoLogsTotalSize = undoLogRootReferences == null ? size
+                : TransactionStore.calculateUndoLogsTotalSize(undoLogRootReferences);
+        if (undoLogsTotalSize != 0) {
+            // uncommitted changes of all open transactions are irrelevant
+            size = adjustSize(undoLogRootReferences, snapshot.root, snapshot.committingTransactions, 0, size,
+                    undoLogsTotalSize);
+        }
+        store.initCommittedSize(map.getId(), snapshot.committingTransactions, size, stamp);
+    }
+
+    private AtomicLong getSizeChange() {
+        AtomicLong counter = sizeChange;
+        if (counter == null) {
+            sizeChange = counter = transaction.getSizeChangeCounter(map.getId());
+        }
+        return counter;
+    }
+
+    private long sizeAsLongFromSnapshot() {
         IsolationLevel isolationLevel = transaction.getIsolationLevel();
         if (!isolationLevel.allowNonRepeatableRead() && hasChanges) {
             return sizeAsLongRepeatableReadWithChanges();
@@ -150,12 +246,12 @@ public long sizeAsLong() {
         }
         return adjustSize(undoLogRootReferences, mapRootReference,
                 isolationLevel == IsolationLevel.READ_UNCOMMITTED ? null : snapshot.committingTransactions,
-                size, undoLogsTotalSize);
+                transaction.transactionId, size, undoLogsTotalSize);
     }
 
     private long adjustSize(RootReference<Long, Record<?, ?>>[] undoLogRootReferences,
-            RootReference<K, VersionedValue<V>> mapRootReference, BitSet committingTransactions, long size,
-            long undoLogsTotalSize) {
+            RootReference<K, VersionedValue<V>> mapRootReference, BitSet committingTransactions,
+            int transactionId, long size, long undoLogsTotalSize) {
         // Entries describing removals from the map by this transaction and all transactions,
         // which are committed but not closed yet,
         // and entries about additions to the map by other uncommitted transactions were counted,
@@ -169,7 +265,7 @@ private long adjustSize(RootReference<Long, Record<?, ?>>[] undoLogRootReference
                 assert currentValue != null;
                 long operationId = currentValue.getOperationId();
                 if (operationId != 0 &&         // skip committed entries
-                        isIrrelevant(operationId, currentValue, committingTransactions)) {
+                        isIrrelevant(operationId, currentValue, committingTransactions, transactionId)) {
                     --size;
                 }
             }
@@ -199,7 +295,8 @@ private long adjustSize(RootReference<Long, Record<?, ?>>[] undoLogRootReference
                                 long operationId = cursor.getKey();
                                 assert operationId != 0;
                                 if (currentValue.getOperationId() == operationId &&
-                                        isIrrelevant(operationId, currentValue, committingTransactions)) {
+                                        isIrrelevant(operationId, currentValue, committingTransactions,
+                                                transactionId)) {
                                     --size;
                                 }
                             }
@@ -211,13 +308,14 @@ private long adjustSize(RootReference<Long, Record<?, ?>>[] undoLogRootReference
         return size;
     }
 
-    private boolean isIrrelevant(long operationId, VersionedValue<?> currentValue, BitSet committingTransactions) {
+    private static boolean isIrrelevant(long operationId, VersionedValue<?> currentValue,
+            BitSet committingTransactions, int transactionId) {
         Object v;
         if (committingTransactions == null) {
             v = currentValue.getCurrentValue();
         } else {
             int txId = TransactionStore.getTransactionId(operationId);
-            v = txId == transaction.transactionId || committingTransactions.get(txId)
+            v = txId == transactionId || committingTransactions.get(txId)
                     ? currentValue.getCurrentValue() : currentValue.getCommittedValue();
         }
         return v == null;
@@ -294,6 +392,7 @@ public V putIfAbsent(K key, V value) {
     public void append(K key, V value) {
         map.append(key, VersionedValueUncommitted.getInstance(
                                         transaction.log(new Record<>(map.getId(), key, null)), value, null));
+        getSizeChange().incrementAndGet();
         hasChanges = true;
     }
 
@@ -324,10 +423,22 @@ public V putCommitted(K key, V value) {
         DataUtils.checkArgument(value != null, "The value may not be null");
         VersionedValue<V> newValue = VersionedValueCommitted.getInstance(value);
         VersionedValue<V> oldValue = map.put(key, newValue);
+        transaction.store.invalidateCommittedSize(map.getId());
         V result = oldValue == null ? null : oldValue.getCurrentValue();
         return result;
     }
 
+    /**
+     * Create a loader that adds committed entries to this map, which must be
+     * empty, without adding undo log entries. The map is built bottom-up, so
+     * the entries must be added in ascending order of keys.
+     *
+     * @return the loader
+     */
+    public CommittedLoader<K,V> committedLoader() {
+        return new CommittedLoader<>(new BulkLoader<>(map), transaction.store, map.getId());
+    }
+
     private V set(K key, V value) {
         txDecisionMaker.initialize(key, value);
         return set(key, txDecisionMaker);
@@ -351,6 +462,12 @@ private V set(Object key, TxDecisionMaker<K,V> decisionMaker) {
             blockingTransaction = decisionMaker.getBlockingTransaction();
             if (decision != MVMap.Decision.ABORT || blockingTransaction == null) {
                 hasChanges |= decision != MVMap.Decision.ABORT;
+                if (decision == MVMap.Decision.PUT) {
+                    int sizeChange = decisionMaker.getSizeChange();
+                    if (sizeChange != 0) {
+                        getSizeChange().addAndGet(sizeChange);
+                    }
+                }
                 V res = result == null ? null : result.getCurrentValue();
                 return res;
             }
@@ -464,6 +581,10 @@ public V getFromSnapshot(K key) {
         case READ_COMMITTED:
         default:
             Snapshot<K,VersionedValue<V>> snapshot = getSnapshot();
+            if (snapshot.committed) {
+                VersionedValue<V> data = map.get(snapshot.root.root, key);
+                return data == null ? null : data.getCurrentValue();
+            }
             return getFromSnapshot(snapshot.root, snapshot.committingTransactions, key);
         }
     }
@@ -508,6 +629,7 @@ Snapshot<K,VersionedValue<V>> getStatementSnapshot() {
 
     void setStatementSnapshot(Snapshot<K,VersionedValue<V>> snapshot) {
         statementSnapshot = snapshot;
+        statementSizeChange = snapshot == null ? 0L : getSizeChange().get();
     }
 
     void promoteSnapshot() {
@@ -522,7 +644,52 @@ void promoteSnapshot() {
      * @return the snapshot
      */
     Snapshot<K,VersionedValue<V>> createSnapshot() {
-        return useSnapshot(Snapshot::new);
+        if (!transaction.isReadOnly()) {
+            return useSnapshot(Snapshot::new);
+        }
+        long state = getWriters().get();
+        long anyState = transaction.store.getAnyMapWriters();
+        return useSnapshot((root, committingTransactions) ->
+                new Snapshot<>(root, committingTransactions, hasNoWriters(state, anyState)));
+    }
+
+    /**
+     * Create a new snapshot of the current root of this map with the given
+     * committing transactions.
+     *
+     * @param committingTransactions the committing transactions
+     * @return the snapshot
+     */
+    Snapshot<K,VersionedValue<V>> createSnapshot(VersionedBitSet committingTransactions) {
+        if (!transaction.isReadOnly()) {
+            return new Snapshot<>(map.flushAndGetRoot(), committingTransactions);
+        }
+        long state = getWriters().get();
+        long anyState = transaction.store.getAnyMapWriters();
+        RootReference<K,VersionedValue<V>> root = map.flushAndGetRoot();
+        return new Snapshot<>(root, committingTransactions, hasNoWriters(state, anyState));
+    }
+
+    /**
+     * Check whether a root that was read after the given states of writers
+     * has no uncommitted entries. This is the case if there were no writers
+     * then, and none came and went since.
+     *
+     * @param state the state of the writers of this map
+     * @param anyState the state of the writers of all maps
+     * @return true if the root has no uncommitted entries
+     */
+    private boolean hasNoWriters(long state, long anyState) {
+        return TransactionStore.hasNoWriters(state) && TransactionStore.hasNoWriters(anyState)
+                && getWriters().get() == state && transaction.store.getAnyMapWriters() == anyState;
+    }
+
+    private AtomicLong getWriters() {
+        AtomicLong w = writers;
+        if (w == null) {
+            writers = w = transaction.store.getMapWriters(map.getId());
+        }
+        return w;
     }
 
     /**
@@ -535,16 +702,16 @@ Snapshot<K,VersionedValue<V>> createSnapshot() {
      *            function to invoke on a snapshot
      * @return function's result
      */
-    <R> R useSnapshot(BiFunction<RootReference<K,VersionedValue<V>>, BitSet, R> snapshotConsumer) {
+    <R> R useSnapshot(BiFunction<RootReference<K,VersionedValue<V>>, VersionedBitSet, R> snapshotConsumer) {
         // The purpose of the following loop is to get a coherent picture
         // of a state of two independent volatile / atomic variables,
         // which they had at some recent moment in time.
         // In order to get such a "snapshot", we wait for a moment of silence,
         // when neither of the variables concurrently changes it's value.
-        AtomicReference<BitSet> holder = transaction.store.committingTransactions;
-        BitSet committingTransactions = holder.get();
+        AtomicReference<VersionedBitSet> holder = transaction.store.committingTransactions;
+        VersionedBitSet committingTransactions = holder.get();
         while (true) {
-            BitSet prevCommittingTransactions = committingTransactions;
+            VersionedBitSet prevCommittingTransactions = committingTransactions;
             RootReference<K,VersionedValue<V>> root = map.getRoot();
             committingTransactions = holder.get();
             if (committingTransactions == prevCommittingTransactions) {
@@ -615,6 +782,8 @@ public boolean isClosed() {
     public void clear() {
         // TODO truncate transactionally?
         map.clear();
+        getSizeChange().set(0L);
+        transaction.store.invalidateCommittedSize(map.getId());
         hasChanges = true;
     }
 
@@ -849,7 +1018,11 @@ private <X> TMIterator<K, V, X> chooseIterator(K from, K to, boolean reverse, bo
                 //$FALL-THROUGH$
             case READ_COMMITTED:
             default:
-                return new CommittedIterator<>(this, from, to, reverse, forEntries);
+                Snapshot<K,VersionedValue<V>> snapshot = getSnapshot();
+                if (snapshot.committed) {
+                    return new SnapshotIterator<>(this, from, to, snapshot, reverse, forEntries);
+                }
+                return new CommittedIterator<>(this, from, to, snapshot, reverse, forEntries);
         }
     }
 
@@ -861,6 +1034,50 @@ public DataType<K> getKeyType() {
         return map.getKeyType();
     }
 
+    /**
+     * Adds committed entries to an empty map.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+    public static final class CommittedLoader<K,V> {
+
+        private final BulkLoader<K,VersionedValue<V>> loader;
+
+        private final TransactionStore store;
+
+        private final int mapId;
+
+        CommittedLoader(BulkLoader<K,VersionedValue<V>> loader, TransactionStore store, int mapId) {
+            this.loader = loader;
+            this.store = store;
+            this.mapId = mapId;
+        }
+
+        /**
+         * Add an entry. The key must be larger than all keys added before.
+         *
+         * @param key the key
+         * @param value the value
+         */
+        public void add(K key, V value) {
+            DataUtils.checkArgument(value != null, "The value may not be null");
+            loader.add(key, VersionedValueCommitted.getInstance(value));
+            store.invalidateCommittedSize(mapId);
+        }
+
+        /**
+         * Make all added entries visible in the map.
+         *
+         * @return the number of added entries
+         */
+        public long finish() {
+            long count = loader.finish();
+            store.invalidateCommittedSize(mapId);
+            return count;
+        }
+    }
+
     /**
      * The iterator for read uncommitted isolation level. This iterator is also
      * used for unique indexes.
@@ -931,8 +1148,9 @@ boolean shouldIgnoreRemoval(VersionedValue<?> data) {
      *            the type of elements
      */
     private static final class CommittedIterator<K,V,X> extends TMIterator<K,V,X> {
-        CommittedIterator(TransactionMap<K, V> transactionMap, K from, K to, boolean reverse, boolean forEntries) {
-            super(transactionMap, from, to, transactionMap.getSnapshot(), reverse, forEntries);
+        CommittedIterator(TransactionMap<K, V> transactionMap, K from, K to, Snapshot<K, VersionedValue<V>> snapshot,
+                boolean reverse, boolean forEntries) {
+            super(transactionMap, from, to, snapshot, reverse, forEntries);
         }
 
         @Override
@@ -966,6 +1184,34 @@ public X fetchNext() {
         }
     }
 
+    /**
+     * The iterator for snapshots without uncommitted entries, where the
+     * current values of all entries are visible.
+     *
+     * @param <K>
+     *            the type of keys
+     * @param <X>
+     *            the type of elements
+     */
+    private static final class SnapshotIterator<K,V,X> extends TMIterator<K,V,X> {
+        SnapshotIterator(TransactionMap<K, V> transactionMap, K from, K to, Snapshot<K, VersionedValue<V>> snapshot,
+                boolean reverse, boolean forEntries) {
+            super(transactionMap, from, to, snapshot, reverse, forEntries);
+        }
+
+        @Override
+        public X fetchNext() {
+            while (cursor.hasNext()) {
+                K key = cursor.next();
+                Object currentValue = cursor.getValue().getCurrentValue();
+                if (currentValue != null) {
+                    return toElement(key, currentValue);
+                }
+            }
+            return null;
+        }
+    }
+
     /**
      * The iterator for repeatable read and serializable isolation levels.
      *
@@ -11,6 +11,8 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 import org.h2.engine.IsolationLevel;
@@ -64,6 +66,12 @@ public class TransactionStore {
      */
     @SuppressWarnings("unchecked")
     final MVMap<Long,Record<?,?>>[] undoLogs = new MVMap[MAX_OPEN_TRANSACTIONS];
+
+    /**
+     * The undo log records of short transactions, which are not in the undo
+     * logs yet.
+     */
+    private final UndoLogBuffer[] undoLogBuffers = new UndoLogBuffer[MAX_OPEN_TRANSACTIONS];
     private final MVMap.Builder<Long, Record<?,?>> undoLogBuilder;
 
     private final DataType<?> dataType;
@@ -81,8 +89,49 @@ public class TransactionStore {
      * although it might be plenty of "uncommitted" entries in various maps
      * and undo record are still around.
      * Nevertheless, all of those should be considered by other transactions as committed.
+     * The version is incremented whenever a transaction starts to commit.
+     */
+    final AtomicReference<VersionedBitSet> committingTransactions = new AtomicReference<>(new VersionedBitSet());
+
+    /**
+     * The number of committed entries of maps, by map id, for maps where it
+     * is known. Modifications are synchronized on this object, except for
+     * removals.
+     */
+    private final ConcurrentHashMap<Integer,CommittedSize> committedSizes = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented whenever committed sizes are invalidated.
+     */
+    private final AtomicLong committedSizesStamp = new AtomicLong();
+
+    /**
+     * The state of the writers of maps, by map id. The lower 32 bits are the
+     * number of open transactions that may have uncommitted entries in the
+     * map, and the higher bits count how often this number changed. If the
+     * state is the same before and after a reader got the root of the map, and
+     * the number is zero, the root has no uncommitted entries.
      */
-    final AtomicReference<BitSet> committingTransactions = new AtomicReference<>(new BitSet());
+    private final ConcurrentHashMap<Integer,AtomicLong> mapWriters = new ConcurrentHashMap<>();
+
+    /**
+     * The state of the writers of all maps, that is, of transactions that were
+     * started before the store was opened. It has the same format as the
+     * values in mapWriters.
+     */
+    private final AtomicLong anyMapWriters = new AtomicLong();
+
+    /**
+     * The change of the writers state when a transaction starts writing to a
+     * map.
+     */
+    private static final long WRITER_ADDED = (1L << 32) + 1;
+
+    /**
+     * The change of the writers state when a transaction that wrote to a map
+     * ends.
+     */
+    private static final long WRITER_REMOVED = (1L << 32) - 1;
 
     private boolean init;
 
@@ -217,6 +266,7 @@ public void init(RollbackListener listener) {
                                 }
                                 MVMap<Long, Record<?,?>> undoLog = store.openMap(mapName, undoLogBuilder);
                                 undoLogs[transactionId] = undoLog;
+                                undoLogBuffers[transactionId] = new UndoLogBuffer(undoLog, transactionId);
                                 Long lastUndoKey = undoLog.lastKey();
                                 assert lastUndoKey != null;
                                 assert getTransactionId(lastUndoKey) == transactionId;
@@ -246,6 +296,9 @@ public void init(RollbackListener listener) {
                     }
                 }
             }
+            // the changes of open transactions are written to disk together
+            // with their undo log records only
+            store.setBeforeStoreAction(this::moveUndoLogBuffers);
             init = true;
         }
     }
@@ -298,7 +351,7 @@ public boolean hasMap(String name) {
     }
 
     private static final int LOG_ID_BITS = Transaction.LOG_ID_BITS;
-    private static final long LOG_ID_MASK = (1L << LOG_ID_BITS) - 1;
+    static final long LOG_ID_MASK = (1L << LOG_ID_BITS) - 1;
 
     /**
      * Combine the transaction id and the log id to an operation id.
@@ -418,6 +471,10 @@ private Transaction registerTransaction(int txId, int status, String name, long
 
         Transaction transaction = new Transaction(this, transactionId, sequenceNo, status, name, logId,
                 timeoutMillis, ownerId, isolationLevel, listener);
+        if (!transaction.sizeChangesKnown) {
+            // the maps with entries of this transaction are not known
+            anyMapWriters.addAndGet(WRITER_ADDED);
+        }
 
         assert transactions.get(transactionId) == null;
         transactions.set(transactionId, transaction);
@@ -426,7 +483,10 @@ private Transaction registerTransaction(int txId, int status, String name, long
             String undoName = getUndoLogName(transactionId);
             MVMap<Long,Record<?,?>> undoLog = store.openMap(undoName, undoLogBuilder);
             undoLogs[transactionId] = undoLog;
+            undoLogBuffers[transactionId] = new UndoLogBuffer(undoLog, transactionId);
         }
+        // the records of recovered transactions are in the undo log already
+        undoLogBuffers[transactionId].reset(logId == 0 && status == Transaction.STATUS_OPEN);
         return transaction;
     }
 
@@ -438,6 +498,8 @@ private Transaction registerTransaction(int txId, int status, String name, long
     void storeTransaction(Transaction t) {
         if (t.getStatus() == Transaction.STATUS_PREPARED ||
                 t.getName() != null) {
+            // prepared transactions may need to be recovered at any time
+            undoLogBuffers[t.transactionId].moveToMap();
             Object[] v = { t.getStatus(), t.getName() };
             preparedTransactions.put(t.getId(), v);
             t.wasStored = true;
@@ -462,7 +524,9 @@ long addUndoLogRecord(int transactionId, long logId, Record<?,?> record) {
                     "is still open: {0}",
                     transactionId);
         }
-        undoLog.append(undoKey, record);
+        if (!undoLogBuffers[transactionId].add(logId, record)) {
+            undoLog.append(undoKey, record);
+        }
         return undoKey;
     }
 
@@ -471,7 +535,23 @@ long addUndoLogRecord(int transactionId, long logId, Record<?,?> record) {
      * @param transactionId id of the transaction
      */
     void removeUndoLogRecord(int transactionId) {
-        undoLogs[transactionId].trimLast();
+        if (!undoLogBuffers[transactionId].removeLast()) {
+            undoLogs[transactionId].trimLast();
+        }
+    }
+
+    /**
+     * Move the undo log records kept in memory of all open transactions to
+     * the undo logs. This is done before the store is written.
+     */
+    private void moveUndoLogBuffers() {
+        BitSet openTrans = openTransactions.get();
+        for (int i = openTrans.nextSetBit(0); i >= 0; i = openTrans.nextSetBit(i + 1)) {
+            UndoLogBuffer buffer = undoLogBuffers[i];
+            if (buffer != null && buffer.hasRecords()) {
+                buffer.moveToMap();
+            }
+        }
     }
 
     /**
@@ -481,6 +561,159 @@ void removeUndoLogRecord(int transactionId) {
      */
     void removeMap(TransactionMap<?,?> map) {
         store.removeMap(map.map);
+        invalidateCommittedSize(map.map.getId());
+    }
+
+    /**
+     * Get the number of committed entries of a map, as seen by a snapshot.
+     *
+     * @param mapId the map id
+     * @param committingTransactions the committing transactions of the snapshot
+     * @return the number of entries, or -1 if it is not known
+     */
+    long getCommittedSize(int mapId, VersionedBitSet committingTransactions) {
+        CommittedSize size = committedSizes.get(mapId);
+        return size == null ? -1L : size.getSize(committingTransactions.getVersion());
+    }
+
+    /**
+     * Check whether the number of committed entries of a map is tracked.
+     *
+     * @param mapId the map id
+     * @return whether it is tracked
+     */
+    boolean hasCommittedSize(int mapId) {
+        return committedSizes.containsKey(mapId);
+    }
+
+    /**
+     * Get the number of entries of a map, as seen by a transaction that reads
+     * uncommitted changes of all transactions.
+     *
+     * @param mapId the map id
+     * @return the number of entries, or -1 if it is not known
+     */
+    long getUncommittedSize(int mapId) {
+        VersionedBitSet committing;
+        long size;
+        do {
+            committing = committingTransactions.get();
+            size = getCommittedSize(mapId, committing);
+            if (size < 0) {
+                return -1L;
+            }
+            // changes of committing transactions are included already
+            BitSet open = openTransactions.get();
+            for (int i = open.nextSetBit(0); i >= 0; i = open.nextSetBit(i + 1)) {
+                Transaction t;
+                if (!committing.get(i) && (t = transactions.get(i)) != null) {
+                    if (!t.sizeChangesKnown) {
+                        return -1L;
+                    }
+                    size += t.getSizeChange(mapId);
+                }
+            }
+        } while (committing != committingTransactions.get());
+        return size;
+    }
+
+    /**
+     * Get the current stamp of committed sizes. It must be read before
+     * counting the entries passed to
+     * {@link #initCommittedSize(int, VersionedBitSet, long, long)}.
+     *
+     * @return the stamp
+     */
+    long getCommittedSizesStamp() {
+        return committedSizesStamp.get();
+    }
+
+    /**
+     * Start tracking the number of committed entries of a map. Nothing is done
+     * if a transaction started to commit, or committed sizes were
+     * invalidated, after the entries were counted.
+     *
+     * @param mapId the map id
+     * @param committingTransactions the committing transactions of the
+     *            snapshot where the entries were counted
+     * @param size the number of committed entries in the snapshot
+     * @param stamp the stamp of committed sizes before the entries were counted
+     */
+    void initCommittedSize(int mapId, VersionedBitSet committingTransactions, long size, long stamp) {
+        CommittedSize committedSize;
+        synchronized (committedSizes) {
+            long version = committingTransactions.getVersion();
+            if (this.committingTransactions.get().getVersion() != version) {
+                return;
+            }
+            committedSize = new CommittedSize(version, size, null);
+            if (committedSizes.putIfAbsent(mapId, committedSize) != null) {
+                return;
+            }
+        }
+        if (committedSizesStamp.get() != stamp) {
+            committedSizes.remove(mapId, committedSize);
+        }
+    }
+
+    /**
+     * Stop tracking the number of committed entries of a map, because it was
+     * modified without a transaction.
+     *
+     * @param mapId the map id
+     */
+    void invalidateCommittedSize(int mapId) {
+        committedSizesStamp.incrementAndGet();
+        committedSizes.remove(mapId);
+    }
+
+    /**
+     * Get the state of the writers of a map.
+     *
+     * @param mapId the map id
+     * @return the state
+     */
+    AtomicLong getMapWriters(int mapId) {
+        return mapWriters.computeIfAbsent(mapId, k -> new AtomicLong());
+    }
+
+    /**
+     * Get the state of the writers of all maps.
+     *
+     * @return the state
+     */
+    long getAnyMapWriters() {
+        return anyMapWriters.get();
+    }
+
+    /**
+     * Check whether a state of writers says there are no writers.
+     *
+     * @param state the state
+     * @return true if there are no writers
+     */
+    static boolean hasNoWriters(long state) {
+        return (int) state == 0;
+    }
+
+    /**
+     * Register a transaction as a writer of a map. This must be called before
+     * the transaction adds an uncommitted entry to the map.
+     *
+     * @param mapId the map id
+     */
+    void addMapWriter(int mapId) {
+        getMapWriters(mapId).addAndGet(WRITER_ADDED);
+    }
+
+    private void removeMapWriters(Transaction t) {
+        if (!t.sizeChangesKnown) {
+            anyMapWriters.addAndGet(WRITER_REMOVED);
+        }
+        for (Integer mapId : t.writtenMaps) {
+            getMapWriters(mapId).addAndGet(WRITER_REMOVED);
+        }
+        t.writtenMaps.clear();
     }
 
     /**
@@ -496,53 +729,93 @@ void commit(Transaction t, boolean recovery) {
             // It does not change the way this transaction is treated by others,
             // but preserves fact of commit in case of abrupt termination.
             MVMap<Long,Record<?,?>> undoLog = undoLogs[transactionId];
-            Cursor<Long,Record<?,?>> cursor;
+            UndoLogBuffer buffer = undoLogBuffers[transactionId];
+            Cursor<Long,Record<?,?>> cursor = null;
+            int bufferSize = 0;
             if(recovery) {
                 removeUndoLogRecord(transactionId);
                 cursor = undoLog.cursor(null);
-            } else {
+            } else if ((bufferSize = buffer.markCommitted()) < 0) {
                 cursor = undoLog.cursor(null);
                 markUndoLogAsCommitted(transactionId);
             }
+            // otherwise the records kept in memory get the commit marker
+            // when they are moved to the undo log
 
             // this is an atomic action that causes all changes
             // made by this transaction, to be considered as "committed"
-            flipCommittingTransactionsBit(transactionId, true);
+            flipCommittingTransactionsBit(t, true);
 
             CommitDecisionMaker<Object> commitDecisionMaker = new CommitDecisionMaker<>();
             try {
-                while (cursor.hasNext()) {
-                    Long undoKey = cursor.next();
-                    Record<?,?> op = cursor.getValue();
-                    int mapId = op.mapId;
-                    MVMap<Object, VersionedValue<Object>> map = openMap(mapId);
-                    if (map != null && !map.isClosed()) { // might be null if map was removed later
-                        Object key = op.key;
-                        commitDecisionMaker.setUndoKey(undoKey);
-                        // second parameter (value) is not really
-                        // used by CommitDecisionMaker
-                        map.operate(key, null, commitDecisionMaker);
+                if (cursor != null) {
+                    while (cursor.hasNext()) {
+                        commit(cursor.next(), cursor.getValue(), commitDecisionMaker);
+                    }
+                } else {
+                    for (int logId = 0; logId < bufferSize; logId++) {
+                        commit(getOperationId(transactionId, logId), buffer.getCommitting(logId), commitDecisionMaker);
                     }
                 }
             } finally {
                 try {
-                    undoLog.clear();
+                    if (buffer.close()) {
+                        undoLog.clear();
+                    }
+                    // committed sizes include the changes now
+                    t.clearSizeChanges();
                 } finally {
-                    flipCommittingTransactionsBit(transactionId, false);
+                    flipCommittingTransactionsBit(t, false);
                 }
             }
         }
     }
 
-    private void flipCommittingTransactionsBit(int transactionId, boolean flag) {
-        boolean success;
-        do {
-            BitSet original = committingTransactions.get();
+    private void commit(long undoKey, Record<?,?> op, CommitDecisionMaker<Object> commitDecisionMaker) {
+        int mapId = op.mapId;
+        MVMap<Object, VersionedValue<Object>> map = openMap(mapId);
+        if (map != null && !map.isClosed()) { // might be null if map was removed later
+            Object key = op.key;
+            commitDecisionMaker.setUndoKey(undoKey);
+            // second parameter (value) is not really
+            // used by CommitDecisionMaker
+            map.operate(key, null, commitDecisionMaker);
+        }
+    }
+
+    private void flipCommittingTransactionsBit(Transaction t, boolean flag) {
+        int transactionId = t.transactionId;
+        synchronized (committedSizes) {
+            VersionedBitSet original = committingTransactions.get();
             assert original.get(transactionId) != flag : flag ? "Double commit" : "Mysterious bit's disappearance";
-            BitSet clone = (BitSet) original.clone();
+            VersionedBitSet clone = original.clone();
             clone.set(transactionId, flag);
-            success = committingTransactions.compareAndSet(original, clone);
-        } while(!success);
+            if (flag) {
+                long version = original.getVersion() + 1;
+                clone.setVersion(version);
+                // the new sizes must be there before anyone sees the new version
+                addCommittedSizes(t, version);
+            }
+            committingTransactions.set(clone);
+        }
+    }
+
+    private void addCommittedSizes(Transaction t, long version) {
+        if (!t.sizeChangesKnown) {
+            committedSizesStamp.incrementAndGet();
+            committedSizes.clear();
+            return;
+        }
+        for (Map.Entry<Integer,AtomicLong> entry : t.sizeChanges.entrySet()) {
+            long change = entry.getValue().get();
+            if (change != 0) {
+                Integer mapId = entry.getKey();
+                CommittedSize size = committedSizes.get(mapId);
+                if (size != null) {
+                    committedSizes.replace(mapId, size, new CommittedSize(version, size.size + change, size));
+                }
+            }
+        }
     }
 
     <K,V> MVMap<K, VersionedValue<V>> openVersionedMap(String name, DataType<K> keyType, DataType<V> valueType) {
@@ -610,6 +883,8 @@ <K,V> MVMap<K,VersionedValue<V>> getMap(int mapId) {
      */
     void endTransaction(Transaction t, boolean hasChanges) {
         t.closeIt();
+        // entries of this transaction are committed or rolled back by now
+        removeMapWriters(t);
         int txId = t.transactionId;
         transactions.set(txId, null);
 
@@ -630,7 +905,8 @@ void endTransaction(Transaction t, boolean hasChanges) {
 
             if (store.isVersioningRequired()) {
                 if (wasStored || store.getAutoCommitDelay() == 0) {
-                    store.commit();
+                    // commits of concurrent transactions are written together
+                    store.commit(store.getCurrentVersion());
                 } else {
                     if (isUndoEmpty()) {
                         // to avoid having to store the transaction log,
@@ -661,6 +937,11 @@ RootReference<Long,Record<?,?>>[] collectUndoLogRootReferences() {
         for (int i = opentransactions.nextSetBit(0); i >= 0; i = opentransactions.nextSetBit(i+1)) {
             MVMap<Long,Record<?,?>> undoLog = undoLogs[i];
             if (undoLog != null) {
+                if (undoLogBuffers[i].hasRecords()) {
+                    // records kept in memory by another thread are not
+                    // part of a root reference
+                    return null;
+                }
                 RootReference<Long,Record<?,?>> rootReference = undoLog.getRoot();
                 if (rootReference.needFlush()) {
                     // abort attempt to collect snapshots for all undo logs
@@ -693,7 +974,7 @@ private boolean isUndoEmpty() {
         BitSet openTrans = openTransactions.get();
         for (int i = openTrans.nextSetBit(0); i >= 0; i = openTrans.nextSetBit(i + 1)) {
             MVMap<Long,Record<?,?>> undoLog = undoLogs[i];
-            if (undoLog != null && !undoLog.isEmpty()) {
+            if (undoLog != null && (undoLogBuffers[i].hasRecords() || !undoLog.isEmpty())) {
                 return false;
             }
         }
@@ -720,10 +1001,20 @@ Transaction getTransaction(int transactionId) {
     void rollbackTo(Transaction t, long maxLogId, long toLogId) {
         int transactionId = t.getId();
         MVMap<Long,Record<?,?>> undoLog = undoLogs[transactionId];
-        RollbackDecisionMaker decisionMaker = new RollbackDecisionMaker(this, transactionId, toLogId, t.listener);
+        UndoLogBuffer buffer = undoLogBuffers[transactionId];
+        RollbackDecisionMaker decisionMaker = new RollbackDecisionMaker(this, t, toLogId, t.listener);
         for (long logId = maxLogId - 1; logId >= toLogId; logId--) {
             Long undoKey = getOperationId(transactionId, logId);
-            undoLog.operate(undoKey, null, decisionMaker);
+            Record<?,?> op = buffer.get(logId);
+            if (op == null) {
+                undoLog.operate(undoKey, null, decisionMaker);
+            } else {
+                decisionMaker.decide(op, null);
+                if (!buffer.removeLast()) {
+                    // moved to the undo log in the meantime
+                    undoLog.remove(undoKey);
+                }
+            }
             decisionMaker.reset();
         }
     }
@@ -741,6 +1032,7 @@ Iterator<Change> getChanges(final Transaction t, final long maxLogId,
             final long toLogId) {
 
         final MVMap<Long,Record<?,?>> undoLog = undoLogs[t.getId()];
+        final UndoLogBuffer buffer = undoLogBuffers[t.getId()];
         return new Iterator<Change>() {
 
             private long logId = maxLogId - 1;
@@ -750,7 +1042,10 @@ private void fetchNext() {
                 int transactionId = t.getId();
                 while (logId >= toLogId) {
                     Long undoKey = getOperationId(transactionId, logId);
-                    Record<?,?> op = undoLog.get(undoKey);
+                    Record<?,?> op = buffer.get(logId);
+                    if (op == null) {
+                        op = undoLog.get(undoKey);
+                    }
                     logId--;
                     if (op == null) {
                         // partially rolled back: load previous
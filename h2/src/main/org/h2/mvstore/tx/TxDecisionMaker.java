@@ -54,6 +54,17 @@
     private       MVMap.Decision decision;
     private       V              lastValue;
 
+    /**
+     * The previous value of the entry, as seen by this transaction, or null.
+     */
+    private       VersionedValue<V> loggedValue;
+
+    /**
+     * The change of the number of entries visible to this transaction
+     * after a {@link org.h2.mvstore.MVMap.Decision#PUT} decision.
+     */
+    private       int            sizeChange;
+
     TxDecisionMaker(int mapId, Transaction transaction) {
         this.mapId = mapId;
         this.transaction = transaction;
@@ -125,13 +136,18 @@ public final void reset() {
         blockingTransaction = null;
         decision = null;
         lastValue = null;
+        loggedValue = null;
+        sizeChange = 0;
     }
 
     @SuppressWarnings("unchecked")
     @Override
     // always return value (ignores existingValue)
     public <T extends VersionedValue<V>> T selectValue(T existingValue, T providedValue) {
-        return (T) VersionedValueUncommitted.getInstance(undoKey, getNewValue(existingValue), lastValue);
+        V newValue = getNewValue(existingValue);
+        sizeChange = (newValue == null ? 0 : 1)
+                - (loggedValue == null || loggedValue.getCurrentValue() == null ? 0 : 1);
+        return (T) VersionedValueUncommitted.getInstance(undoKey, newValue, lastValue);
     }
 
     /**
@@ -157,6 +173,7 @@ V getNewValue(VersionedValue<V> existingValue) {
     MVMap.Decision logAndDecideToPut(VersionedValue<V> valueToLog, V lastValue) {
         undoKey = transaction.log(new Record<>(mapId, key, valueToLog));
         this.lastValue = lastValue;
+        loggedValue = valueToLog;
         return setDecision(MVMap.Decision.PUT);
     }
 
@@ -181,6 +198,16 @@ final V getLastValue() {
         return lastValue;
     }
 
+    /**
+     * Get the change of the number of entries visible to the transaction,
+     * caused by the last {@link org.h2.mvstore.MVMap.Decision#PUT} decision.
+     *
+     * @return -1, 0, or 1
+     */
+    final int getSizeChange() {
+        return sizeChange;
+    }
+
     /**
      * Check whether specified transaction id belongs to "current" transaction
      * (transaction we are acting within).
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.mvstore.tx;
+
+import java.util.Arrays;
+import org.h2.mvstore.MVMap;
+
+/**
+ * The undo log records of a short transaction, kept in memory instead of the
+ * undo log map of the transaction slot. Most transactions end before the
+ * store is written, so their records never need to reach the map.
+ * <p>
+ * The records are moved to the map when there are too many of them, when the
+ * transaction is prepared, and before the store is written. Then, like
+ * before, an open transaction whose changes are on disk always has its undo
+ * log there too. Once moved, all further records of the transaction go to
+ * the map directly.
+ * <p>
+ * Records are only added and removed by the thread owning the transaction,
+ * but may be moved to the map by another one, which is synchronized on this
+ * object.
+ */
+final class UndoLogBuffer {
+
+    /**
+     * The maximum number of records kept in memory.
+     */
+    static final int MAX_RECORDS = 64;
+
+    private final MVMap<Long,Record<?,?>> undoLog;
+
+    private final int transactionId;
+
+    private Record<?,?>[] records = new Record<?,?>[8];
+
+    /**
+     * The number of records, where the log id of a record is its index.
+     */
+    private volatile int size;
+
+    /**
+     * Whether the records are in the undo log map.
+     */
+    private volatile boolean moved;
+
+    /**
+     * Whether the commit marker needs to be added when the records are moved.
+     */
+    private boolean committed;
+
+    /**
+     * The number of records already put into the map while moving them.
+     */
+    private int movedCount;
+
+    UndoLogBuffer(MVMap<Long,Record<?,?>> undoLog, int transactionId) {
+        this.undoLog = undoLog;
+        this.transactionId = transactionId;
+        moved = true;
+    }
+
+    /**
+     * Prepare the buffer for a new transaction.
+     *
+     * @param buffered whether the records may be kept in memory, otherwise
+     *            they are added to the map directly
+     */
+    synchronized void reset(boolean buffered) {
+        clear();
+        moved = !buffered;
+    }
+
+    /**
+     * Add a record if it can be kept in memory.
+     *
+     * @param logId the log id of the record
+     * @param record the record
+     * @return true if the record was added, false if it needs to be added to
+     *         the map
+     */
+    boolean add(long logId, Record<?,?> record) {
+        if (!moved) {
+            synchronized (this) {
+                if (!moved) {
+                    int index = size;
+                    assert logId == index : logId + " != " + index;
+                    if (index < MAX_RECORDS) {
+                        if (index == records.length) {
+                            records = Arrays.copyOf(records, Math.min(index * 2, MAX_RECORDS));
+                        }
+                        records[index] = record;
+                        size = index + 1;
+                        return true;
+                    }
+                    moveToMap();
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove the last record if it is kept in memory.
+     *
+     * @return true if the record was removed, false if it needs to be removed
+     *         from the map
+     */
+    boolean removeLast() {
+        if (!moved) {
+            synchronized (this) {
+                if (!moved) {
+                    int index = size - 1;
+                    records[index] = null;
+                    size = index;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get a record kept in memory.
+     *
+     * @param logId the log id
+     * @return the record, or null if the records are in the map
+     */
+    Record<?,?> get(long logId) {
+        // the records are only changed by the owner, who calls this method
+        return moved || logId >= size ? null : records[(int) logId];
+    }
+
+    /**
+     * Get a record of a committing transaction. The records do not change
+     * any more then, even if they are moved to the map in the meantime.
+     *
+     * @param logId the log id
+     * @return the record
+     */
+    Record<?,?> getCommitting(int logId) {
+        return records[logId];
+    }
+
+    /**
+     * Check whether there are records kept in memory.
+     *
+     * @return true if there are
+     */
+    boolean hasRecords() {
+        return !moved && size > 0;
+    }
+
+    /**
+     * Mark the transaction as committed, so that the commit marker is added
+     * if the records are moved to the map during the commit.
+     *
+     * @return the number of records kept in memory, or -1 if they are in
+     *         the map already and the commit marker needs to be added there
+     */
+    synchronized int markCommitted() {
+        if (moved) {
+            return -1;
+        }
+        committed = true;
+        return size;
+    }
+
+    /**
+     * Forget the records at the end of a commit.
+     *
+     * @return true if the records were moved to the map, and the map needs
+     *         to be cleared
+     */
+    synchronized boolean close() {
+        boolean result = moved;
+        clear();
+        moved = false;
+        return result;
+    }
+
+    /**
+     * Move the records to the undo log map. The records are put in key order,
+     * and putting them again is harmless, so this method may be re-entered
+     * when putting a record triggers a store.
+     */
+    synchronized void moveToMap() {
+        if (!moved) {
+            for (int i; (i = movedCount) < size;) {
+                undoLog.put(TransactionStore.getOperationId(transactionId, i), records[i]);
+                if (movedCount == i) {
+                    movedCount = i + 1;
+                }
+            }
+            if (committed) {
+                undoLog.put(TransactionStore.getOperationId(transactionId, TransactionStore.LOG_ID_MASK),
+                        Record.COMMIT_MARKER);
+            }
+            moved = true;
+        }
+    }
+
+    private void clear() {
+        Arrays.fill(records, 0, size, null);
+        size = 0;
+        committed = false;
+        movedCount = 0;
+    }
+
+}
@@ -8,6 +8,7 @@
 import java.nio.ByteBuffer;
 import java.util.Comparator;
 
+import org.h2.mvstore.DataUtils;
 import org.h2.mvstore.WriteBuffer;
 
 /**
@@ -84,6 +85,32 @@
      */
     void read(ByteBuffer buff, Object storage, int len);
 
+    /**
+     * Write the sorted keys of a page, where each key may be encoded relative
+     * to the previous one, for example by omitting the prefix it shares with
+     * the previous key. The default implementation writes nothing and returns
+     * false.
+     *
+     * @param buff the target buffer
+     * @param storage the keys, in ascending order
+     * @param len the number of keys to write
+     * @return whether the keys were written
+     */
+    default boolean writeDelta(WriteBuffer buff, Object storage, int len) {
+        return false;
+    }
+
+    /**
+     * Read keys written by {@link #writeDelta(WriteBuffer, Object, int)}.
+     *
+     * @param buff the source buffer
+     * @param storage the objects
+     * @param len the number of keys to read
+     */
+    default void readDelta(ByteBuffer buff, Object storage, int len) {
+        throw DataUtils.newUnsupportedOperationException("Delta encoded keys are not supported");
+    }
+
     /**
      * Create storage object of array type to hold values
      *
@@ -40,6 +40,29 @@ public Long read(ByteBuffer buff) {
         return DataUtils.readVarLong(buff);
     }
 
+    @Override
+    public boolean writeDelta(WriteBuffer buff, Object storage, int len) {
+        Long[] keys = cast(storage);
+        long previous = 0;
+        for (int i = 0; i < len; i++) {
+            long key = keys[i];
+            // ascending keys have small positive differences
+            buff.putVarLong(key - previous);
+            previous = key;
+        }
+        return true;
+    }
+
+    @Override
+    public void readDelta(ByteBuffer buff, Object storage, int len) {
+        Long[] keys = cast(storage);
+        long previous = 0;
+        for (int i = 0; i < len; i++) {
+            previous += DataUtils.readVarLong(buff);
+            keys[i] = previous;
+        }
+    }
+
     @Override
     public Long[] createStorage(int size) {
         return size == 0 ? EMPTY_LONG_ARR : new Long[size];
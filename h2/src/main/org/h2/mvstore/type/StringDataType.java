@@ -68,5 +68,33 @@ public void write(WriteBuffer buff, String s) {
         int len = s.length();
         buff.putVarInt(len).putStringData(s, len);
     }
+
+    @Override
+    public boolean writeDelta(WriteBuffer buff, Object storage, int len) {
+        String[] keys = cast(storage);
+        String previous = "";
+        for (int i = 0; i < len; i++) {
+            String s = keys[i];
+            int max = Math.min(previous.length(), s.length()), prefix = 0;
+            while (prefix < max && previous.charAt(prefix) == s.charAt(prefix)) {
+                prefix++;
+            }
+            int suffix = s.length() - prefix;
+            buff.putVarInt(prefix).putVarInt(suffix).putStringData(s.substring(prefix), suffix);
+            previous = s;
+        }
+        return true;
+    }
+
+    @Override
+    public void readDelta(ByteBuffer buff, Object storage, int len) {
+        String[] keys = cast(storage);
+        String previous = "";
+        for (int i = 0; i < len; i++) {
+            int prefix = DataUtils.readVarInt(buff);
+            String suffix = DataUtils.readString(buff);
+            keys[i] = previous = prefix == 0 ? suffix : previous.substring(0, prefix).concat(suffix);
+        }
+    }
 }
 
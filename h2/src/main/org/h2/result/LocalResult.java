@@ -66,6 +66,7 @@ public static LocalResult forTable(SessionLocal session, Table table) {
     private long rowId, rowCount;
     private ArrayList<Value[]> rows;
     private SortOrder sort;
+    private TopRows topRows;
     // HashSet cannot be used here, because we need to compare values of
     // different type or scale properly.
     private TreeMap<ValueRow, Value[]> distinctRows;
@@ -200,6 +201,23 @@ public void setSortOrder(SortOrder sort) {
         this.sort = sort;
     }
 
+    /**
+     * Keeps only the specified number of first rows in the sort order while
+     * rows are added, so the result never needs to be stored on disk. This
+     * method may be called after the sort order was set and before rows are
+     * added, if the result has a limit and no offset is applied to rows
+     * before they are added. It has no effect on distinct results or when the
+     * rows do not fit into memory.
+     *
+     * @param count the offset and the limit of the result
+     * @param withTies whether rows equal to the last row are kept as well
+     */
+    public void setTopRows(long count, boolean withTies) {
+        if (sort != null && !isAnyDistinct() && rowCount == 0 && count > 0 && count <= maxMemoryRows) {
+            topRows = new TopRows(sort, (int) count, withTies);
+        }
+    }
+
     /**
      * Remove duplicate rows.
      */
@@ -380,7 +398,7 @@ private ValueRow getDistinctRow(Value[] values) {
 
     private void createExternalResult() {
         external = MVTempResult.of(session.getDatabase(), expressions, distinct, distinctIndexes, visibleColumnCount,
-                resultColumnCount, sort);
+                resultColumnCount, sort, session.getMaxParallelWorkers() > 1);
     }
 
     /**
@@ -411,7 +429,16 @@ public void addRow(Value... values) {
     }
 
     private void addRowInternal(Value... values) {
-        if (isAnyDistinct()) {
+        if (topRows != null) {
+            topRows.add(values);
+            rowCount = topRows.size();
+            if (rowCount > maxMemoryRows) {
+                // too many ties
+                rows = topRows.getRows();
+                topRows = null;
+                addRowsToDisk();
+            }
+        } else if (isAnyDistinct()) {
             if (distinctRows != null) {
                 ValueRow distinctRow = getDistinctRow(values);
                 Value[] previous = distinctRows.get(distinctRow);
@@ -453,7 +480,10 @@ public int getVisibleColumnCount() {
      * This method is called after all rows have been added.
      */
     public void done() {
-        if (external != null) {
+        if (topRows != null) {
+            rows = topRows.getRows();
+            topRows = null;
+        } else if (external != null) {
             addRowsToDisk();
         } else {
             if (isAnyDistinct()) {
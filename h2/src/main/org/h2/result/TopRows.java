@@ -0,0 +1,139 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import org.h2.value.Value;
+
+/**
+ * The first rows of a result in the sort order, for queries with ORDER BY and
+ * FETCH (LIMIT). Rows are added one by one, and only the best rows are kept in
+ * a bounded heap, so the other rows do not need to be stored or sorted.
+ * <p>
+ * Of rows which are equal in the sort order, the rows which were added first
+ * are kept. With ties, the rows which are equal to the last kept row are kept
+ * as well.
+ */
+final class TopRows {
+
+    /**
+     * A kept row.
+     */
+    private static final class Entry {
+
+        final Value[] row;
+
+        /**
+         * The number of rows added before this row.
+         */
+        final long seq;
+
+        Entry(Value[] row, long seq) {
+            this.row = row;
+            this.seq = seq;
+        }
+
+    }
+
+    private final SortOrder sort;
+
+    private final int capacity;
+
+    private final boolean withTies;
+
+    private final Comparator<Entry> comparator;
+
+    /**
+     * The kept rows, the worst row first.
+     */
+    private final PriorityQueue<Entry> heap;
+
+    /**
+     * Rows which are equal to the worst row of the heap in the sort order, but
+     * did not fit into the heap, if with ties.
+     */
+    private final ArrayList<Entry> ties = new ArrayList<>();
+
+    private long count;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param sort the sort order
+     * @param capacity the number of rows to keep
+     * @param withTies whether to also keep rows equal to the last kept row
+     */
+    TopRows(SortOrder sort, int capacity, boolean withTies) {
+        this.sort = sort;
+        this.capacity = capacity;
+        this.withTies = withTies;
+        comparator = (a, b) -> {
+            int comp = sort.compare(a.row, b.row);
+            return comp != 0 ? comp : Long.compare(a.seq, b.seq);
+        };
+        heap = new PriorityQueue<>(Math.min(capacity, 1024), Collections.reverseOrder(comparator));
+    }
+
+    /**
+     * Add a row, and remove the rows which are not needed any more.
+     *
+     * @param row the row
+     */
+    void add(Value[] row) {
+        long seq = count++;
+        if (heap.size() < capacity) {
+            heap.add(new Entry(row, seq));
+            return;
+        }
+        Entry worst = heap.peek();
+        int comp = sort.compare(row, worst.row);
+        if (comp < 0) {
+            heap.poll();
+            heap.add(new Entry(row, seq));
+            if (withTies) {
+                if (sort.compare(worst.row, heap.peek().row) == 0) {
+                    ties.add(worst);
+                } else {
+                    ties.clear();
+                }
+            }
+        } else if (comp == 0 && withTies) {
+            ties.add(new Entry(row, seq));
+        }
+        // otherwise the row is after all kept rows
+    }
+
+    /**
+     * Get the number of kept rows.
+     *
+     * @return the number of rows
+     */
+    int size() {
+        return heap.size() + ties.size();
+    }
+
+    /**
+     * Get the kept rows in the sort order.
+     *
+     * @return the rows
+     */
+    ArrayList<Value[]> getRows() {
+        ArrayList<Entry> entries = new ArrayList<>(size());
+        entries.addAll(heap);
+        entries.addAll(ties);
+        entries.sort(comparator);
+        ArrayList<Value[]> rows = new ArrayList<>(entries.size());
+        for (Entry e : entries) {
+            rows.add(e.row);
+        }
+        return rows;
+    }
+
+}
@@ -117,6 +117,7 @@ public ResultInterface getResult(SessionLocal session) {
         int columnCount = expressions.length;
         LocalResult result = new LocalResult(session, expressions, columnCount, columnCount);
         result.setForDataChangeDeltaTable();
+        session.checkWritingAllowed();
         statement.update(result, resultOption);
         return result;
     }
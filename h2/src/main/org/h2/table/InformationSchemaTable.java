@@ -24,6 +24,7 @@
 import org.h2.constraint.ConstraintUnique;
 import org.h2.engine.Constants;
 import org.h2.engine.DbObject;
+import org.h2.engine.PlanCache;
 import org.h2.engine.QueryStatisticsData;
 import org.h2.engine.Right;
 import org.h2.engine.RightOwner;
@@ -40,6 +41,7 @@
 import org.h2.message.DbException;
 import org.h2.mvstore.FileStore;
 import org.h2.mvstore.MVStore;
+import org.h2.mvstore.cache.CacheLongKeyOffHeap;
 import org.h2.mvstore.db.Store;
 import org.h2.result.Row;
 import org.h2.result.SearchRow;
@@ -2953,6 +2955,7 @@ private void settings(SessionLocal session, ArrayList<Row> rows) {
         }
         add(session, rows, "DEFAULT_NULL_ORDERING", database.getDefaultNullOrdering().name());
         add(session, rows, "EXCLUSIVE", database.getExclusiveSession() == null ? "FALSE" : "TRUE");
+        add(session, rows, "MAX_PARALLEL_WORKERS", Integer.toString(session.getMaxParallelWorkers()));
         add(session, rows, "MODE", database.getMode().getName());
         add(session, rows, "QUERY_TIMEOUT", Integer.toString(session.getQueryTimeout()));
         add(session, rows, "TIME ZONE", session.currentTimeZone().getId());
@@ -2968,6 +2971,12 @@ private void settings(SessionLocal session, ArrayList<Row> rows) {
         for (Map.Entry<String, String> entry : database.getSettings().getSortedSettings()) {
             add(session, rows, entry.getKey(), entry.getValue());
         }
+        PlanCache planCache = database.getPlanCache();
+        if (planCache != null) {
+            add(session, rows, "info.PLAN_CACHE_SIZE", Integer.toString(planCache.getSize()));
+            add(session, rows, "info.PLAN_CACHE_HIT_RATIO", Integer.toString(planCache.getHitRatio()));
+            add(session, rows, "info.PLAN_CACHE_TOKENS_HIT_RATIO", Integer.toString(planCache.getTokensHitRatio()));
+        }
         Store store = database.getStore();
         MVStore mvStore = store.getMvStore();
         FileStore fs = mvStore.getFileStore();
@@ -3007,6 +3016,15 @@ private void settings(SessionLocal session, ArrayList<Row> rows) {
                     "info.CACHE_SIZE", Integer.toString(mvStore.getCacheSizeUsed()));
             add(session, rows,
                     "info.CACHE_HIT_RATIO", Integer.toString(mvStore.getCacheHitRatio()));
+            CacheLongKeyOffHeap offHeapCache = mvStore.getOffHeapCache();
+            if (offHeapCache != null) {
+                add(session, rows, "info.OFF_HEAP_CACHE_MAX_SIZE",
+                        Long.toString(offHeapCache.getMaxMemory() >> 20));
+                add(session, rows, "info.OFF_HEAP_CACHE_SIZE",
+                        Long.toString(offHeapCache.getUsedMemory() >> 20));
+                add(session, rows, "info.OFF_HEAP_CACHE_HIT_RATIO",
+                        Integer.toString(mvStore.getOffHeapCacheHitRatio()));
+            }
             add(session, rows, "info.TOC_CACHE_HIT_RATIO",
                     Integer.toString(mvStore.getTocCacheHitRatio()));
             add(session, rows,
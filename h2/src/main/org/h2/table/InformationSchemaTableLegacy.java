@@ -47,6 +47,7 @@
 import org.h2.message.DbException;
 import org.h2.mvstore.FileStore;
 import org.h2.mvstore.MVStore;
+import org.h2.mvstore.cache.CacheLongKeyOffHeap;
 import org.h2.mvstore.db.Store;
 import org.h2.result.Row;
 import org.h2.result.SearchRow;
@@ -1156,6 +1157,15 @@ public ArrayList<Row> generateRows(SessionLocal session, SearchRow first, Search
                         "info.CACHE_SIZE", Integer.toString(mvStore.getCacheSizeUsed()));
                 add(session, rows,
                         "info.CACHE_HIT_RATIO", Integer.toString(mvStore.getCacheHitRatio()));
+                CacheLongKeyOffHeap offHeapCache = mvStore.getOffHeapCache();
+                if (offHeapCache != null) {
+                    add(session, rows, "info.OFF_HEAP_CACHE_MAX_SIZE",
+                            Long.toString(offHeapCache.getMaxMemory() >> 20));
+                    add(session, rows, "info.OFF_HEAP_CACHE_SIZE",
+                            Long.toString(offHeapCache.getUsedMemory() >> 20));
+                    add(session, rows, "info.OFF_HEAP_CACHE_HIT_RATIO",
+                            Integer.toString(mvStore.getOffHeapCacheHitRatio()));
+                }
                 add(session, rows, "info.TOC_CACHE_HIT_RATIO",
                         Integer.toString(mvStore.getTocCacheHitRatio()));
                 add(session, rows,
@@ -31,10 +31,30 @@ int[] getMasks() {
         return masks;
     }
 
+    /**
+     * Set the index and its estimated cost.
+     *
+     * @param index the index
+     * @param cost the cost
+     */
+    public void setIndex(Index index, double cost) {
+        this.index = index;
+        this.cost = cost;
+    }
+
     void setIndex(Index index) {
         this.index = index;
     }
 
+    /**
+     * Get the estimated cost.
+     *
+     * @return the cost
+     */
+    public double getCost() {
+        return cost;
+    }
+
     public Index getIndex() {
         return index;
     }
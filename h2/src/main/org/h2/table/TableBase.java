@@ -73,6 +73,15 @@ public TableBase(CreateTableData data) {
         setColumns(data.columns.toArray(new Column[0]));
     }
 
+    /**
+     * Returns the table engine parameters.
+     *
+     * @return the table engine parameters, may be empty
+     */
+    public List<String> getTableEngineParams() {
+        return tableEngineParams;
+    }
+
     @Override
     public String getDropSQL() {
         StringBuilder builder = new StringBuilder("DROP TABLE IF EXISTS ");
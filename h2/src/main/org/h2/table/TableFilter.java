@@ -18,12 +18,19 @@
 import org.h2.engine.Right;
 import org.h2.engine.SessionLocal;
 import org.h2.expression.Expression;
+import org.h2.expression.ExpressionColumn;
+import org.h2.expression.ExpressionVisitor;
 import org.h2.expression.condition.Comparison;
 import org.h2.expression.condition.ConditionAndOr;
+import org.h2.index.HashJoinIndex;
 import org.h2.index.Index;
 import org.h2.index.IndexCondition;
 import org.h2.index.IndexCursor;
+import org.h2.index.IndexType;
+import org.h2.index.JoinIndex;
+import org.h2.index.MergeJoinIndex;
 import org.h2.message.DbException;
+import org.h2.mvstore.db.MVIndex;
 import org.h2.result.Row;
 import org.h2.result.SearchRow;
 import org.h2.result.SortOrder;
@@ -31,6 +38,7 @@
 import org.h2.util.ParserUtil;
 import org.h2.util.StringUtils;
 import org.h2.util.Utils;
+import org.h2.value.DataType;
 import org.h2.value.TypeInfo;
 import org.h2.value.Value;
 import org.h2.value.ValueBigint;
@@ -70,6 +78,13 @@ public class TableFilter implements ColumnResolver {
     private final Select select;
     private String alias;
     private Index index;
+
+    /**
+     * The index chosen by the last calculation of the best plan item, used to
+     * check the order of rows for merge joins of the following tables.
+     */
+    private Index plannedIndex;
+
     private final IndexHints indexHints;
     private int[] masks;
     private int scanCount;
@@ -239,6 +254,20 @@ public PlanItem getBestPlanItem(SessionLocal s, TableFilter[] filters, int filte
             }
         }
         PlanItem item = table.getBestPlanItem(s, masks, filters, filter, sortOrder, allColumnsSet);
+        if (masks != null && filter > 0) {
+            Index index = item.getIndex();
+            if (index.getIndexType().isScan() || index.getIndexColumns() == null) {
+                PlanItem hashJoinItem = getHashJoinPlanItem(s, masks, filters, filter, sortOrder, allColumnsSet);
+                if (hashJoinItem != null && hashJoinItem.cost < item.cost) {
+                    item = hashJoinItem;
+                }
+            }
+            PlanItem mergeJoinItem = getMergeJoinPlanItem(s, item.getIndex(), masks, filters, filter, sortOrder,
+                    allColumnsSet);
+            if (mergeJoinItem != null && mergeJoinItem.cost < item.cost) {
+                item = mergeJoinItem;
+            }
+        }
         item.setMasks(masks);
         // The more index conditions, the earlier the table.
         // This is to ensure joins without indexes run quickly:
@@ -248,6 +277,7 @@ public PlanItem getBestPlanItem(SessionLocal s, TableFilter[] filters, int filte
         if (item1 != null && item1.cost < item.cost) {
             item = item1;
         }
+        plannedIndex = item.getIndex();
 
         if (nestedJoin != null) {
             setEvaluatable(true);
@@ -269,6 +299,115 @@ public PlanItem getBestPlanItem(SessionLocal s, TableFilter[] filters, int filte
         return item;
     }
 
+    /**
+     * Get the plan item for a hash join on the equality conditions with
+     * previous table filters that can't use a regular index.
+     *
+     * @param s the session
+     * @param masks the search masks
+     * @param filters all joined table filters
+     * @param filter the current table filter index
+     * @param sortOrder the sort order
+     * @param allColumnsSet the set of all columns
+     * @return the plan item, or {@code null} if a hash join can't be used
+     */
+    private PlanItem getHashJoinPlanItem(SessionLocal s, int[] masks, TableFilter[] filters, int filter,
+            SortOrder sortOrder, AllColumnsForPlan allColumnsSet) {
+        if (select == null || nestedJoin != null || indexHints != null || !table.isDeterministic()
+                || !s.getDatabase().getSettings().optimizeHashJoin
+                || table.canGetRowCount(s) && table.getRowCountApproximation(s) < JoinIndex.MIN_ROW_COUNT) {
+            return null;
+        }
+        ArrayList<Column> columns = Utils.newSmallArrayList();
+        for (IndexCondition condition : indexConditions) {
+            if (condition.getCompareType() != Comparison.EQUAL || !condition.isEvaluatable()) {
+                continue;
+            }
+            Column column = condition.getColumn();
+            Expression expression = condition.getExpression();
+            TypeInfo type = column.getType();
+            int valueType = type.getValueType();
+            // values are matched without conversion, CHAR values may need
+            // different padding
+            if (column.getColumnId() < 0 || valueType == Value.CHAR || !DataType.isIndexable(type)
+                    || valueType != expression.getType().getValueType()) {
+                continue;
+            }
+            // only conditions with columns of previous tables are worth it
+            boolean fromPrevious = false;
+            for (int i = 0; i < filter; i++) {
+                if (!expression.isEverything(ExpressionVisitor.getNotFromResolverVisitor(filters[i]))) {
+                    fromPrevious = true;
+                    break;
+                }
+            }
+            if (fromPrevious && !columns.contains(column)) {
+                columns.add(column);
+            }
+        }
+        if (columns.isEmpty()) {
+            return null;
+        }
+        PlanItem item = new PlanItem();
+        item.setIndex(new HashJoinIndex(table, table.getScanIndex(s),
+                IndexColumn.wrap(columns.toArray(new Column[0]))));
+        item.cost = item.getIndex().getCost(s, masks, filters, filter, sortOrder, allColumnsSet);
+        return item;
+    }
+
+    /**
+     * Get the plan item for a merge join with the specified index, if the
+     * equality condition on its first column refers to a column of a previous
+     * table filter that returns rows in ascending order of that column with
+     * its planned index.
+     *
+     * @param s the session
+     * @param index the best index for a nested loop join
+     * @param masks the search masks
+     * @param filters all joined table filters
+     * @param filter the current table filter index
+     * @param sortOrder the sort order
+     * @param allColumnsSet the set of all columns
+     * @return the plan item, or {@code null} if a merge join can't be used
+     */
+    private PlanItem getMergeJoinPlanItem(SessionLocal s, Index index, int[] masks, TableFilter[] filters,
+            int filter, SortOrder sortOrder, AllColumnsForPlan allColumnsSet) {
+        if (select == null || nestedJoin != null || !s.getDatabase().getSettings().optimizeMergeJoin
+                || index instanceof JoinIndex || !isSortedBy(index, null)
+                || table.getRowCountApproximation(s) < JoinIndex.MIN_ROW_COUNT) {
+            return null;
+        }
+        Column column = index.getIndexColumns()[0].column;
+        for (IndexCondition condition : indexConditions) {
+            if (condition.getCompareType() != Comparison.EQUAL || condition.getColumn() != column
+                    || !condition.isEvaluatable()) {
+                continue;
+            }
+            Expression expression = condition.getExpression();
+            if (expression instanceof ExpressionColumn
+                    && expression.getType().getValueType() == column.getType().getValueType()) {
+                ExpressionColumn outer = (ExpressionColumn) expression;
+                TableFilter f = outer.getTableFilter();
+                if (f == null || f == this || f.select != select || f.hasInComparisons()) {
+                    continue;
+                }
+                for (int i = 0; i < filter; i++) {
+                    if (filters[i] == f) {
+                        if (isSortedBy(f.plannedIndex, outer.getColumn())) {
+                            PlanItem item = new PlanItem();
+                            item.setIndex(new MergeJoinIndex(index));
+                            item.cost = item.getIndex().getCost(s, masks, filters, filter, sortOrder,
+                                    allColumnsSet);
+                            return item;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * Set what plan item (index, cost, masks) to use.
      *
@@ -352,6 +491,38 @@ public void prepare() {
         }
     }
 
+    /**
+     * Returns whether the specified index returns rows in ascending order of
+     * its first column.
+     *
+     * @param index the index
+     * @param column the expected first column, or {@code null} to accept any
+     *            column
+     * @return whether the index is sorted by this column
+     */
+    private static boolean isSortedBy(Index index, Column column) {
+        if (!(index instanceof MVIndex)) {
+            // only indexes of MVStore tables are known to return ordered rows
+            return false;
+        }
+        IndexType type = index.getIndexType();
+        if (index.isRowIdIndex()) {
+            // scan index or its delegate, sorted by the main index column
+            int main = index.getTable().getMainIndexColumn();
+            return main >= 0 && (column != null ? column.getColumnId() == main : !type.isScan());
+        }
+        if (type.isScan() || type.isHash() || type.isSpatial() || index.isFindUsingFullTableScan()) {
+            return false;
+        }
+        IndexColumn[] columns = index.getIndexColumns();
+        if (columns == null || columns.length == 0) {
+            return false;
+        }
+        IndexColumn first = columns[0];
+        return first.column.getColumnId() >= 0 && (first.sortType & SortOrder.DESCENDING) == 0
+                && (column == null || first.column == column);
+    }
+
     /**
      * Start the query. This will reset the scan counts.
      *
@@ -360,6 +531,9 @@ public void prepare() {
     public void startQuery(SessionLocal s) {
         this.session = s;
         scanCount = 0;
+        if (index instanceof JoinIndex) {
+            ((JoinIndex) index).reset();
+        }
         if (nestedJoin != null) {
             nestedJoin.startQuery(s);
         }
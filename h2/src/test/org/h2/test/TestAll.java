@@ -128,6 +128,8 @@
 import org.h2.test.store.TestCacheConcurrentLIRS;
 import org.h2.test.store.TestCacheLIRS;
 import org.h2.test.store.TestCacheLongKeyLIRS;
+import org.h2.test.store.TestCacheLongKeyOffHeap;
+import org.h2.test.store.TestCacheLongKeyTinyLFU;
 import org.h2.test.store.TestDataUtils;
 import org.h2.test.store.TestDefrag;
 import org.h2.test.store.TestFreeSpace;
@@ -901,6 +903,8 @@ private void testUtils() {
         addTest(new TestCacheConcurrentLIRS());
         addTest(new TestCacheLIRS());
         addTest(new TestCacheLongKeyLIRS());
+        addTest(new TestCacheLongKeyOffHeap());
+        addTest(new TestCacheLongKeyTinyLFU());
         addTest(new TestDataUtils());
         addTest(new TestFreeSpace());
         addTest(new TestKillProcessWhileWriting());
@@ -9,6 +9,7 @@
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.h2.api.ErrorCode;
 import org.h2.test.TestBase;
@@ -19,6 +20,8 @@
  */
 public class TestQueryCache extends TestDb {
 
+    private static final AtomicInteger CALLS = new AtomicInteger();
+
     /**
      * Run just this test.
      *
@@ -33,9 +36,22 @@ public void test() throws Exception {
         deleteDb("queryCache");
         test1();
         testClearingCacheWithTableStructureChanges();
+        testSharedResultCache();
+        testPlanCache();
         deleteDb("queryCache");
     }
 
+    /**
+     * This method is called via reflection from the database.
+     *
+     * @param x the value
+     * @return the value
+     */
+    public static int countCall(int x) {
+        CALLS.incrementAndGet();
+        return x;
+    }
+
     private void test1() throws Exception {
         try (Connection conn = getConnection("queryCache;QUERY_CACHE_SIZE=10")) {
             Statement stat = conn.createStatement();
@@ -107,4 +123,110 @@ private void testClearingCacheWithTableStructureChanges() throws Exception {
                     prepareStatement("SELECT * FROM TEST");
         }
     }
+
+    private void testSharedResultCache() throws Exception {
+        deleteDb("queryCache");
+        String url = "queryCache;QUERY_RESULT_CACHE_SIZE=10";
+        try (Connection conn = getConnection(url); Connection conn2 = getConnection(url)) {
+            Statement stat = conn.createStatement();
+            stat.execute("CREATE ALIAS COUNT_CALL DETERMINISTIC FOR '" + getClass().getName() + ".countCall'");
+            stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, V INT)");
+            stat.execute("INSERT INTO TEST VALUES (1, 10), (2, 20)");
+            String sql = "SELECT SUM(COUNT_CALL(V)) FROM TEST WHERE ID <= ?";
+            PreparedStatement prep = conn.prepareStatement(sql);
+            PreparedStatement prep2 = conn2.prepareStatement(sql);
+            CALLS.set(0);
+            assertSum(prep, 2, 30);
+            assertEquals(2, CALLS.get());
+            // evaluated by the first session
+            assertSum(prep2, 2, 30);
+            assertEquals(2, CALLS.get());
+            // other parameters
+            assertSum(prep2, 1, 10);
+            assertEquals(3, CALLS.get());
+            stat.execute("UPDATE TEST SET V = 11 WHERE ID = 1");
+            assertSum(prep2, 2, 31);
+            assertEquals(5, CALLS.get());
+            assertSum(prep, 2, 31);
+            assertEquals(5, CALLS.get());
+            // uncommitted changes aren't shared
+            conn.setAutoCommit(false);
+            stat.execute("UPDATE TEST SET V = 12 WHERE ID = 1");
+            assertSum(prep, 2, 32);
+            assertSum(prep2, 2, 31);
+            conn.commit();
+            conn.setAutoCommit(true);
+            assertSum(prep2, 2, 32);
+            // other isolation levels don't use the cache
+            assertSum(prep, 1, 12);
+            conn2.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            CALLS.set(0);
+            assertSum(prep2, 1, 12);
+            assertEquals(1, CALLS.get());
+            conn2.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            stat.execute("DROP TABLE TEST");
+            stat.execute("CREATE TABLE TEST(ID INT PRIMARY KEY, V INT)");
+            assertSum(conn2.prepareStatement(sql), 2, 0);
+        }
+        deleteDb("queryCache");
+    }
+
+    private void testPlanCache() throws Exception {
+        deleteDb("queryCache");
+        String url = "queryCache;PLAN_CACHE_SIZE=10";
+        try (Connection conn = getConnection(url); Connection conn2 = getConnection(url)) {
+            Statement stat = conn.createStatement();
+            stat.execute("CREATE TABLE A(ID INT PRIMARY KEY) AS SELECT X FROM SYSTEM_RANGE(1, 100)");
+            stat.execute("CREATE TABLE B(ID INT PRIMARY KEY, A INT) AS SELECT X, X FROM SYSTEM_RANGE(1, 10)");
+            stat.execute("CREATE TABLE C(ID INT PRIMARY KEY, B INT) AS SELECT X, X FROM SYSTEM_RANGE(1, 1000)");
+            stat.execute("ANALYZE");
+            String sql = "SELECT COUNT(*) FROM A, B, C WHERE A.ID = B.A AND B.ID = C.B AND C.ID > ?";
+            String plan = getPlan(conn, sql);
+            assertEquals("0", getSetting(conn, "info.PLAN_CACHE_HIT_RATIO"));
+            assertEquals("1", getSetting(conn, "info.PLAN_CACHE_SIZE"));
+            // the join order of the first session is used
+            assertEquals(plan, getPlan(conn2, sql));
+            assertFalse("0".equals(getSetting(conn2, "info.PLAN_CACHE_HIT_RATIO")));
+            // the statement was parsed from the tokens of the first session
+            assertFalse("0".equals(getSetting(conn2, "info.PLAN_CACHE_TOKENS_HIT_RATIO")));
+            PreparedStatement prep = conn2.prepareStatement(sql);
+            prep.setInt(1, 5);
+            try (ResultSet rs = prep.executeQuery()) {
+                assertTrue(rs.next());
+                assertEquals(5, rs.getInt(1));
+            }
+            // changes of metadata remove the join orders
+            stat.execute("CREATE INDEX C_B ON C(B)");
+            assertEquals("0", getSetting(conn2, "info.PLAN_CACHE_SIZE"));
+        }
+        deleteDb("queryCache");
+    }
+
+    private static String getPlan(Connection conn, String sql) throws Exception {
+        PreparedStatement prep = conn.prepareStatement("EXPLAIN " + sql);
+        prep.setInt(1, 0);
+        try (ResultSet rs = prep.executeQuery()) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private static String getSetting(Connection conn, String name) throws Exception {
+        PreparedStatement prep = conn.prepareStatement(
+                "SELECT SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS WHERE SETTING_NAME = ?");
+        prep.setString(1, name);
+        try (ResultSet rs = prep.executeQuery()) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private void assertSum(PreparedStatement prep, int id, int expected) throws Exception {
+        prep.setInt(1, id);
+        try (ResultSet rs = prep.executeQuery()) {
+            assertTrue(rs.next());
+            assertEquals(expected, rs.getInt(1));
+            assertFalse(rs.next());
+        }
+    }
 }
@@ -41,6 +41,7 @@ public void test() throws Exception {
         testClosingConnectionWithLockedTable();
         testConstraintCreationRollback();
         testCommitOnAutoCommitChange();
+        testReadOnlyChange();
         testConcurrentSelectForUpdate();
         testRollback();
         testRollback2();
@@ -107,6 +108,46 @@ private void testCommitOnAutoCommitChange() throws SQLException {
         conn.close();
     }
 
+    private void testReadOnlyChange() throws SQLException {
+        deleteDb("transaction");
+        Connection conn = getConnection("transaction");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key)");
+
+        Connection conn2 = getConnection("transaction");
+        Statement stat2 = conn2.createStatement();
+
+        conn.setAutoCommit(false);
+        stat.execute("insert into test values(1)");
+
+        // should not commit
+        assertThrows(ErrorCode.TRANSACTION_HAS_UNCOMMITTED_CHANGES, conn).setReadOnly(true);
+        assertFalse(conn.isReadOnly());
+
+        ResultSet rs = stat2.executeQuery("select count(*) from test");
+        rs.next();
+        assertEquals(0, rs.getInt(1));
+
+        conn.rollback();
+        conn.setReadOnly(true);
+        assertTrue(conn.isReadOnly());
+        assertThrows(ErrorCode.TRANSACTION_IS_READ_ONLY, stat).execute("insert into test values(2)");
+        conn.setReadOnly(false);
+        stat.execute("insert into test values(3)");
+        conn.commit();
+
+        rs = stat2.executeQuery("select id from test");
+        assertTrue(rs.next());
+        assertEquals(3, rs.getInt(1));
+        assertFalse(rs.next());
+
+        stat.execute("drop table test");
+        conn.commit();
+
+        conn2.close();
+        conn.close();
+    }
+
     private void testConcurrentSelectForUpdate() throws SQLException {
         deleteDb("transaction");
         Connection conn = getConnection("transaction");
@@ -73,6 +73,24 @@ DROP TABLE T2;
 DROP TABLE T1;
 > ok
 
+CREATE TABLE T1(ID INT PRIMARY KEY, V INT) AS SELECT 1001 - X, X FROM SYSTEM_RANGE(1, 1000);
+> ok
+
+SELECT COUNT(*), MIN(ID), MAX(ID), SUM(V) FROM T1;
+> COUNT(*) MIN(ID) MAX(ID) SUM(V)
+> -------- ------- ------- ------
+> 1000     1       1000    500500
+> rows: 1
+
+DROP TABLE T1;
+> ok
+
+CREATE TABLE T1(ID INT PRIMARY KEY) AS SELECT X / 2 FROM SYSTEM_RANGE(1, 1000);
+> exception DUPLICATE_KEY_1
+
+SELECT * FROM T1;
+> exception TABLE_OR_VIEW_NOT_FOUND_DATABASE_EMPTY_1
+
 CREATE TABLE TEST(A INT, B INT INVISIBLE);
 > ok
 
@@ -68,6 +68,72 @@ SET SESSION CHARACTERISTICS AS TRANSACTION ISOLATION LEVEL SERIALIZABLE;
 SELECT ISOLATION_LEVEL FROM INFORMATION_SCHEMA.SESSIONS WHERE SESSION_ID = SESSION_ID();
 >> SERIALIZABLE
 
+CREATE TABLE TEST(ID INT PRIMARY KEY, V INT);
+> ok
+
+INSERT INTO TEST VALUES (1, 10), (2, 20);
+> update count: 2
+
+SET TRANSACTION READ ONLY;
+> ok
+
+SELECT COUNT(*), SUM(V) FROM TEST;
+> COUNT(*) SUM(V)
+> -------- ------
+> 2        30
+> rows: 1
+
+INSERT INTO TEST VALUES (3, 30);
+> exception TRANSACTION_IS_READ_ONLY
+
+UPDATE TEST SET V = 0;
+> exception TRANSACTION_IS_READ_ONLY
+
+SELECT ID FROM OLD TABLE(DELETE FROM TEST);
+> exception TRANSACTION_IS_READ_ONLY
+
+CREATE TABLE TEST2(ID INT);
+> exception TRANSACTION_IS_READ_ONLY
+
+SET SESSION CHARACTERISTICS AS TRANSACTION READ WRITE, ISOLATION LEVEL SERIALIZABLE;
+> ok
+
+SELECT ISOLATION_LEVEL FROM INFORMATION_SCHEMA.SESSIONS WHERE SESSION_ID = SESSION_ID();
+>> SERIALIZABLE
+
+DELETE FROM TEST;
+> update count: 2
+
+SET TRANSACTION READ ONLY, READ WRITE;
+> exception SYNTAX_ERROR_2
+
+SET AUTOCOMMIT FALSE;
+> ok
+
+INSERT INTO TEST VALUES (3, 30);
+> update count: 1
+
+SET TRANSACTION READ ONLY;
+> exception TRANSACTION_HAS_UNCOMMITTED_CHANGES
+
+ROLLBACK;
+> ok
+
+SELECT COUNT(*) FROM TEST;
+>> 0
+
+SET TRANSACTION READ ONLY;
+> ok
+
+SET TRANSACTION READ WRITE;
+> ok
+
+SET AUTOCOMMIT TRUE;
+> ok
+
+DROP TABLE TEST;
+> ok
+
 SET SESSION CHARACTERISTICS AS TRANSACTION ISOLATION LEVEL READ COMMITTED;
 > ok
 
@@ -270,7 +270,7 @@ explain select * from test1
 inner join test2 on test1.id=test2.id
 left outer join test3 on test2.id=test3.id
 where test3.id is null;
->> SELECT "PUBLIC"."TEST1"."ID", "PUBLIC"."TEST2"."ID", "PUBLIC"."TEST3"."ID" FROM "PUBLIC"."TEST2" /* PUBLIC.TEST2.tableScan */ LEFT OUTER JOIN "PUBLIC"."TEST3" /* PUBLIC.PRIMARY_KEY_4C0: ID = TEST2.ID */ ON "TEST2"."ID" = "TEST3"."ID" INNER JOIN "PUBLIC"."TEST1" /* PUBLIC.PRIMARY_KEY_4: ID = TEST2.ID */ ON 1=1 WHERE ("TEST3"."ID" IS NULL) AND ("TEST1"."ID" = "TEST2"."ID")
+>> SELECT "PUBLIC"."TEST1"."ID", "PUBLIC"."TEST2"."ID", "PUBLIC"."TEST3"."ID" FROM "PUBLIC"."TEST2" /* PUBLIC.TEST2.tableScan */ LEFT OUTER JOIN "PUBLIC"."TEST3" /* PUBLIC.PRIMARY_KEY_4C0: ID = TEST2.ID */ ON "TEST2"."ID" = "TEST3"."ID" INNER JOIN "PUBLIC"."TEST1" /* PUBLIC.PRIMARY_KEY_4.mergeJoin: ID = TEST2.ID */ ON 1=1 WHERE ("TEST3"."ID" IS NULL) AND ("TEST1"."ID" = "TEST2"."ID")
 
 SELECT TEST1.ID, TEST2.ID, TEST3.ID
 FROM TEST2
@@ -1044,3 +1044,120 @@ FROM (SELECT 1 A) X JOIN (
 > - - -
 > 1 1 1
 > rows: 1
+
+CREATE TABLE T1(ID INT PRIMARY KEY, A INT, B VARCHAR) AS
+    SELECT X, MOD(X, 100), CASE WHEN MOD(X, 7) = 0 THEN NULL ELSE 'B' || MOD(X, 3) END FROM SYSTEM_RANGE(1, 2000);
+> ok
+
+CREATE TABLE T2(ID INT PRIMARY KEY, A INT, B VARCHAR) AS
+    SELECT X, CASE WHEN MOD(X, 11) = 0 THEN NULL ELSE MOD(X, 50) END, 'B' || MOD(X, 3) FROM SYSTEM_RANGE(1, 1500);
+> ok
+
+EXPLAIN SELECT COUNT(*) FROM T1 JOIN T2 ON T1.A = T2.A;
+>> SELECT COUNT(*) FROM "PUBLIC"."T1" /* PUBLIC.T1.tableScan */ INNER JOIN "PUBLIC"."T2" /* PUBLIC.T2.hashJoin: A = T1.A */ ON 1=1 WHERE "T1"."A" = "T2"."A"
+
+SELECT COUNT(*) FROM T1 JOIN T2 ON T1.A = T2.A;
+>> 27280
+
+EXPLAIN SELECT COUNT(*) FROM T1 JOIN T2 ON T1.A = T2.A AND T1.B = T2.B;
+>> SELECT COUNT(*) FROM "PUBLIC"."T1" /* PUBLIC.T1.tableScan */ INNER JOIN "PUBLIC"."T2" /* PUBLIC.T2.hashJoin: A = T1.A AND B = T1.B */ ON 1=1 WHERE ("T1"."A" = "T2"."A") AND ("T1"."B" = "T2"."B")
+
+SELECT COUNT(*) FROM T1 JOIN T2 ON T1.A = T2.A AND T1.B = T2.B;
+>> 7802
+
+SELECT COUNT(*), COUNT(T2.ID) FROM T1 LEFT JOIN T2 ON T1.A = T2.A AND T2.A < 3;
+> COUNT(*) COUNT(T2.ID)
+> -------- ------------
+> 3600     1660
+> rows: 1
+
+SELECT COUNT(*) FROM T1 JOIN (SELECT A, COUNT(*) C FROM T2 GROUP BY A) D ON D.A = T1.A;
+>> 1000
+
+EXPLAIN SELECT COUNT(*) FROM T1 JOIN T2 ON T1.ID = T2.ID;
+>> SELECT COUNT(*) FROM "PUBLIC"."T2" /* PUBLIC.T2.tableScan */ INNER JOIN "PUBLIC"."T1" /* PUBLIC.PRIMARY_KEY_A.mergeJoin: ID = T2.ID */ ON 1=1 WHERE "T1"."ID" = "T2"."ID"
+
+SELECT COUNT(*), SUM(T2.A) FROM T1 JOIN T2 ON T1.ID = T2.ID;
+> COUNT(*) SUM(T2.A)
+> -------- ---------
+> 1500     33374
+> rows: 1
+
+CREATE INDEX T2_A ON T2(A);
+> ok
+
+EXPLAIN SELECT COUNT(*) FROM T1 JOIN T2 ON T2.A = T1.ID;
+>> SELECT COUNT(*) FROM "PUBLIC"."T1" /* PUBLIC.T1.tableScan */ INNER JOIN "PUBLIC"."T2" /* PUBLIC.T2_A.mergeJoin: A = T1.ID */ ON 1=1 WHERE "T2"."A" = "T1"."ID"
+
+SELECT COUNT(*), SUM(T2.ID) FROM T1 JOIN T2 ON T2.A = T1.ID;
+> COUNT(*) SUM(T2.ID)
+> -------- ----------
+> 1336     1001674
+> rows: 1
+
+SELECT COUNT(*), COUNT(T2.ID) FROM T1 LEFT JOIN T2 ON T2.A = T1.ID AND T2.ID > 1000;
+> COUNT(*) COUNT(T2.ID)
+> -------- ------------
+> 2396     445
+> rows: 1
+
+SELECT COUNT(*) FROM T1 JOIN T2 ON T2.A = T1.ID WHERE T1.ID IN (3, 1, 2);
+>> 82
+
+EXPLAIN SELECT COUNT(*) FROM T1 JOIN T2 ON T1.ID = T2.ID WHERE T2.A = 5;
+>> SELECT COUNT(*) FROM "PUBLIC"."T2" /* PUBLIC.T2_A: A = 5 */ /* WHERE T2.A = 5 */ INNER JOIN "PUBLIC"."T1" /* PUBLIC.PRIMARY_KEY_A: ID = T2.ID */ ON 1=1 WHERE ("T2"."A" = 5) AND ("T1"."ID" = "T2"."ID")
+
+SELECT COUNT(*) FROM T1 JOIN T2 ON T1.ID = T2.ID WHERE T2.A = 5;
+>> 27
+
+DROP INDEX T2_A;
+> ok
+
+CREATE TABLE T3(ID INT PRIMARY KEY, N NUMERIC(10, 2), V VARCHAR_IGNORECASE, TS TIMESTAMP WITH TIME ZONE) AS
+    SELECT X, X / 10, 'v' || X, TIMESTAMP WITH TIME ZONE '2000-01-01 00:00:00+00' + X * INTERVAL '1' HOUR
+    FROM SYSTEM_RANGE(1, 1200);
+> ok
+
+CREATE TABLE T4(ID INT PRIMARY KEY, N NUMERIC(10, 1), V VARCHAR_IGNORECASE, TS TIMESTAMP WITH TIME ZONE) AS
+    SELECT X, X / 10, 'V' || X,
+    (TIMESTAMP WITH TIME ZONE '2000-01-01 00:00:00+00' + X * INTERVAL '1' HOUR) AT TIME ZONE '+05:00'
+    FROM SYSTEM_RANGE(1, 1200);
+> ok
+
+EXPLAIN SELECT COUNT(*) FROM T3 JOIN T4 ON T3.N = T4.N;
+>> SELECT COUNT(*) FROM "PUBLIC"."T3" /* PUBLIC.T3.tableScan */ INNER JOIN "PUBLIC"."T4" /* PUBLIC.T4.hashJoin: N = T3.N */ ON 1=1 WHERE "T3"."N" = "T4"."N"
+
+SELECT COUNT(*) FROM T3 JOIN T4 ON T3.N = T4.N;
+>> 11982
+
+SELECT COUNT(*) FROM T3 JOIN T4 ON T3.V = T4.V;
+>> 1200
+
+SELECT COUNT(*) FROM T3 JOIN T4 ON T3.TS = T4.TS;
+>> 1200
+
+-- The next tests should be at the of this file
+
+SET MAX_MEMORY_ROWS = 1000;
+> ok
+
+SELECT COUNT(*) FROM T1 JOIN T2 ON T1.A = T2.A AND T1.B = T2.B;
+>> 7802
+
+SELECT COUNT(*) FROM T1 JOIN T2 ON T1.A = T2.A;
+>> 27280
+
+SELECT COUNT(*), COUNT(T2.ID) FROM T1 LEFT JOIN T2 ON T1.A = T2.A AND T2.A < 3;
+> COUNT(*) COUNT(T2.ID)
+> -------- ------------
+> 3600     1660
+> rows: 1
+
+SELECT COUNT(*), SUM(T3.ID), SUM(T4.ID) FROM T3 JOIN T4 ON T3.N = T4.N AND T3.V = T4.V AND T3.TS = T4.TS;
+> COUNT(*) SUM(T3.ID) SUM(T4.ID)
+> -------- ---------- ----------
+> 1200     720600     720600
+> rows: 1
+
+DROP TABLE T1, T2, T3, T4;
+> ok
@@ -208,3 +208,139 @@ EXPLAIN SELECT T AT TIME ZONE 'UTC' FROM TEST GROUP BY T;
 
 DROP TABLE TEST;
 > ok
+
+@reconnect off
+
+CREATE TABLE TEST(ID BIGINT PRIMARY KEY, G INT, V INT, S VARCHAR) AS
+    SELECT X, MOD(X, 3), CASE WHEN MOD(X, 13) = 0 THEN NULL ELSE X END, 'S' || MOD(X, 2) FROM SYSTEM_RANGE(1, 50000);
+> ok
+
+SET MAX_PARALLEL_WORKERS 4;
+> ok
+
+SELECT SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS WHERE SETTING_NAME = 'MAX_PARALLEL_WORKERS';
+>> 4
+
+SELECT COUNT(*), COUNT(V), SUM(V), MIN(V), MAX(V), AVG(V), BIT_XOR_AGG(V) FROM TEST;
+> COUNT(*) COUNT(V) SUM(V)     MIN(V) MAX(V) AVG(V)            BIT_XOR_AGG(V)
+> -------- -------- ---------- ------ ------ ----------------- --------------
+> 50000    46154    1153853847 1      50000  25000.08335138883 52315
+> rows: 1
+
+SELECT G, COUNT(*), SUM(V), MIN(S), G + 1 FROM TEST GROUP BY G ORDER BY G;
+> G COUNT(*) SUM(V)    MIN(S) G + 1
+> - -------- --------- ------ -----
+> 0 16666    384584616 S0     1
+> 1 16667    384634615 S0     2
+> 2 16667    384634616 S0     3
+> rows (ordered): 3
+
+SELECT S, G, COUNT(*), MAX(V) FROM TEST WHERE V BETWEEN 1000 AND 20000 OR G = 2 AND S <> 'S1'
+    GROUP BY S, G HAVING COUNT(*) > 10 ORDER BY S, G;
+> S  G COUNT(*) MAX(V)
+> -- - -------- ------
+> S0 0 2923     19998
+> S0 1 2924     19996
+> S0 2 8334     50000
+> S1 0 2923     19995
+> S1 1 2923     19999
+> S1 2 2923     19997
+> rows (ordered): 6
+
+SELECT COUNT(*), SUM(V) FROM TEST WHERE V < 0;
+> COUNT(*) SUM(V)
+> -------- ------
+> 0        null
+> rows: 1
+
+SELECT G, COUNT(*) FROM TEST WHERE V < 0 GROUP BY G;
+> G COUNT(*)
+> - --------
+> rows: 0
+
+SET MAX_PARALLEL_WORKERS 0;
+> exception INVALID_VALUE_2
+
+SET MAX_PARALLEL_WORKERS 1;
+> ok
+
+SELECT COUNT(*), SUM(V), MIN(V), MAX(V) FROM TEST WHERE V BETWEEN 3000 AND 45000 AND G <> 2;
+> COUNT(*) SUM(V)    MIN(V) MAX(V)
+> -------- --------- ------ ------
+> 25847    620339309 3000   45000
+> rows: 1
+
+SELECT COUNT(*), SUM(V), MAX(V) FROM TEST WHERE V NOT BETWEEN SYMMETRIC 45000 AND 3000 OR G < 1;
+> COUNT(*) SUM(V)    MAX(V)
+> -------- --------- ------
+> 21590    533559540 50000
+> rows: 1
+
+SELECT COUNT(*), SUM(V) FROM TEST WHERE V > 49990 OR V <= 12 OR V = 30000;
+> COUNT(*) SUM(V)
+> -------- ------
+> 22       480035
+> rows: 1
+
+DROP TABLE TEST;
+> ok
+
+@reconnect on
+
+CREATE TABLE TEST(ID BIGINT PRIMARY KEY, T INT, V INT) AS SELECT X, X / 4, MOD(X * 7919, 1000) FROM SYSTEM_RANGE(1, 20000);
+> ok
+
+EXPLAIN SELECT COUNT(*), SUM(V) FROM TEST WHERE T BETWEEN 1000 AND 1010;
+>> SELECT COUNT(*), SUM("V") FROM "PUBLIC"."TEST" /* PUBLIC.TEST.zoneMap: T >= 1000 AND T <= 1010 */ WHERE "T" BETWEEN 1000 AND 1010
+
+SELECT COUNT(*), SUM(V) FROM TEST WHERE T BETWEEN 1000 AND 1010;
+> COUNT(*) SUM(V)
+> -------- ------
+> 44       22374
+> rows: 1
+
+SELECT ID FROM TEST WHERE T = 4000 ORDER BY ID;
+> ID
+> -----
+> 16000
+> 16001
+> 16002
+> 16003
+> rows (ordered): 4
+
+EXPLAIN SELECT ID FROM TEST WHERE T IN (5, 4000);
+>> SELECT "ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */ WHERE "T" IN(5, 4000)
+
+UPDATE TEST SET T = -1 WHERE ID = 10;
+> update count: 1
+
+INSERT INTO TEST VALUES (20001, -2, 0);
+> update count: 1
+
+SELECT ID, T FROM TEST WHERE T < 0 ORDER BY ID;
+> ID    T
+> ----- --
+> 10    -1
+> 20001 -2
+> rows (ordered): 2
+
+DELETE FROM TEST WHERE ID = 10;
+> update count: 1
+
+SELECT ID, T FROM TEST WHERE T < 0;
+> ID    T
+> ----- --
+> 20001 -2
+> rows: 1
+
+SELECT COUNT(*) FROM TEST WHERE T > 4990;
+>> 37
+
+TRUNCATE TABLE TEST;
+> update count: 20000
+
+SELECT COUNT(*) FROM TEST WHERE T < 0;
+>> 0
+
+DROP TABLE TEST;
+> ok
@@ -731,6 +731,48 @@ EXPLAIN SELECT * FROM TEST ORDER BY V FOR UPDATE;
 DROP TABLE TEST;
 > ok
 
+CREATE TABLE TEST(ID INT PRIMARY KEY, V INT) AS SELECT X, MOD(X * 7, 10) FROM SYSTEM_RANGE(1, 100);
+> ok
+
+SELECT ID, V FROM TEST ORDER BY V DESC, ID FETCH FIRST 3 ROWS ONLY;
+> ID V
+> -- -
+> 7  9
+> 17 9
+> 27 9
+> rows (ordered): 3
+
+SELECT ID FROM TEST ORDER BY V DESC, ID OFFSET 9 ROWS FETCH NEXT 2 ROWS ONLY;
+> ID
+> --
+> 97
+> 4
+> rows (ordered): 2
+
+SELECT ID, V FROM TEST WHERE ID <= 30 ORDER BY V FETCH FIRST 2 ROWS WITH TIES;
+> ID V
+> -- -
+> 10 0
+> 20 0
+> 30 0
+> rows (partially ordered): 3
+
+SELECT ID, V FROM TEST ORDER BY V, ID OFFSET 9 ROWS FETCH NEXT ROW WITH TIES;
+> ID  V
+> --- -
+> 100 0
+> rows (ordered): 1
+
+(SELECT V FROM TEST) UNION ALL (SELECT 10) ORDER BY 1 DESC FETCH FIRST 2 ROWS ONLY;
+> V
+> --
+> 10
+> 9
+> rows (ordered): 2
+
+DROP TABLE TEST;
+> ok
+
 -- The next tests should be at the of this file
 
 SET MAX_MEMORY_ROWS = 1;
@@ -1211,3 +1253,110 @@ where -1 is distinct from -1 or 2 is distinct from x0;
 
 drop table test;
 > ok
+
+SET MAX_MEMORY_ROWS = 5;
+> ok
+
+CREATE TABLE TEST(ID INT, V INT) AS SELECT X, X / 10 FROM SYSTEM_RANGE(1, 40);
+> ok
+
+SELECT COUNT(*), MAX(V) FROM (SELECT * FROM TEST ORDER BY V FETCH FIRST 2 ROWS WITH TIES);
+> COUNT(*) MAX(V)
+> -------- ------
+> 9        0
+> rows: 1
+
+SELECT ID FROM TEST ORDER BY V DESC, ID FETCH FIRST 2 ROWS ONLY;
+> ID
+> --
+> 40
+> 30
+> rows (ordered): 2
+
+SELECT ID FROM TEST ORDER BY MOD(ID, 7), ID DESC OFFSET 30 ROWS;
+> ID
+> --
+> 33
+> 26
+> 19
+> 12
+> 5
+> 34
+> 27
+> 20
+> 13
+> 6
+> rows (ordered): 10
+
+SELECT NULLIF(MOD(ID, 13), 0) K, COUNT(*), SUM(ID), MIN(V), AVG(ID), EVERY(V > 0) FROM TEST GROUP BY K ORDER BY K;
+> K    COUNT(*) SUM(ID) MIN(V) AVG(ID) EVERY(V > 0)
+> ---- -------- ------- ------ ------- ------------
+> null 3        78      1      26.0    TRUE
+> 1    4        82      0      20.5    FALSE
+> 2    3        45      0      15.0    FALSE
+> 3    3        48      0      16.0    FALSE
+> 4    3        51      0      17.0    FALSE
+> 5    3        54      0      18.0    FALSE
+> 6    3        57      0      19.0    FALSE
+> 7    3        60      0      20.0    FALSE
+> 8    3        63      0      21.0    FALSE
+> 9    3        66      0      22.0    FALSE
+> 10   3        69      1      23.0    TRUE
+> 11   3        72      1      24.0    TRUE
+> 12   3        75      1      25.0    TRUE
+> rows (ordered): 13
+
+SELECT MOD(ID, 7) K, LISTAGG(ID) WITHIN GROUP (ORDER BY ID) FROM TEST GROUP BY K ORDER BY K;
+> K LISTAGG(ID) WITHIN GROUP (ORDER BY ID)
+> - --------------------------------------
+> 0 7,14,21,28,35
+> 1 1,8,15,22,29,36
+> 2 2,9,16,23,30,37
+> 3 3,10,17,24,31,38
+> 4 4,11,18,25,32,39
+> 5 5,12,19,26,33,40
+> 6 6,13,20,27,34
+> rows (ordered): 7
+
+DROP TABLE TEST;
+> ok
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, G INT) AS SELECT X, MOD(X, 8) FROM SYSTEM_RANGE(1, 3000);
+> ok
+
+SELECT G, COUNT(*), SUM(ID), AVG(ID) FROM TEST GROUP BY G ORDER BY G;
+> G COUNT(*) SUM(ID) AVG(ID)
+> - -------- ------- -------
+> 0 375      564000  1504.0
+> 1 375      561375  1497.0
+> 2 375      561750  1498.0
+> 3 375      562125  1499.0
+> 4 375      562500  1500.0
+> 5 375      562875  1501.0
+> 6 375      563250  1502.0
+> 7 375      563625  1503.0
+> rows (ordered): 8
+
+DROP TABLE TEST;
+> ok
+
+CREATE TABLE TEST(ID INT PRIMARY KEY, D DECFLOAT) AS SELECT X, 100 FROM SYSTEM_RANGE(1, 20);
+> ok
+
+SELECT MOD(ID, 10) K, AVG(D), SUM(D) FROM TEST GROUP BY K ORDER BY K OFFSET 7 ROWS;
+> K AVG(D) SUM(D)
+> - ------ ------
+> 7 1E+2   2E+2
+> 8 1E+2   2E+2
+> 9 1E+2   2E+2
+> rows (ordered): 3
+
+SELECT ID, AVG(D) FROM TEST GROUP BY ID ORDER BY ID OFFSET 18 ROWS;
+> ID AVG(D)
+> -- ------
+> 19 1E+2
+> 20 1E+2
+> rows (ordered): 2
+
+DROP TABLE TEST;
+> ok
@@ -354,7 +354,34 @@ insert into test(id) direct sorted select x from system_range(1, 100);
 > update count: 100
 
 explain insert into test(id) direct sorted select x from system_range(1, 100);
->> INSERT INTO "PUBLIC"."TEST"("ID") DIRECT SELECT "X" FROM SYSTEM_RANGE(1, 100) /* range index */
+>> INSERT INTO "PUBLIC"."TEST"("ID") DIRECT SORTED SELECT "X" FROM SYSTEM_RANGE(1, 100) /* range index */
+
+select count(*), min(id), max(id) from test;
+> COUNT(*) MIN(ID) MAX(ID)
+> -------- ------- -------
+> 100      1       100
+> rows: 1
+
+insert into test(id) direct sorted select x from system_range(100, 101);
+> exception DUPLICATE_KEY_1
+
+create table test2(id int primary key, v varchar);
+> ok
+
+insert into test2 direct sorted select 101 - x, 'v' || x from system_range(1, 100);
+> update count: 100
+
+select count(*), min(id), max(id), min(v) from test2;
+> COUNT(*) MIN(ID) MAX(ID) MIN(V)
+> -------- ------- ------- ------
+> 100      1       100     v1
+> rows: 1
+
+insert into test2 direct sorted select x, 'v' from system_range(1, 2);
+> exception DUPLICATE_KEY_1
+
+drop table test2;
+> ok
 
 explain select * from test limit 10;
 >> SELECT "PUBLIC"."TEST"."ID" FROM "PUBLIC"."TEST" /* PUBLIC.TEST.tableScan */ FETCH FIRST 10 ROWS ONLY
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.store;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.cache.CacheLongKeyOffHeap;
+import org.h2.store.fs.FileUtils;
+import org.h2.test.TestBase;
+import org.h2.util.Task;
+
+/**
+ * Tests the off-heap page cache.
+ */
+public class TestCacheLongKeyOffHeap extends TestBase {
+
+    /**
+     * Run just this test.
+     *
+     * @param a ignored
+     */
+    public static void main(String... a) throws Exception {
+        TestBase.createCaller().init().testFromMain();
+    }
+
+    @Override
+    public void test() throws Exception {
+        FileUtils.createDirectories(getBaseDir());
+        testGetPutRemove();
+        testEviction();
+        testRemoveRange();
+        testClear();
+        testConcurrent();
+        testStore();
+    }
+
+    private static ByteBuffer data(int key, int length) {
+        ByteBuffer buff = ByteBuffer.allocate(length);
+        for (int i = 0; i < length; i++) {
+            buff.put((byte) (key + i));
+        }
+        buff.flip();
+        return buff;
+    }
+
+    private void assertData(int key, int length, ByteBuffer buff) {
+        assertEquals(0, buff.position());
+        assertEquals(length, buff.remaining());
+        for (int i = 0; i < length; i++) {
+            assertEquals((byte) (key + i), buff.get(i));
+        }
+    }
+
+    private void testGetPutRemove() {
+        CacheLongKeyOffHeap test = new CacheLongKeyOffHeap(1 << 16);
+        assertEquals(4096, test.getMaxItemSize());
+        assertNull(test.get(1));
+        ByteBuffer buff = data(1, 100);
+        test.put(1, buff);
+        assertEquals(0, buff.position());
+        assertData(1, 100, test.get(1));
+        // existing entries are not replaced
+        test.put(1, data(2, 10));
+        assertData(1, 100, test.get(1));
+        assertEquals(1, test.size());
+        assertEquals(100, test.getUsedMemory());
+        assertTrue(test.remove(1));
+        assertFalse(test.remove(1));
+        assertNull(test.get(1));
+        assertEquals(0, test.size());
+        assertEquals(0, test.getUsedMemory());
+        // too large entries are not cached
+        test.put(2, data(2, 5000));
+        assertNull(test.get(2));
+        assertEquals(2, test.getHits());
+        assertEquals(3, test.getMisses());
+        assertEquals(0, test.getEvictions());
+    }
+
+    private void testEviction() {
+        CacheLongKeyOffHeap test = new CacheLongKeyOffHeap(1 << 16);
+        for (int i = 0; i < 10_000; i++) {
+            test.put(i, data(i, 1 + (i & 127)));
+            assertTrue(test.getUsedMemory() <= test.getMaxMemory());
+        }
+        assertTrue(test.getEvictions() > 0);
+        assertEquals(10_000, test.getEvictions() + test.size());
+        int found = 0;
+        for (int i = 0; i < 10_000; i++) {
+            ByteBuffer buff = test.get(i);
+            if (buff != null) {
+                assertData(i, 1 + (i & 127), buff);
+                found++;
+            }
+        }
+        assertEquals(test.size(), found);
+        // the most recently added entries are kept
+        assertNotNull(test.get(9_999));
+    }
+
+    private void testRemoveRange() {
+        CacheLongKeyOffHeap test = new CacheLongKeyOffHeap(1 << 20);
+        for (int i = 0; i < 100; i++) {
+            test.put(i, data(i, 10));
+        }
+        test.removeRange(10, 20);
+        assertEquals(90, test.size());
+        assertEquals(900, test.getUsedMemory());
+        assertNotNull(test.get(9));
+        assertNull(test.get(10));
+        assertNull(test.get(19));
+        assertNotNull(test.get(20));
+    }
+
+    private void testClear() {
+        CacheLongKeyOffHeap test = new CacheLongKeyOffHeap(1 << 16);
+        for (int i = 0; i < 100; i++) {
+            test.put(i, data(i, 50));
+        }
+        assertNotNull(test.get(1));
+        test.clear();
+        assertEquals(0, test.size());
+        assertEquals(0, test.getUsedMemory());
+        assertNull(test.get(1));
+        assertEquals(1, test.getHits());
+        assertEquals(1, test.getMisses());
+        test.put(1, data(1, 50));
+        assertData(1, 50, test.get(1));
+    }
+
+    private void testConcurrent() throws Exception {
+        CacheLongKeyOffHeap test = new CacheLongKeyOffHeap(1 << 14);
+        int threadCount = 8;
+        CountDownLatch wait = new CountDownLatch(1);
+        AtomicBoolean stopped = new AtomicBoolean();
+        Task[] tasks = new Task[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            int x = i;
+            Task t = new Task() {
+                @Override
+                public void call() throws Exception {
+                    Random random = new Random(x);
+                    wait.await();
+                    for (int i = 0; !stopped.get(); i++) {
+                        int key = random.nextInt(1000);
+                        int length = 1 + (key & 255);
+                        ByteBuffer buff = test.get(key);
+                        if (buff != null) {
+                            if (buff.remaining() != length) {
+                                throw new AssertionError(key + " " + buff.remaining());
+                            }
+                            for (int j = 0; j < length; j++) {
+                                if (buff.get(j) != (byte) (key + j)) {
+                                    throw new AssertionError(key + " " + j);
+                                }
+                            }
+                        } else {
+                            test.put(key, data(key, length));
+                        }
+                        if ((i & 127) == 1) {
+                            test.remove(key);
+                        }
+                    }
+                }
+            };
+            t.execute("t" + i);
+            tasks[i] = t;
+        }
+        wait.countDown();
+        Thread.sleep(500);
+        stopped.set(true);
+        for (Task t : tasks) {
+            t.get();
+        }
+        assertTrue(test.getUsedMemory() <= test.getMaxMemory());
+    }
+
+    private void testStore() {
+        String fileName = getBaseDir() + "/" + getTestName() + ".h3";
+        FileUtils.delete(fileName);
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < 10_000; i++) {
+                map.put(i, "Hello " + i);
+            }
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).cacheSize(1).offHeapCacheSize(4).open()) {
+            CacheLongKeyOffHeap offHeapCache = s.getOffHeapCache();
+            assertNotNull(offHeapCache);
+            assertEquals(4 << 20, offHeapCache.getMaxMemory());
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < 10_000; i++) {
+                assertEquals("Hello " + i, map.get(i));
+            }
+            assertTrue(offHeapCache.size() > 0);
+            assertEquals(0, offHeapCache.getHits());
+            // pages evicted from the read cache are read from the off-heap cache
+            s.getCache().clear();
+            for (int i = 0; i < 10_000; i++) {
+                assertEquals("Hello " + i, map.get(i));
+            }
+            assertTrue(offHeapCache.getHits() > 0);
+            assertTrue(s.getOffHeapCacheHitRatio() > 0);
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            assertNull(s.getOffHeapCache());
+        }
+        FileUtils.delete(fileName);
+    }
+
+}
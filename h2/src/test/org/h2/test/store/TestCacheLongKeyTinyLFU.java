@@ -0,0 +1,198 @@
+/*
+ * Copyright 2004-2022 H2 Group. Multiple-Licensed under the MPL 2.0,
+ * and the EPL 1.0 (https://h2database.com/html/license.html).
+ * Initial Developer: H2 Group
+ */
+package org.h2.test.store;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.h2.mvstore.cache.CacheLongKeyTinyLFU;
+import org.h2.test.TestBase;
+import org.h2.util.Task;
+
+/**
+ * Tests the cache with lock-free lookups.
+ */
+public class TestCacheLongKeyTinyLFU extends TestBase {
+
+    /**
+     * Run just this test.
+     *
+     * @param a ignored
+     */
+    public static void main(String... a) throws Exception {
+        TestBase.createCaller().init().testFromMain();
+    }
+
+    @Override
+    public void test() throws Exception {
+        testGetPutRemove();
+        testLimitMemory();
+        testClear();
+        testFrequencyAdmission();
+        testRandomOperations();
+        testConcurrent();
+    }
+
+    private void testGetPutRemove() {
+        CacheLongKeyTinyLFU<Integer> test = new CacheLongKeyTinyLFU<>(1000);
+        assertNull(test.get(1));
+        assertNull(test.put(1, 10, 1));
+        assertEquals(10, test.get(1).intValue());
+        assertEquals(10, test.put(1, 11, 2).intValue());
+        assertEquals(11, test.get(1).intValue());
+        assertEquals(2, test.getUsedMemory());
+        assertEquals(1, test.size());
+        assertEquals(11, test.remove(1).intValue());
+        assertNull(test.remove(1));
+        assertNull(test.get(1));
+        assertEquals(0, test.getUsedMemory());
+        assertEquals(0, test.size());
+        assertEquals(2, test.getHits());
+        assertEquals(2, test.getMisses());
+        assertEquals(0, test.getEvictions());
+        // too large entries are not cached
+        assertNull(test.put(2, 20, 1000));
+        assertNull(test.get(2));
+        assertThrows(IllegalArgumentException.class, () -> test.put(3, null, 1));
+    }
+
+    private void testLimitMemory() {
+        CacheLongKeyTinyLFU<Integer> test = new CacheLongKeyTinyLFU<>(1000);
+        for (int i = 0; i < 10_000; i++) {
+            test.put(i, i, 1 + (i & 7));
+            assertTrue(test.getUsedMemory() <= 1000);
+        }
+        assertTrue(test.getEvictions() > 0);
+        assertTrue(test.size() > 100);
+        int found = 0;
+        for (int i = 0; i < 10_000; i++) {
+            Integer v = test.get(i);
+            if (v != null) {
+                assertEquals(i, v.intValue());
+                found++;
+            }
+        }
+        assertEquals(found, test.getHits());
+        assertEquals(10_000 - found, test.getMisses());
+    }
+
+    private void testClear() {
+        CacheLongKeyTinyLFU<Integer> test = new CacheLongKeyTinyLFU<>(1000);
+        for (int i = 0; i < 100; i++) {
+            test.put(i, i, 5);
+        }
+        test.clear();
+        assertEquals(0, test.size());
+        assertEquals(0, test.getUsedMemory());
+        assertNull(test.get(1));
+        test.setMaxMemory(10);
+        test.clear();
+        assertEquals(10, test.getMaxMemory());
+        test.put(1, 1, 1);
+        assertEquals(1, test.get(1).intValue());
+    }
+
+    private void testFrequencyAdmission() {
+        CacheLongKeyTinyLFU<Integer> test = new CacheLongKeyTinyLFU<>(100);
+        for (int i = 0; i < 50; i++) {
+            test.put(i, i, 1);
+        }
+        // make the first entries frequently used
+        for (int j = 0; j < 20; j++) {
+            for (int i = 0; i < 50; i++) {
+                test.get(i);
+            }
+        }
+        // a scan over many entries that are used only once
+        for (int i = 1000; i < 11_000; i++) {
+            test.put(i, i, 1);
+        }
+        int found = 0;
+        for (int i = 0; i < 50; i++) {
+            if (test.get(i) != null) {
+                found++;
+            }
+        }
+        assertTrue("found: " + found, found > 40);
+    }
+
+    private void testRandomOperations() {
+        Random r = new Random(1);
+        CacheLongKeyTinyLFU<Integer> test = new CacheLongKeyTinyLFU<>(100);
+        HashMap<Integer, Integer> good = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            int key = r.nextInt(300);
+            switch (r.nextInt(3)) {
+            case 0: {
+                Integer v = test.get(key);
+                if (v != null) {
+                    assertEquals(good.get(key), v);
+                }
+                break;
+            }
+            case 1: {
+                int v = r.nextInt();
+                test.put(key, v, 1 + r.nextInt(3));
+                good.put(key, v);
+                break;
+            }
+            default:
+                test.remove(key);
+                good.remove(key);
+            }
+            assertTrue(test.getUsedMemory() <= 100);
+        }
+    }
+
+    private void testConcurrent() throws Exception {
+        CacheLongKeyTinyLFU<Integer> test = new CacheLongKeyTinyLFU<>(100);
+        int threadCount = 8;
+        CountDownLatch wait = new CountDownLatch(1);
+        AtomicBoolean stopped = new AtomicBoolean();
+        Task[] tasks = new Task[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            int x = i;
+            Task t = new Task() {
+                @Override
+                public void call() throws Exception {
+                    Random random = new Random(x);
+                    wait.await();
+                    for (int i = 0; !stopped.get(); i++) {
+                        int key = Math.min(299, (int) Math.abs(random.nextGaussian() * 50));
+                        Integer v = test.get(key);
+                        if (v != null && v != key) {
+                            throw new AssertionError(key + " " + v);
+                        }
+                        if ((i & 7) == 0) {
+                            test.put(key, key, 1 + random.nextInt(4));
+                        } else if ((i & 127) == 1) {
+                            test.remove(key);
+                        }
+                    }
+                }
+            };
+            t.execute("t" + i);
+            tasks[i] = t;
+        }
+        wait.countDown();
+        Thread.sleep(500);
+        stopped.set(true);
+        for (Task t : tasks) {
+            t.get();
+        }
+        test.put(-1, -1, 1);
+        assertTrue(test.getUsedMemory() <= 100 + 4);
+        int count = 0;
+        for (int key = -1; key < 300; key++) {
+            if (test.get(key) != null) {
+                count++;
+            }
+        }
+        assertEquals(count, test.size());
+    }
+
+}
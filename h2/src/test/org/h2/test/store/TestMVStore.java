@@ -17,6 +17,7 @@
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import org.h2.mvstore.BulkLoader;
 import org.h2.mvstore.Chunk;
 import org.h2.mvstore.Cursor;
 import org.h2.mvstore.DataUtils;
@@ -24,8 +25,10 @@
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
 import org.h2.mvstore.MVStoreException;
+import org.h2.mvstore.MVStoreTool;
 import org.h2.mvstore.OffHeapStore;
 import org.h2.mvstore.type.DataType;
+import org.h2.mvstore.type.LongDataType;
 import org.h2.mvstore.type.ObjectDataType;
 import org.h2.mvstore.type.StringDataType;
 import org.h2.store.fs.FilePath;
@@ -67,8 +70,15 @@ public void test() throws Exception {
         testRemoveMap();
         testIsEmpty();
         testOffHeapStorage();
+        testMemoryMapped();
+        testParallelSerialization();
+        testCompressKeys();
+        testBulkLoad();
+        testPrefetch();
+        testReadAhead();
         testNewerWriteVersion();
         testCompactFully();
+        testAutoCompactRate();
         testBackgroundExceptionListener();
         testOldVersion();
         testAtomicOperations();
@@ -415,6 +425,370 @@ private void testOffHeapStorage() {
         }
     }
 
+    private void testMemoryMapped() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        int count = 10_000;
+        try (MVStore s = new MVStore.Builder().
+                fileName(fileName).
+                memoryMapped().
+                open()) {
+            assertTrue(s.getFileStore().isMemoryMapped());
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < count; i++) {
+                map.put(i, "Hello " + i);
+                if (i % 1000 == 999) {
+                    s.commit();
+                }
+            }
+        }
+        try (MVStore s = new MVStore.Builder().
+                fileName(fileName).
+                memoryMapped().
+                open()) {
+            FileStore fs = s.getFileStore();
+            long readCount = fs.getReadCount();
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < count; i++) {
+                assertEquals("Hello " + i, map.get(i));
+            }
+            // pages are read from the mapped chunks
+            assertTrue(fs.getReadCount() - readCount < 10);
+            for (int i = 0; i < count; i += 2) {
+                map.remove(i);
+            }
+            s.commit();
+            s.compactFile(1000);
+            for (int i = 0; i < count; i++) {
+                assertEquals(i % 2 == 0 ? null : "Hello " + i, map.get(i));
+            }
+        }
+        FileUtils.delete(fileName);
+        try (MVStore s = new MVStore.Builder().
+                fileName(fileName).
+                memoryMapped().
+                encryptionKey("007".toCharArray()).
+                open()) {
+            assertFalse(s.getFileStore().isMemoryMapped());
+            s.openMap("data").put(1, "Hello");
+        }
+        FileUtils.delete(fileName);
+    }
+
+    private void testParallelSerialization() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        long[] rootPos = new long[2];
+        for (int compress = 0; compress < 2; compress++) {
+            for (int i = 0; i < 2; i++) {
+                FileUtils.delete(fileName);
+                MVStore.Builder builder = new MVStore.Builder().
+                        fileName(fileName).
+                        pageSplitSize(1024).
+                        serializationThreads(i == 0 ? 1 : 4).
+                        autoCommitDisabled();
+                if (compress == 1) {
+                    builder.compress();
+                }
+                try (MVStore s = builder.open()) {
+                    MVMap<Integer, String> map = s.openMap("data");
+                    MVMap<Integer, String> map2 = s.openMap("data2");
+                    for (int j = 0; j < 100_000; j++) {
+                        map.put(j, "Hello " + j);
+                        map2.put(-j, "World " + j);
+                    }
+                    s.commit();
+                    rootPos[i] = map.getRootPage().getPos();
+                    assertEquals(rootPos[0], rootPos[i]);
+                }
+                try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+                    MVMap<Integer, String> map = s.openMap("data");
+                    MVMap<Integer, String> map2 = s.openMap("data2");
+                    for (int j = 0; j < 100_000; j++) {
+                        assertEquals("Hello " + j, map.get(j));
+                        assertEquals("World " + j, map2.get(-j));
+                    }
+                }
+            }
+        }
+        FileUtils.delete(fileName);
+    }
+
+    private void testCompressKeys() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        long[] fileSize = new long[2];
+        for (int i = 0; i < 2; i++) {
+            FileUtils.delete(fileName);
+            MVStore.Builder builder = new MVStore.Builder().fileName(fileName);
+            if (i == 1) {
+                builder.compressKeys();
+            }
+            try (MVStore s = builder.open()) {
+                assertEquals(i == 0 ? "2" : "3", s.getStoreHeader().get("format").toString());
+                writeCompressKeysData(s);
+            }
+            fileSize[i] = FileUtils.size(fileName);
+            // stores with delta encoded keys are readable without the option
+            try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+                assertEquals(i == 0 ? "2" : "3", s.getStoreHeader().get("format").toString());
+                verifyCompressKeysData(s);
+            }
+        }
+        assertTrue(fileSize[1] + " " + fileSize[0], fileSize[1] < fileSize[0]);
+        // existing stores are upgraded
+        FileUtils.delete(fileName);
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            writeCompressKeysData(s);
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).compressKeys().open()) {
+            assertEquals("3", s.getStoreHeader().get("format").toString());
+            MVMap<Long, Long> map = s.openMap("long",
+                    new MVMap.Builder<Long, Long>().keyType(LongDataType.INSTANCE));
+            for (long j = 1; j < 20_000; j += 2) {
+                map.put(j, j);
+            }
+            verifyCompressKeysData(s);
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            assertEquals("3", s.getStoreHeader().get("format").toString());
+            verifyCompressKeysData(s);
+        }
+        // pages are copied as they are
+        MVStoreTool.compact(fileName, true);
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            assertEquals("3", s.getStoreHeader().get("format").toString());
+            verifyCompressKeysData(s);
+        }
+        FileUtils.delete(fileName);
+    }
+
+    private static void writeCompressKeysData(MVStore s) {
+        MVMap<Long, Long> longMap = s.openMap("long",
+                new MVMap.Builder<Long, Long>().keyType(LongDataType.INSTANCE));
+        MVMap<String, String> stringMap = s.openMap("string",
+                new MVMap.Builder<String, String>().keyType(StringDataType.INSTANCE));
+        for (int j = 0; j < 10_000; j++) {
+            longMap.put(2L * j, (long) j);
+            stringMap.put("tenant " + j / 1000 + " \u00e4\u20ac " + j, "x");
+        }
+        longMap.put(Long.MIN_VALUE, 1L);
+        longMap.put(Long.MAX_VALUE, 2L);
+        stringMap.put("", "x");
+        stringMap.put("\ud83d\ude00\ud83d\ude01", "x");
+        stringMap.put("\ud83d\ude00\ud83d", "x");
+    }
+
+    private void verifyCompressKeysData(MVStore s) {
+        MVMap<Long, Long> longMap = s.openMap("long",
+                new MVMap.Builder<Long, Long>().keyType(LongDataType.INSTANCE));
+        MVMap<String, String> stringMap = s.openMap("string",
+                new MVMap.Builder<String, String>().keyType(StringDataType.INSTANCE));
+        for (int j = 0; j < 10_000; j++) {
+            assertEquals(j, longMap.get(2L * j).longValue());
+            assertEquals("x", stringMap.get("tenant " + j / 1000 + " \u00e4\u20ac " + j));
+        }
+        assertEquals(1L, longMap.get(Long.MIN_VALUE).longValue());
+        assertEquals(2L, longMap.get(Long.MAX_VALUE).longValue());
+        assertEquals(Long.MIN_VALUE, longMap.firstKey().longValue());
+        assertEquals(Long.MAX_VALUE, longMap.lastKey().longValue());
+        assertEquals(10_003, stringMap.size());
+        assertEquals("", stringMap.firstKey());
+        assertEquals("x", stringMap.get("\ud83d\ude00\ud83d\ude01"));
+        assertEquals("x", stringMap.get("\ud83d\ude00\ud83d"));
+    }
+
+    private void testBulkLoad() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        int count = 200_000;
+        try (MVStore s = new MVStore.Builder().fileName(fileName).autoCommitBufferSize(1).open()) {
+            MVMap<Long, String> map = s.openMap("data",
+                    new MVMap.Builder<Long, String>().keyType(LongDataType.INSTANCE));
+            BulkLoader<Long, String> loader = new BulkLoader<>(map);
+            for (long i = 0; i < count; i++) {
+                loader.add(i * 2, "Hello " + i);
+                if (i % 10_000 == 0) {
+                    // the entries loaded so far become visible while loading
+                    long size = map.sizeAsLong();
+                    assertTrue(size <= i);
+                    if (size > 0) {
+                        assertEquals((size - 1) * 2, map.lastKey().longValue());
+                    }
+                }
+            }
+            assertEquals(count, loader.finish());
+            assertTrue(s.getCurrentVersion() > 10);
+            verifyBulkLoad(map, count);
+            // the map can be modified as usual afterwards
+            map.put(1L, "odd");
+            map.remove(0L);
+            map.put(count * 2L, "last");
+            assertEquals("odd", map.get(1L));
+            assertEquals(count + 1, map.sizeAsLong());
+            map.remove(1L);
+            map.put(0L, "Hello 0");
+            map.remove(count * 2L);
+            verifyBulkLoad(map, count);
+            // the map must be empty
+            assertThrows(IllegalArgumentException.class, () -> new BulkLoader<>(map));
+            MVMap<Long, String> small = s.openMap("small",
+                    new MVMap.Builder<Long, String>().keyType(LongDataType.INSTANCE));
+            TreeMap<Long, String> source = new TreeMap<>();
+            for (long i = 0; i < 5; i++) {
+                source.put(i * 2, "Hello " + i);
+            }
+            assertEquals(5, small.bulkLoad(source.entrySet().iterator()));
+            verifyBulkLoad(small, 5);
+            // entries larger than a page end leaf pages early
+            MVMap<Long, String> large = s.openMap("large");
+            BulkLoader<Long, String> largeLoader = new BulkLoader<>(large);
+            for (long i = 0; i < 3; i++) {
+                largeLoader.add(i, new String(new char[100_000]).replace('\0', (char) ('a' + i)));
+            }
+            assertEquals(3, largeLoader.finish());
+            MVMap<Long, String> empty = s.openMap("empty");
+            assertEquals(0, empty.bulkLoad(source.headMap(0L).entrySet().iterator()));
+            assertTrue(empty.isEmpty());
+            // keys must be added in ascending order
+            BulkLoader<Long, String> unordered = new BulkLoader<>(empty);
+            unordered.add(2L, "a");
+            assertThrows(IllegalArgumentException.class, () -> unordered.add(2L, "b"));
+            assertThrows(IllegalArgumentException.class, () -> unordered.add(1L, "b"));
+            assertEquals(1, unordered.finish());
+            assertEquals("a", empty.get(2L));
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            verifyBulkLoad(s.openMap("data", new MVMap.Builder<Long, String>().keyType(LongDataType.INSTANCE)),
+                    count);
+            verifyBulkLoad(s.openMap("small", new MVMap.Builder<Long, String>().keyType(LongDataType.INSTANCE)),
+                    5);
+            MVMap<Long, String> large = s.openMap("large");
+            assertEquals(3, large.size());
+            for (long i = 0; i < 3; i++) {
+                String value = large.get(i);
+                assertEquals(100_000, value.length());
+                assertEquals('a' + i, value.charAt(99_999));
+            }
+            // pages replaced while loading are accounted as removed
+            s.compactFile(10_000);
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            verifyBulkLoad(s.openMap("data", new MVMap.Builder<Long, String>().keyType(LongDataType.INSTANCE)),
+                    count);
+        }
+        // in-memory maps
+        try (MVStore s = new MVStore.Builder().open()) {
+            MVMap<Long, String> map = s.openMap("data");
+            BulkLoader<Long, String> loader = new BulkLoader<>(map);
+            for (long i = 0; i < 10_000; i++) {
+                loader.add(i * 2, "Hello " + i);
+            }
+            assertEquals(10_000, loader.finish());
+            verifyBulkLoad(map, 10_000);
+        }
+        FileUtils.delete(fileName);
+    }
+
+    private void verifyBulkLoad(MVMap<Long, String> map, int count) {
+        assertEquals(count, map.sizeAsLong());
+        assertEquals(0L, map.firstKey().longValue());
+        assertEquals((count - 1) * 2L, map.lastKey().longValue());
+        long expected = 0;
+        for (Iterator<Long> it = map.keyIterator(null); it.hasNext(); expected += 2) {
+            assertEquals(expected, it.next().longValue());
+        }
+        assertEquals(count * 2L, expected);
+        for (long i = 0; i < count; i += 1 + i / 10) {
+            assertEquals("Hello " + i, map.get(i * 2));
+            assertNull(map.get(i * 2 + 1));
+            assertEquals(i, map.getKeyIndex(i * 2));
+        }
+    }
+
+    private void testPrefetch() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        int count = 50_000;
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            for (int i = 0; i < count; i++) {
+                map.put(i, "Hello " + i);
+            }
+        }
+        // also through the asynchronous file channel
+        for (String prefix : new String[] { "", "async:" }) {
+            try (MVStore s = new MVStore.Builder().fileName(prefix + fileName).
+                    cacheSize(1).prefetchThreads(4).open()) {
+                MVMap<Integer, String> map = s.openMap("data");
+                int expected = 0;
+                for (Cursor<Integer, String> c = map.cursor(null); c.hasNext(); expected++) {
+                    assertEquals(expected, c.next().intValue());
+                    assertEquals("Hello " + expected, c.getValue());
+                }
+                assertEquals(count, expected);
+                // pages beyond the end of the range are not needed
+                expected = count - 1000;
+                for (Cursor<Integer, String> c = map.cursor(expected, 2000, true); c.hasNext(); expected--) {
+                    assertEquals(expected, c.next().intValue());
+                    assertEquals("Hello " + expected, c.getValue());
+                }
+                assertEquals(1999, expected);
+                // the pages are still readable after changes
+                for (int i = 0; i < count; i += 100) {
+                    map.remove(i);
+                }
+                s.commit();
+                assertEquals(count - count / 100, map.sizeAsLong());
+                for (int i = 0; i < count; i += 7) {
+                    assertEquals(i % 100 == 0 ? null : "Hello " + i, map.get(i));
+                }
+                for (int i = 0; i < count; i += 100) {
+                    map.put(i, "Hello " + i);
+                }
+            }
+        }
+        FileUtils.delete(fileName);
+    }
+
+    private void testReadAhead() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        int count = 50_000;
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            MVMap<Integer, String> map = s.openMap("data");
+            MVMap<Integer, String> other = s.openMap("other");
+            for (int i = 0; i < count; i++) {
+                map.put(i, "Hello " + i);
+                if (i % 3 == 0) {
+                    other.put(i, "World " + i);
+                }
+            }
+        }
+        long[] readCount = new long[2];
+        for (int readAhead = 0; readAhead < 2; readAhead++) {
+            try (MVStore s = new MVStore.Builder().fileName(fileName).
+                    cacheSize(1).readAheadPages(readAhead * 16).open()) {
+                MVMap<Integer, String> map = s.openMap("data");
+                long start = s.getFileStore().getReadCount();
+                int expected = 0;
+                for (Cursor<Integer, String> c = map.cursor(null); c.hasNext(); expected++) {
+                    assertEquals(expected, c.next().intValue());
+                    assertEquals("Hello " + expected, c.getValue());
+                }
+                assertEquals(count, expected);
+                readCount[readAhead] = s.getFileStore().getReadCount() - start;
+                expected = count - 1000;
+                for (Cursor<Integer, String> c = map.cursor(expected, 2000, true); c.hasNext(); expected--) {
+                    assertEquals(expected, c.next().intValue());
+                    assertEquals("Hello " + expected, c.getValue());
+                }
+                assertEquals(1999, expected);
+            }
+        }
+        // leaf pages next to each other are read together
+        assertTrue(readCount[1] + " " + readCount[0], readCount[1] * 2 < readCount[0]);
+        FileUtils.delete(fileName);
+    }
+
     private void testNewerWriteVersion() {
         String fileName = getBaseDir() + "/" + getTestName();
         FileUtils.delete(fileName);
@@ -426,7 +800,7 @@ private void testNewerWriteVersion() {
         Map<String, Object> header = s.getStoreHeader();
         assertEquals("2", header.get("format").toString());
         header.put("formatRead", "2");
-        header.put("format", "3");
+        header.put("format", "4");
         forceWriteStoreHeader(s);
         MVMap<Integer, String> m = s.openMap("data");
         forceWriteStoreHeader(s);
@@ -492,6 +866,53 @@ private void testCompactFully() {
         assertTrue("old: " + sizeOld + " new: " + sizeNew, sizeNew < sizeOld);
     }
 
+    private void testAutoCompactRate() {
+        String fileName = getBaseDir() + "/" + getTestName();
+        FileUtils.delete(fileName);
+        int count = 20_000;
+        byte[] value = new byte[400];
+        Random r = new Random(1);
+        try (MVStore s = new MVStore.Builder().
+                fileName(fileName).
+                autoCompactFillRate(80).
+                autoCompactRate(1).
+                open()) {
+            s.setRetentionTime(0);
+            s.setVersionsToKeep(0);
+            s.setAutoCommitDelay(10);
+            MVMap<Integer, byte[]> map = s.openMap("data");
+            for (int i = 0; i < count; i++) {
+                map.put(i, value);
+            }
+            s.commit();
+            for (int j = 0; j < 10; j++) {
+                for (int i = 0; i < 1000; i++) {
+                    map.put(r.nextInt(count), value);
+                }
+                s.commit();
+            }
+            FileStore fs = s.getFileStore();
+            long start = System.nanoTime();
+            long writeBytes = fs.getWriteBytes();
+            sleep(500);
+            long written = fs.getWriteBytes() - writeBytes;
+            long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            // the budget of one second may have been saved up, and a chunk may
+            // be somewhat larger than the pages it was asked to re-write
+            long limit = 2 * 1024 * 1024 * (1000 + time) / 1000;
+            assertTrue(written + " > " + limit, written <= limit);
+            assertEquals(count, map.size());
+        }
+        try (MVStore s = openStore(fileName)) {
+            MVMap<Integer, byte[]> map = s.openMap("data");
+            assertEquals(count, map.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals(value, map.get(i));
+            }
+        }
+        FileUtils.delete(fileName);
+    }
+
     private void testBackgroundExceptionListener() throws Exception {
         String fileName = getBaseDir() + "/" + getTestName();
         FileUtils.delete(fileName);
@@ -718,7 +1139,8 @@ private void testFileFormatChange() {
             Map<String, Object> header = s.getStoreHeader();
             int format = Integer.parseInt(header.get("format").toString());
             assertEquals(2, format);
-            header.put("format", Integer.toString(format + 1));
+            // format 3 is supported, but only used if keys are compressed
+            header.put("format", Integer.toString(format + 2));
             forceWriteStoreHeader(s);
         }
         assertThrows(DataUtils.ERROR_UNSUPPORTED_FORMAT, () -> openStore(fileName).close());
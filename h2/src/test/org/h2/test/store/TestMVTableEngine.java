@@ -98,6 +98,12 @@ public void test() throws Exception {
         testReuseDiskSpace();
 */
         testDataTypes();
+        testColumnar();
+        testColumnarIgnoreCase();
+        testCompressKeys();
+        testCompressKeysIgnoreCase();
+        testBulkLoad();
+        testParallelCreateIndex();
 //        testSimple();
 //        if (!config.travis) {
 //            testReverseDeletePerformance();
@@ -1018,6 +1024,252 @@ private void testReopen() throws SQLException {
         conn.close();
     }
 
+    private void testColumnar() throws SQLException {
+        if (config.memory) {
+            return;
+        }
+        deleteDb(getTestName());
+        String dbName = getTestName();
+        Connection conn = getConnection(dbName);
+        Statement stat = conn.createStatement();
+        String query = "select count(*), sum(k), max(ts), count(s), sum(n), sum(length(c)), min(r), sum(e) "
+                + "from test";
+        for (String table : new String[] { "test", "plain" }) {
+            stat.execute("create table " + table + "(id bigint primary key, ts timestamp, k int, s varchar, "
+                    + "n numeric(10, 2), b tinyint, c clob, r int)" + (table.equals("test") ? " with columnar" : ""));
+            stat.execute("insert into " + table + " select x, timestamp '2020-01-01 00:00:00' + x * interval '1' "
+                    + "second, x / 100, 'e' || mod(x, 7), case when mod(x, 3) = 0 then null else mod(x, 50) / 3 end, "
+                    + "mod(x, 2), case when mod(x, 5000) = 0 then repeat('x', 10000) end, mod(x * 7919, 100003) "
+                    + "from system_range(1, 20000)");
+            stat.execute("delete from " + table + " where mod(id, 11) = 0");
+            conn.setAutoCommit(false);
+            stat.execute("update " + table + " set k = -1 where id < 1000");
+            conn.rollback();
+            conn.setAutoCommit(true);
+            stat.execute("alter table " + table + " add column e int default 5");
+        }
+        conn.close();
+        conn = getConnection(dbName);
+        stat = conn.createStatement();
+        ResultSet rs = stat.executeQuery("script nodata table test");
+        boolean found = false;
+        while (rs.next()) {
+            found |= rs.getString(1).endsWith("WITH \"COLUMNAR\";");
+        }
+        assertTrue(found);
+        rs = stat.executeQuery(query);
+        rs.next();
+        ResultSet rs2 = conn.createStatement().executeQuery(query.replace("test", "plain"));
+        rs2.next();
+        for (int i = 1; i <= 8; i++) {
+            assertEquals(rs2.getString(i), rs.getString(i));
+        }
+        assertEquals(18182, rs.getLong(1));
+        conn.close();
+    }
+
+    private void testColumnarIgnoreCase() throws SQLException {
+        if (config.memory) {
+            return;
+        }
+        deleteDb(getTestName());
+        String dbName = getTestName();
+        Connection conn = getConnection(dbName);
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, v varchar_ignorecase, a varchar_ignorecase array) "
+                + "with columnar");
+        stat.execute("insert into test select x, case when x <= 50 then 'abc' else 'ABC' end, "
+                + "array[case when mod(x, 2) = 0 then 'abc' else 'ABC' end] from system_range(1, 100)");
+        conn.close();
+        conn = getConnection(dbName);
+        stat = conn.createStatement();
+        ResultSet rs = stat.executeQuery("select count(*) from test where cast(v as varchar) = 'ABC'");
+        rs.next();
+        assertEquals(50, rs.getInt(1));
+        rs = stat.executeQuery("select count(*) from test where cast(a[1] as varchar) = 'ABC'");
+        rs.next();
+        assertEquals(50, rs.getInt(1));
+        rs = stat.executeQuery("select count(*) from test where v = 'ABC'");
+        rs.next();
+        assertEquals(100, rs.getInt(1));
+        conn.close();
+    }
+
+    private void testCompressKeys() throws SQLException {
+        if (config.memory) {
+            return;
+        }
+        String query = "select count(*), count(distinct d), sum(v), min(d), max(d) from test "
+                + "where tenant_id = 3 and d between date '2020-02-01' and date '2020-03-01'";
+        String[] result = null;
+        long[] fileSize = new long[2];
+        for (int i = 0; i < 2; i++) {
+            deleteDb(getTestName());
+            String dbName = getTestName() + (i == 1 ? ";COMPRESS_KEYS=TRUE" : "");
+            Connection conn = getConnection(dbName);
+            Statement stat = conn.createStatement();
+            stat.execute("create table test(id bigint primary key, tenant_id int, d date, "
+                    + "name varchar, v int)");
+            stat.execute("create index idx_tenant on test(tenant_id, d, name)");
+            stat.execute("insert into test select x, mod(x, 10), date '2020-01-01' + x / 100 * interval '1' day, "
+                    + "'name ' || mod(x, 13), mod(x, 17) from system_range(1, 50000)");
+            stat.execute("delete from test where mod(id, 7) = 0");
+            conn.close();
+            fileSize[i] = FileUtils.size(getBaseDir() + "/" + getTestName() + Constants.SUFFIX_MV_FILE);
+            conn = getConnection(dbName);
+            stat = conn.createStatement();
+            ResultSet rs = stat.executeQuery(query);
+            rs.next();
+            if (i == 0) {
+                result = new String[5];
+                for (int j = 0; j < 5; j++) {
+                    result[j] = rs.getString(j + 1);
+                }
+            } else {
+                for (int j = 0; j < 5; j++) {
+                    assertEquals(result[j], rs.getString(j + 1));
+                }
+            }
+            rs = stat.executeQuery("select count(*) from test where tenant_id = 3 and d = date '2020-02-01' "
+                    + "and name = 'name 6'");
+            rs.next();
+            assertEquals(1, rs.getLong(1));
+            conn.close();
+        }
+        assertTrue(fileSize[1] + " " + fileSize[0], fileSize[1] < fileSize[0]);
+        deleteDb(getTestName());
+    }
+
+    private void testCompressKeysIgnoreCase() throws SQLException {
+        if (config.memory) {
+            return;
+        }
+        deleteDb(getTestName());
+        String dbName = getTestName() + ";COMPRESS_KEYS=TRUE";
+        Connection conn = getConnection(dbName);
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, v varchar_ignorecase, a varchar_ignorecase array)");
+        stat.execute("create index idx_v on test(v, id)");
+        stat.execute("create index idx_a on test(a, id)");
+        stat.execute("insert into test values (1, 'abc', array['abc']), (2, 'ABC', array['ABC']), "
+                + "(3, 'Abc', array['Abc'])");
+        conn.close();
+        conn = getConnection(dbName);
+        stat = conn.createStatement();
+        ResultSet rs = stat.executeQuery("explain select id, v from test use index (idx_v) where v = 'abc'");
+        rs.next();
+        assertContains(rs.getString(1), "/* PUBLIC.IDX_V: V = ");
+        rs = stat.executeQuery("select id, cast(v as varchar) from test use index (idx_v) where v = 'abc' "
+                + "order by id");
+        for (String expected : new String[] { "abc", "ABC", "Abc" }) {
+            assertTrue(rs.next());
+            assertEquals(expected, rs.getString(2));
+        }
+        assertFalse(rs.next());
+        rs = stat.executeQuery("select id, cast(a[1] as varchar) from test use index (idx_a) "
+                + "where a = array['abc'] order by id");
+        for (String expected : new String[] { "abc", "ABC", "Abc" }) {
+            assertTrue(rs.next());
+            assertEquals(expected, rs.getString(2));
+        }
+        assertFalse(rs.next());
+        conn.close();
+        deleteDb(getTestName());
+    }
+
+    private void testBulkLoad() throws SQLException {
+        if (config.memory) {
+            return;
+        }
+        deleteDb(getTestName());
+        String dbName = getTestName() + ";MAX_MEMORY_ROWS=10000";
+        Connection conn = getConnection(dbName);
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id bigint primary key, name varchar, v int) as "
+                + "select x, 'n' || x, mod(x, 1000) from system_range(1, 100000)");
+        stat.execute("create table test2(id int, data clob)");
+        stat.execute("insert into test2 direct sorted select x, 'data ' || x from system_range(1, 100000)");
+        // indexes of empty maps are built from the merged buffers
+        stat.execute("create index idx_v on test(v)");
+        stat.execute("create unique index idx_name on test(name)");
+        assertThrows(ErrorCode.DUPLICATE_KEY_1, stat).execute("create unique index idx_fail on test(v)");
+        // a failed statement removes all loaded rows
+        stat.execute("create table test3(id int primary key)");
+        assertThrows(ErrorCode.DIVISION_BY_ZERO_1, stat).execute("insert into test3 direct sorted "
+                + "select case when x < 50000 then x else x / (x - x) end from system_range(1, 100000)");
+        verifyBulkLoad(stat);
+        conn.close();
+        conn = getConnection(dbName);
+        stat = conn.createStatement();
+        verifyBulkLoad(stat);
+        stat.execute("insert into test3 values 1");
+        conn.close();
+        deleteDb(getTestName());
+    }
+
+    private void verifyBulkLoad(Statement stat) throws SQLException {
+        ResultSet rs = stat.executeQuery("select count(*), sum(id), sum(v) from test");
+        rs.next();
+        assertEquals(100_000, rs.getLong(1));
+        assertEquals(5_000_050_000L, rs.getLong(2));
+        assertEquals(49_950_000L, rs.getLong(3));
+        rs = stat.executeQuery("select count(*) from test where v = 5");
+        rs.next();
+        assertEquals(100, rs.getLong(1));
+        rs = stat.executeQuery("select id from test where name = 'n777'");
+        rs.next();
+        assertEquals(777, rs.getLong(1));
+        assertFalse(rs.next());
+        rs = stat.executeQuery("select count(*) from information_schema.indexes where index_name = 'IDX_FAIL'");
+        rs.next();
+        assertEquals(0, rs.getLong(1));
+        rs = stat.executeQuery("select count(*), sum(id), min(data), max(data) from test2");
+        rs.next();
+        assertEquals(100_000, rs.getLong(1));
+        assertEquals(5_000_050_000L, rs.getLong(2));
+        assertEquals("data 1", rs.getString(3));
+        assertEquals("data 99999", rs.getString(4));
+        rs = stat.executeQuery("select count(*) from test3");
+        rs.next();
+        assertEquals(0, rs.getLong(1));
+    }
+
+    private void testParallelCreateIndex() throws SQLException {
+        if (config.memory) {
+            return;
+        }
+        deleteDb(getTestName());
+        Connection conn = getConnection(getTestName() + ";MAX_PARALLEL_WORKERS=4;MAX_MEMORY_ROWS=10000");
+        Statement stat = conn.createStatement();
+        stat.execute("create table test(id int primary key, v int, name varchar)");
+        stat.execute("insert into test select x, mod(x * 7919, 1000), 'n' || mod(x * 7919, 200003) "
+                + "from system_range(1, 200000)");
+        stat.execute("create index idx_v on test(v, name)");
+        stat.execute("create unique index idx_name on test(name)");
+        assertThrows(ErrorCode.DUPLICATE_KEY_1, stat).execute("create unique index idx_fail on test(v)");
+        stat.execute("delete from test where mod(id, 7) = 0");
+        conn.close();
+        conn = getConnection(getTestName());
+        stat = conn.createStatement();
+        ResultSet rs = stat.executeQuery("select count(*), sum(id) from test use index () where v = 17");
+        rs.next();
+        long count = rs.getLong(1);
+        long sum = rs.getLong(2);
+        assertTrue(count > 100 && count < 200);
+        rs = stat.executeQuery("select count(*), sum(id) from test use index (idx_v) where v = 17");
+        rs.next();
+        assertEquals(count, rs.getLong(1));
+        assertEquals(sum, rs.getLong(2));
+        rs = stat.executeQuery("select id from test where name = 'n7919'");
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+        rs = stat.executeQuery("select count(*) from information_schema.indexes where index_name = 'IDX_FAIL'");
+        rs.next();
+        assertEquals(0, rs.getLong(1));
+        conn.close();
+        deleteDb(getTestName());
+    }
+
     private void testBlob() throws SQLException, IOException {
         if (config.memory) {
             return;
@@ -12,13 +12,16 @@
 import java.sql.Statement;
 import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
+import org.h2.engine.IsolationLevel;
 import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
 import org.h2.mvstore.MVStoreException;
 import org.h2.mvstore.tx.Transaction;
@@ -32,6 +35,7 @@
 import org.h2.store.fs.FileUtils;
 import org.h2.test.TestBase;
 import org.h2.util.Task;
+import org.h2.value.VersionedValue;
 
 /**
  * Test concurrent transactions.
@@ -54,12 +58,15 @@ public void test() throws Exception {
         testConcurrentAddRemove();
         testConcurrentAdd();
         testCountWithOpenTransactions();
+        testCountWithSnapshots();
+        testReadOnlyTransaction();
         testConcurrentUpdate();
         testRepeatedChange();
         testTransactionAge();
         testGetModifiedMaps();
         testKeyIterator();
         testTwoPhaseCommit();
+        testUndoLogBuffer();
         testSavepoint();
         testConcurrentTransactionsReadCommitted();
         testSingleConnection();
@@ -67,6 +74,7 @@ public void test() throws Exception {
         testStoreMultiThreadedReads();
         testCommitAfterMapRemoval();
         testDeadLock();
+        testGroupCommit();
     }
 
     private void testHCLFKey() {
@@ -267,6 +275,150 @@ private void testCountWithOpenTransactions() {
         }
     }
 
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void testCountWithSnapshots() {
+        try (MVStore s = MVStore.open(null)) {
+            TransactionStore ts = new TransactionStore(s);
+            ts.init();
+            Transaction tx = ts.begin();
+            TransactionMap<Integer, Integer> map = tx.openMap("data");
+            for (int i = 0; i < 100; i++) {
+                map.put(i, i);
+            }
+            tx.commit();
+
+            TransactionStore.RollbackListener listener = (m, key, existingValue, restoredValue) -> {};
+            Transaction rr = ts.begin(listener, 0, 0, IsolationLevel.REPEATABLE_READ);
+            TransactionMap<Integer, Integer> rrMap = rr.openMap("data");
+            HashSet<MVMap<Object, VersionedValue<Object>>> maps = new HashSet<>();
+            maps.add((MVMap) rrMap.map);
+            rr.markStatementStart(maps);
+            assertCount(100, rrMap);
+
+            Transaction writer = ts.begin();
+            TransactionMap<Integer, Integer> writerMap = writer.openMap("data");
+            for (int i = 100; i < 110; i++) {
+                writerMap.put(i, i);
+            }
+            for (int i = 0; i < 5; i++) {
+                writerMap.remove(i);
+            }
+            writerMap.put(50, -1);
+            writerMap.remove(1000);
+            assertCount(105, writerMap);
+            assertCount(100, rrMap);
+            Transaction uncommitted = ts.begin(listener, 0, 0, IsolationLevel.READ_UNCOMMITTED);
+            assertCount(105, uncommitted.openMap("data"));
+            uncommitted.commit();
+
+            for (int i = 200; i < 203; i++) {
+                rrMap.put(i, i);
+            }
+            assertCount(100, rrMap);
+            rr.markStatementStart(maps);
+            assertCount(103, rrMap);
+
+            long savepoint = writer.setSavepoint();
+            for (int i = 5; i < 15; i++) {
+                writerMap.remove(i);
+            }
+            writerMap.put(300, 300);
+            assertCount(96, writerMap);
+            writer.rollbackToSavepoint(savepoint);
+            assertCount(105, writerMap);
+            writer.commit();
+
+            tx = ts.begin();
+            assertCount(105, tx.openMap("data"));
+            tx.commit();
+            assertCount(103, rrMap);
+
+            // more commits than the number of kept committed sizes
+            for (int i = 0; i < 100; i++) {
+                tx = ts.begin();
+                tx.openMap("data").put(1000 + i, i);
+                tx.commit();
+            }
+            assertCount(103, rrMap);
+            rr.rollback();
+
+            tx = ts.begin();
+            map = tx.openMap("data");
+            assertCount(205, map);
+            map.put(2000, 0);
+            map.clear();
+            assertCount(0, map);
+            map.put(2000, 0);
+            tx.commit();
+            tx = ts.begin();
+            assertCount(1, tx.openMap("data"));
+            tx.commit();
+        }
+    }
+
+    private void testReadOnlyTransaction() {
+        try (MVStore s = MVStore.open(null)) {
+            TransactionStore ts = new TransactionStore(s);
+            ts.init();
+            Transaction tx = ts.begin();
+            TransactionMap<Integer, Integer> map = tx.openMap("data");
+            for (int i = 0; i < 100; i++) {
+                map.put(i, i);
+            }
+            tx.commit();
+
+            Transaction ro = ts.begin();
+            ro.setReadOnly(true);
+            assertTrue(ro.isReadOnly());
+            TransactionMap<Integer, Integer> roMap = ro.openMap("data");
+            HashSet<MVMap<Object, VersionedValue<Object>>> maps = new HashSet<>();
+            maps.add((MVMap) roMap.map);
+            ro.markStatementStart(maps);
+            assertCount(100, roMap);
+            assertEquals(50, roMap.getFromSnapshot(50).intValue());
+            ro.markStatementEnd();
+
+            Transaction writer = ts.begin();
+            TransactionMap<Integer, Integer> writerMap = writer.openMap("data");
+            for (int i = 0; i < 10; i++) {
+                writerMap.remove(i);
+            }
+            writerMap.put(50, -1);
+            writerMap.put(100, 100);
+            ro.markStatementStart(maps);
+            assertCount(100, roMap);
+            assertEquals(50, roMap.getFromSnapshot(50).intValue());
+            assertEquals(0, roMap.getFromSnapshot(0).intValue());
+            assertNull(roMap.getFromSnapshot(100));
+            ro.markStatementEnd();
+            writer.commit();
+
+            ro.markStatementStart(maps);
+            assertCount(91, roMap);
+            assertEquals(-1, roMap.getFromSnapshot(50).intValue());
+            assertNull(roMap.getFromSnapshot(0));
+            ro.markStatementEnd();
+
+            writer = ts.begin();
+            writer.openMap("data").put(200, 200);
+            writer.rollback();
+            ro.markStatementStart(maps);
+            assertCount(91, roMap);
+            assertNull(roMap.getFromSnapshot(200));
+            ro.markStatementEnd();
+            ro.commit();
+        }
+    }
+
+    private void assertCount(int expected, TransactionMap<Integer, Integer> map) {
+        int count = 0;
+        for (Iterator<Integer> it = map.keyIterator(null); it.hasNext(); it.next()) {
+            count++;
+        }
+        assertEquals(expected, count);
+        assertEquals(expected, map.sizeAsLong());
+    }
+
     private void testConcurrentUpdate() {
         try (MVStore s = MVStore.open(null)) {
             TransactionStore ts = new TransactionStore(s);
@@ -537,6 +689,80 @@ private void testTwoPhaseCommit() {
         FileUtils.delete(fileName);
     }
 
+    private void testUndoLogBuffer() {
+        String fileName = getBaseDir() + "/testUndoLogBuffer.h3";
+        FileUtils.delete(fileName);
+
+        MVStore s = new MVStore.Builder().fileName(fileName).autoCommitDisabled().open();
+        TransactionStore ts = new TransactionStore(s);
+        ts.init();
+        Transaction tx = ts.begin();
+        TransactionMap<Integer, Integer> m = tx.openMap("data");
+        for (int i = 0; i < 10; i++) {
+            m.put(i, i);
+        }
+        tx.commit();
+        s.commit();
+
+        // the records of short transactions are kept in memory
+        MVMap<Long, Object> undoLog = s.openMap(TransactionStore.UNDO_LOG_NAME_PREFIX + ".1");
+        long undoLogVersion = undoLog.getVersion();
+        tx = ts.begin();
+        m = tx.openMap("data");
+        m.put(1, -1);
+        long savepoint = tx.setSavepoint();
+        m.remove(2);
+        m.put(20, 20);
+        Iterator<Change> changes = tx.getChanges(savepoint);
+        assertEquals(20, changes.next().key);
+        assertEquals(2, changes.next().key);
+        assertFalse(changes.hasNext());
+        tx.rollbackToSavepoint(savepoint);
+        assertEquals(2, m.get(2).intValue());
+        assertNull(m.get(20));
+        tx.commit();
+        assertEquals(undoLogVersion, undoLog.getVersion());
+        assertTrue(undoLog.isEmpty());
+
+        // large transactions use the undo log
+        tx = ts.begin();
+        m = tx.openMap("data");
+        for (int i = 100; i < 300; i++) {
+            m.put(i, i);
+        }
+        assertFalse(undoLog.isEmpty());
+        tx.rollback();
+        assertNull(m.get(100));
+        assertEquals(10, m.sizeAsLong());
+
+        // records are moved to the undo log before the store is written
+        tx = ts.begin();
+        m = tx.openMap("data");
+        m.put(1, 100);
+        m.put(30, 30);
+        assertTrue(undoLog.isEmpty());
+        s.commit();
+        assertEquals(2, undoLog.sizeAsLong());
+        m.put(31, 31);
+        s.commit();
+        s.closeImmediately();
+
+        s = new MVStore.Builder().fileName(fileName).autoCommitDisabled().open();
+        ts = new TransactionStore(s);
+        ts.init();
+        List<Transaction> list = ts.getOpenTransactions();
+        assertEquals(1, list.size());
+        ts.endLeftoverTransactions();
+        tx = ts.begin();
+        m = tx.openMap("data");
+        assertEquals(-1, m.get(1).intValue());
+        assertNull(m.get(30));
+        assertNull(m.get(31));
+        assertEquals(10, m.sizeAsLong());
+        tx.commit();
+        s.close();
+    }
+
     private void testSavepoint() {
         try (MVStore s = MVStore.open(null)) {
             TransactionStore ts = new TransactionStore(s);
@@ -1006,4 +1232,56 @@ public void call() throws Exception {
             assertEquals(" "+stepCount, (stepCount+1) * (threadCount - failureCount), count);
         }
     }
+
+    private void testGroupCommit() throws Exception {
+        String fileName = getBaseDir() + "/testGroupCommit.h3";
+        FileUtils.delete(fileName);
+        try (MVStore s = new MVStore.Builder().fileName(fileName).autoCommitDisabled().open()) {
+            MVMap<Integer, Integer> map = s.openMap("data");
+            map.put(1, 1);
+            long version = s.getCurrentVersion();
+            s.commit(version);
+            long writeCount = s.getFileStore().getWriteCount();
+            // already written by the previous commit
+            s.commit(version);
+            assertEquals(writeCount, s.getFileStore().getWriteCount());
+            map.put(2, 2);
+            s.commit(s.getCurrentVersion());
+            assertTrue(s.getFileStore().getWriteCount() > writeCount);
+        }
+        int threadCount = 4, count = 200;
+        try (MVStore s = new MVStore.Builder().fileName(fileName).autoCommitDisabled().open()) {
+            TransactionStore ts = new TransactionStore(s);
+            ts.init();
+            Task[] tasks = new Task[threadCount];
+            for (int i = 0; i < threadCount; i++) {
+                int x = i;
+                tasks[i] = new Task() {
+                    @Override
+                    public void call() {
+                        for (int j = 0; j < count; j++) {
+                            Transaction tx = ts.begin();
+                            TransactionMap<Integer, Integer> map = tx.openMap("test");
+                            map.put(x * count + j, j);
+                            tx.commit();
+                        }
+                    }
+                }.execute();
+            }
+            for (Task t : tasks) {
+                t.get();
+            }
+        }
+        try (MVStore s = new MVStore.Builder().fileName(fileName).open()) {
+            TransactionStore ts = new TransactionStore(s);
+            ts.init();
+            TransactionMap<Integer, Integer> map = ts.begin().openMap("test");
+            assertEquals(threadCount * count, map.sizeAsLong());
+            for (int i = 0; i < threadCount * count; i++) {
+                assertEquals(i % count, map.get(i).intValue());
+            }
+        }
+        FileUtils.delete(fileName);
+    }
+
 }
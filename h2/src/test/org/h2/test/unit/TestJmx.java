@@ -60,6 +60,12 @@ public void test() throws Exception {
                 getAttribute(name, "CacheSizeMax").toString());
         assertEquals("0", mbeanServer.
                 getAttribute(name, "CacheSize").toString());
+        assertEquals("0", mbeanServer.
+                getAttribute(name, "CacheHits").toString());
+        assertEquals("0", mbeanServer.
+                getAttribute(name, "CacheMisses").toString());
+        assertEquals("0", mbeanServer.
+                getAttribute(name, "CacheEvictions").toString());
         assertEquals("false", mbeanServer.
                 getAttribute(name, "Exclusive").toString());
         assertEquals("0", mbeanServer.
@@ -78,7 +84,7 @@ public void test() throws Exception {
         assertEquals("0", mbeanServer.
                 getAttribute(name, "TraceLevel").toString());
         assertEquals(Constants.FULL_VERSION, mbeanServer.getAttribute(name, "Version").toString());
-        assertEquals(10, info.getAttributes().length);
+        assertEquals(13, info.getAttributes().length);
         result = mbeanServer.invoke(name, "listSettings", null, null).toString();
         assertContains(result, "ANALYZE_AUTO");
 
@@ -133,6 +139,7 @@ public void test() throws Exception {
                     getAttribute(name, "CacheSize").toString());
             assertTrue(0 < (Long) mbeanServer.
                     getAttribute(name, "FileReadCount"));
+            assertTrue(0 < (Long) mbeanServer.getAttribute(name, "CacheMisses"));
             // FileWriteCount can be not yet updated and may return 0
             assertTrue(0 <= (Long) mbeanServer.getAttribute(name, "FileWriteCount"));
         }